@@ -1,12 +1,26 @@
 package org.ocpsoft.urlbuilder.util;
 
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 public class Decoder
 {
 
    private static final Charset UTF8 = Charset.forName("UTF8");
 
+   // the value of each hexadecimal digit, -1 for all other characters
+   private static final int[] HEX = new int['f' + 1];
+
+   static {
+      Arrays.fill(HEX, -1);
+      for (int i = 0; i < 10; i++) {
+         HEX['0' + i] = i;
+      }
+      for (int i = 0; i < 6; i++) {
+         HEX['a' + i] = HEX['A' + i] = 10 + i;
+      }
+   }
+
    public static String path(final CharSequence path)
    {
       return decode(path, false);
@@ -18,10 +32,23 @@ public class Decoder
    }
 
    public static String decode(final CharSequence path, final boolean query) {
-      StringBuilder decoded = new StringBuilder();
       int length = path.length();
       int pos = 0;
 
+      // nothing to decode: return the input without copying it
+      while (pos < length) {
+         char c = path.charAt(pos);
+         if (c == '%' || (query && c == '+'))
+            break;
+         pos++;
+      }
+      if (pos == length)
+         return path.toString();
+
+      StringBuilder decoded = new StringBuilder(length);
+      decoded.append(path, 0, pos);
+      byte[] bytes = null;
+
       while (pos < length) {
          // '+' -> ' ' for query strings
          if (query && path.charAt(pos) == '+') {
@@ -34,7 +61,8 @@ public class Decoder
          if (path.charAt(pos) == '%') {
 
             // a single Unicode char may be represented by multiple percent encoded bytes
-            byte[] bytes = new byte[length / 3];
+            if (bytes == null)
+               bytes = new byte[length / 3];
             int i = 0;
             boolean invalid = false;
 
@@ -42,15 +70,15 @@ public class Decoder
 
                // make sure we can read the two hex characters
                if (pos + 2 < length) {
-                  try {
-                     String hex = path.subSequence(pos + 1, pos + 3).toString();
-                     int b = Integer.parseInt(hex, 16);
-                     bytes[i++] = (byte) b;
-                  }
-                  catch (NumberFormatException e) {
+                  int high = hex(path.charAt(pos + 1));
+                  int low = hex(path.charAt(pos + 2));
+                  if (high < 0 || low < 0) {
                      // not a valid hex value
                      invalid = true;
                   }
+                  else {
+                     bytes[i++] = (byte) ((high << 4) | low);
+                  }
                }
                pos += 3;
 
@@ -76,4 +104,11 @@ public class Decoder
       }
       return decoded.toString();
    }
+
+   /*
+    * Return the value of the given hexadecimal digit, or -1 if it is none.
+    */
+   private static int hex(final char c) {
+      return c < HEX.length ? HEX[c] : -1;
+   }
 }
@@ -1,52 +1,150 @@
 package org.ocpsoft.urlbuilder.util;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URLEncoder;
 import java.nio.charset.Charset;
+import java.text.Normalizer;
 
 /**
  * Utility class to encode URL path and query parts.
- * 
+ *
+ * Characters are looked up in a table of those that may appear unescaped; everything else is written as percent
+ * escaped UTF-8 bytes. Input that needs no escaping is returned as is, without copying.
+ *
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class Encoder
 {
-
    private static final Charset UTF8 = Charset.forName("UTF-8");
 
+   private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+   /*
+    * The characters allowed unescaped in a path by RFC 2396: unreserved, ":@&=+$," and ";/".
+    */
+   private static final boolean[] PATH = new boolean[128];
+
+   /*
+    * The characters left unescaped by HTML form encoding: alphanumerics and ".-*_".
+    */
+   private static final boolean[] QUERY = new boolean[128];
+
+   static {
+      for (char c = '0'; c <= '9'; c++) {
+         PATH[c] = QUERY[c] = true;
+      }
+      for (char c = 'a'; c <= 'z'; c++) {
+         PATH[c] = QUERY[c] = true;
+      }
+      for (char c = 'A'; c <= 'Z'; c++) {
+         PATH[c] = QUERY[c] = true;
+      }
+      for (char c : "-_.!~*'():@&=+$,;/".toCharArray()) {
+         PATH[c] = true;
+      }
+      for (char c : ".-*_".toCharArray()) {
+         QUERY[c] = true;
+      }
+   }
+
    /**
     * Encodes the given string using HTML form encoding as described in RFC 2396.
-    * 
+    *
     * @throws IllegalArgumentException when illegal URI syntax is attempted.
     */
    public static String path(CharSequence s) throws IllegalArgumentException
    {
-      try
-      {
-         final URI uri = new URI("http", "0.0.0.0", "/" + s, null);
-         return uri.toASCIIString().substring(15);
-      }
-      catch (URISyntaxException e)
+      int start = unescaped(s, PATH);
+      if (start == s.length())
+         return s.toString();
+
+      /*
+       * Like java.net.URI, compose characters before encoding them, so that equivalent paths are encoded alike.
+       */
+      if (!isAscii(s, start))
       {
-         throw new IllegalArgumentException(e);
+         s = Normalizer.normalize(s, Normalizer.Form.NFC);
+         start = unescaped(s, PATH);
       }
+      return encode(s, start, PATH, false);
    }
 
    /**
     * Encodes the given string using HTML form encoding as described in RFC 2396.
-    * 
+    *
     * @throws IllegalArgumentException when illegal URI syntax is attempted.
     */
    public static String query(CharSequence s) throws IllegalArgumentException
    {
-      try {
-         return URLEncoder.encode(s.toString(), UTF8.name());
+      int start = unescaped(s, QUERY);
+      if (start == s.length())
+         return s.toString();
+
+      return encode(s, start, QUERY, true);
+   }
+
+   /*
+    * Return the index of the first character that must be escaped, or the length of the input if there is none.
+    */
+   private static int unescaped(CharSequence s, boolean[] allowed)
+   {
+      int length = s.length();
+      for (int i = 0; i < length; i++) {
+         char c = s.charAt(i);
+         if (c >= 128 || !allowed[c])
+            return i;
+      }
+      return length;
+   }
+
+   private static boolean isAscii(CharSequence s, int start)
+   {
+      for (int i = start; i < s.length(); i++) {
+         if (s.charAt(i) >= 128)
+            return false;
       }
-      catch (UnsupportedEncodingException e) {
-         throw new IllegalArgumentException(e);
+      return true;
+   }
+
+   private static String encode(CharSequence s, int start, boolean[] allowed, boolean form)
+   {
+      int length = s.length();
+      StringBuilder result = new StringBuilder(length + 16);
+      result.append(s, 0, start);
+
+      int i = start;
+      while (i < length)
+      {
+         char c = s.charAt(i);
+         if (c < 128)
+         {
+            if (allowed[c])
+               result.append(c);
+            else if (form && c == ' ')
+               result.append('+');
+            else
+               escape(result, c);
+            i++;
+         }
+         else
+         {
+            /*
+             * Encode the whole run of non-ASCII characters at once, so that surrogate pairs stay together.
+             */
+            int end = i + 1;
+            while (end < length && s.charAt(end) >= 128) {
+               end++;
+            }
+            for (byte b : s.subSequence(i, end).toString().getBytes(UTF8)) {
+               escape(result, b & 0xFF);
+            }
+            i = end;
+         }
       }
+      return result.toString();
+   }
+
+   private static void escape(StringBuilder result, int b)
+   {
+      result.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
    }
 
 }
@@ -16,6 +16,7 @@
 package org.ocpsoft.urlbuilder.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -122,5 +123,19 @@ public class DecoderTest
       assertEquals("foo bar", Decoder.query("foo bar"));
    }
 
-   
+   @Test
+   public void pathSurrogatePair()
+   {
+      assertEquals("/foo\uD83D\uDE00bar", Decoder.path("/foo%F0%9F%98%80bar"));
+   }
+
+   @Test
+   public void unescapedInputIsReturned()
+   {
+      String path = "/foo+bar";
+      assertSame(path, Decoder.path(path));
+      String query = "foo=bar";
+      assertSame(query, Decoder.query(query));
+   }
+
 }
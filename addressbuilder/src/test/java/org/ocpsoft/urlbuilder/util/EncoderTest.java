@@ -1,6 +1,7 @@
 package org.ocpsoft.urlbuilder.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
@@ -30,4 +31,35 @@ public class EncoderTest
       assertEquals("Really%3F", Encoder.query("Really?"));
    }
 
+   @Test
+   public void testPathNonAscii()
+   {
+      assertEquals("b%C3%BCcher", Encoder.path("b\u00FCcher"));
+      assertEquals("%F0%9F%98%80", Encoder.path("\uD83D\uDE00"));
+      assertEquals("%C2%A0", Encoder.path("\u00A0"));
+   }
+
+   @Test
+   public void testPathComposesCharacters()
+   {
+      assertEquals("b%C3%BCcher", Encoder.path("bu\u0308cher"));
+      assertEquals("%3E%CC%81", Encoder.path(">\u0301"));
+   }
+
+   @Test
+   public void testQueryNonAscii()
+   {
+      assertEquals("b%C3%BCcher+%26+more", Encoder.query("b\u00FCcher & more"));
+      assertEquals("%F0%9F%98%80", Encoder.query("\uD83D\uDE00"));
+   }
+
+   @Test
+   public void testUnescapedInputIsReturned()
+   {
+      String path = "/store/books/42";
+      assertSame(path, Encoder.path(path));
+      String query = "books";
+      assertSame(query, Encoder.query(query));
+   }
+
 }
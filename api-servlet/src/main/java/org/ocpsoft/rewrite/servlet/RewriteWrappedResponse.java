@@ -15,12 +15,15 @@
  */
 package org.ocpsoft.rewrite.servlet;
 
+import java.io.IOException;
+
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.servlet.config.response.EncodingResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptor;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
 
@@ -42,6 +45,7 @@ public abstract class RewriteWrappedResponse extends HttpServletResponseWrapper
    }
 
    private HttpServletRequest request;
+   private int status = SC_OK;
 
    /**
     * Set the current {@link RewriteWrappedResponse} instance.
@@ -68,6 +72,68 @@ public abstract class RewriteWrappedResponse extends HttpServletResponseWrapper
       return request;
    }
 
+   /**
+    * Return the status code last set on this {@link RewriteWrappedResponse}, or <code>200</code> if none was set. The
+    * status is tracked here because {@link HttpServletResponse} offers no way to read it before Servlet 3.0.
+    */
+   public int getResponseStatus()
+   {
+      return status;
+   }
+
+   /**
+    * Return <code>true</code> if content may already have been written to the current {@link HttpServletResponse}, so
+    * that operations must not assume they produce the whole response. This implementation only checks
+    * {@link #isCommitted()}.
+    */
+   public boolean isResponseContentWritten()
+   {
+      return isCommitted();
+   }
+
+   @Override
+   public void setStatus(int sc)
+   {
+      status = sc;
+      super.setStatus(sc);
+   }
+
+   @Override
+   @SuppressWarnings("deprecation")
+   public void setStatus(int sc, String sm)
+   {
+      status = sc;
+      super.setStatus(sc, sm);
+   }
+
+   @Override
+   public void sendError(int sc, String msg) throws IOException
+   {
+      status = sc;
+      super.sendError(sc, msg);
+   }
+
+   @Override
+   public void sendError(int sc) throws IOException
+   {
+      status = sc;
+      super.sendError(sc);
+   }
+
+   @Override
+   public void sendRedirect(String location) throws IOException
+   {
+      status = SC_FOUND;
+      super.sendRedirect(location);
+   }
+
+   @Override
+   public void reset()
+   {
+      status = SC_OK;
+      super.reset();
+   }
+
    /**
     * Return <code>true</code> if any {@link ResponseContentInterceptor} instances have been registered on the current
     * {@link HttpServletResponse}.
@@ -89,6 +155,9 @@ public abstract class RewriteWrappedResponse extends HttpServletResponseWrapper
    /**
     * Register a new {@link ResponseStreamWrapper} for the current {@link HttpServletResponse}. This method must be
     * called before the {@link HttpServletRequest} has been passed to the underlying application..
+    * <p>
+    * Each wrapper writes into the stream of the wrapper registered before it, except that
+    * {@link EncodingResponseStreamWrapper} instances are always applied last, closest to the response.
     */
    abstract public void addStreamWrapper(ResponseStreamWrapper wrapper);
 
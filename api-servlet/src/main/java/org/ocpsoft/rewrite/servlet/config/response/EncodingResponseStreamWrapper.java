@@ -0,0 +1,32 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.OutputStream;
+
+import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
+
+/**
+ * A {@link ResponseStreamWrapper} that applies a <code>Content-Encoding</code>, such as compression, to the response
+ * {@link OutputStream}. Whatever order they are registered in (see
+ * {@link RewriteWrappedResponse#addStreamWrapper(ResponseStreamWrapper)}), wrappers of this type are applied after all
+ * other {@link ResponseStreamWrapper} instances, so that those never see encoded output.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface EncodingResponseStreamWrapper extends ResponseStreamWrapper
+{
+}
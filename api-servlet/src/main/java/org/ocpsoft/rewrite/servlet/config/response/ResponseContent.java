@@ -27,7 +27,9 @@ import javax.servlet.http.HttpServletResponse;
 public interface ResponseContent
 {
    /**
-    * Get the contents of this buffer. 
+    * Get the contents of this buffer. This may copy the buffered response into a new array; if this buffer is also a
+    * {@link StreamableResponseContent}, use {@link StreamableResponseContent#getInputStream()} to only read the
+    * contents.
     */
    public byte[] getContents();
 
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.InputStream;
+
+/**
+ * A {@link ResponseContent} whose contents can be read without copying them into a single array. Large responses may
+ * be buffered on disk, so {@link ResponseContentInterceptor} instances that only read the contents should check for
+ * this interface before calling {@link #getContents()}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface StreamableResponseContent extends ResponseContent
+{
+   /**
+    * Get an {@link InputStream} reading the contents of this buffer, without copying them. The caller must close the
+    * returned stream, since it may hold an open file.
+    */
+   public InputStream getInputStream();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.spi;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import org.ocpsoft.common.pattern.Weighted;
+
+/**
+ * SPI for deferring work until an asynchronously processed request has completed. Buffered response content and
+ * {@link org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper} output can only be finished once the
+ * application has written the whole response, which for asynchronous requests happens after control has returned to
+ * the <code>RewriteFilter</code>.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface AsyncRequestProvider extends Weighted
+{
+   /**
+    * If asynchronous processing has been started for the given request, arrange for the given callback to be run once
+    * the request has completed, and return <code>true</code>. Method must return <code>false</code> if asynchronous
+    * processing has not been started, or if the provider is unable to reason about it; the caller then runs the
+    * callback itself.
+    */
+   boolean runOnCompletion(ServletRequest request, ServletContext context, Runnable callback);
+}
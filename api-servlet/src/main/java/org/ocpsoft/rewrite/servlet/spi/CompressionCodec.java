@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.spi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.ocpsoft.common.pattern.Weighted;
+
+/**
+ * Compresses response content for one HTTP content coding, such as <code>gzip</code> or <code>deflate</code>. When a
+ * client accepts several codings equally, the codec with the lowest {@link #priority()} is used.
+ *
+ * Additional codecs may be specified by providing a service activator file containing the name of your
+ * implementations:
+ * <p>
+ * <code> /META-INF/services/org.ocpsoft.rewrite.servlet.spi.CompressionCodec<br>
+ *
+ * --------------<br>
+ * com.example.CompressionCodecImpl</code>
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface CompressionCodec extends Weighted
+{
+   /**
+    * Return the content coding produced by this codec, as used in the <code>Accept-Encoding</code> and
+    * <code>Content-Encoding</code> headers.
+    */
+   String getEncoding();
+
+   /**
+    * Return an {@link OutputStream} that compresses all data written to it, at the given level, into the given
+    * {@link OutputStream}. Levels range from <code>1</code> (fastest) to <code>9</code> (smallest); <code>-1</code>
+    * selects the codec's default. Closing the returned stream must complete the compressed output and release all
+    * resources held by it, but must not close the given stream.
+    */
+   OutputStream compress(OutputStream output, int level) throws IOException;
+}
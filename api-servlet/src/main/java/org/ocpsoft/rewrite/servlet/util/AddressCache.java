@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+/**
+ * Holds values derived from the {@link Address} of a {@link HttpServletRewrite} event, so that rule selection and the
+ * conditions of all rules share a single decode instead of repeating it for each evaluation.
+ * <p>
+ * Values are stored in the {@link HttpServletRewrite#getRewriteContext()} together with the {@link Address} they were
+ * derived from. That context lives as long as the request, so values are derived again whenever the event presents a
+ * different {@link Address}, as it does after a forward.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class AddressCache
+{
+   private static final String PATH_KEY = AddressCache.class.getName() + "_PATH";
+   private static final String QUERY_KEY = AddressCache.class.getName() + "_QUERY";
+
+   private AddressCache()
+   {}
+
+   /**
+    * Return the decoded path of the {@link HttpServletRewrite#getInboundAddress()}, relative to the context path.
+    */
+   public static String getContextRelativePath(final HttpServletRewrite event)
+   {
+      Address address = event.getInboundAddress();
+      Context context = event.getRewriteContext();
+
+      Entry entry = context == null ? null : (Entry) context.get(PATH_KEY);
+      if (entry == null || entry.address != address)
+      {
+         String path = AddressBuilder.begin().pathDecoded(address.getPath()).buildLiteral().toString();
+         entry = new Entry(address, stripContextPath(path, event.getContextPath()));
+         if (context != null)
+            context.put(PATH_KEY, entry);
+      }
+      return (String) entry.value;
+   }
+
+   /**
+    * Return the decoded query parameters of the {@link HttpServletRewrite#getAddress()}. The returned
+    * {@link QueryStringBuilder} is shared and must not be modified.
+    */
+   public static QueryStringBuilder getDecodedQuery(final HttpServletRewrite event)
+   {
+      Address address = event.getAddress();
+      Context context = event.getRewriteContext();
+
+      Entry entry = context == null ? null : (Entry) context.get(QUERY_KEY);
+      if (entry == null || entry.address != address)
+      {
+         entry = new Entry(address, QueryStringBuilder.createFromEncoded(address.getQuery()).decode());
+         if (context != null)
+            context.put(QUERY_KEY, entry);
+      }
+      return (QueryStringBuilder) entry.value;
+   }
+
+   /**
+    * Remove the given context path from the start of the given URL, unless the context path is the root.
+    */
+   public static String stripContextPath(final String url, final String contextPath)
+   {
+      if (!contextPath.equals("/") && url.startsWith(contextPath))
+         return url.substring(contextPath.length());
+      return url;
+   }
+
+   private static class Entry
+   {
+      private final Address address;
+      private final Object value;
+
+      public Entry(final Address address, final Object value)
+      {
+         this.address = address;
+         this.value = value;
+      }
+   }
+}
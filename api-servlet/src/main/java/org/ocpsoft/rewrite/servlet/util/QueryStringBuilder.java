@@ -46,6 +46,11 @@ public class QueryStringBuilder
 
    private final Map<String, List<String>> parameters = new LinkedHashMap<String, List<String>>();
 
+   /*
+    * Names of parameters whose values are still URL encoded, after decode(). Values are decoded when first read.
+    */
+   private Set<String> undecoded;
+
    /**
     * Return a new empty instance of {@link QueryStringBuilder}
     */
@@ -110,62 +115,78 @@ public class QueryStringBuilder
     */
    public QueryStringBuilder addParameters(final String url)
    {
-      String temp = extractQuery(url);
-      if (temp != null)
+      String query = extractQuery(url);
+      if (query != null)
       {
-         temp = decodeHTMLAmpersands(temp);
-         int index = 0;
-         while ((index = temp.indexOf('&')) >= 0 || !temp.isEmpty())
+         query = decodeHTMLAmpersands(query);
+
+         /*
+          * Single pass over the query string: each pair is located by offsets, and only its name and value are copied.
+          */
+         int length = query.length();
+         int start = 0;
+         while (start < length)
          {
-            String pair = temp;
-            if (index >= 0)
-            {
-               pair = temp.substring(0, index);
-               temp = temp.substring(index);
-               if (!temp.isEmpty())
-                  temp = temp.substring(1);
+            int end = query.indexOf('&', start);
+            if (end < 0)
+               end = length;
+
+            int pos = start;
+            while (pos < end && query.charAt(pos) != '=') {
+               pos++;
             }
-            else
-               temp = "";
 
             String name;
             String value;
-            int pos = pair.indexOf('=');
             // for "n=", the value is "", for "n", the value is null
-            if (pos == -1)
+            if (pos == end)
             {
-               name = pair;
+               name = query.substring(start, end);
                value = null;
             }
             else
             {
-               name = pair.substring(0, pos);
-               value = pair.substring(pos + 1, pair.length());
+               name = query.substring(start, pos);
+               value = query.substring(pos + 1, end);
             }
 
-            List<String> list = parameters.get(name);
+            List<String> list = values(name);
             if (list == null)
             {
                list = new ArrayList<String>();
                parameters.put(name, list);
             }
             list.add(value);
+
+            start = end + 1;
          }
       }
       return this;
    }
 
+   /*
+    * Replace each "&amp;" by "&". Like repeated replacement, "&amp;amp;" also becomes "&".
+    */
    private String decodeHTMLAmpersands(String url)
    {
-      if (url != null)
+      if (url == null || url.indexOf("&amp;") < 0)
+         return url;
+
+      StringBuilder result = new StringBuilder(url.length());
+      int length = url.length();
+      int pos = 0;
+      while (pos < length)
       {
-         int index = 0;
-         while ((index = url.indexOf("&amp;")) >= 0)
+         char c = url.charAt(pos++);
+         result.append(c);
+         if (c == '&')
          {
-            url = url.substring(0, index + 1) + url.substring(index + 5);
+            while (url.startsWith("amp;", pos)) {
+               pos += 4;
+            }
          }
       }
-      return url;
+      return result.toString();
    }
 
    /**
@@ -201,7 +222,7 @@ public class QueryStringBuilder
                }
                values = temp;
             }
-            parameters.put(entry.getKey(), values);
+            put(entry.getKey(), values);
          }
       }
       return this;
@@ -223,7 +244,7 @@ public class QueryStringBuilder
             {
                values = new ArrayList<String>(entry.getValue());
             }
-            parameters.put(entry.getKey(), values);
+            put(entry.getKey(), values);
          }
       }
       return this;
@@ -231,11 +252,25 @@ public class QueryStringBuilder
 
    /**
     * Return a new {@link QueryStringBuilder} instance having called {@link URLDecoder#decode(String, String)} on each
-    * name=value pair.
+    * name=value pair. Names are decoded immediately, values only when they are first read.
     */
    public QueryStringBuilder decode()
    {
-      return new QueryStringBuilder().addParameterLists(getParameterMap(new QSDecoder()));
+      QSDecoder decoder = new QSDecoder();
+      QueryStringBuilder result = new QueryStringBuilder();
+      result.undecoded = new LinkedHashSet<String>();
+      for (Map.Entry<String, List<String>> entry : parameters.entrySet())
+      {
+         String name = decoder.encode(entry.getKey());
+         List<String> values = new ArrayList<String>();
+         for (String value : values(entry.getKey())) {
+            if (value != null)
+               values.add(value);
+         }
+         result.parameters.put(name, values);
+         result.undecoded.add(name);
+      }
+      return result;
    }
 
    /**
@@ -255,7 +290,7 @@ public class QueryStringBuilder
     */
    public String getParameter(final String name)
    {
-      List<String> values = parameters.get(name);
+      List<String> values = values(name);
       if (values == null)
       {
          return null;
@@ -284,7 +319,7 @@ public class QueryStringBuilder
       {
          String key = handler.encode(entry.getKey());
          List<String> values = new ArrayList<String>();
-         for (String value : entry.getValue()) {
+         for (String value : values(entry.getKey())) {
             if (value != null) {
                values.add(handler.encode(value));
             }
@@ -309,7 +344,7 @@ public class QueryStringBuilder
     */
    public String[] getParameterValues(final String name)
    {
-      List<String> values = parameters.get(name);
+      List<String> values = values(name);
       if (values == null)
       {
          return null;
@@ -331,7 +366,32 @@ public class QueryStringBuilder
 
    public List<String> removeParameter(final String string)
    {
-      return parameters.remove(string);
+      List<String> values = values(string);
+      parameters.remove(string);
+      return values;
+   }
+
+   /*
+    * Return the values of the given parameter, decoding them first if they are still encoded.
+    */
+   private List<String> values(final String name)
+   {
+      List<String> values = parameters.get(name);
+      if (values != null && undecoded != null && undecoded.remove(name))
+      {
+         QSDecoder decoder = new QSDecoder();
+         for (int i = 0; i < values.size(); i++) {
+            values.set(i, decoder.encode(values.get(i)));
+         }
+      }
+      return values;
+   }
+
+   private void put(final String name, final List<String> values)
+   {
+      if (undecoded != null)
+         undecoded.remove(name);
+      parameters.put(name, values);
    }
 
    /**
@@ -360,7 +420,7 @@ public class QueryStringBuilder
          {
             Entry<String, List<String>> entry = iterator.next();
             String key = entry.getKey();
-            List<String> values = entry.getValue();
+            List<String> values = values(key);
 
             if ((key != null) && !"".equals(key))
             {
@@ -423,6 +483,9 @@ public class QueryStringBuilder
       @Override
       public String encode(final String value)
       {
+         if (value.indexOf('%') < 0 && value.indexOf('+') < 0)
+            return value;
+
          try {
             return URLDecoder.decode(value, "UTF-8");
          }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.context.ContextBase;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class AddressCacheTest
+{
+   private Address address;
+   private Context context;
+   private HttpServletRewrite event;
+
+   @Before
+   public void before()
+   {
+      context = new ContextBase() {};
+      event = (HttpServletRewrite) Proxy.newProxyInstance(getClass().getClassLoader(),
+               new Class<?>[] { HttpServletRewrite.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args)
+                  {
+                     if ("getRewriteContext".equals(method.getName()))
+                        return context;
+                     if ("getContextPath".equals(method.getName()))
+                        return "/ctx";
+                     if ("getInboundAddress".equals(method.getName()) || "getAddress".equals(method.getName()))
+                        return address;
+                     return null;
+                  }
+               });
+   }
+
+   @Test
+   public void testContextRelativePathIsDecodedOnce()
+   {
+      address = AddressBuilder.begin().path("/ctx/a%20b/c").buildLiteral();
+      String path = AddressCache.getContextRelativePath(event);
+      Assert.assertEquals("/a b/c", path);
+      Assert.assertSame(path, AddressCache.getContextRelativePath(event));
+   }
+
+   @Test
+   public void testDecodedQueryIsShared()
+   {
+      address = AddressBuilder.begin().path("/ctx").query("x", "1 2").buildLiteral();
+      QueryStringBuilder query = AddressCache.getDecodedQuery(event);
+      Assert.assertEquals("1 2", query.getParameter("x"));
+      Assert.assertSame(query, AddressCache.getDecodedQuery(event));
+   }
+
+   @Test
+   public void testValuesAreDerivedAgainForNewAddress()
+   {
+      address = AddressBuilder.begin().path("/ctx/first").query("x", "1").buildLiteral();
+      Assert.assertEquals("/first", AddressCache.getContextRelativePath(event));
+      Assert.assertEquals("1", AddressCache.getDecodedQuery(event).getParameter("x"));
+
+      address = AddressBuilder.begin().path("/ctx/second").buildLiteral();
+      Assert.assertEquals("/second", AddressCache.getContextRelativePath(event));
+      Assert.assertTrue(AddressCache.getDecodedQuery(event).isEmpty());
+   }
+
+   @Test
+   public void testWithoutRewriteContext()
+   {
+      context = null;
+      address = AddressBuilder.begin().path("/ctx/a%2Fb").buildLiteral();
+      Assert.assertEquals("/a/b", AddressCache.getContextRelativePath(event));
+   }
+
+   @Test
+   public void testStripContextPath()
+   {
+      Assert.assertEquals("/a", AddressCache.stripContextPath("/ctx/a", "/ctx"));
+      Assert.assertEquals("/a", AddressCache.stripContextPath("/a", "/ctx"));
+      Assert.assertEquals("/a", AddressCache.stripContextPath("/a", "/"));
+   }
+}
@@ -15,10 +15,12 @@
  */
 package org.ocpsoft.rewrite.servlet.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -262,4 +264,55 @@ public class QueryStringBuilderTest
       assertEquals("?a=b%26c%3Dd", qs.encode().toQueryString());
    }
 
+   @Test
+   public void testAddParametersNestedEncodedAmpersand()
+   {
+      QueryStringBuilder qs = new QueryStringBuilder();
+      qs.addParameters("a=b&amp;amp;c=d&e=f");
+      assertEquals("?a=b&c=d&e=f", qs.toQueryString());
+   }
+
+   @Test
+   public void testAddParametersEmptyPairs()
+   {
+      QueryStringBuilder qs = QueryStringBuilder.createFromEncoded("&a=1&&a=2&b&c=&");
+      assertEquals(Arrays.asList("", "a", "b", "c"), new ArrayList<String>(qs.getParameterNames()));
+      assertArrayEquals(new String[] { "1", "2" }, qs.getParameterValues("a"));
+      assertArrayEquals(new String[] { null }, qs.getParameterValues("b"));
+      assertArrayEquals(new String[] { "" }, qs.getParameterValues("c"));
+   }
+
+   @Test
+   public void testAddParametersLongQueryString()
+   {
+      StringBuilder query = new StringBuilder();
+      for (int i = 0; i < 10000; i++) {
+         query.append("p").append(i % 100).append("=").append(i).append("&");
+      }
+      QueryStringBuilder qs = QueryStringBuilder.createFromEncoded(query.toString());
+      assertEquals(100, qs.getParameterNames().size());
+      assertEquals(100, qs.getParameterValues("p7").length);
+      assertEquals("9907", qs.getParameterValues("p7")[99]);
+   }
+
+   @Test
+   public void testDecodeIsLazyButComplete()
+   {
+      QueryStringBuilder qs = QueryStringBuilder.createFromEncoded("a%20b=c+d&e=%C3%A9&e=x&f").decode();
+      assertEquals(Arrays.asList("a b", "e", "f"), new ArrayList<String>(qs.getParameterNames()));
+      assertEquals("c d", qs.getParameter("a b"));
+      assertEquals("c d", qs.getParameter("a b"));
+      assertEquals(Arrays.asList("\u00e9", "x"), qs.removeParameter("e"));
+      assertEquals(0, qs.getParameterValues("f").length);
+      assertEquals("?a+b=c+d&f", qs.encode().toQueryString());
+   }
+
+   @Test
+   public void testDecodeThenAddParameters()
+   {
+      QueryStringBuilder qs = QueryStringBuilder.createFromEncoded("a=%26").decode();
+      qs.addParameters("a=%3D");
+      assertArrayEquals(new String[] { "&", "%3D" }, qs.getParameterValues("a"));
+   }
+
 }
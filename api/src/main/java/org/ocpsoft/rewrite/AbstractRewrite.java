@@ -24,6 +24,7 @@ import org.ocpsoft.rewrite.event.Rewrite;
 public abstract class AbstractRewrite implements Rewrite
 {
    private static final Logger log = Logger.getLogger(AbstractRewrite.class);
+   private static final String EVALUATED_RULES_KEY = AbstractRewrite.class.getName() + "_EVALUATED_RULES";
 
    private Context context = new ContextBase() {};
 
@@ -37,12 +38,11 @@ public abstract class AbstractRewrite implements Rewrite
    @SuppressWarnings("unchecked")
    public List<Rule> getEvaluatedRules()
    {
-      List<Rule> evaluated = (List<Rule>) this.getRewriteContext().get(
-               AbstractRewrite.class.getName() + "_EVALUATED_RULES");
+      List<Rule> evaluated = (List<Rule>) this.getRewriteContext().get(EVALUATED_RULES_KEY);
       if (evaluated == null)
       {
          evaluated = new ArrayList<Rule>();
-         this.getRewriteContext().put(AbstractRewrite.class.getName() + "_EVALUATED_RULES", evaluated);
+         this.getRewriteContext().put(EVALUATED_RULES_KEY, evaluated);
       }
       return evaluated;
    }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.context.Context;
+
+/**
+ * Reorders the {@link Rule} instances of a {@link CompiledConfiguration} by how often they match, so that frequently
+ * matched {@link Rule} instances are evaluated first. Only {@link Rule} instances marked with
+ * {@link RuleMetadata#ORDER_INDEPENDENT} are moved, and only within a run of adjacent order-independent {@link Rule}
+ * instances of the same priority; all other {@link Rule} instances keep their position.
+ * <p>
+ * Matches are sampled (one in {@value #SAMPLE_RATE}) and the order is recomputed from the samples at most once per
+ * interval, on the thread reporting a sampled match. Samples are halved after each recomputation, so the order follows
+ * changes in traffic. The current order is published as a new {@link CompiledConfiguration} with the same version as
+ * the original; it is replaced only if the order changed.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class AdaptiveRuleOrder
+{
+   /**
+    * The number of matches per recorded sample.
+    */
+   public static final int SAMPLE_RATE = 8;
+
+   private final CompiledConfiguration source;
+   private final int[][] runs;
+   private final Map<Rule, Integer> positions;
+   private final AtomicLongArray samples;
+   private final long interval;
+   private final AtomicLong next;
+   private volatile CompiledConfiguration current;
+
+   private AdaptiveRuleOrder(final CompiledConfiguration source, final int[][] runs, final long interval)
+   {
+      this.source = source;
+      this.runs = runs;
+      this.interval = interval;
+      this.current = source;
+      this.samples = new AtomicLongArray(source.getRules().size());
+      this.next = new AtomicLong(System.nanoTime() + interval);
+
+      this.positions = new IdentityHashMap<Rule, Integer>();
+      for (int[] run : runs)
+      {
+         for (int position : run)
+         {
+            positions.put(source.getRules().get(position), position);
+         }
+      }
+   }
+
+   /**
+    * Create an {@link AdaptiveRuleOrder} for the given {@link CompiledConfiguration}, recomputing the order at most
+    * once per given interval in milliseconds. Returns <code>null</code> if the {@link Configuration} contains no
+    * {@link Rule} instances that could be reordered.
+    */
+   public static AdaptiveRuleOrder create(final CompiledConfiguration configuration, final long interval)
+   {
+      Assert.notNull(configuration, "Configuration must not be null.");
+      Assert.assertTrue(interval > 0, "Interval must be greater than zero.");
+
+      List<Rule> rules = configuration.getRules();
+      List<int[]> runs = new ArrayList<int[]>();
+      int start = 0;
+      while (start < rules.size())
+      {
+         int end = start;
+         if (isOrderIndependent(rules.get(start)))
+         {
+            while (end + 1 < rules.size() && isOrderIndependent(rules.get(end + 1))
+                     && configuration.getPriority(end + 1) == configuration.getPriority(start))
+            {
+               end++;
+            }
+
+            if (end > start)
+            {
+               int[] run = new int[end - start + 1];
+               for (int i = 0; i < run.length; i++)
+               {
+                  run[i] = start + i;
+               }
+               runs.add(run);
+            }
+         }
+         start = end + 1;
+      }
+
+      if (runs.isEmpty())
+         return null;
+
+      return new AdaptiveRuleOrder(configuration, runs.toArray(new int[runs.size()][]),
+               TimeUnit.MILLISECONDS.toNanos(interval));
+   }
+
+   private static boolean isOrderIndependent(final Rule rule)
+   {
+      return rule instanceof Context && Boolean.TRUE.equals(((Context) rule).get(RuleMetadata.ORDER_INDEPENDENT));
+   }
+
+   /**
+    * Get the {@link CompiledConfiguration} from which this order was created.
+    */
+   public CompiledConfiguration getSource()
+   {
+      return source;
+   }
+
+   /**
+    * Get the {@link Configuration} of the {@link #getSource()} {@link Rule} instances in their current order.
+    */
+   public CompiledConfiguration getConfiguration()
+   {
+      return current;
+   }
+
+   /**
+    * Report that the given {@link Rule} matched. May recompute the order of {@link Rule} instances if the interval has
+    * elapsed.
+    */
+   public void matched(final Rule rule)
+   {
+      Integer position = positions.get(rule);
+      if (position == null || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0)
+         return;
+
+      samples.incrementAndGet(position);
+
+      long due = next.get();
+      long now = System.nanoTime();
+      if (now - due >= 0 && next.compareAndSet(due, now + interval))
+         reorder();
+   }
+
+   /**
+    * Recompute the order of {@link Rule} instances from the samples recorded so far.
+    */
+   void reorder()
+   {
+      List<Rule> rules = source.getRules();
+      final long[] counts = new long[rules.size()];
+      for (int[] run : runs)
+      {
+         for (int position : run)
+         {
+            long count = samples.get(position);
+            counts[position] = count;
+            samples.addAndGet(position, -(count - count / 2));
+         }
+      }
+
+      Comparator<Integer> byCount = new Comparator<Integer>() {
+         @Override
+         public int compare(Integer left, Integer right)
+         {
+            long l = counts[left];
+            long r = counts[right];
+            if (l != r)
+               return l > r ? -1 : 1;
+            return left.compareTo(right);
+         }
+      };
+
+      CompiledConfiguration current = this.current;
+      Rule[] ordered = current.getRules().toArray(new Rule[rules.size()]);
+      int[] priorities = new int[rules.size()];
+      for (int i = 0; i < priorities.length; i++)
+      {
+         priorities[i] = source.getPriority(i);
+      }
+
+      for (int[] run : runs)
+      {
+         List<Integer> sorted = new ArrayList<Integer>(run.length);
+         for (int position : run)
+         {
+            sorted.add(position);
+         }
+         Collections.sort(sorted, byCount);
+
+         for (int i = 0; i < run.length; i++)
+         {
+            ordered[run[i]] = rules.get(sorted.get(i));
+         }
+      }
+
+      if (!Arrays.equals(ordered, current.getRules().toArray()))
+         this.current = new CompiledConfiguration(Arrays.asList(ordered), priorities, source.getVersion());
+   }
+
+   @Override
+   public String toString()
+   {
+      return "AdaptiveRuleOrder [source=" + source + ", runs=" + runs.length + "]";
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.ocpsoft.rewrite.param.ParameterStore;
+import org.ocpsoft.rewrite.param.Parameterized;
+
+/**
+ * An immutable snapshot of a {@link Configuration} built by {@link ConfigurationLoader}. By the time this object is
+ * created, every {@link Parameterized} element of each {@link Rule} has been bound to the final {@link ParameterStore}
+ * of its {@link Rule}, every {@link org.ocpsoft.rewrite.param.DefaultParameterStore} has assigned slots to its
+ * parameters, and patterns have resolved the parameter of each of their groups. These remain valid for the lifetime
+ * of this snapshot.
+ * <p>
+ * The {@link Rule} list is copied once, and the same read-only view is returned from every call to
+ * {@link #getRules()}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class CompiledConfiguration implements Configuration
+{
+   private final List<Rule> rules;
+   private final int[] priorities;
+   private final long version;
+
+   CompiledConfiguration(final List<Rule> rules, final int[] priorities, final long version)
+   {
+      this.rules = Collections.unmodifiableList(new ArrayList<Rule>(rules));
+      this.priorities = priorities;
+      this.version = version;
+   }
+
+   @Override
+   public List<Rule> getRules()
+   {
+      return rules;
+   }
+
+   /**
+    * Get the priority with which the {@link Rule} at the given index of {@link #getRules()} was placed in this
+    * {@link Configuration}; either the priority of its {@link ConfigurationProvider}, or of the {@link RelocatableRule}
+    * itself.
+    */
+   public int getPriority(final int index)
+   {
+      return priorities[index];
+   }
+
+   /**
+    * Get the version of this {@link Configuration}. Each {@link Configuration} built by a {@link ConfigurationLoader}
+    * is assigned a version greater than that of the previous build.
+    */
+   public long getVersion()
+   {
+      return version;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "CompiledConfiguration [version=" + version + ", rules=" + rules.size() + "]";
+   }
+}
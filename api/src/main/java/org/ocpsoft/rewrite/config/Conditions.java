@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.ocpsoft.rewrite.config.DefaultConditionBuilder.DefaultConditionBuilderInternal;
+import org.ocpsoft.rewrite.config.DefaultConditionBuilder.Junction;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 /*
  * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
@@ -121,7 +122,7 @@ public final class Conditions
       if (condition instanceof ConditionBuilder)
          return (ConditionBuilder) condition;
 
-      return new DefaultConditionBuilderInternal(condition) {
+      return new DefaultConditionBuilderInternal(Junction.AND, condition) {
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
@@ -22,6 +22,15 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.ocpsoft.common.pattern.WeightedComparator;
 import org.ocpsoft.common.services.ServiceLoader;
@@ -29,8 +38,10 @@ import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.bind.Evaluation;
 import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.param.ConfigurableParameter;
 import org.ocpsoft.rewrite.param.DefaultParameter;
+import org.ocpsoft.rewrite.param.DefaultParameterStore;
 import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
@@ -41,6 +52,19 @@ import org.ocpsoft.rewrite.util.Visitor;
 /**
  * Responsible for loading all {@link ConfigurationProvider} instances, and building a single unified
  * {@link Configuration} based on {@link ConfigurationProvider#priority()}
+ * <p>
+ * Each built {@link Configuration} is published with a single volatile write, and is assigned an increasing version
+ * number (see {@link CompiledConfiguration#getVersion()}). Once a {@link Configuration} has been published, a
+ * {@link ConfigurationCacheProvider} cache miss blocks at most one thread: the first caller to find the cache empty
+ * builds the replacement, while all other callers continue to be served the previously published
+ * {@link Configuration}. Rebuilding on a caller's thread keeps the container's naming and injection context
+ * available to {@link ConfigurationProvider} instances; to rebuild on a container-managed thread instead, see
+ * {@link #setExecutor(Executor)}. Only one rebuild runs at a time.
+ * <p>
+ * If {@link #setParallelism(int)} is greater than one, {@link ConfigurationProvider} instances are invoked concurrently
+ * on a bounded {@link ForkJoinPool}, and the {@link Parameterized} elements of each {@link Rule} are bound in parallel.
+ * The resulting {@link Configuration} is identical to one built sequentially, but providers must then be safe to invoke
+ * concurrently with one another, and must not share {@link Condition} or {@link Operation} instances between rules.
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
@@ -50,13 +74,26 @@ public class ConfigurationLoader
    private final List<ConfigurationCacheProvider<?>> caches;
    private final List<ConfigurationProvider<?>> providers;
 
+   private volatile CompiledConfiguration current;
+   private final AtomicBoolean rebuilding = new AtomicBoolean();
+   private final AtomicLong version = new AtomicLong();
+   private volatile long lastBuildDuration;
+   private volatile int parallelism = 1;
+   private volatile Executor executor;
+
    @SuppressWarnings({ "unchecked" })
    public ConfigurationLoader(Object context)
    {
-      caches = Iterators.asList(ServiceLoader.load(ConfigurationCacheProvider.class));
+      this(Iterators.asList(ServiceLoader.load(ConfigurationCacheProvider.class)), Iterators.asList(ServiceLoader
+               .load(ConfigurationProvider.class)));
+   }
+
+   ConfigurationLoader(final List<ConfigurationCacheProvider<?>> caches, final List<ConfigurationProvider<?>> providers)
+   {
+      this.caches = caches;
       Collections.sort(caches, new WeightedComparator());
 
-      providers = Iterators.asList(ServiceLoader.load(ConfigurationProvider.class));
+      this.providers = providers;
       Collections.sort(providers, new WeightedComparator());
    }
 
@@ -76,15 +113,14 @@ public class ConfigurationLoader
    {
       if (caches.isEmpty())
       {
-         return build(context);
+         return buildAndPublish(context);
       }
       return buildCached(context);
    }
 
    @SuppressWarnings({ "rawtypes", "unchecked" })
-   private Configuration buildCached(Object context)
+   private Configuration buildCached(final Object context)
    {
-      Configuration result = null;
       /*
        * Do not force synchronization if a configuration is primed.
        */
@@ -92,50 +128,169 @@ public class ConfigurationLoader
          Configuration cachedConfig = cache.getConfiguration(context);
          if (cachedConfig != null)
          {
-            result = cachedConfig;
-            break;
+            return cachedConfig;
          }
       }
 
-      if (result == null)
+      /*
+       * Serve the previous configuration while a new one is built.
+       */
+      if (current != null)
       {
-         synchronized (this) {
+         rebuild(context);
+         return current;
+      }
 
-            /*
-             * Double check in order to ensure that a configuration wasn't built after our first cache check.
-             */
-            for (ConfigurationCacheProvider cache : caches) {
-               Configuration cachedConfig = cache.getConfiguration(context);
-               if (cachedConfig != null)
-               {
-                  result = cachedConfig;
-                  break;
-               }
-            }
+      synchronized (this) {
 
-            if (result == null)
+         /*
+          * Double check in order to ensure that a configuration wasn't built after our first cache check.
+          */
+         for (ConfigurationCacheProvider cache : caches) {
+            Configuration cachedConfig = cache.getConfiguration(context);
+            if (cachedConfig != null)
             {
-               result = build(context);
+               return cachedConfig;
+            }
+         }
+
+         if (current != null)
+            return current;
+
+         return buildAndPublish(context);
+      }
+   }
 
-               for (ConfigurationCacheProvider cache : caches) {
-                  cache.setConfiguration(context, result);
+   private void rebuild(final Object context)
+   {
+      if (rebuilding.compareAndSet(false, true))
+      {
+         Runnable task = new Runnable() {
+            @Override
+            public void run()
+            {
+               try {
+                  buildAndPublish(context);
+               }
+               catch (RuntimeException e) {
+                  log.error("Failed to rebuild configuration, continuing to serve configuration version ["
+                           + getVersion() + "]", e);
+               }
+               finally {
+                  rebuilding.set(false);
                }
             }
+         };
+
+         Executor executor = this.executor;
+         if (executor == null)
+         {
+            task.run();
+            return;
+         }
+
+         try {
+            executor.execute(task);
+         }
+         catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+            log.warn("Could not schedule configuration rebuild, continuing to serve configuration version ["
+                     + getVersion() + "]", e);
          }
       }
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   private CompiledConfiguration buildAndPublish(final Object context)
+   {
+      CompiledConfiguration result = build(context);
+      current = result;
 
+      for (ConfigurationCacheProvider cache : caches) {
+         cache.setConfiguration(context, result);
+      }
       return result;
    }
 
+   /**
+    * Set the maximum number of threads used to build a {@link Configuration}. A value of <code>1</code> (the default)
+    * builds on the calling thread.
+    */
+   public void setParallelism(final int parallelism)
+   {
+      if (parallelism < 1)
+         throw new IllegalArgumentException("Parallelism must be at least 1, but was [" + parallelism + "]");
+      this.parallelism = parallelism;
+   }
+
+   /**
+    * Rebuild expired {@link Configuration} instances on the given {@link Executor}, such as a container-managed
+    * executor service, so that no request waits for a rebuild. If <code>null</code> (the default), the first caller to
+    * find the cache empty rebuilds the {@link Configuration} on its own thread.
+    */
+   public void setExecutor(final Executor executor)
+   {
+      this.executor = executor;
+   }
+
+   /**
+    * Get the maximum number of threads used to build a {@link Configuration}.
+    */
+   public int getParallelism()
+   {
+      return parallelism;
+   }
+
+   /**
+    * Get the version of the most recently built {@link Configuration}, or <code>0</code> if no {@link Configuration}
+    * has been built.
+    */
+   public long getVersion()
+   {
+      return version.get();
+   }
+
+   /**
+    * Get the time taken to build the most recent {@link Configuration}, in milliseconds.
+    */
+   public long getLastBuildDuration()
+   {
+      return lastBuildDuration;
+   }
+
+   /**
+    * Return <code>true</code> if a replacement for an expired {@link Configuration} is currently being built.
+    */
+   public boolean isRebuilding()
+   {
+      return rebuilding.get();
+   }
+
    @SuppressWarnings({ "rawtypes", "unchecked" })
-   private Configuration build(Object context)
+   private CompiledConfiguration build(Object context)
    {
+      long start = System.nanoTime();
 
-      Map<Integer, List<Rule>> priorityMap = new LinkedHashMap<Integer, List<Rule>>();
+      List<ConfigurationProvider> handling = new ArrayList<ConfigurationProvider>();
       for (ConfigurationProvider provider : providers) {
          if (provider.handles(context))
-         {
-            Configuration configuration = provider.getConfiguration(context);
+            handling.add(provider);
+      }
+
+      ForkJoinPool pool = null;
+      if (parallelism > 1 && handling.size() > 1)
+         pool = new ForkJoinPool(parallelism);
+
+      try {
+         List<Configuration> configurations = getConfigurations(pool, handling, context);
+
+         /*
+          * Merge in provider order, regardless of the order in which providers completed.
+          */
+         Map<Integer, List<Rule>> priorityMap = new LinkedHashMap<Integer, List<Rule>>();
+         for (int i = 0; i < handling.size(); i++) {
+            ConfigurationProvider provider = handling.get(i);
+            Configuration configuration = configurations.get(i);
 
             if (configuration != null)
             {
@@ -169,58 +324,201 @@ public class ConfigurationLoader
                         + "].");
             }
          }
-      }
 
-      ConfigurationBuilder result = ConfigurationBuilder.begin();
-      ArrayList<Integer> sortedKeys = new ArrayList<Integer>(priorityMap.keySet());
-      Collections.sort(sortedKeys);
+         ConfigurationBuilder result = ConfigurationBuilder.begin();
+         ArrayList<Integer> sortedKeys = new ArrayList<Integer>(priorityMap.keySet());
+         Collections.sort(sortedKeys);
 
-      for (Integer integer : sortedKeys) {
-         List<Rule> list = priorityMap.get(integer);
-         for (final Rule rule : list) {
-            result.addRule(rule);
+         List<Rule> ordered = new ArrayList<Rule>();
+         int[] priorities = new int[size(priorityMap)];
+         for (Integer integer : sortedKeys) {
+            List<Rule> list = priorityMap.get(integer);
+            for (final Rule rule : list) {
+               result.addRule(rule);
+               priorities[ordered.size()] = integer;
+               ordered.add(rule);
+            }
+         }
 
-            try {
-               if (rule instanceof ParameterizedRule) {
-                  ParameterizedCallback callback = new ParameterizedCallback() {
-                     @Override
-                     public void call(Parameterized parameterized)
-                     {
-                        Set<String> names = parameterized.getRequiredParameterNames();
-                        ParameterStore store = ((ParameterizedRule) rule).getParameterStore();
+         visitAll(pool, ordered);
 
-                        if (names != null)
-                           for (String name : names) {
-                              Parameter<?> parameter = store.get(name, new DefaultParameter(name));
-                              if (parameter instanceof ConfigurableParameter<?>)
-                                 ((ConfigurableParameter<?>) parameter).bindsTo(Evaluation.property(name));
-                           }
+         CompiledConfiguration compiled = new CompiledConfiguration(result.getRules(), priorities,
+                  version.incrementAndGet());
+         lastBuildDuration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+         if (log.isDebugEnabled())
+            log.debug("Built configuration version [" + compiled.getVersion() + "] with ["
+                     + compiled.getRules().size() + "] rules in [" + lastBuildDuration + "ms]");
+         return compiled;
+      }
+      finally {
+         if (pool != null)
+            pool.shutdown();
+      }
+   }
 
-                        parameterized.setParameterStore(store);
-                     }
-                  };
+   private static int size(final Map<Integer, List<Rule>> priorityMap)
+   {
+      int result = 0;
+      for (List<Rule> list : priorityMap.values()) {
+         result += list.size();
+      }
+      return result;
+   }
 
-                  Visitor<Condition> conditionVisitor = new ParameterizedConditionVisitor(callback);
-                  new ConditionVisit(rule).accept(conditionVisitor);
+   /**
+    * Get the {@link Configuration} of each given {@link ConfigurationProvider}, in the same order. If a pool is given,
+    * the providers are invoked concurrently.
+    */
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   private List<Configuration> getConfigurations(final ForkJoinPool pool, final List<ConfigurationProvider> providers,
+            final Object context)
+   {
+      List<Configuration> result = new ArrayList<Configuration>(providers.size());
+      if (pool == null)
+      {
+         for (ConfigurationProvider provider : providers) {
+            result.add(provider.getConfiguration(context));
+         }
+         return result;
+      }
 
-                  Visitor<Operation> operationVisitor = new ParameterizedOperationVisitor(callback);
-                  new OperationVisit(rule).accept(operationVisitor);
-               }
+      List<Callable<Configuration>> tasks = new ArrayList<Callable<Configuration>>(providers.size());
+      for (final ConfigurationProvider provider : providers) {
+         tasks.add(inCallerClassLoader(new Callable<Configuration>() {
+            @Override
+            public Configuration call() throws Exception
+            {
+               return provider.getConfiguration(context);
+            }
+         }));
+      }
+
+      for (Future<Configuration> future : pool.invokeAll(tasks)) {
+         result.add(getResult(future));
+      }
+      return result;
+   }
+
+   /**
+    * Bind the {@link Parameterized} elements of each given {@link Rule} to its {@link ParameterStore}. If a pool is
+    * given, rules are visited concurrently; if several rules fail, the error of the first is reported.
+    */
+   private void visitAll(final ForkJoinPool pool, final List<Rule> rules)
+   {
+      if (pool == null)
+      {
+         for (Rule rule : rules) {
+            visit(rule);
+         }
+         return;
+      }
+
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(rules.size());
+      for (final Rule rule : rules) {
+         tasks.add(inCallerClassLoader(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception
+            {
+               visit(rule);
+               return null;
             }
-            catch (RuntimeException e) {
-               String message = "Error encountered while visiting rule: " + rule;
+         }));
+      }
+
+      for (Future<Void> future : pool.invokeAll(tasks)) {
+         getResult(future);
+      }
+   }
 
-               if (rule instanceof Context)
+   private void visit(final Rule rule)
+   {
+      try {
+         if (rule instanceof ParameterizedRule) {
+            ParameterizedCallback callback = new ParameterizedCallback() {
+               @Override
+               public void call(Parameterized parameterized)
                {
-                  message += " defined at " + ((Context) rule).get(RuleMetadata.PROVIDER_LOCATION) + "\n";
+                  Set<String> names = parameterized.getRequiredParameterNames();
+                  ParameterStore store = ((ParameterizedRule) rule).getParameterStore();
+
+                  if (names != null)
+                     for (String name : names) {
+                        Parameter<?> parameter = store.get(name, new DefaultParameter(name));
+                        if (parameter instanceof ConfigurableParameter<?>)
+                           ((ConfigurableParameter<?>) parameter).bindsTo(Evaluation.property(name));
+                     }
+
+                  parameterized.setParameterStore(store);
                }
-               log.error(message);
-               throw e;
-            }
+            };
+
+            Visitor<Condition> conditionVisitor = new ParameterizedConditionVisitor(callback);
+            new ConditionVisit(rule).accept(conditionVisitor);
+
+            Visitor<Operation> operationVisitor = new ParameterizedOperationVisitor(callback);
+            new OperationVisit(rule).accept(operationVisitor);
+
+            /*
+             * Every parameter of the rule is known now, so its slots stay valid for the lifetime of the configuration.
+             */
+            ParameterStore store = ((ParameterizedRule) rule).getParameterStore();
+            if (store instanceof DefaultParameterStore)
+               ((DefaultParameterStore) store).compile();
          }
       }
+      catch (RuntimeException e) {
+         String message = "Error encountered while visiting rule: " + rule;
 
-      return result;
+         if (rule instanceof Context)
+         {
+            message += " defined at " + ((Context) rule).get(RuleMetadata.PROVIDER_LOCATION) + "\n";
+         }
+         log.error(message);
+         throw e;
+      }
+   }
+
+   /**
+    * Pool threads do not necessarily share the context {@link ClassLoader} of the calling thread, which
+    * {@link ConfigurationProvider} instances may rely on to load resources.
+    */
+   private static <T> Callable<T> inCallerClassLoader(final Callable<T> task)
+   {
+      final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      return new Callable<T>() {
+         @Override
+         public T call() throws Exception
+         {
+            Thread thread = Thread.currentThread();
+            ClassLoader previous = thread.getContextClassLoader();
+            thread.setContextClassLoader(loader);
+            try {
+               return task.call();
+            }
+            finally {
+               thread.setContextClassLoader(previous);
+            }
+         }
+      };
+   }
+
+   private static <T> T getResult(final Future<T> future)
+   {
+      try {
+         return future.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RewriteException("Interrupted while loading configuration", e);
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+         if (cause instanceof Error)
+            throw (Error) cause;
+         throw new RewriteException("Failed to load configuration", cause);
+      }
    }
 
    @SuppressWarnings("unchecked")
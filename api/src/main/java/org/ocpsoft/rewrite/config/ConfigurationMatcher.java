@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
+
+/**
+ * A {@link RuleIndex} that additionally compiles the literal segments of every path pattern in a {@link Configuration}
+ * into a single Aho-Corasick automaton. One pass over the request path yields the set of literal segments it contains;
+ * a {@link Rule} remains a candidate only if, for at least one of its patterns, the path begins with the literal
+ * prefix and contains every other literal segment.
+ * <p>
+ * This is a filter only: candidates are still verified by evaluating the {@link Rule}, and thus by the regular
+ * expression of each pattern, so parameter constraints of any kind (including lookarounds) are fully supported.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ConfigurationMatcher extends RuleIndex
+{
+   private final Map<Integer, List<Alternative>> alternatives = new HashMap<Integer, List<Alternative>>();
+   private final LiteralAutomaton automaton = new LiteralAutomaton();
+
+   private ConfigurationMatcher(final Configuration configuration)
+   {
+      super(configuration);
+
+      Map<String, Integer> literals = new HashMap<String, Integer>();
+      List<Rule> rules = getRules();
+      for (int i = 0; i < rules.size(); i++)
+      {
+         Set<ParameterizedPatternParser> patterns = getPatterns(rules.get(i));
+         List<Alternative> list = getAlternatives(patterns, literals);
+         if (list != null)
+            alternatives.put(i, list);
+      }
+
+      automaton.compile();
+   }
+
+   /**
+    * Build a new {@link ConfigurationMatcher} for the given {@link Configuration}.
+    */
+   public static ConfigurationMatcher build(final Configuration configuration)
+   {
+      return new ConfigurationMatcher(configuration);
+   }
+
+   private List<Alternative> getAlternatives(final Set<ParameterizedPatternParser> patterns,
+            final Map<String, Integer> literals)
+   {
+      if (patterns == null || patterns.isEmpty())
+         return null;
+
+      List<Alternative> result = new ArrayList<Alternative>();
+      for (ParameterizedPatternParser pattern : patterns) {
+         if (!(pattern instanceof RegexParameterizedPatternParser))
+            return null;
+
+         RegexParameterizedPatternParser parser = (RegexParameterizedPatternParser) pattern;
+         String prefix = parser.getLiteralPrefix();
+         List<String> segments = parser.getLiteralSegments();
+         if (!prefix.isEmpty() && !segments.isEmpty())
+            segments = segments.subList(1, segments.size());
+
+         int[] ids = new int[segments.size()];
+         for (int j = 0; j < ids.length; j++) {
+            String segment = segments.get(j);
+            Integer id = literals.get(segment);
+            if (id == null)
+            {
+               id = literals.size();
+               literals.put(segment, id);
+               automaton.add(segment, id);
+            }
+            ids[j] = id;
+         }
+         result.add(new Alternative(prefix, ids));
+      }
+      return result;
+   }
+
+   @Override
+   protected BitSet getCandidateIndexes(final String path)
+   {
+      BitSet candidates = super.getCandidateIndexes(path);
+      BitSet found = automaton.search(path);
+
+      for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+         List<Alternative> list = alternatives.get(i);
+         if (list != null)
+         {
+            boolean possible = false;
+            for (int j = 0; j < list.size() && !possible; j++) {
+               possible = list.get(j).isSatisfiedBy(path, found);
+            }
+
+            if (!possible)
+               candidates.clear(i);
+         }
+      }
+      return candidates;
+   }
+
+   private static class Alternative
+   {
+      private final String prefix;
+      private final int[] literals;
+
+      public Alternative(final String prefix, final int[] literals)
+      {
+         this.prefix = prefix;
+         this.literals = literals;
+      }
+
+      public boolean isSatisfiedBy(final String path, final BitSet found)
+      {
+         if (!path.startsWith(prefix))
+            return false;
+
+         for (int literal : literals) {
+            if (!found.get(literal))
+               return false;
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Aho-Corasick automaton reporting which of a set of literal strings occur anywhere in a given input.
+    */
+   private static class LiteralAutomaton
+   {
+      private final List<Map<Character, Integer>> transitions = new ArrayList<Map<Character, Integer>>();
+      private final List<List<Integer>> outputs = new ArrayList<List<Integer>>();
+      private int[] failures;
+      private int[][] matches;
+
+      public LiteralAutomaton()
+      {
+         newState();
+      }
+
+      private int newState()
+      {
+         transitions.add(new HashMap<Character, Integer>());
+         outputs.add(new ArrayList<Integer>());
+         return transitions.size() - 1;
+      }
+
+      public void add(final String literal, final int id)
+      {
+         int state = 0;
+         for (int i = 0; i < literal.length(); i++) {
+            Character c = literal.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            if (next == null)
+            {
+               next = newState();
+               transitions.get(state).put(c, next);
+            }
+            state = next;
+         }
+         outputs.get(state).add(id);
+      }
+
+      public void compile()
+      {
+         failures = new int[transitions.size()];
+         LinkedList<Integer> queue = new LinkedList<Integer>();
+         for (Integer child : transitions.get(0).values()) {
+            queue.add(child);
+         }
+
+         while (!queue.isEmpty())
+         {
+            int state = queue.removeFirst();
+            for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+               int child = entry.getValue();
+               queue.add(child);
+
+               int failure = failures[state];
+               while (failure != 0 && !transitions.get(failure).containsKey(entry.getKey()))
+                  failure = failures[failure];
+
+               Integer target = transitions.get(failure).get(entry.getKey());
+               failures[child] = (target == null || target == child) ? 0 : target;
+               outputs.get(child).addAll(outputs.get(failures[child]));
+            }
+         }
+
+         matches = new int[outputs.size()][];
+         for (int i = 0; i < matches.length; i++) {
+            List<Integer> ids = outputs.get(i);
+            matches[i] = new int[ids.size()];
+            for (int j = 0; j < matches[i].length; j++) {
+               matches[i][j] = ids.get(j);
+            }
+         }
+      }
+
+      public BitSet search(final String input)
+      {
+         BitSet result = new BitSet();
+         if (transitions.size() == 1)
+            return result;
+
+         int state = 0;
+         for (int i = 0; i < input.length(); i++) {
+            Character c = input.charAt(i);
+            Integer next = transitions.get(state).get(c);
+            while (next == null && state != 0)
+            {
+               state = failures[state];
+               next = transitions.get(state).get(c);
+            }
+            state = next == null ? 0 : next;
+
+            for (int id : matches[state]) {
+               result.set(id);
+            }
+         }
+         return result;
+      }
+   }
+}
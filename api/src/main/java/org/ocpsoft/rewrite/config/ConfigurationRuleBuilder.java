@@ -248,4 +248,22 @@ public class ConfigurationRuleBuilder extends ConfigurationBuilder implements
       rule.put(key, value);
       return this;
    }
+
+   @Override
+   public ConfigurationRuleBuilderWithMetadata withOrderIndependent()
+   {
+      return withMetadata(RuleMetadata.ORDER_INDEPENDENT, Boolean.TRUE);
+   }
+
+   @Override
+   public ConfigurationRuleBuilderWithMetadata withOutboundCacheable()
+   {
+      return withMetadata(RuleMetadata.OUTBOUND_CACHEABLE, Boolean.TRUE);
+   }
+
+   @Override
+   public ConfigurationRuleBuilderWithMetadata withRuleCacheable()
+   {
+      return withMetadata(RuleMetadata.RULE_CACHEABLE, Boolean.TRUE);
+   }
 }
@@ -17,4 +17,31 @@ public interface ConfigurationRuleBuilderWithMetadata extends ConfigurationBuild
     * {@link Rule}'s behavior, but can be used to provide hints to custom extensions.
     */
    ConfigurationRuleBuilderWithMetadata withMetadata(Object key, Object value);
+
+   /**
+    * Declare that this {@link Rule} may be evaluated in any order relative to adjacent order-independent {@link Rule}
+    * instances of the same priority, because it never matches the same events. Equivalent to
+    * <code>withMetadata(RuleMetadata.ORDER_INDEPENDENT, true)</code>.
+    * 
+    * @see RuleMetadata#ORDER_INDEPENDENT
+    */
+   ConfigurationRuleBuilderWithMetadata withOrderIndependent();
+
+   /**
+    * Declare that, for outbound events, this {@link Rule} depends on nothing but the outbound address and context path,
+    * so that the result of outbound rewriting may be cached. Equivalent to
+    * <code>withMetadata(RuleMetadata.OUTBOUND_CACHEABLE, true)</code>.
+    * 
+    * @see RuleMetadata#OUTBOUND_CACHEABLE
+    */
+   ConfigurationRuleBuilderWithMetadata withOutboundCacheable();
+
+   /**
+    * Declare that whether this {@link Rule} matches depends on nothing but the direction, dispatcher type, context path
+    * and path of the event, so that rule caches may skip it for events it did not match before. Equivalent to
+    * <code>withMetadata(RuleMetadata.RULE_CACHEABLE, true)</code>.
+    * 
+    * @see RuleMetadata#RULE_CACHEABLE
+    */
+   ConfigurationRuleBuilderWithMetadata withRuleCacheable();
 }
@@ -145,6 +145,24 @@ public class ConfigurationRuleParameterBuilder
       return parent.withMetadata(key, value);
    }
 
+   @Override
+   public ConfigurationRuleBuilderWithMetadata withOrderIndependent()
+   {
+      return parent.withOrderIndependent();
+   }
+
+   @Override
+   public ConfigurationRuleBuilderWithMetadata withOutboundCacheable()
+   {
+      return parent.withOutboundCacheable();
+   }
+
+   @Override
+   public ConfigurationRuleBuilderWithMetadata withRuleCacheable()
+   {
+      return parent.withRuleCacheable();
+   }
+
    @Override
    public List<Binding> getBindings()
    {
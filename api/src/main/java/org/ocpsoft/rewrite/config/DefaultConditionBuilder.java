@@ -38,7 +38,7 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
-      return new DefaultConditionBuilderInternal(self, condition) {
+      return new DefaultConditionBuilderInternal(Junction.AND, self, condition) {
 
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
@@ -62,7 +62,7 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
-      return new DefaultConditionBuilderInternal(self, condition) {
+      return new DefaultConditionBuilderInternal(Junction.AND_NOT, self, condition) {
 
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
@@ -86,7 +86,7 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
-      return new DefaultConditionBuilderInternal(self, condition) {
+      return new DefaultConditionBuilderInternal(Junction.OR, self, condition) {
 
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
@@ -110,7 +110,7 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
-      return new DefaultConditionBuilderInternal(self, condition) {
+      return new DefaultConditionBuilderInternal(Junction.OR_NOT, self, condition) {
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
@@ -125,16 +125,32 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       };
    }
 
+   /**
+    * The logical operator by which a {@link DefaultConditionBuilderInternal} combines its {@link Condition} instances.
+    * Required in order to reason about the structure of a {@link Condition} tree without evaluating it.
+    */
+   enum Junction
+   {
+      AND, AND_NOT, OR, OR_NOT
+   }
+
    static abstract class DefaultConditionBuilderInternal extends DefaultConditionBuilder implements
             CompositeCondition
    {
+      private final Junction junction;
       private List<Condition> conditions;
 
-      public DefaultConditionBuilderInternal(Condition... conditions)
+      public DefaultConditionBuilderInternal(Junction junction, Condition... conditions)
       {
+         this.junction = junction;
          this.conditions = Arrays.asList(conditions);
       }
 
+      Junction getJunction()
+      {
+         return junction;
+      }
+
       @Override
       public List<Condition> getConditions()
       {
@@ -15,6 +15,9 @@
  */
 package org.ocpsoft.rewrite.config;
 
+import java.util.List;
+
+import org.ocpsoft.rewrite.config.DefaultConditionBuilder.DefaultConditionBuilderInternal;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.event.InboundRewrite;
 import org.ocpsoft.rewrite.event.OutboundRewrite;
@@ -44,6 +47,68 @@ public abstract class Direction extends DefaultConditionBuilder
       return new Outbound();
    }
 
+   /**
+    * Return <code>true</code> if the given {@link Condition} can only evaluate to <code>true</code> for an
+    * {@link InboundRewrite} event, because it requires {@link #isInbound()}. Determined from the structure of the
+    * {@link Condition} without evaluating it; returns <code>false</code> if this cannot be determined.
+    */
+   public static boolean requiresInbound(final Condition condition)
+   {
+      if (condition instanceof Inbound)
+      {
+         return true;
+      }
+      else if (condition instanceof RuleBuilder || condition instanceof And)
+      {
+         return requiresInboundAny(((CompositeCondition) condition).getConditions());
+      }
+      else if (condition instanceof Or)
+      {
+         return requiresInboundAll(((Or) condition).getConditions());
+      }
+      else if (condition instanceof DefaultConditionBuilderInternal)
+      {
+         DefaultConditionBuilderInternal internal = (DefaultConditionBuilderInternal) condition;
+         List<Condition> conditions = internal.getConditions();
+         switch (internal.getJunction())
+         {
+         case AND:
+            return requiresInboundAny(conditions);
+         case AND_NOT:
+            return requiresInbound(conditions.get(0));
+         case OR:
+            return requiresInboundAll(conditions);
+         default:
+            return false;
+         }
+      }
+      return false;
+   }
+
+   /*
+    * All conditions must match, so it is enough if a single one requires an inbound event.
+    */
+   private static boolean requiresInboundAny(final List<Condition> conditions)
+   {
+      for (Condition condition : conditions) {
+         if (requiresInbound(condition))
+            return true;
+      }
+      return false;
+   }
+
+   /*
+    * Any condition may match, so every one must require an inbound event.
+    */
+   private static boolean requiresInboundAll(final List<Condition> conditions)
+   {
+      for (Condition condition : conditions) {
+         if (!requiresInbound(condition))
+            return false;
+      }
+      return !conditions.isEmpty();
+   }
+
    private static class Inbound extends Direction
    {
       @Override
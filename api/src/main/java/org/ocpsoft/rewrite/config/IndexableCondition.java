@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.Set;
+
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
+
+/**
+ * A {@link Condition} that can only be satisfied by inbound requests whose path matches one of a known set of
+ * {@link ParameterizedPatternParser} instances. Used by {@link RuleIndex} to avoid evaluating {@link Rule} instances
+ * that cannot possibly match.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface IndexableCondition extends Condition
+{
+   /**
+    * Return the set of {@link ParameterizedPatternParser} instances, one of which the context-relative, decoded inbound
+    * request path must match in order for this {@link Condition} to evaluate to <code>true</code>; or <code>null</code>
+    * if no such set can be determined.
+    */
+   Set<ParameterizedPatternParser> getIndexPatterns();
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ocpsoft.rewrite.config.DefaultConditionBuilder.DefaultConditionBuilderInternal;
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
+
+/**
+ * Indexes the {@link Rule} instances of a {@link Configuration} by the literal prefixes of the path patterns declared
+ * through {@link IndexableCondition}, so that only rules which could possibly match a given request path need to be
+ * evaluated.
+ * <p>
+ * Prefixes are stored in a trie keyed by path segment. {@link Rule} instances for which no prefix can be determined
+ * (for instance, rules without a path condition, or rules whose path condition is negated) are always returned as
+ * candidates. Candidates are always returned in their original {@link Configuration} order.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class RuleIndex
+{
+   private final Configuration configuration;
+   private final List<Rule> rules;
+   private final BitSet unindexed = new BitSet();
+   private final Node root = new Node();
+
+   protected RuleIndex(final Configuration configuration)
+   {
+      this.configuration = configuration;
+      this.rules = new ArrayList<Rule>(configuration.getRules());
+
+      for (int i = 0; i < rules.size(); i++)
+      {
+         Set<String> prefixes = getPrefixes(getPatterns(rules.get(i)));
+         if (prefixes == null)
+            unindexed.set(i);
+         else
+            for (String prefix : prefixes) {
+               root.add(prefix, 0, i);
+            }
+      }
+   }
+
+   /**
+    * Build a new {@link RuleIndex} for the given {@link Configuration}.
+    */
+   public static RuleIndex build(final Configuration configuration)
+   {
+      return new RuleIndex(configuration);
+   }
+
+   /**
+    * Get the {@link Configuration} from which this {@link RuleIndex} was built.
+    */
+   public Configuration getConfiguration()
+   {
+      return configuration;
+   }
+
+   /**
+    * Get all {@link Rule} instances of the indexed {@link Configuration}, in their original order.
+    */
+   protected List<Rule> getRules()
+   {
+      return rules;
+   }
+
+   /**
+    * Return the {@link Rule} instances that may match the given context-relative, decoded request path, in their
+    * original order. If the given path is <code>null</code>, return all {@link Rule} instances.
+    */
+   public List<Rule> getCandidates(final String path)
+   {
+      if (path == null)
+         return rules;
+
+      BitSet matches = getCandidateIndexes(path);
+      List<Rule> result = new ArrayList<Rule>(matches.cardinality());
+      for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+         result.add(rules.get(i));
+      }
+      return result;
+   }
+
+   /**
+    * Return the positions of all {@link Rule} instances that may match the given non-<code>null</code> path.
+    */
+   protected BitSet getCandidateIndexes(final String path)
+   {
+      BitSet matches = (BitSet) unindexed.clone();
+      Node node = root;
+      int offset = 0;
+      while (node != null)
+      {
+         node.collect(path, offset, matches);
+
+         int end = path.indexOf('/', offset);
+         if (end < 0)
+            break;
+
+         node = node.getChild(path.substring(offset, end));
+         offset = end + 1;
+      }
+      return matches;
+   }
+
+   /*
+    * Only patterns with a known literal prefix can be placed in the trie.
+    */
+   private static Set<String> getPrefixes(final Set<ParameterizedPatternParser> patterns)
+   {
+      if (patterns == null)
+         return null;
+
+      Set<String> result = new LinkedHashSet<String>();
+      for (ParameterizedPatternParser pattern : patterns) {
+         if (!(pattern instanceof RegexParameterizedPatternParser))
+            return null;
+         result.add(((RegexParameterizedPatternParser) pattern).getLiteralPrefix());
+      }
+      return result;
+   }
+
+   /**
+    * Determine the set of {@link ParameterizedPatternParser} instances, one of which the request path must match in
+    * order for the given {@link Condition} to evaluate to <code>true</code>. Return <code>null</code> if no such set
+    * can be determined.
+    */
+   public static Set<ParameterizedPatternParser> getPatterns(final Condition condition)
+   {
+      Set<ParameterizedPatternParser> result = null;
+      if (condition instanceof IndexableCondition)
+      {
+         result = ((IndexableCondition) condition).getIndexPatterns();
+      }
+      else if (condition instanceof RuleBuilder || condition instanceof And)
+      {
+         result = getPatternsOfAll(((CompositeCondition) condition).getConditions());
+      }
+      else if (condition instanceof Or)
+      {
+         result = getPatternsOfAny(((Or) condition).getConditions());
+      }
+      else if (condition instanceof DefaultConditionBuilderInternal)
+      {
+         DefaultConditionBuilderInternal internal = (DefaultConditionBuilderInternal) condition;
+         List<Condition> conditions = internal.getConditions();
+         switch (internal.getJunction())
+         {
+         case AND:
+            result = getPatternsOfAll(conditions);
+            break;
+         case AND_NOT:
+            result = getPatterns(conditions.get(0));
+            break;
+         case OR:
+            result = getPatternsOfAny(conditions);
+            break;
+         default:
+            break;
+         }
+      }
+
+      if (result != null && result.isEmpty())
+         result = null;
+
+      return result;
+   }
+
+   /*
+    * All conditions must match, so the patterns of any single condition will do. Prefer the most selective.
+    */
+   private static Set<ParameterizedPatternParser> getPatternsOfAll(final List<Condition> conditions)
+   {
+      Set<ParameterizedPatternParser> result = null;
+      int selectivity = -1;
+      for (Condition condition : conditions) {
+         Set<ParameterizedPatternParser> patterns = getPatterns(condition);
+         if (patterns != null)
+         {
+            int shortest = Integer.MAX_VALUE;
+            for (ParameterizedPatternParser pattern : patterns) {
+               if (pattern instanceof RegexParameterizedPatternParser)
+                  shortest = Math.min(shortest, ((RegexParameterizedPatternParser) pattern).getLiteralPrefix()
+                           .length());
+               else
+                  shortest = 0;
+            }
+
+            if (shortest > selectivity)
+            {
+               result = patterns;
+               selectivity = shortest;
+            }
+         }
+      }
+      return result;
+   }
+
+   /*
+    * Any condition may match, so every condition must be indexable.
+    */
+   private static Set<ParameterizedPatternParser> getPatternsOfAny(final List<Condition> conditions)
+   {
+      Set<ParameterizedPatternParser> result = new LinkedHashSet<ParameterizedPatternParser>();
+      for (Condition condition : conditions) {
+         Set<ParameterizedPatternParser> patterns = getPatterns(condition);
+         if (patterns == null)
+            return null;
+         result.addAll(patterns);
+      }
+      return result;
+   }
+
+   private static class Node
+   {
+      private final Map<String, Node> children = new HashMap<String, Node>();
+      private final List<String> remainders = new ArrayList<String>();
+      private final List<Integer> indexes = new ArrayList<Integer>();
+
+      public void add(final String prefix, final int offset, final int index)
+      {
+         int end = prefix.indexOf('/', offset);
+         if (end < 0)
+         {
+            remainders.add(prefix.substring(offset));
+            indexes.add(index);
+         }
+         else
+         {
+            String segment = prefix.substring(offset, end);
+            Node child = children.get(segment);
+            if (child == null)
+            {
+               child = new Node();
+               children.put(segment, child);
+            }
+            child.add(prefix, end + 1, index);
+         }
+      }
+
+      public Node getChild(final String segment)
+      {
+         return children.get(segment);
+      }
+
+      public void collect(final String path, final int offset, final BitSet matches)
+      {
+         for (int i = 0; i < remainders.size(); i++) {
+            if (path.startsWith(remainders.get(i), offset))
+               matches.set(indexes.get(i));
+         }
+      }
+   }
+}
@@ -20,4 +20,26 @@ public interface RuleMetadata
     * The location where the {@link Rule} was added to the {@link ConfigurationBuilder}.
     */
    static String PROVIDER_LOCATION = RuleMetadata.class.getName() + "_LOCATION";
+
+   /**
+    * Set to {@link Boolean#TRUE} if the {@link Rule} never matches the same events as adjacent order-independent
+    * {@link Rule} instances of the same priority, so that their relative order may be changed at runtime (for instance,
+    * to evaluate frequently matched {@link Rule} instances first).
+    */
+   static String ORDER_INDEPENDENT = RuleMetadata.class.getName() + "_ORDER_INDEPENDENT";
+
+   /**
+    * Set to {@link Boolean#TRUE} if, for outbound events, the {@link Rule} depends on nothing but the outbound address
+    * and context path, and has no effect other than changing the outbound address, so that the result of outbound
+    * rewriting may be cached and reused for the same address.
+    */
+   static String OUTBOUND_CACHEABLE = RuleMetadata.class.getName() + "_OUTBOUND_CACHEABLE";
+
+   /**
+    * Set to {@link Boolean#TRUE} if whether the {@link Rule} matches an event depends on nothing but the direction,
+    * dispatcher type, context path and path of the event (plus the request method and host, if a rule cache is
+    * configured to include them in its keys), so that the {@link Rule} instances matching one event may be cached and
+    * reused as the only candidates for another event with the same values.
+    */
+   static String RULE_CACHEABLE = RuleMetadata.class.getName() + "_RULE_CACHEABLE";
 }
@@ -15,48 +15,84 @@
  */
 package org.ocpsoft.rewrite.context;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Base {@link Context} abstract class.
+ * <p>
+ * Entries are held in insertion order in flat arrays and located by linear search, which is faster than hashing for
+ * the handful of entries a {@link Context} typically holds, and allows {@link #clear()} and re-population of the same
+ * keys without allocation.
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  * 
  */
 public abstract class ContextBase implements Context
 {
-
-   private final Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+   private Object[] keys = new Object[4];
+   private Object[] values = new Object[4];
+   private int size;
 
    @Override
    public void clear()
    {
-      map.clear();
+      Arrays.fill(keys, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
    }
 
    @Override
    public Object get(final Object key)
    {
-      return map.get(key);
+      int index = indexOf(key);
+      return index < 0 ? null : values[index];
    }
 
    @Override
    public void put(final Object key, final Object value)
    {
-      map.put(key, value);
+      int index = indexOf(key);
+      if (index < 0)
+      {
+         if (size == keys.length)
+         {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+         }
+         index = size++;
+         keys[index] = key;
+      }
+      values[index] = value;
    }
 
    @Override
    public boolean containsKey(final Object key)
    {
-      return map.containsKey(key);
+      return indexOf(key) >= 0;
+   }
+
+   private int indexOf(final Object key)
+   {
+      for (int i = 0; i < size; i++)
+      {
+         Object k = keys[i];
+         if (k == key || (k != null && k.equals(key)))
+            return i;
+      }
+      return -1;
    }
 
    @Override
    public String toString()
    {
-      return "ContextBase [map=" + map + "]";
+      StringBuilder result = new StringBuilder("ContextBase [map={");
+      for (int i = 0; i < size; i++)
+      {
+         if (i > 0)
+            result.append(", ");
+         result.append(keys[i]).append('=').append(values[i]);
+      }
+      return result.append("}]").toString();
    }
 
 }
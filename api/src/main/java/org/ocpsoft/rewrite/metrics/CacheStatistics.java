@@ -0,0 +1,42 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.metrics;
+
+import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+
+/**
+ * Implemented by {@link RuleCacheProvider} instances that count their lookups, so that the counters are reported by
+ * {@link RuleMetrics}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface CacheStatistics
+{
+   /**
+    * Get the number of lookups that returned a cached entry.
+    */
+   long getHitCount();
+
+   /**
+    * Get the number of lookups that did not return a cached entry.
+    */
+   long getMissCount();
+
+   /**
+    * Get the number of cached entries that were evicted to make room for new entries.
+    */
+   long getEvictionCount();
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent, fixed-size histogram of latencies in nanoseconds. Values are counted in log-linear buckets (as in
+ * HdrHistogram): each power of two is split into 16 linear sub-buckets, so reported values are
+ * within about 6% of the recorded values. Values of {@link #MAX_VALUE} nanoseconds (about 18 minutes) or more are
+ * counted as {@link #MAX_VALUE}.
+ * <p>
+ * Recording never blocks and never allocates.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class LatencyHistogram
+{
+   private static final int SUB_BUCKET_BITS = 4;
+   private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+   private static final int MAX_BITS = 40;
+
+   /**
+    * The largest value distinguished by this histogram.
+    */
+   public static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+   private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+   private final AtomicLong count = new AtomicLong();
+   private final AtomicLong total = new AtomicLong();
+   private final AtomicLong max = new AtomicLong();
+
+   /**
+    * Record the given latency in nanoseconds. Negative values are counted as zero.
+    */
+   public void record(final long nanos)
+   {
+      long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+      counts.incrementAndGet(index(value));
+      count.incrementAndGet();
+      total.addAndGet(value);
+
+      long current = max.get();
+      while (value > current && !max.compareAndSet(current, value))
+      {
+         current = max.get();
+      }
+   }
+
+   /**
+    * Return the number of recorded values.
+    */
+   public long getCount()
+   {
+      return count.get();
+   }
+
+   /**
+    * Return the largest recorded value, or <code>0</code> if no values have been recorded.
+    */
+   public long getMax()
+   {
+      return max.get();
+   }
+
+   /**
+    * Return the mean of all recorded values, or <code>0</code> if no values have been recorded.
+    */
+   public double getMean()
+   {
+      long count = this.count.get();
+      return count == 0 ? 0 : (double) total.get() / count;
+   }
+
+   /**
+    * Return the value below which the given percentage (<code>0</code> to <code>100</code>) of recorded values fall,
+    * or <code>0</code> if no values have been recorded. The result is the upper bound of the bucket holding that value,
+    * but never more than {@link #getMax()}.
+    */
+   public long getValueAtPercentile(final double percentile)
+   {
+      long[] snapshot = new long[counts.length()];
+      long recorded = 0;
+      for (int i = 0; i < snapshot.length; i++)
+      {
+         snapshot[i] = counts.get(i);
+         recorded += snapshot[i];
+      }
+
+      if (recorded == 0)
+         return 0;
+
+      double bounded = Math.min(100, Math.max(0, percentile));
+      long rank = Math.max(1, (long) Math.ceil(bounded / 100 * recorded));
+      long seen = 0;
+      for (int i = 0; i < snapshot.length; i++)
+      {
+         seen += snapshot[i];
+         if (seen >= rank)
+            return Math.min(highestValue(i), getMax());
+      }
+      return getMax();
+   }
+
+   /**
+    * Discard all recorded values. Values recorded concurrently may or may not be retained.
+    */
+   public void reset()
+   {
+      for (int i = 0; i < counts.length(); i++)
+      {
+         counts.set(i, 0);
+      }
+      count.set(0);
+      total.set(0);
+      max.set(0);
+   }
+
+   /*
+    * Values below 2 * SUB_BUCKETS are counted exactly; above that, each power of two gets SUB_BUCKETS buckets.
+    */
+   static int index(final long value)
+   {
+      if (value < 2 * SUB_BUCKETS)
+         return (int) value;
+
+      int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+      return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+   }
+
+   static long highestValue(final int index)
+   {
+      if (index < 2 * SUB_BUCKETS)
+         return index;
+
+      int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+      long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+      return ((subBucket + 1) << shift) - 1;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "LatencyHistogram [count=" + getCount() + ", mean=" + getMean() + ", max=" + getMax() + "]";
+   }
+}
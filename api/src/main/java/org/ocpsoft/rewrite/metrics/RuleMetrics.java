@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.ConfigurationLoader;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.spi.RuleMetricsExporter;
+
+/**
+ * Records how often each {@link Rule} of a {@link Configuration} is evaluated, matched, and performed, and how long
+ * each evaluation and performance takes. Statistics are kept per {@link Rule} instance; when the {@link Configuration}
+ * changes (see {@link #update(List)}), statistics of {@link Rule} instances no longer present are discarded.
+ * <p>
+ * If a {@link ConfigurationLoader} is set, the version, build duration and rebuild state of the measured
+ * {@link Configuration} are reported as well, and likewise the counters of a rule cache if one is set (see
+ * {@link #setRuleCache(CacheStatistics)}). Recorded values are exposed to monitoring systems by
+ * {@link RuleMetricsExporter} implementations.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class RuleMetrics
+{
+   private final String name;
+
+   /*
+    * Copy-on-write; never modified once published.
+    */
+   private volatile Map<Rule, RuleStatistics> statistics = new IdentityHashMap<Rule, RuleStatistics>();
+   private volatile ConfigurationLoader loader;
+   private volatile CacheStatistics ruleCache;
+
+   /**
+    * Create a new {@link RuleMetrics} instance with the given name, such as the context path of the measured
+    * application.
+    */
+   public RuleMetrics(final String name)
+   {
+      this.name = name;
+   }
+
+   /**
+    * Return the name of this {@link RuleMetrics} instance.
+    */
+   public String getName()
+   {
+      return name;
+   }
+
+   /**
+    * Report the state of the given {@link ConfigurationLoader}, which builds the measured {@link Configuration}.
+    */
+   public void setConfigurationLoader(final ConfigurationLoader loader)
+   {
+      this.loader = loader;
+   }
+
+   /**
+    * Return the version of the most recently built {@link Configuration}, or <code>0</code> if none was built or no
+    * {@link ConfigurationLoader} is set.
+    * 
+    * @see ConfigurationLoader#getVersion()
+    */
+   public long getConfigurationVersion()
+   {
+      ConfigurationLoader loader = this.loader;
+      return loader == null ? 0 : loader.getVersion();
+   }
+
+   /**
+    * Return the time taken to build the most recent {@link Configuration}, in milliseconds.
+    * 
+    * @see ConfigurationLoader#getLastBuildDuration()
+    */
+   public long getLastBuildDuration()
+   {
+      ConfigurationLoader loader = this.loader;
+      return loader == null ? 0 : loader.getLastBuildDuration();
+   }
+
+   /**
+    * Return <code>true</code> if a replacement for an expired {@link Configuration} is currently being built.
+    * 
+    * @see ConfigurationLoader#isRebuilding()
+    */
+   public boolean isRebuilding()
+   {
+      ConfigurationLoader loader = this.loader;
+      return loader != null && loader.isRebuilding();
+   }
+
+   /**
+    * Report the counters of the given {@link CacheStatistics}, which caches the {@link Rule} instances evaluated for
+    * each event.
+    */
+   public void setRuleCache(final CacheStatistics ruleCache)
+   {
+      this.ruleCache = ruleCache;
+   }
+
+   /**
+    * Return the number of events for which a cached {@link Rule} list was found, or <code>0</code> if no rule cache is
+    * set.
+    */
+   public long getRuleCacheHits()
+   {
+      CacheStatistics ruleCache = this.ruleCache;
+      return ruleCache == null ? 0 : ruleCache.getHitCount();
+   }
+
+   /**
+    * Return the number of events for which no cached {@link Rule} list was found, or <code>0</code> if no rule cache
+    * is set.
+    */
+   public long getRuleCacheMisses()
+   {
+      CacheStatistics ruleCache = this.ruleCache;
+      return ruleCache == null ? 0 : ruleCache.getMissCount();
+   }
+
+   /**
+    * Return the number of cached {@link Rule} lists evicted to make room for new entries, or <code>0</code> if no rule
+    * cache is set.
+    */
+   public long getRuleCacheEvictions()
+   {
+      CacheStatistics ruleCache = this.ruleCache;
+      return ruleCache == null ? 0 : ruleCache.getEvictionCount();
+   }
+
+   /**
+    * Measure the given {@link Rule} instances from now on, in the given order. Statistics of {@link Rule} instances
+    * already measured are retained; statistics of all other {@link Rule} instances are discarded.
+    */
+   public synchronized void update(final List<Rule> rules)
+   {
+      Map<Rule, RuleStatistics> previous = statistics;
+      Map<Rule, RuleStatistics> result = new IdentityHashMap<Rule, RuleStatistics>(rules.size());
+      for (int i = 0; i < rules.size(); i++)
+      {
+         Rule rule = rules.get(i);
+         RuleStatistics existing = previous.get(rule);
+         if (existing == null)
+            existing = new RuleStatistics(rule, i);
+         else
+            existing.setPosition(i);
+         result.put(rule, existing);
+      }
+      statistics = result;
+   }
+
+   /**
+    * Record an evaluation of the given {@link Rule} that took the given number of nanoseconds and did or did not
+    * match.
+    */
+   public void evaluated(final Rule rule, final long nanos, final boolean matched)
+   {
+      getStatistics(rule).evaluated(nanos, matched);
+   }
+
+   /**
+    * Record a performance of the given {@link Rule} and its pre- and post-operations that took the given number of
+    * nanoseconds.
+    */
+   public void performed(final Rule rule, final long nanos)
+   {
+      getStatistics(rule).performed(nanos);
+   }
+
+   /**
+    * Return the {@link RuleStatistics} of the given {@link Rule}, measuring it from now on if it was not yet measured.
+    */
+   public RuleStatistics getStatistics(final Rule rule)
+   {
+      RuleStatistics result = statistics.get(rule);
+      if (result == null)
+      {
+         synchronized (this)
+         {
+            result = statistics.get(rule);
+            if (result == null)
+            {
+               Map<Rule, RuleStatistics> copy = new IdentityHashMap<Rule, RuleStatistics>(statistics);
+               result = new RuleStatistics(rule, -1);
+               copy.put(rule, result);
+               statistics = copy;
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Return the {@link RuleStatistics} of all measured {@link Rule} instances, ordered by their position in the
+    * {@link Configuration}.
+    */
+   public List<RuleStatistics> getStatistics()
+   {
+      List<RuleStatistics> result = new ArrayList<RuleStatistics>(statistics.values());
+      Collections.sort(result, new Comparator<RuleStatistics>() {
+         @Override
+         public int compare(RuleStatistics left, RuleStatistics right)
+         {
+            int l = left.getPosition() < 0 ? Integer.MAX_VALUE : left.getPosition();
+            int r = right.getPosition() < 0 ? Integer.MAX_VALUE : right.getPosition();
+            return l < r ? -1 : (l == r ? 0 : 1);
+         }
+      });
+      return result;
+   }
+
+   /**
+    * Discard all recorded values, keeping the set of measured {@link Rule} instances.
+    */
+   public void reset()
+   {
+      for (RuleStatistics rule : statistics.values())
+      {
+         rule.reset();
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "RuleMetrics [name=" + name + ", rules=" + statistics.size() + "]";
+   }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ocpsoft.rewrite.config.Rule;
+
+/**
+ * Counters and latencies recorded by {@link RuleMetrics} for a single {@link Rule}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class RuleStatistics
+{
+   private final Rule rule;
+   private volatile int position;
+   private volatile String name;
+
+   private final AtomicLong evaluations = new AtomicLong();
+   private final AtomicLong matches = new AtomicLong();
+   private final LatencyHistogram evaluationLatency = new LatencyHistogram();
+   private volatile LatencyHistogram performLatency;
+
+   RuleStatistics(final Rule rule, final int position)
+   {
+      this.rule = rule;
+      this.position = position;
+   }
+
+   void setPosition(final int position)
+   {
+      this.position = position;
+   }
+
+   void evaluated(final long nanos, final boolean matched)
+   {
+      evaluations.incrementAndGet();
+      if (matched)
+         matches.incrementAndGet();
+      evaluationLatency.record(nanos);
+   }
+
+   void performed(final long nanos)
+   {
+      LatencyHistogram histogram = performLatency;
+      if (histogram == null)
+      {
+         synchronized (this)
+         {
+            histogram = performLatency;
+            if (histogram == null)
+               performLatency = histogram = new LatencyHistogram();
+         }
+      }
+      histogram.record(nanos);
+   }
+
+   void reset()
+   {
+      evaluations.set(0);
+      matches.set(0);
+      evaluationLatency.reset();
+      LatencyHistogram histogram = performLatency;
+      if (histogram != null)
+         histogram.reset();
+   }
+
+   /**
+    * Return the measured {@link Rule}.
+    */
+   public Rule getRule()
+   {
+      return rule;
+   }
+
+   /**
+    * Return the position of the measured {@link Rule} in its {@link org.ocpsoft.rewrite.config.Configuration}, or
+    * <code>-1</code> if the position is not known.
+    */
+   public int getPosition()
+   {
+      return position;
+   }
+
+   /**
+    * Return the {@link Rule#getId()} of the measured {@link Rule}, or its {@link Object#toString()} if it has no ID.
+    */
+   public String getName()
+   {
+      String result = name;
+      if (result == null)
+      {
+         result = rule.getId();
+         if (result == null || result.isEmpty())
+            result = String.valueOf(rule);
+         name = result;
+      }
+      return result;
+   }
+
+   /**
+    * Return the number of times the {@link Rule} was evaluated.
+    */
+   public long getEvaluations()
+   {
+      return evaluations.get();
+   }
+
+   /**
+    * Return the number of times the {@link Rule} was evaluated and matched.
+    */
+   public long getMatches()
+   {
+      return matches.get();
+   }
+
+   /**
+    * Return the ratio of matches to evaluations, or <code>0</code> if the {@link Rule} was never evaluated.
+    */
+   public double getMatchRatio()
+   {
+      long evaluations = this.evaluations.get();
+      return evaluations == 0 ? 0 : (double) matches.get() / evaluations;
+   }
+
+   /**
+    * Return the number of times the {@link Rule} and its pre- and post-operations were performed.
+    */
+   public long getPerforms()
+   {
+      LatencyHistogram histogram = performLatency;
+      return histogram == null ? 0 : histogram.getCount();
+   }
+
+   /**
+    * Return the latencies of evaluating the {@link Rule}, in nanoseconds.
+    */
+   public LatencyHistogram getEvaluationLatency()
+   {
+      return evaluationLatency;
+   }
+
+   /**
+    * Return the latencies of performing the {@link Rule} and its pre- and post-operations, in nanoseconds, or
+    * <code>null</code> if the {@link Rule} was never performed.
+    */
+   public LatencyHistogram getPerformLatency()
+   {
+      return performLatency;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "RuleStatistics [rule=" + getName() + ", evaluations=" + getEvaluations() + ", matches=" + getMatches()
+               + ", performs=" + getPerforms() + "]";
+   }
+}
@@ -15,6 +15,7 @@
  */
 package org.ocpsoft.rewrite.param;
 
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -32,10 +33,15 @@ import org.ocpsoft.rewrite.util.ServiceLogger;
 
 /**
  * {@link Parameter} store which retains the order, bindings, and names of parameters contained within.
+ * <p>
+ * Each {@link Parameter} is also assigned an integer slot, its position in this store. Slots are assigned by
+ * {@link #compile()} once the store is complete, so that request processing can find parameters by position instead of
+ * by name.
  */
 public class DefaultParameterStore implements ParameterStore
 {
     private final Map<String, Parameter<?>> parameters = new LinkedHashMap<String, Parameter<?>>();
+    private volatile Slots slots;
     private static List<GlobalParameterProvider> providers;
     private static final Logger log = Logger.getLogger(DefaultParameterStore.class);
 
@@ -72,6 +78,7 @@ public class DefaultParameterStore implements ParameterStore
         {
             parameter = deflt;
             parameters.put(name, parameter);
+            slots = null;
         }
 
         if (parameter == null)
@@ -97,9 +104,65 @@ public class DefaultParameterStore implements ParameterStore
     public Parameter<?> store(Parameter<?> value)
     {
         Assert.notNull(value, "Parameter to store must not be null.");
+        slots = null;
         return parameters.put(value.getName(), value);
     }
 
+    /**
+     * Assign a slot to every {@link Parameter} in this store. Called when a
+     * {@link org.ocpsoft.rewrite.config.CompiledConfiguration} is built; a store that is modified afterwards is
+     * compiled again on the next slot lookup.
+     */
+    public void compile()
+    {
+        getSlots();
+    }
+
+    /**
+     * Return the slot of the given {@link Parameter} instance, or <code>-1</code> if this store does not contain that
+     * instance. Parameters are compared by identity, not by {@link Object#equals(Object)}.
+     */
+    public int getSlot(Parameter<?> parameter)
+    {
+        Integer slot = getSlots().indices.get(parameter);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Return the {@link Parameter} in the given slot.
+     */
+    public Parameter<?> getParameter(int slot)
+    {
+        return getSlots().parameters[slot];
+    }
+
+    private Slots getSlots()
+    {
+        Slots result = slots;
+        if (result == null)
+        {
+            result = new Slots(parameters.values().toArray(new Parameter<?>[parameters.size()]));
+            slots = result;
+        }
+        return result;
+    }
+
+    private static class Slots
+    {
+        private final Parameter<?>[] parameters;
+        private final Map<Parameter<?>, Integer> indices;
+
+        public Slots(Parameter<?>[] parameters)
+        {
+            this.parameters = parameters;
+            this.indices = new IdentityHashMap<Parameter<?>, Integer>(parameters.length * 2);
+            for (int i = 0; i < parameters.length; i++)
+            {
+                indices.put(parameters[i], i);
+            }
+        }
+    }
+
     @Override
     public int size()
     {
@@ -15,11 +15,14 @@
  */
 package org.ocpsoft.rewrite.param;
 
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.ocpsoft.common.services.ServiceLoader;
@@ -32,14 +35,31 @@ import org.ocpsoft.rewrite.spi.GlobalParameterProvider;
 import org.ocpsoft.rewrite.util.ServiceLogger;
 
 /**
- * Default implementation of {@link ParameterValueStore}
+ * Default implementation of {@link ParameterValueStore}. Values are held in insertion order in flat arrays, so that an
+ * instance may be {@link #clear() cleared} and reused for each evaluated {@link org.ocpsoft.rewrite.config.Rule}
+ * without allocation.
+ * <p>
+ * If the store is {@link #clear(ParameterStore) cleared} for the {@link DefaultParameterStore} of a
+ * {@link org.ocpsoft.rewrite.config.Rule}, the values of that store's parameters are found by their
+ * {@link DefaultParameterStore#getSlot(Parameter) slot}. Other parameters are found by a search for an equal
+ * {@link Parameter}.
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class DefaultParameterValueStore implements ParameterValueStore, Iterable<Entry<Parameter<?>, String>>
 {
-   Map<Parameter<?>, String> map = new LinkedHashMap<Parameter<?>, String>();
+   private Parameter<?>[] parameters = new Parameter<?>[4];
+   private String[] values = new String[4];
+   private int size;
+
+   private DefaultParameterStore store;
+   // the index in parameters and values, plus one, of the value in each slot of the store; zero if there is none
+   private int[] positions = new int[0];
+   // the number of stored parameters without a slot, which can only be found by a search
+   private int unslotted;
+
    private static List<GlobalParameterProvider> providers;
+   private static volatile GlobalParameter[] globals;
    private static final Logger log = Logger.getLogger(DefaultParameterValueStore.class);
 
    /**
@@ -61,17 +81,97 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
     */
    public DefaultParameterValueStore(DefaultParameterValueStore instance)
    {
-      for (Entry<Parameter<?>, String> entry : instance)
+      this.parameters = Arrays.copyOf(instance.parameters, instance.parameters.length);
+      this.values = Arrays.copyOf(instance.values, instance.values.length);
+      this.size = instance.size;
+      this.store = instance.store;
+      this.positions = Arrays.copyOf(instance.positions, instance.positions.length);
+      this.unslotted = instance.unslotted;
+   }
+
+   /**
+    * Remove all {@link Parameter} and value pairs from this {@link DefaultParameterValueStore}, so that it may be
+    * reused.
+    */
+   public void clear()
+   {
+      clear(null);
+   }
+
+   /**
+    * Remove all {@link Parameter} and value pairs from this {@link DefaultParameterValueStore}, so that it may be
+    * reused for a {@link org.ocpsoft.rewrite.config.Rule} with the given {@link ParameterStore}. If it is a
+    * {@link DefaultParameterStore}, values of its parameters are stored in and retrieved from their slots.
+    */
+   public void clear(ParameterStore store)
+   {
+      Arrays.fill(parameters, 0, size, null);
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+
+      Arrays.fill(positions, 0);
+      unslotted = 0;
+      this.store = store instanceof DefaultParameterStore ? (DefaultParameterStore) store : null;
+      if (this.store != null && positions.length < this.store.size())
+         positions = new int[this.store.size()];
+   }
+
+   private int slotOf(Parameter<?> parameter)
+   {
+      if (store == null)
+         return -1;
+      int slot = store.getSlot(parameter);
+      return slot < positions.length ? slot : -1;
+   }
+
+   private int indexOf(Parameter<?> parameter)
+   {
+      return indexOf(parameter, slotOf(parameter));
+   }
+
+   private int indexOf(Parameter<?> parameter, int slot)
+   {
+      /*
+       * An equal parameter stored without a slot could also hold the value, so only search if there is one.
+       */
+      if (slot >= 0 && (positions[slot] > 0 || unslotted == 0))
+         return positions[slot] - 1;
+
+      for (int i = 0; i < size; i++)
       {
-         map.put(entry.getKey(), entry.getValue());
+         Parameter<?> p = parameters[i];
+         if (p == parameter || p.equals(parameter))
+            return i;
       }
+      return -1;
+   }
+
+   private void store(Parameter<?> parameter, String value)
+   {
+      int slot = slotOf(parameter);
+      int index = indexOf(parameter, slot);
+      if (index < 0)
+      {
+         if (size == parameters.length)
+         {
+            parameters = Arrays.copyOf(parameters, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+         }
+         index = size++;
+         parameters[index] = parameter;
+         if (slot >= 0)
+            positions[slot] = index + 1;
+         else
+            unslotted++;
+      }
+      values[index] = value;
    }
 
    @Override
    public String retrieve(Parameter<?> parameter)
    {
-      String value = map.get(parameter);
-      return value;
+      int index = indexOf(parameter);
+      return index < 0 ? null : values[index];
    }
 
    @Override
@@ -94,7 +194,7 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
          {
             value = transposition.transpose(event, context, value);
          }
-         map.put(param, value);
+         store(param, value);
          result = true;
       }
 
@@ -104,20 +204,10 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
    private boolean supportsSubmission(Rewrite event, EvaluationContext context, Parameter<?> param, String value)
    {
       boolean result = true;
-      for (GlobalParameterProvider provider : providers)
+      GlobalParameter global = getGlobalParameter(param);
+      if (global != null)
       {
-         Set<Parameter<?>> params = provider.getParameters();
-         if (params != null)
-         {
-            for (Parameter<?> parameter : params)
-            {
-               if (parameter != null && parameter.getName() != null && parameter.getName().equals(param.getName()))
-               {
-                  result = provider.supportsSubmission(event, context, parameter);
-                  break;
-               }
-            }
-         }
+         result = global.provider.supportsSubmission(event, context, global.parameter);
       }
 
       return result;
@@ -130,7 +220,7 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
       Assert.notNull(context, "EvaluationContext must not be null.");
       Assert.notNull(param, "Parameter must not be null.");
 
-      String stored = map.get(param);
+      String stored = retrieve(param);
       boolean result = false;
       if (_doParameterProviderValidation(event, context, param, value))
       {
@@ -159,34 +249,169 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
             String value)
    {
       boolean result = false;
-      for (GlobalParameterProvider provider : providers)
+      GlobalParameter global = getGlobalParameter(param);
+      if (global != null)
       {
-         Set<Parameter<?>> params = provider.getParameters();
-         if (params != null)
+         result = global.provider.isValid(event, context, param, value);
+      }
+      return result;
+   }
+
+   /**
+    * Return the global {@link Parameter} with the same name as the given {@link Parameter}, or <code>null</code> if no
+    * {@link GlobalParameterProvider} provides such a {@link Parameter}. If more than one provider does, the last one
+    * wins.
+    */
+   private GlobalParameter getGlobalParameter(Parameter<?> param)
+   {
+      String name = param.getName();
+      GlobalParameter[] globals = getGlobalParameters();
+      for (int i = globals.length - 1; i >= 0; i--)
+      {
+         if (globals[i].parameter.getName().equals(name))
+            return globals[i];
+      }
+      return null;
+   }
+
+   /**
+    * {@link GlobalParameterProvider#getParameters()} may create new instances on each invocation, so the provided
+    * {@link Parameter} instances are collected once.
+    */
+   private static GlobalParameter[] getGlobalParameters()
+   {
+      GlobalParameter[] result = globals;
+      if (result == null)
+      {
+         List<GlobalParameter> list = new ArrayList<GlobalParameter>();
+         for (GlobalParameterProvider provider : providers)
          {
-            for (Parameter<?> parameter : params)
+            Set<Parameter<?>> params = provider.getParameters();
+            if (params != null)
             {
-               if (parameter != null && parameter.getName() != null && parameter.getName().equals(param.getName()))
+               Set<String> names = new HashSet<String>();
+               for (Parameter<?> parameter : params)
                {
-                  result = provider.isValid(event, context, param, value);
-                  break;
+                  if (parameter != null && parameter.getName() != null && names.add(parameter.getName()))
+                  {
+                     list.add(new GlobalParameter(provider, parameter));
+                  }
                }
             }
          }
+         result = list.toArray(new GlobalParameter[list.size()]);
+         globals = result;
       }
       return result;
    }
 
+   private static class GlobalParameter
+   {
+      private final GlobalParameterProvider provider;
+      private final Parameter<?> parameter;
+
+      public GlobalParameter(GlobalParameterProvider provider, Parameter<?> parameter)
+      {
+         this.provider = provider;
+         this.parameter = parameter;
+      }
+   }
+
+   private void remove(int index)
+   {
+      int slot = slotOf(parameters[index]);
+      if (slot >= 0 && positions[slot] == index + 1)
+         positions[slot] = 0;
+      else
+         unslotted--;
+
+      int moved = size - index - 1;
+      System.arraycopy(parameters, index + 1, parameters, index, moved);
+      System.arraycopy(values, index + 1, values, index, moved);
+      size--;
+      parameters[size] = null;
+      values[size] = null;
+
+      for (int i = index; i < size; i++)
+      {
+         slot = slotOf(parameters[i]);
+         if (slot >= 0 && positions[slot] == i + 2)
+            positions[slot] = i + 1;
+      }
+   }
+
+   /**
+    * Iterates the {@link Parameter} and value pairs in insertion order. As with a {@link java.util.Map} entry set,
+    * {@link Iterator#remove()} removes the current pair, and {@link Entry#setValue(Object)} replaces its value.
+    */
    @Override
    public Iterator<Entry<Parameter<?>, String>> iterator()
    {
-      return map.entrySet().iterator();
+      return new Iterator<Entry<Parameter<?>, String>>() {
+         private int index = 0;
+         private int last = -1;
+
+         @Override
+         public boolean hasNext()
+         {
+            return index < size;
+         }
+
+         @Override
+         public Entry<Parameter<?>, String> next()
+         {
+            if (index >= size)
+               throw new NoSuchElementException();
+            last = index++;
+            return new ValueEntry(parameters[last]);
+         }
+
+         @Override
+         public void remove()
+         {
+            if (last < 0)
+               throw new IllegalStateException();
+            DefaultParameterValueStore.this.remove(last);
+            index = last;
+            last = -1;
+         }
+      };
+   }
+
+   /**
+    * Reads and writes the value of its {@link Parameter} through to this store.
+    */
+   private class ValueEntry extends SimpleEntry<Parameter<?>, String>
+   {
+      private static final long serialVersionUID = 1L;
+
+      public ValueEntry(Parameter<?> parameter)
+      {
+         super(parameter, null);
+      }
+
+      @Override
+      public String getValue()
+      {
+         return retrieve(getKey());
+      }
+
+      @Override
+      public String setValue(String value)
+      {
+         int index = indexOf(getKey());
+         if (index < 0)
+            throw new IllegalStateException("Parameter [" + getKey() + "] was removed");
+         String previous = values[index];
+         values[index] = value;
+         return previous;
+      }
    }
 
    @Override
    public String toString()
    {
-      return map.keySet().toString();
+      return Arrays.asList(parameters).subList(0, size).toString();
    }
 
    /**
@@ -16,8 +16,6 @@
 package org.ocpsoft.rewrite.param;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +45,14 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
    private final char[] chars;
    private final List<RegexGroup> groups = new ArrayList<RegexGroup>();
    private final String defaultParameterPattern;
+
+   /*
+    * The pattern compiled into a template: literals[i] precedes the value of groups[i], and the last literal follows
+    * the last value. slots[i] is the index of the first group with the same name as groups[i].
+    */
+   private final String[] literals;
+   private final int[] slots;
+   private final int literalLength;
    private ParameterStore store;
 
    private RegexParameterizedPatternParser parser = null;
@@ -94,6 +100,29 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
       this.pattern = pattern;
       this.chars = pattern.toCharArray();
       this.groups.addAll(RegexParameterizedPatternParser.getGroups(type, chars));
+
+      this.literals = new String[groups.size() + 1];
+      this.slots = new int[groups.size()];
+      int length = 0;
+      int start = 0;
+      for (int i = 0; i < groups.size(); i++)
+      {
+         CapturingGroup capture = groups.get(i).getCapture();
+         literals[i] = new String(chars, start, Math.max(0, capture.getStart() - start));
+         length += literals[i].length();
+         start = capture.getEnd() + 1;
+
+         slots[i] = i;
+         for (int j = 0; j < i; j++) {
+            if (groups.get(j).getName().equals(groups.get(i).getName()))
+            {
+               slots[i] = j;
+               break;
+            }
+         }
+      }
+      literals[groups.size()] = start < chars.length ? new String(chars, start, chars.length - start) : "";
+      this.literalLength = length + literals[groups.size()].length();
    }
 
    @Override
@@ -119,105 +148,60 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
          throw new ParameterizationException("Must supply [" + groups.size() + "] values to build output string.");
       }
 
-      StringBuilder builder = new StringBuilder();
-      CapturingGroup last = null;
-
-      int index = 0;
-      for (RegexGroup param : groups)
-      {
-         CapturingGroup capture = param.getCapture();
-
-         if ((last != null) && (last.getEnd() < capture.getStart()))
-         {
-            builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, capture.getStart()));
-         }
-         else if ((last == null) && (capture.getStart() > 0))
-         {
-            builder.append(Arrays.copyOfRange(chars, 0, capture.getStart()));
-         }
-
-         builder.append(values.get(index++));
-
-         last = capture;
-      }
-
-      if ((last != null) && (last.getEnd() < chars.length))
-      {
-         builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, chars.length));
-      }
-      else if (last == null)
-      {
-         builder.append(chars);
-      }
-
-      String result = builder.toString();
-
-      // if (!getParser().matches(result))
-      // {
-      // throw new IllegalStateException("Generated a value that does not match constraints.");
-      // }
-
-      return result;
+      return build(values.toArray());
    }
 
    @Override
    public String build(final Map<String, Object> values) throws ParameterizationException
    {
-      StringBuilder builder = new StringBuilder();
-      CapturingGroup last = null;
-
-      for (RegexGroup param : groups)
+      Object[] result = new Object[groups.size()];
+      for (int i = 0; i < result.length; i++)
       {
-         CapturingGroup capture = param.getCapture();
-
-         if ((last != null) && (last.getEnd() < capture.getStart()))
-         {
-            builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, capture.getStart()));
-         }
-         else if ((last == null) && (capture.getStart() > 0))
-         {
-            builder.append(Arrays.copyOfRange(chars, 0, capture.getStart()));
-         }
-
-         if (!values.containsKey(param.getName()))
-            throw new ParameterizationException("No value supplied for parameter [" + param.getName()
+         String name = groups.get(i).getName();
+         if (!values.containsKey(name))
+            throw new ParameterizationException("No value supplied for parameter [" + name
                      + "] when building pattern [" + getPattern() + "].");
 
-         builder.append(values.get(param.getName()));
-
-         last = capture;
+         result[i] = values.get(name);
       }
+      return build(result);
+   }
 
-      if ((last != null) && (last.getEnd() < chars.length))
-      {
-         builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, chars.length));
-      }
-      else if (last == null)
+   /**
+    * Build the output string from the compiled template, with one value per group.
+    */
+   private String build(final Object[] values)
+   {
+      StringBuilder builder = new StringBuilder(literalLength + 16 * values.length);
+      for (int i = 0; i < values.length; i++)
       {
-         builder.append(chars);
+         builder.append(literals[i]);
+         builder.append(values[i]);
       }
+      builder.append(literals[values.length]);
 
-      String result = builder.toString();
-
-      // if (!getParser().matches(result))
-      // {
-      // throw new IllegalStateException("Generated a value that does not match constraints.");
-      // }
-
-      return result;
+      return builder.toString();
    }
 
    /**
-    * Extract bound values from configured {@link Binding} instances. Return a {@link Map} of the extracted key-value
-    * pairs. Before storing the values in the map, this method applies the supplied {@link Transposition} instance.
+    * Extract bound values from configured {@link Binding} instances, one for each group. The value of a parameter used
+    * by several groups is extracted once. Before returning the values, this method applies the supplied
+    * {@link Transposition} instance.
     */
-   private Map<String, Object> extractBoundValues(final Rewrite event, final EvaluationContext context,
+   private Object[] extractBoundValues(final Rewrite event, final EvaluationContext context,
             Transposition<String> transposition)
    {
-      Map<String, Object> result = new LinkedHashMap<String, Object>();
+      Object[] result = new Object[groups.size()];
 
-      for (RegexGroup group : groups)
+      for (int i = 0; i < result.length; i++)
       {
+         if (slots[i] != i)
+         {
+            result[i] = result[slots[i]];
+            continue;
+         }
+
+         RegexGroup group = groups.get(i);
          Parameter<?> parameter = store.get(group.getName());
          Object value = null;
 
@@ -238,7 +222,7 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
          if (transposition != null)
             value = transposition.transpose(event, context, value.toString());
 
-         result.put(group.getName(), value);
+         result[i] = value;
       }
       return result;
    }
@@ -43,13 +43,14 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    private static final char[] REGEX_ESCAPE_END = new char[] { '\\', 'E' };
    private static final char[] REGEX_ESCAPE_BEGIN = new char[] { '\\', 'Q' };
    private static final String DEFAULT_PARAMETER_PATTERN = ".*";
-   private Pattern compiledPattern;
+   private volatile Pattern compiledPattern;
    private final String pattern;
    private final char[] chars;
    private final List<RegexGroup> groups = new ArrayList<RegexGroup>();
    private RegexParameterizedPatternBuilder builder;
    private String defaultParameterPattern;
    private ParameterStore store;
+   private volatile ResolvedParameters resolved;
    private CaptureType type;
 
    RegexParameterizedPatternParser(RegexParameterizedPatternBuilder builder,
@@ -161,7 +162,7 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    @Override
    public ParameterizedPatternResult parse(final String value)
    {
-      return new RegexParameterizedPatternMatchResult(groups, getCompiledPattern(store).matcher(value));
+      return new RegexParameterizedPatternMatchResult(this, getCompiledPattern(store).matcher(value));
    }
 
    public Pattern getCompiledPattern(ParameterStore store)
@@ -243,6 +244,41 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       return compiledPattern;
    }
 
+   /**
+    * Return the literal (unescaped) portion of this pattern that precedes the first parameter. Any value matched by
+    * this pattern must begin with this prefix. If this pattern contains no parameters, the entire literal pattern is
+    * returned.
+    */
+   public String getLiteralPrefix()
+   {
+      if (groups.isEmpty())
+         return unescape(pattern);
+
+      return unescape(String.valueOf(Arrays.copyOfRange(chars, 0, groups.get(0).getCapture().getStart())));
+   }
+
+   /**
+    * Return the literal (unescaped) portions of this pattern that precede, separate, and follow its parameters, in
+    * order. Any value matched by this pattern must contain each of these segments. Empty segments are omitted.
+    */
+   public List<String> getLiteralSegments()
+   {
+      List<String> result = new ArrayList<String>();
+      int start = 0;
+      for (RegexGroup group : groups)
+      {
+         CapturingGroup capture = group.getCapture();
+         if (capture.getStart() > start)
+            result.add(unescape(String.valueOf(Arrays.copyOfRange(chars, start, capture.getStart()))));
+         start = capture.getEnd() + 1;
+      }
+
+      if (start < chars.length)
+         result.add(unescape(String.valueOf(Arrays.copyOfRange(chars, start, chars.length))));
+
+      return result;
+   }
+
    private String sanitizePattern(Constraint<String> constraint)
    {
       StringBuilder result = new StringBuilder();
@@ -296,11 +332,13 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    {
       private final CapturingGroup capture;
       private final int index;
+      private final String name;
 
       public RegexGroup(final CapturingGroup capture, int index)
       {
          this.capture = capture;
          this.index = index;
+         this.name = new String(capture.getCaptured());
       }
 
       public int getIndex()
@@ -310,7 +348,7 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
 
       public String getName()
       {
-         return new String(capture.getCaptured());
+         return name;
       }
 
       public CapturingGroup getCapture()
@@ -340,17 +378,63 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    public void setParameterStore(ParameterStore store)
    {
       this.store = store;
+
+      /*
+       * Stores are set while a configuration is built; resolve the groups then, unless a name is not yet defined.
+       */
+      if (store != null)
+      {
+         for (RegexGroup group : groups)
+         {
+            if (!store.contains(group.getName()))
+               return;
+         }
+         getParameters(store);
+      }
+   }
+
+   /**
+    * Return the {@link Parameter} of each group in this pattern, in group order, as defined by the given
+    * {@link ParameterStore}. The result is resolved once per {@link ParameterStore} and reused, so that matching does
+    * not look up parameters by name.
+    */
+   Parameter<?>[] getParameters(final ParameterStore store)
+   {
+      ResolvedParameters result = this.resolved;
+      if (result == null || result.store != store)
+      {
+         Parameter<?>[] parameters = new Parameter<?>[groups.size()];
+         for (int i = 0; i < parameters.length; i++)
+         {
+            parameters[i] = store.get(groups.get(i).getName());
+         }
+         result = new ResolvedParameters(store, parameters);
+         this.resolved = result;
+      }
+      return result.parameters;
+   }
+
+   private static class ResolvedParameters
+   {
+      private final ParameterStore store;
+      private final Parameter<?>[] parameters;
+
+      public ResolvedParameters(ParameterStore store, Parameter<?>[] parameters)
+      {
+         this.store = store;
+         this.parameters = parameters;
+      }
    }
 
    private static class RegexParameterizedPatternMatchResult implements ParameterizedPatternResult
    {
-      private Matcher matcher;
-      private List<RegexGroup> groups;
+      private final RegexParameterizedPatternParser parser;
+      private final Matcher matcher;
       private Boolean matched;
 
-      public RegexParameterizedPatternMatchResult(List<RegexGroup> groups, Matcher matcher)
+      public RegexParameterizedPatternMatchResult(RegexParameterizedPatternParser parser, Matcher matcher)
       {
-         this.groups = groups;
+         this.parser = parser;
          this.matcher = matcher;
       }
 
@@ -371,15 +455,14 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       @Override
       public Map<Parameter<?>, String> getParameters(EvaluationContext context)
       {
-         Map<Parameter<?>, String> values = new LinkedHashMap<Parameter<?>, String>();
-         ParameterStore store = DefaultParameterStore.getInstance(context);
+         if (!matches())
+            return new LinkedHashMap<Parameter<?>, String>();
 
-         if (matcher.matches())
+         Parameter<?>[] parameters = parser.getParameters(DefaultParameterStore.getInstance(context));
+         Map<Parameter<?>, String> values = new LinkedHashMap<Parameter<?>, String>(parameters.length * 2);
+         for (int i = 0; i < parameters.length; i++)
          {
-            for (RegexGroup group : groups)
-            {
-               values.put(store.get(group.getName()), matcher.group(group.getIndex() + 1));
-            }
+            values.put(parameters[i], matcher.group(i + 1));
          }
          return values;
       }
@@ -389,16 +472,12 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       {
          if (matches())
          {
-            ParameterStore store = DefaultParameterStore.getInstance(context);
+            Parameter<?>[] parameters = parser.getParameters(DefaultParameterStore.getInstance(context));
+            ParameterValueStore valueStore = DefaultParameterValueStore.getInstance(context);
 
-            int index = 1;
-            for (RegexGroup group : groups)
+            for (int i = 0; i < parameters.length; i++)
             {
-               String value = matcher.group(index++);
-               Parameter<?> param = store.get(group.getName());
-
-               ParameterValueStore valueStore = DefaultParameterValueStore.getInstance(context);
-               if (!valueStore.isValid(event, context, param, value))
+               if (!valueStore.isValid(event, context, parameters[i], matcher.group(i + 1)))
                {
                   return false;
                }
@@ -414,16 +493,12 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       {
          if (matches())
          {
-            ParameterStore store = DefaultParameterStore.getInstance(context);
+            Parameter<?>[] parameters = parser.getParameters(DefaultParameterStore.getInstance(context));
+            ParameterValueStore valueStore = DefaultParameterValueStore.getInstance(context);
 
-            int index = 1;
-            for (RegexGroup group : groups)
+            for (int i = 0; i < parameters.length; i++)
             {
-               String value = matcher.group(index++);
-               Parameter<?> param = store.get(group.getName());
-
-               ParameterValueStore valueStore = DefaultParameterValueStore.getInstance(context);
-               if (!valueStore.submit(event, context, param, value))
+               if (!valueStore.submit(event, context, parameters[i], matcher.group(i + 1)))
                {
                   return false;
                }
@@ -28,12 +28,14 @@ import org.ocpsoft.rewrite.event.Rewrite;
 public interface RuleCacheProvider
 {
    /**
-    * Get {@link Rule} instances matching the given cache key.
+    * Get {@link Rule} instances matching the given cache key, or <code>null</code> if nothing is cached for it. An empty
+    * list is a cached result: no {@link Rule} is evaluated for the event.
     */
    List<Rule> get(Object key);
 
    /**
-    * Store a list of {@link Rule} instances matching the given cache key.
+    * Store a list of {@link Rule} instances matching the given cache key. The list is empty if no {@link Rule}
+    * matched.
     */
    void put(Object key, List<Rule> rules);
 
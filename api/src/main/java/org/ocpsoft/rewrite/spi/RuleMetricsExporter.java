@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.spi;
+
+import org.ocpsoft.common.pattern.Weighted;
+import org.ocpsoft.rewrite.metrics.RuleMetrics;
+
+/**
+ * Exposes {@link RuleMetrics} to a monitoring system. Exporters are started when rule metrics are enabled for an
+ * application, and may read the {@link RuleMetrics} at any time until they are stopped.
+ *
+ * Additional exporters may be specified by providing a service activator file containing the name of your
+ * implementations:
+ * <p>
+ * <code> /META-INF/services/org.ocpsoft.rewrite.spi.RuleMetricsExporter<br>
+ *
+ * --------------<br>
+ * com.example.RuleMetricsExporterImpl</code>
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface RuleMetricsExporter extends Weighted
+{
+   /**
+    * Begin exporting the given {@link RuleMetrics}.
+    */
+   void start(RuleMetrics metrics);
+
+   /**
+    * Stop exporting the given {@link RuleMetrics}.
+    */
+   void stop(RuleMetrics metrics);
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.ocpsoft.common.util.Assert;
+
+/**
+ * A size-bounded, concurrent cache using the CLOCK (second chance) eviction policy. Reads never block and only set a
+ * reference bit on the hit entry; writes claim a slot in a fixed ring of entries with compare-and-set, evicting the
+ * first entry under the clock hand that has not been referenced since the hand last passed it.
+ * <p>
+ * The number of entries may transiently exceed the capacity by the number of concurrent writers.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ClockCache<K, V>
+{
+   private final int capacity;
+   private final ConcurrentHashMap<K, Entry<K, V>> map;
+   private final AtomicReferenceArray<Entry<K, V>> ring;
+   private final AtomicInteger hand = new AtomicInteger();
+
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+   private final AtomicLong evictions = new AtomicLong();
+
+   /**
+    * Create a new {@link ClockCache} holding at most the given number of entries.
+    */
+   public ClockCache(final int capacity)
+   {
+      Assert.assertTrue(capacity > 0, "Capacity must be greater than zero.");
+      this.capacity = capacity;
+      this.map = new ConcurrentHashMap<K, Entry<K, V>>(Math.min(capacity, 1024) * 4 / 3 + 1);
+      this.ring = new AtomicReferenceArray<Entry<K, V>>(capacity);
+   }
+
+   /**
+    * Return the value cached for the given key, or <code>null</code> if no such value is cached.
+    */
+   public V get(final K key)
+   {
+      Entry<K, V> entry = map.get(key);
+      if (entry == null)
+      {
+         misses.incrementAndGet();
+         return null;
+      }
+
+      if (!entry.referenced)
+         entry.referenced = true;
+
+      hits.incrementAndGet();
+      return entry.value;
+   }
+
+   /**
+    * Cache the given value for the given key, evicting another entry if this cache is full. If a value is already
+    * cached for the given key, it is replaced.
+    */
+   public void put(final K key, final V value)
+   {
+      Entry<K, V> entry = new Entry<K, V>(key, value);
+      Entry<K, V> previous = map.put(key, entry);
+      if (previous != null)
+      {
+         /*
+          * Take over the slot of the replaced entry, if it still has one.
+          */
+         int slot = previous.slot;
+         if (slot >= 0 && ring.compareAndSet(slot, previous, entry))
+         {
+            entry.slot = slot;
+            return;
+         }
+      }
+
+      while (true)
+      {
+         int slot = (hand.getAndIncrement() & Integer.MAX_VALUE) % capacity;
+         Entry<K, V> current = ring.get(slot);
+         if (current == null)
+         {
+            if (ring.compareAndSet(slot, null, entry))
+            {
+               entry.slot = slot;
+               return;
+            }
+         }
+         else if (current.referenced)
+         {
+            current.referenced = false;
+         }
+         else if (ring.compareAndSet(slot, current, entry))
+         {
+            entry.slot = slot;
+            if (map.remove(current.key, current))
+               evictions.incrementAndGet();
+            return;
+         }
+      }
+   }
+
+   /**
+    * Remove all entries from this cache. Statistics are retained.
+    */
+   public void clear()
+   {
+      for (int i = 0; i < capacity; i++) {
+         Entry<K, V> current = ring.getAndSet(i, null);
+         if (current != null)
+            map.remove(current.key, current);
+      }
+   }
+
+   /**
+    * Get the maximum number of entries held by this cache.
+    */
+   public int getCapacity()
+   {
+      return capacity;
+   }
+
+   /**
+    * Get the current number of entries held by this cache.
+    */
+   public int size()
+   {
+      return map.size();
+   }
+
+   /**
+    * Get the number of {@link #get(Object)} calls that returned a cached value.
+    */
+   public long getHitCount()
+   {
+      return hits.get();
+   }
+
+   /**
+    * Get the number of {@link #get(Object)} calls that did not return a cached value.
+    */
+   public long getMissCount()
+   {
+      return misses.get();
+   }
+
+   /**
+    * Get the number of entries that have been evicted to make room for new entries.
+    */
+   public long getEvictionCount()
+   {
+      return evictions.get();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ClockCache [capacity=" + capacity + ", size=" + size() + ", hits=" + getHitCount() + ", misses="
+               + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+   }
+
+   private static class Entry<K, V>
+   {
+      private final K key;
+      private final V value;
+      private volatile boolean referenced;
+      private volatile int slot = -1;
+
+      public Entry(final K key, final V value)
+      {
+         this.key = key;
+         this.value = value;
+      }
+   }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveRuleOrderTest
+{
+   private static Rule rule(String id, boolean independent)
+   {
+      RuleBuilder result = RuleBuilder.define().withId(id);
+      if (independent)
+         result.put(RuleMetadata.ORDER_INDEPENDENT, true);
+      return result;
+   }
+
+   @Test
+   public void testNoOrderIndependentRules()
+   {
+      List<Rule> rules = Arrays.asList(rule("a", false), rule("b", true), rule("c", false));
+      CompiledConfiguration configuration = new CompiledConfiguration(rules, new int[3], 1);
+      Assert.assertNull(AdaptiveRuleOrder.create(configuration, 1000));
+   }
+
+   @Test
+   public void testReordersWithinPriority()
+   {
+      Rule a = rule("a", false);
+      Rule b = rule("b", true);
+      Rule c = rule("c", true);
+      Rule d = rule("d", true);
+      Rule e = rule("e", true);
+      List<Rule> rules = Arrays.asList(a, b, c, d, e);
+      CompiledConfiguration configuration = new CompiledConfiguration(rules, new int[] { 0, 0, 0, 0, 1 }, 7);
+
+      AdaptiveRuleOrder order = AdaptiveRuleOrder.create(configuration, 60000);
+      Assert.assertSame(configuration, order.getConfiguration());
+
+      for (int i = 0; i < 1000; i++)
+      {
+         order.matched(a);
+         order.matched(d);
+         order.matched(e);
+      }
+      order.reorder();
+
+      CompiledConfiguration result = order.getConfiguration();
+      Assert.assertEquals(Arrays.asList(a, d, b, c, e), result.getRules());
+      Assert.assertEquals(7, result.getVersion());
+      Assert.assertEquals(1, result.getPriority(4));
+
+      order.reorder();
+      Assert.assertSame(result, order.getConfiguration());
+   }
+}
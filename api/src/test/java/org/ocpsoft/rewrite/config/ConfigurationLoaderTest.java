@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
+
+public class ConfigurationLoaderTest
+{
+   private final Object context = new Object();
+   private TestCache cache;
+   private TestProvider provider;
+   private ConfigurationLoader loader;
+
+   @Before
+   public void before()
+   {
+      cache = new TestCache();
+      provider = new TestProvider();
+
+      List<ConfigurationCacheProvider<?>> caches = new ArrayList<ConfigurationCacheProvider<?>>();
+      caches.add(cache);
+      List<ConfigurationProvider<?>> providers = new ArrayList<ConfigurationProvider<?>>();
+      providers.add(provider);
+      loader = new ConfigurationLoader(caches, providers);
+   }
+
+   @Test
+   public void testFirstBuildIsCached()
+   {
+      Configuration first = loader.loadConfiguration(context);
+      Assert.assertEquals(1, ((CompiledConfiguration) first).getVersion());
+      Assert.assertSame(first, loader.loadConfiguration(context));
+      Assert.assertEquals(1, provider.builds.get());
+      Assert.assertEquals(1, loader.getVersion());
+   }
+
+   @Test
+   public void testStaleConfigurationIsServedWhileCallerRebuilds() throws Exception
+   {
+      final Configuration first = loader.loadConfiguration(context);
+      cache.configuration = null;
+      provider.block();
+
+      final Configuration[] rebuilt = new Configuration[1];
+      Thread caller = new Thread(new Runnable() {
+         @Override
+         public void run()
+         {
+            rebuilt[0] = loader.loadConfiguration(context);
+         }
+      });
+      caller.start();
+      Assert.assertTrue(provider.started.await(5, TimeUnit.SECONDS));
+      Assert.assertTrue(loader.isRebuilding());
+
+      // other callers neither wait nor start another rebuild
+      Assert.assertSame(first, loader.loadConfiguration(context));
+      Assert.assertSame(first, loader.loadConfiguration(context));
+      Assert.assertEquals(2, provider.builds.get());
+
+      provider.release();
+      caller.join(5000);
+      Assert.assertFalse(caller.isAlive());
+
+      Assert.assertNotSame(first, rebuilt[0]);
+      Assert.assertEquals(2, ((CompiledConfiguration) rebuilt[0]).getVersion());
+      Assert.assertFalse(loader.isRebuilding());
+      Assert.assertSame(rebuilt[0], loader.loadConfiguration(context));
+      Assert.assertEquals(2, provider.builds.get());
+   }
+
+   @Test
+   public void testStaleConfigurationIsServedWhileExecutorRebuilds() throws Exception
+   {
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         loader.setExecutor(executor);
+         Configuration first = loader.loadConfiguration(context);
+         cache.configuration = null;
+         provider.block();
+
+         Assert.assertSame(first, loader.loadConfiguration(context));
+         Assert.assertTrue(provider.started.await(5, TimeUnit.SECONDS));
+         Assert.assertTrue(loader.isRebuilding());
+         Assert.assertSame(first, loader.loadConfiguration(context));
+         Assert.assertEquals(2, provider.builds.get());
+
+         provider.release();
+         executor.shutdown();
+         Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+         Assert.assertFalse(loader.isRebuilding());
+         Configuration second = loader.loadConfiguration(context);
+         Assert.assertNotSame(first, second);
+         Assert.assertEquals(2, ((CompiledConfiguration) second).getVersion());
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+
+   @Test
+   public void testFailedRebuildKeepsServingPreviousConfiguration()
+   {
+      Configuration first = loader.loadConfiguration(context);
+      cache.configuration = null;
+      provider.fail = true;
+
+      Assert.assertSame(first, loader.loadConfiguration(context));
+      Assert.assertFalse(loader.isRebuilding());
+      Assert.assertEquals(1, loader.getVersion());
+
+      provider.fail = false;
+      Configuration second = loader.loadConfiguration(context);
+      Assert.assertEquals(2, ((CompiledConfiguration) second).getVersion());
+   }
+
+   private static class TestCache implements ConfigurationCacheProvider<Object>
+   {
+      private volatile Configuration configuration;
+
+      @Override
+      public Configuration getConfiguration(Object context)
+      {
+         return configuration;
+      }
+
+      @Override
+      public void setConfiguration(Object context, Configuration configuration)
+      {
+         this.configuration = configuration;
+      }
+
+      @Override
+      public boolean handles(Object payload)
+      {
+         return true;
+      }
+
+      @Override
+      public int priority()
+      {
+         return 0;
+      }
+   }
+
+   private static class TestProvider implements ConfigurationProvider<Object>
+   {
+      private final AtomicInteger builds = new AtomicInteger();
+      private volatile CountDownLatch started = new CountDownLatch(0);
+      private volatile CountDownLatch gate;
+      private volatile boolean fail;
+
+      public void block()
+      {
+         started = new CountDownLatch(1);
+         gate = new CountDownLatch(1);
+      }
+
+      public void release()
+      {
+         gate.countDown();
+      }
+
+      @Override
+      public Configuration getConfiguration(Object context)
+      {
+         builds.incrementAndGet();
+         started.countDown();
+         if (fail)
+            throw new IllegalStateException("Expected failure");
+
+         CountDownLatch gate = this.gate;
+         if (gate != null)
+         {
+            try {
+               gate.await(5, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+         return ConfigurationBuilder.begin();
+      }
+
+      @Override
+      public boolean handles(Object payload)
+      {
+         return true;
+      }
+
+      @Override
+      public int priority()
+      {
+         return 0;
+      }
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.config.RuleIndexTest.Prefixed;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ConfigurationMatcherTest
+{
+   private static List<Rule> candidates(ConfigurationBuilder config, String path)
+   {
+      return ConfigurationMatcher.build(config).getCandidates(path);
+   }
+
+   @Test
+   public void testCandidatesMustContainAllLiteralSegments()
+   {
+      ConfigurationBuilder config = ConfigurationBuilder.begin();
+      config.addRule().when(new Prefixed("{lang}/products/{id}.html"));
+      config.addRule().when(new Prefixed("{lang}/blog/{id}"));
+      config.addRule().when(new Prefixed("/static/{file}.css"));
+      config.addRule().when(new Prefixed("{all}"));
+
+      List<Rule> rules = config.getRules();
+      Assert.assertEquals(Arrays.asList(rules.get(0), rules.get(3)), candidates(config, "/en/products/42.html"));
+      Assert.assertEquals(Arrays.asList(rules.get(3)), candidates(config, "/en/products/42"));
+      Assert.assertEquals(Arrays.asList(rules.get(1), rules.get(3)), candidates(config, "/de/blog/post"));
+      Assert.assertEquals(Arrays.asList(rules.get(2), rules.get(3)), candidates(config, "/static/site.css"));
+      Assert.assertEquals(Arrays.asList(rules.get(3)), candidates(config, "/static/site.js"));
+   }
+
+   @Test
+   public void testOverlappingLiterals()
+   {
+      ConfigurationBuilder config = ConfigurationBuilder.begin();
+      config.addRule().when(new Prefixed("{a}she{b}"));
+      config.addRule().when(new Prefixed("{a}he{b}"));
+      config.addRule().when(new Prefixed("{a}hers{b}"));
+      config.addRule().when(new Prefixed("{a}his{b}"));
+
+      List<Rule> rules = config.getRules();
+      Assert.assertEquals(Arrays.asList(rules.get(0), rules.get(1), rules.get(2)), candidates(config, "/ushers"));
+      Assert.assertEquals(Arrays.asList(rules.get(3)), candidates(config, "/this"));
+   }
+
+   @Test
+   public void testAlternativePatterns()
+   {
+      ConfigurationBuilder config = ConfigurationBuilder.begin();
+      config.addRule().when(new Prefixed("{a}.jsf").or(new Prefixed("{a}.xhtml")));
+      config.addRule().when(Not.any(new Prefixed("{a}.jsf")));
+
+      List<Rule> rules = config.getRules();
+      Assert.assertEquals(rules, candidates(config, "/index.xhtml"));
+      Assert.assertEquals(rules, candidates(config, "/index.jsf"));
+      Assert.assertEquals(Arrays.asList(rules.get(1)), candidates(config, "/index.html"));
+   }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class DirectionTest
+{
+   @Test
+   public void testRequiresInbound()
+   {
+      Assert.assertTrue(Direction.requiresInbound(Direction.isInbound()));
+      Assert.assertTrue(Direction.requiresInbound(Direction.isInbound().and(new True())));
+      Assert.assertTrue(Direction.requiresInbound(And.all(new True(), Direction.isInbound())));
+      Assert.assertTrue(Direction.requiresInbound(Direction.isInbound().andNot(new False())));
+      Assert.assertTrue(Direction.requiresInbound(Or.any(Direction.isInbound(),
+               Direction.isInbound().and(new True()))));
+   }
+
+   @Test
+   public void testDoesNotRequireInbound()
+   {
+      Assert.assertFalse(Direction.requiresInbound(Direction.isOutbound()));
+      Assert.assertFalse(Direction.requiresInbound(new True()));
+      Assert.assertFalse(Direction.requiresInbound(Direction.isInbound().or(new True())));
+      Assert.assertFalse(Direction.requiresInbound(Or.any(Direction.isInbound(), Direction.isOutbound())));
+      Assert.assertFalse(Direction.requiresInbound(Not.any(Direction.isInbound())));
+   }
+
+   @Test
+   public void testRequiresInboundOfRule()
+   {
+      Configuration config = ConfigurationBuilder.begin()
+               .addRule().when(Direction.isInbound().and(new True())).perform(new NoOp())
+               .addRule().when(Direction.isOutbound()).perform(new NoOp());
+
+      Assert.assertTrue(Direction.requiresInbound((Condition) config.getRules().get(0)));
+      Assert.assertFalse(Direction.requiresInbound((Condition) config.getRules().get(1)));
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class RuleIndexTest
+{
+   static class Prefixed extends DefaultConditionBuilder implements IndexableCondition
+   {
+      private final ParameterizedPatternParser pattern;
+
+      public Prefixed(String pattern)
+      {
+         this.pattern = new RegexParameterizedPatternParser(pattern);
+      }
+
+      @Override
+      public boolean evaluate(Rewrite event, EvaluationContext context)
+      {
+         return true;
+      }
+
+      @Override
+      public Set<ParameterizedPatternParser> getIndexPatterns()
+      {
+         return Collections.singleton(pattern);
+      }
+   }
+
+   private static List<Rule> candidates(ConfigurationBuilder config, String path)
+   {
+      return RuleIndex.build(config).getCandidates(path);
+   }
+
+   @Test
+   public void testLiteralPrefix()
+   {
+      Assert.assertEquals("/foo/", new RegexParameterizedPatternParser("/foo/{bar}/baz").getLiteralPrefix());
+      Assert.assertEquals("/foo/ba", new RegexParameterizedPatternParser("/foo/ba{r}").getLiteralPrefix());
+      Assert.assertEquals("", new RegexParameterizedPatternParser("{all}").getLiteralPrefix());
+      Assert.assertEquals("/foo/bar", new RegexParameterizedPatternParser("/foo/bar").getLiteralPrefix());
+      Assert.assertEquals("/{x}/", new RegexParameterizedPatternParser("/\\{x}/{y}").getLiteralPrefix());
+   }
+
+   @Test
+   public void testLiteralSegments()
+   {
+      Assert.assertEquals(Arrays.asList("/foo/", "/baz"),
+               new RegexParameterizedPatternParser("/foo/{bar}/baz").getLiteralSegments());
+      Assert.assertEquals(Arrays.asList("/", ".html"),
+               new RegexParameterizedPatternParser("{lang}/{page}.html").getLiteralSegments());
+      Assert.assertEquals(Arrays.asList("/"), new RegexParameterizedPatternParser("{a}/{b}{c}").getLiteralSegments());
+      Assert.assertEquals(Arrays.asList("/foo"), new RegexParameterizedPatternParser("/foo").getLiteralSegments());
+   }
+
+   @Test
+   public void testCandidatesMatchPrefixesInOrder()
+   {
+      ConfigurationBuilder config = ConfigurationBuilder.begin();
+      config.addRule().when(new Prefixed("/foo/{bar}"));
+      config.addRule().when(new Prefixed("/baz/{bar}"));
+      config.addRule().when(new Prefixed("/foo/ba{r}"));
+      config.addRule().when(new Prefixed("/foo"));
+
+      List<Rule> rules = config.getRules();
+      Assert.assertEquals(Arrays.asList(rules.get(0), rules.get(2), rules.get(3)), candidates(config, "/foo/bar"));
+      Assert.assertEquals(Arrays.asList(rules.get(0), rules.get(3)), candidates(config, "/foo/qux"));
+      Assert.assertEquals(Arrays.asList(rules.get(3)), candidates(config, "/foo"));
+      Assert.assertEquals(Arrays.asList(rules.get(1)), candidates(config, "/baz/"));
+      Assert.assertTrue(candidates(config, "/other").isEmpty());
+   }
+
+   @Test
+   public void testUnindexableRulesAreAlwaysCandidates()
+   {
+      ConfigurationBuilder config = ConfigurationBuilder.begin();
+      config.addRule().when(new True());
+      config.addRule().when(new Prefixed("/foo"));
+      config.addRule().when(Not.any(new Prefixed("/foo")));
+      config.addRule().when(new Prefixed("/foo").or(new True()));
+      config.addRule().when(new Prefixed("/foo").orNot(new Prefixed("/bar")));
+
+      List<Rule> rules = config.getRules();
+      Assert.assertEquals(Arrays.asList(rules.get(0), rules.get(2), rules.get(3), rules.get(4)),
+               candidates(config, "/bar"));
+      Assert.assertEquals(rules, candidates(config, "/foo"));
+      Assert.assertEquals(rules, candidates(config, null));
+   }
+
+   @Test
+   public void testCompositeConditions()
+   {
+      ConfigurationBuilder config = ConfigurationBuilder.begin();
+      config.addRule().when(new True().and(new Prefixed("/a")));
+      config.addRule().when(new Prefixed("/b").andNot(new Prefixed("/c")));
+      config.addRule().when(new Prefixed("/c").or(new Prefixed("/d")));
+      config.addRule().when(And.all(new True(), new Prefixed("/e")));
+      config.addRule().when(Or.any(new Prefixed("/e"), new Prefixed("/f")));
+
+      List<Rule> rules = config.getRules();
+      Assert.assertEquals(Arrays.asList(rules.get(0)), candidates(config, "/a"));
+      Assert.assertEquals(Arrays.asList(rules.get(1)), candidates(config, "/b"));
+      Assert.assertEquals(Arrays.asList(rules.get(2)), candidates(config, "/c"));
+      Assert.assertEquals(Arrays.asList(rules.get(2)), candidates(config, "/d"));
+      Assert.assertEquals(Arrays.asList(rules.get(3), rules.get(4)), candidates(config, "/e"));
+      Assert.assertEquals(Arrays.asList(rules.get(4)), candidates(config, "/f"));
+   }
+}
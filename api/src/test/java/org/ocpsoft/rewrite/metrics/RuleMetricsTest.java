@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.metrics;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.config.RuleBuilder;
+
+public class RuleMetricsTest
+{
+   @Test
+   public void testHistogramBucketsCoverAllValues()
+   {
+      for (long value = 0; value < 100000; value++)
+      {
+         int index = LatencyHistogram.index(value);
+         Assert.assertTrue(value <= LatencyHistogram.highestValue(index));
+         Assert.assertTrue(index == 0 || value > LatencyHistogram.highestValue(index - 1));
+      }
+   }
+
+   @Test
+   public void testHistogramPercentiles()
+   {
+      LatencyHistogram histogram = new LatencyHistogram();
+      Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+
+      for (int i = 1; i <= 1000; i++)
+      {
+         histogram.record(i * 1000);
+      }
+
+      Assert.assertEquals(1000, histogram.getCount());
+      Assert.assertEquals(1000000, histogram.getMax());
+      Assert.assertEquals(500500, histogram.getMean(), 0.1);
+      Assert.assertEquals(500000, histogram.getValueAtPercentile(50), 500000 * 0.07);
+      Assert.assertEquals(990000, histogram.getValueAtPercentile(99), 990000 * 0.07);
+      Assert.assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+      histogram.reset();
+      Assert.assertEquals(0, histogram.getCount());
+      Assert.assertEquals(0, histogram.getMax());
+   }
+
+   @Test
+   public void testHistogramClampsValues()
+   {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(-1);
+      histogram.record(Long.MAX_VALUE);
+      Assert.assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+      Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+   }
+
+   @Test
+   public void testRecordsPerRule()
+   {
+      Rule first = RuleBuilder.define().withId("first");
+      Rule second = RuleBuilder.define();
+      RuleMetrics metrics = new RuleMetrics("/app");
+      metrics.update(Arrays.asList(first, second));
+
+      metrics.evaluated(first, 100, false);
+      metrics.evaluated(first, 200, true);
+      metrics.performed(first, 300);
+      metrics.evaluated(second, 100, false);
+
+      List<RuleStatistics> statistics = metrics.getStatistics();
+      Assert.assertEquals(2, statistics.size());
+
+      RuleStatistics result = statistics.get(0);
+      Assert.assertSame(first, result.getRule());
+      Assert.assertEquals("first", result.getName());
+      Assert.assertEquals(0, result.getPosition());
+      Assert.assertEquals(2, result.getEvaluations());
+      Assert.assertEquals(1, result.getMatches());
+      Assert.assertEquals(0.5, result.getMatchRatio(), 0);
+      Assert.assertEquals(1, result.getPerforms());
+      Assert.assertEquals(300, result.getPerformLatency().getMax());
+
+      result = statistics.get(1);
+      Assert.assertEquals(String.valueOf(second), result.getName());
+      Assert.assertEquals(0, result.getPerforms());
+      Assert.assertNull(result.getPerformLatency());
+   }
+
+   @Test
+   public void testUpdateRetainsCurrentRules()
+   {
+      Rule first = RuleBuilder.define();
+      Rule second = RuleBuilder.define();
+      Rule third = RuleBuilder.define();
+      RuleMetrics metrics = new RuleMetrics("/app");
+      metrics.update(Arrays.asList(first, second));
+      metrics.evaluated(first, 100, true);
+      metrics.evaluated(second, 100, true);
+
+      metrics.update(Arrays.asList(third, second));
+
+      List<RuleStatistics> statistics = metrics.getStatistics();
+      Assert.assertEquals(2, statistics.size());
+      Assert.assertSame(third, statistics.get(0).getRule());
+      Assert.assertEquals(0, statistics.get(0).getEvaluations());
+      Assert.assertSame(second, statistics.get(1).getRule());
+      Assert.assertEquals(1, statistics.get(1).getPosition());
+      Assert.assertEquals(1, statistics.get(1).getEvaluations());
+
+      metrics.reset();
+      Assert.assertEquals(0, metrics.getStatistics(second).getEvaluations());
+   }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.param;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.MockEvaluationContext;
+import org.ocpsoft.rewrite.MockRewrite;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+
+public class DefaultParameterValueStoreTest
+{
+   private final Rewrite event = new MockRewrite();
+   private final EvaluationContext context = new MockEvaluationContext();
+
+   @Test
+   public void testSubmitAndRetrieveInOrder()
+   {
+      DefaultParameterValueStore store = new DefaultParameterValueStore();
+      Parameter<?> one = new DefaultParameter("one");
+      Parameter<?> two = new DefaultParameter("two");
+      Parameter<?> three = new DefaultParameter("three");
+      Parameter<?> four = new DefaultParameter("four");
+      Parameter<?> five = new DefaultParameter("five");
+
+      Assert.assertTrue(store.submit(event, context, five, "5"));
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+      Assert.assertTrue(store.submit(event, context, two, "2"));
+      Assert.assertTrue(store.submit(event, context, three, "3"));
+      Assert.assertTrue(store.submit(event, context, four, "4"));
+
+      Assert.assertEquals("1", store.retrieve(one));
+      Assert.assertEquals("5", store.retrieve(five));
+      Assert.assertNull(store.retrieve(new DefaultParameter("one")));
+
+      Iterator<Entry<Parameter<?>, String>> iterator = store.iterator();
+      Assert.assertSame(five, iterator.next().getKey());
+      Assert.assertSame(one, iterator.next().getKey());
+   }
+
+   @Test
+   public void testSubmittedValueMustMatch()
+   {
+      DefaultParameterValueStore store = new DefaultParameterValueStore();
+      Parameter<?> one = new DefaultParameter("one");
+
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+      Assert.assertFalse(store.submit(event, context, one, "2"));
+      Assert.assertEquals("1", store.retrieve(one));
+   }
+
+   @Test
+   public void testClearForReuse()
+   {
+      DefaultParameterValueStore store = new DefaultParameterValueStore();
+      Parameter<?> one = new DefaultParameter("one");
+
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+      store.clear();
+      Assert.assertNull(store.retrieve(one));
+      Assert.assertFalse(store.iterator().hasNext());
+
+      Assert.assertTrue(store.submit(event, context, one, "2"));
+      Assert.assertEquals("2", store.retrieve(one));
+   }
+
+   @Test
+   public void testCopy()
+   {
+      DefaultParameterValueStore store = new DefaultParameterValueStore();
+      Parameter<?> one = new DefaultParameter("one");
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+
+      DefaultParameterValueStore copy = new DefaultParameterValueStore(store);
+      store.clear();
+      Assert.assertEquals("1", copy.retrieve(one));
+   }
+
+   @Test
+   public void testIteratorRemoveAndSetValue()
+   {
+      DefaultParameterValueStore store = new DefaultParameterValueStore();
+      Parameter<?> one = new DefaultParameter("one");
+      Parameter<?> two = new DefaultParameter("two");
+      Parameter<?> three = new DefaultParameter("three");
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+      Assert.assertTrue(store.submit(event, context, two, "2"));
+      Assert.assertTrue(store.submit(event, context, three, "3"));
+
+      Iterator<Entry<Parameter<?>, String>> iterator = store.iterator();
+      Assert.assertSame(one, iterator.next().getKey());
+      Assert.assertSame(two, iterator.next().getKey());
+      iterator.remove();
+      Entry<Parameter<?>, String> entry = iterator.next();
+      Assert.assertSame(three, entry.getKey());
+      Assert.assertEquals("3", entry.setValue("III"));
+      Assert.assertFalse(iterator.hasNext());
+
+      Assert.assertNull(store.retrieve(two));
+      Assert.assertEquals("1", store.retrieve(one));
+      Assert.assertEquals("III", store.retrieve(three));
+
+      iterator = store.iterator();
+      iterator.next();
+      iterator.remove();
+      try {
+         iterator.remove();
+         Assert.fail();
+      }
+      catch (IllegalStateException e) {
+         // expected
+      }
+      Assert.assertSame(three, iterator.next().getKey());
+      Assert.assertFalse(iterator.hasNext());
+   }
+
+   @Test
+   public void testParameterStoreSlots()
+   {
+      DefaultParameterStore parameters = new DefaultParameterStore();
+      Parameter<?> one = new DefaultParameter("one");
+      Parameter<?> two = new DefaultParameter("two");
+      parameters.store(one);
+      parameters.store(two);
+      parameters.compile();
+
+      int slot = parameters.getSlot(one);
+      Assert.assertSame(one, parameters.getParameter(slot));
+      Assert.assertEquals(slot + 1, parameters.getSlot(two));
+      Assert.assertEquals(-1, parameters.getSlot(new DefaultParameter("one")));
+
+      Parameter<?> three = new DefaultParameter("three");
+      parameters.store(three);
+      Assert.assertSame(three, parameters.getParameter(parameters.getSlot(three)));
+   }
+
+   @Test
+   public void testSlotsAndSearchedParameters()
+   {
+      DefaultParameterStore parameters = new DefaultParameterStore();
+      Parameter<?> one = new DefaultParameter("one");
+      Parameter<?> two = new DefaultParameter("two");
+      Parameter<?> three = new DefaultParameter("three");
+      parameters.store(one);
+      parameters.store(two);
+      parameters.store(three);
+      parameters.compile();
+      Parameter<?> other = new DefaultParameter("other");
+
+      DefaultParameterValueStore store = new DefaultParameterValueStore();
+      store.clear(parameters);
+      Assert.assertTrue(store.submit(event, context, three, "3"));
+      Assert.assertTrue(store.submit(event, context, other, "o"));
+      Assert.assertTrue(store.submit(event, context, one, "1"));
+      Assert.assertTrue(store.submit(event, context, two, "2"));
+      Assert.assertFalse(store.submit(event, context, one, "I"));
+
+      Iterator<Entry<Parameter<?>, String>> iterator = store.iterator();
+      Assert.assertSame(three, iterator.next().getKey());
+      iterator.remove();
+      Assert.assertSame(other, iterator.next().getKey());
+      iterator.remove();
+
+      Assert.assertNull(store.retrieve(three));
+      Assert.assertNull(store.retrieve(other));
+      Assert.assertEquals("1", store.retrieve(one));
+      Assert.assertEquals("2", store.retrieve(two));
+      Assert.assertTrue(store.submit(event, context, three, "III"));
+      Assert.assertEquals("III", store.retrieve(three));
+
+      DefaultParameterValueStore copy = new DefaultParameterValueStore(store);
+      store.clear(parameters);
+      Assert.assertNull(store.retrieve(one));
+      Assert.assertFalse(store.iterator().hasNext());
+      Assert.assertEquals("1", copy.retrieve(one));
+      Assert.assertEquals("III", copy.retrieve(three));
+   }
+}
@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.ocpsoft.rewrite.MockEvaluationContext;
 import org.ocpsoft.rewrite.MockRewrite;
 import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.exception.ParameterizationException;
 import org.ocpsoft.rewrite.util.ParseTools.CaptureType;
 
 /**
@@ -481,4 +482,48 @@ public class ParameterizedPatternTest
       Assert.assertEquals("/lincoln/orders/24", path.build(Arrays.<Object> asList("lincoln", "24")));
    }
 
+   @Test
+   public void testBuildAdjacentAndRepeatedParameters()
+   {
+      ParameterizedPatternBuilder path = new RegexParameterizedPatternBuilder("{a}{b}/{a}.html");
+      Map<String, Object> map = new LinkedHashMap<String, Object>();
+      map.put("a", "x");
+      map.put("b", 1);
+      Assert.assertEquals("x1/x.html", path.build(map));
+      Assert.assertEquals("x1/y.html", path.build(Arrays.<Object> asList("x", 1, "y")));
+   }
+
+   @Test(expected = ParameterizationException.class)
+   public void testBuildWithMissingMapParameter()
+   {
+      ParameterizedPatternBuilder path = new RegexParameterizedPatternBuilder("/{customer}/orders/{id}");
+      Map<String, Object> map = new LinkedHashMap<String, Object>();
+      map.put("customer", "lincoln");
+      path.build(map);
+   }
+
+
+   @Test
+   public void testParametersAreResolvedPerParameterStore() throws Exception
+   {
+      RegexParameterizedPatternParser path = new RegexParameterizedPatternParser("/{user}/orders/{id}");
+
+      ParameterStore store = DefaultParameterStore.getInstance(context);
+      initialize(store, path);
+      Parameter<?>[] parameters = path.getParameters(store);
+      Assert.assertSame(store.get("user"), parameters[0]);
+      Assert.assertSame(store.get("id"), parameters[1]);
+      Assert.assertSame(parameters, path.getParameters(store));
+
+      ParameterStore other = new DefaultParameterStore();
+      initialize(other, path);
+      Assert.assertSame(other.get("user"), path.getParameters(other)[0]);
+
+      context.put(ParameterStore.class, other);
+      Assert.assertTrue(path.parse("/lincoln/orders/24").submit(event, context));
+      ParameterValueStore values = DefaultParameterValueStore.getInstance(context);
+      Assert.assertEquals("lincoln", values.retrieve(other.get("user")));
+      Assert.assertEquals("24", values.retrieve(other.get("id")));
+      Assert.assertNull(values.retrieve(store.get("user")));
+   }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClockCacheTest
+{
+   @Test
+   public void testGetAndPut()
+   {
+      ClockCache<String, String> cache = new ClockCache<String, String>(4);
+      Assert.assertNull(cache.get("a"));
+      cache.put("a", "1");
+      Assert.assertEquals("1", cache.get("a"));
+      cache.put("a", "2");
+      Assert.assertEquals("2", cache.get("a"));
+      Assert.assertEquals(1, cache.size());
+
+      Assert.assertEquals(2, cache.getHitCount());
+      Assert.assertEquals(1, cache.getMissCount());
+      Assert.assertEquals(0, cache.getEvictionCount());
+   }
+
+   @Test
+   public void testCapacityIsBounded()
+   {
+      ClockCache<Integer, Integer> cache = new ClockCache<Integer, Integer>(8);
+      for (int i = 0; i < 100; i++) {
+         cache.put(i, i);
+      }
+      Assert.assertEquals(8, cache.size());
+      Assert.assertEquals(92, cache.getEvictionCount());
+      Assert.assertEquals(Integer.valueOf(99), cache.get(99));
+   }
+
+   @Test
+   public void testReferencedEntriesGetSecondChance()
+   {
+      ClockCache<String, String> cache = new ClockCache<String, String>(2);
+      cache.put("a", "1");
+      cache.put("b", "2");
+      cache.get("a");
+      cache.put("c", "3");
+
+      Assert.assertEquals("1", cache.get("a"));
+      Assert.assertNull(cache.get("b"));
+      Assert.assertEquals("3", cache.get("c"));
+   }
+
+   @Test
+   public void testClear()
+   {
+      ClockCache<String, String> cache = new ClockCache<String, String>(2);
+      cache.put("a", "1");
+      cache.put("b", "2");
+      cache.clear();
+
+      Assert.assertEquals(0, cache.size());
+      Assert.assertNull(cache.get("a"));
+      cache.put("c", "3");
+      Assert.assertEquals("3", cache.get("c"));
+      Assert.assertEquals(0, cache.getEvictionCount());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testCapacityMustBePositive()
+   {
+      new ClockCache<String, String>(0);
+   }
+}
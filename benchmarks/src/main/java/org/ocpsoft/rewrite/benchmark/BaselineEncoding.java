@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+
+import org.ocpsoft.urlbuilder.util.Decoder;
+import org.ocpsoft.urlbuilder.util.Encoder;
+
+/**
+ * The previous implementation of {@link Encoder} and {@link Decoder}, kept unchanged so that
+ * {@link EncodingBenchmark} can measure the current implementation against it.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class BaselineEncoding
+{
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private BaselineEncoding()
+   {}
+
+   public static String encodePath(CharSequence s) throws IllegalArgumentException
+   {
+      try
+      {
+         final URI uri = new URI("http", "0.0.0.0", "/" + s, null);
+         return uri.toASCIIString().substring(15);
+      }
+      catch (URISyntaxException e)
+      {
+         throw new IllegalArgumentException(e);
+      }
+   }
+
+   public static String encodeQuery(CharSequence s) throws IllegalArgumentException
+   {
+      try {
+         return URLEncoder.encode(s.toString(), UTF8.name());
+      }
+      catch (UnsupportedEncodingException e) {
+         throw new IllegalArgumentException(e);
+      }
+   }
+
+   public static String decodePath(final CharSequence path)
+   {
+      return decode(path, false);
+   }
+
+   public static String decodeQuery(final CharSequence query)
+   {
+      return decode(query, true);
+   }
+
+   private static String decode(final CharSequence path, final boolean query)
+   {
+      StringBuilder decoded = new StringBuilder();
+      int length = path.length();
+      int pos = 0;
+
+      while (pos < length) {
+         // '+' -> ' ' for query strings
+         if (query && path.charAt(pos) == '+') {
+            decoded.append(' ');
+            pos++;
+            continue;
+         }
+
+         // percent-encoded values
+         if (path.charAt(pos) == '%') {
+
+            // a single Unicode char may be represented by multiple percent encoded bytes
+            byte[] bytes = new byte[length / 3];
+            int i = 0;
+            boolean invalid = false;
+
+            while (pos < length && path.charAt(pos) == '%') {
+
+               // make sure we can read the two hex characters
+               if (pos + 2 < length) {
+                  try {
+                     String hex = path.subSequence(pos + 1, pos + 3).toString();
+                     int b = Integer.parseInt(hex, 16);
+                     bytes[i++] = (byte) b;
+                  }
+                  catch (NumberFormatException e) {
+                     // not a valid hex value
+                     invalid = true;
+                  }
+               }
+               pos += 3;
+
+            }
+
+            // decode the byte sequence with UTF8 if no invalid byte was found
+            if (!invalid) {
+               decoded.append(new String(bytes, 0, i, UTF8));
+            }
+
+            // represent invalid percent encoded values the same way UTF8 does
+            else {
+               decoded.append('\uFFFD');
+            }
+         }
+
+         // not escaped
+         else {
+            decoded.append(path.charAt(pos));
+            pos++;
+         }
+      }
+      return decoded.toString();
+   }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/**
+ * Runs the Rewrite benchmarks, writing results as JSON to <code>jmh-result.json</code> unless another result format or
+ * file is given. All other arguments are passed to JMH unchanged, for example:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar RewriteBenchmark -p rules=100,1000
+ * </pre>
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class Benchmarks
+{
+   public static void main(final String[] args) throws Exception
+   {
+      List<String> arguments = new ArrayList<String>(Arrays.asList(args));
+      if (!arguments.contains("-rf"))
+      {
+         arguments.add("-rf");
+         arguments.add("json");
+      }
+      if (!arguments.contains("-rff"))
+      {
+         arguments.add("-rff");
+         arguments.add("jmh-result.json");
+      }
+      Main.main(arguments.toArray(new String[arguments.size()]));
+   }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ocpsoft.rewrite.servlet.util.QueryStringBuilder;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+import org.ocpsoft.urlbuilder.util.Decoder;
+import org.ocpsoft.urlbuilder.util.Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmarks for URL encoding, decoding, {@link AddressBuilder} and {@link QueryStringBuilder}. Each
+ * {@link Encoder} and {@link Decoder} benchmark has a <code>Baseline</code> counterpart measuring the same input with
+ * the previous implementation (see {@link BaselineEncoding}), so that both are reported side by side:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar "EncodingBenchmark.(en|de)code"
+ * </pre>
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark
+{
+   private static final String PLAIN_PATH = "/store/books/product/42/reviews";
+   private static final String SPECIAL_PATH = "/store/bücher & more/product/42?/reviews";
+   private static final String ENCODED_PATH = "/store/b%C3%BCcher%20%26%20more/product/42%3F/reviews";
+   private static final String QUERY = "q=rewrite rules&sort=date&page=2&lang=de&tag=a&tag=b&empty=";
+   private static final String ENCODED_QUERY = "q=rewrite+rules&sort=date&page=2&lang=de&tag=a&tag=b&empty=";
+   private static final String URL = "http://example.com:8080/app/store/books/product/42?sort=date&page=2#reviews";
+
+   @Benchmark
+   public String encodePlainPath()
+   {
+      return Encoder.path(PLAIN_PATH);
+   }
+
+   @Benchmark
+   public String encodePlainPathBaseline()
+   {
+      return BaselineEncoding.encodePath(PLAIN_PATH);
+   }
+
+   @Benchmark
+   public String encodeSpecialPath()
+   {
+      return Encoder.path(SPECIAL_PATH);
+   }
+
+   @Benchmark
+   public String encodeSpecialPathBaseline()
+   {
+      return BaselineEncoding.encodePath(SPECIAL_PATH);
+   }
+
+   @Benchmark
+   public String encodeQuery()
+   {
+      return Encoder.query(QUERY);
+   }
+
+   @Benchmark
+   public String encodeQueryBaseline()
+   {
+      return BaselineEncoding.encodeQuery(QUERY);
+   }
+
+   @Benchmark
+   public String decodePath()
+   {
+      return Decoder.path(ENCODED_PATH);
+   }
+
+   @Benchmark
+   public String decodePathBaseline()
+   {
+      return BaselineEncoding.decodePath(ENCODED_PATH);
+   }
+
+   @Benchmark
+   public String decodePlainPath()
+   {
+      return Decoder.path(PLAIN_PATH);
+   }
+
+   @Benchmark
+   public String decodePlainPathBaseline()
+   {
+      return BaselineEncoding.decodePath(PLAIN_PATH);
+   }
+
+   @Benchmark
+   public String decodeQuery()
+   {
+      return Decoder.query(ENCODED_QUERY);
+   }
+
+   @Benchmark
+   public String decodeQueryBaseline()
+   {
+      return BaselineEncoding.decodeQuery(ENCODED_QUERY);
+   }
+
+   @Benchmark
+   public Address createAddress()
+   {
+      return AddressBuilder.create(URL);
+   }
+
+   @Benchmark
+   public String buildAddress()
+   {
+      return AddressBuilder.begin()
+               .scheme("http").domain("example.com").port(8080)
+               .path("/app/store/{category}/product/{id}")
+               .set("category", "bücher").set("id", 42)
+               .query("sort", "date")
+               .build().toString();
+   }
+
+   @Benchmark
+   public String parseQueryString()
+   {
+      return QueryStringBuilder.createFromEncoded(ENCODED_QUERY).toQueryString();
+   }
+
+   @Benchmark
+   public String decodeQueryString()
+   {
+      return QueryStringBuilder.createFromEncoded(ENCODED_QUERY).decode().getParameter("q");
+   }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Minimal servlet API stand-ins, sufficient to drive the Rewrite runtime outside of a container. Methods that are not
+ * explicitly handled return <code>null</code>, <code>false</code>, or zero.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class Mocks
+{
+   private Mocks()
+   {}
+
+   /**
+    * Create a {@link ServletContext} with the given context path and init parameters.
+    */
+   public static ServletContext servletContext(final String contextPath, final Map<String, String> initParameters)
+   {
+      final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+      return proxy(ServletContext.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+         {
+            String name = method.getName();
+            if ("getContextPath".equals(name))
+               return contextPath;
+            if ("getInitParameter".equals(name))
+               return initParameters.get(args[0]);
+            if ("getInitParameterNames".equals(name))
+               return Collections.enumeration(initParameters.keySet());
+            if ("getAttribute".equals(name))
+               return attributes.get(args[0]);
+            if ("setAttribute".equals(name))
+               return args[1] == null ? attributes.remove(args[0]) : attributes.put((String) args[0], args[1]);
+            if ("removeAttribute".equals(name))
+               return attributes.remove(args[0]);
+            if ("getMajorVersion".equals(name))
+               return 3;
+            if ("getServletContextName".equals(name))
+               return "benchmark";
+            if ("getClassLoader".equals(name))
+               return Mocks.class.getClassLoader();
+            return defaultValue(proxy, method, args);
+         }
+      });
+   }
+
+   /**
+    * Create a <code>GET</code> {@link HttpServletRequest} for the given context path, context-relative path, and
+    * (possibly <code>null</code>) query string.
+    */
+   public static HttpServletRequest request(final String contextPath, final String path, final String query)
+   {
+      final Map<String, Object> attributes = new HashMap<String, Object>();
+      final RequestDispatcher dispatcher = proxy(RequestDispatcher.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+         {
+            return defaultValue(proxy, method, args);
+         }
+      });
+
+      return proxy(HttpServletRequest.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+         {
+            String name = method.getName();
+            if ("getContextPath".equals(name))
+               return contextPath;
+            if ("getRequestURI".equals(name))
+               return contextPath + path;
+            if ("getRequestURL".equals(name))
+               return new StringBuffer("http://localhost:8080").append(contextPath).append(path);
+            if ("getServletPath".equals(name))
+               return path;
+            if ("getQueryString".equals(name))
+               return query;
+            if ("getMethod".equals(name))
+               return "GET";
+            if ("getScheme".equals(name))
+               return "http";
+            if ("getServerName".equals(name))
+               return "localhost";
+            if ("getServerPort".equals(name) || "getLocalPort".equals(name))
+               return 8080;
+            if ("getCharacterEncoding".equals(name))
+               return "UTF-8";
+            if ("getDispatcherType".equals(name))
+               return DispatcherType.REQUEST;
+            if ("getAttribute".equals(name))
+               return attributes.get(args[0]);
+            if ("setAttribute".equals(name))
+               return args[1] == null ? attributes.remove(args[0]) : attributes.put((String) args[0], args[1]);
+            if ("removeAttribute".equals(name))
+               return attributes.remove(args[0]);
+            if ("getAttributeNames".equals(name))
+               return Collections.enumeration(attributes.keySet());
+            if ("getParameterMap".equals(name))
+               return Collections.emptyMap();
+            if ("getParameterNames".equals(name) || "getHeaders".equals(name) || "getHeaderNames".equals(name))
+               return Collections.enumeration(Collections.emptySet());
+            if ("getRequestDispatcher".equals(name))
+               return dispatcher;
+            return defaultValue(proxy, method, args);
+         }
+      });
+   }
+
+   /**
+    * Create an uncommitted {@link HttpServletResponse} that encodes URLs unchanged.
+    */
+   public static HttpServletResponse response()
+   {
+      return proxy(HttpServletResponse.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+         {
+            String name = method.getName();
+            if (name.startsWith("encode"))
+               return args[0];
+            if ("getCharacterEncoding".equals(name))
+               return "UTF-8";
+            return defaultValue(proxy, method, args);
+         }
+      });
+   }
+
+   private static <T> T proxy(final Class<T> type, final InvocationHandler handler)
+   {
+      return type.cast(Proxy.newProxyInstance(Mocks.class.getClassLoader(), new Class<?>[] { type }, handler));
+   }
+
+   private static Object defaultValue(final Object proxy, final Method method, final Object[] args)
+   {
+      String name = method.getName();
+      if ("equals".equals(name))
+         return proxy == args[0];
+      if ("hashCode".equals(name))
+         return System.identityHashCode(proxy);
+      if ("toString".equals(name))
+         return method.getDeclaringClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+
+      Class<?> type = method.getReturnType();
+      if (type == boolean.class)
+         return false;
+      if (type == int.class)
+         return 0;
+      if (type == long.class)
+         return 0L;
+      return null;
+   }
+}
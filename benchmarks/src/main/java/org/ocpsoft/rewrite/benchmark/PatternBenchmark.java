@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.ocpsoft.rewrite.AbstractRewrite;
+import org.ocpsoft.rewrite.config.Operation;
+import org.ocpsoft.rewrite.context.ContextBase;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.context.RewriteState;
+import org.ocpsoft.rewrite.event.Flow;
+import org.ocpsoft.rewrite.param.DefaultParameter;
+import org.ocpsoft.rewrite.param.DefaultParameterStore;
+import org.ocpsoft.rewrite.param.DefaultParameterValueStore;
+import org.ocpsoft.rewrite.param.ParameterStore;
+import org.ocpsoft.rewrite.param.ParameterValueStore;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmarks for parsing and building parameterized patterns.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternBenchmark
+{
+   private static final String PATTERN = "/store/{category}/product/{id}/reviews";
+   private static final String MATCHING = "/store/books/product/42/reviews";
+   private static final String MISSING = "/store/books/catalog/42/reviews";
+
+   private RegexParameterizedPatternParser parser;
+   private RegexParameterizedPatternBuilder builder;
+   private BenchmarkRewrite event;
+   private BenchmarkEvaluationContext context;
+   private List<Object> listValues;
+   private Map<String, Object> mapValues;
+
+   @Setup
+   public void setup()
+   {
+      ParameterStore store = new DefaultParameterStore();
+      store.get("category", new DefaultParameter("category"));
+      store.get("id", new DefaultParameter("id"));
+
+      parser = new RegexParameterizedPatternParser(PATTERN);
+      parser.setParameterStore(store);
+      builder = new RegexParameterizedPatternBuilder(PATTERN);
+      builder.setParameterStore(store);
+
+      event = new BenchmarkRewrite();
+      context = new BenchmarkEvaluationContext(store);
+
+      listValues = Arrays.<Object> asList("books", "42");
+      mapValues = new LinkedHashMap<String, Object>();
+      mapValues.put("category", "books");
+      mapValues.put("id", "42");
+   }
+
+   @Benchmark
+   public boolean parseMatching()
+   {
+      return parser.parse(MATCHING).matches();
+   }
+
+   @Benchmark
+   public boolean parseMissing()
+   {
+      return parser.parse(MISSING).matches();
+   }
+
+   @Benchmark
+   public boolean parseAndSubmit()
+   {
+      context.reset();
+      return parser.parse(MATCHING).submit(event, context);
+   }
+
+   @Benchmark
+   public String buildFromList()
+   {
+      return builder.build(listValues);
+   }
+
+   @Benchmark
+   public String buildFromMap()
+   {
+      return builder.build(mapValues);
+   }
+
+   static class BenchmarkRewrite extends AbstractRewrite
+   {
+      @Override
+      public Flow getFlow()
+      {
+         return null;
+      }
+   }
+
+   static class BenchmarkEvaluationContext extends ContextBase implements EvaluationContext
+   {
+      private final ParameterStore store;
+      private final DefaultParameterValueStore values = new DefaultParameterValueStore();
+
+      public BenchmarkEvaluationContext(ParameterStore store)
+      {
+         this.store = store;
+         reset();
+      }
+
+      public void reset()
+      {
+         clear();
+         values.clear();
+         put(ParameterStore.class, store);
+         put(ParameterValueStore.class, values);
+      }
+
+      @Override
+      public RewriteState getState()
+      {
+         return RewriteState.EVALUATING;
+      }
+
+      @Override
+      public void addPreOperation(Operation operation)
+      {}
+
+      @Override
+      public void addPostOperation(Operation operation)
+      {}
+   }
+}
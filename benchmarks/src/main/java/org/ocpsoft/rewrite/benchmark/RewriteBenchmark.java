@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.context.ContextBase;
+import org.ocpsoft.rewrite.servlet.RewriteLifecycleContext;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.impl.DefaultHttpRewriteProvider;
+import org.ocpsoft.rewrite.servlet.impl.HttpInboundRewriteImpl;
+import org.ocpsoft.rewrite.servlet.impl.HttpOutboundRewriteImpl;
+import org.ocpsoft.rewrite.servlet.impl.HttpRewriteWrappedRequest;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Drives inbound and outbound rewrites through {@link DefaultHttpRewriteProvider} against a synthetic configuration
+ * (see {@link SyntheticConfigurationProvider}).
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewriteBenchmark
+{
+   private static final String CONTEXT_PATH = "/app";
+
+   @Param({ "10", "100", "1000", "10000" })
+   public int rules;
+
+   @Param({ "JOIN", "PATH" })
+   public SyntheticConfigurationProvider.RuleType type;
+
+   /**
+    * Servlet context init parameters to apply, as a comma separated list of names set to <code>true</code>, or
+    * <code>none</code>.
+    */
+   @Param({ "none" })
+   public String options;
+
+   private ServletContext servletContext;
+   private DefaultHttpRewriteProvider provider;
+   private HttpServletResponse response;
+   private HttpServletRequest matchingRequest;
+   private HttpServletRequest missingRequest;
+   private Address outboundAddress;
+   private Context rewriteContext;
+
+   @Setup
+   public void setup()
+   {
+      Map<String, String> initParameters = new HashMap<String, String>();
+      initParameters.put(SyntheticConfigurationProvider.RULES, String.valueOf(rules));
+      initParameters.put(SyntheticConfigurationProvider.TYPE, type.name());
+      if (!"none".equals(options))
+      {
+         for (String option : options.split(","))
+         {
+            initParameters.put(option.trim(), "true");
+         }
+      }
+
+      servletContext = Mocks.servletContext(CONTEXT_PATH, initParameters);
+      provider = new DefaultHttpRewriteProvider();
+      provider.init(servletContext);
+
+      int last = rules - 1;
+      response = Mocks.response();
+      matchingRequest = wrap(Mocks.request(CONTEXT_PATH, "/section" + last + "/42", null));
+      missingRequest = wrap(Mocks.request(CONTEXT_PATH, "/missing/42", "q=1"));
+      outboundAddress = AddressBuilder.create(CONTEXT_PATH + "/section" + last + ".jsp?id=42");
+
+      /*
+       * Normally established by the RewriteFilter for each request; cleared before each invocation instead.
+       */
+      rewriteContext = new ContextBase() {};
+      matchingRequest.setAttribute(RewriteLifecycleContext.LIFECYCLE_CONTEXT_KEY, rewriteContext);
+      missingRequest.setAttribute(RewriteLifecycleContext.LIFECYCLE_CONTEXT_KEY, rewriteContext);
+   }
+
+   /*
+    * Request parameter bindings (such as those of Join) require the wrapper installed by the RewriteFilter.
+    */
+   private static HttpServletRequest wrap(HttpServletRequest request)
+   {
+      return new HttpRewriteWrappedRequest(request, new HashMap<String, String[]>());
+   }
+
+   @TearDown
+   public void tearDown()
+   {
+      provider.shutdown(servletContext);
+   }
+
+   /**
+    * An inbound request matched by the last rule of the configuration.
+    */
+   @Benchmark
+   public HttpServletRewrite inboundMatchingLastRule()
+   {
+      rewriteContext.clear();
+      HttpServletRewrite event = new HttpInboundRewriteImpl(matchingRequest, response, servletContext);
+      provider.rewriteHttp(event);
+      return event;
+   }
+
+   /**
+    * An inbound request matched by no rule of the configuration.
+    */
+   @Benchmark
+   public HttpServletRewrite inboundMatchingNoRule()
+   {
+      rewriteContext.clear();
+      HttpServletRewrite event = new HttpInboundRewriteImpl(missingRequest, response, servletContext);
+      provider.rewriteHttp(event);
+      return event;
+   }
+
+   /**
+    * An outbound URL for the resource of the last rule of the configuration.
+    */
+   @Benchmark
+   public HttpServletRewrite outbound()
+   {
+      rewriteContext.clear();
+      HttpServletRewrite event = new HttpOutboundRewriteImpl(matchingRequest, response, servletContext,
+               outboundAddress);
+      provider.rewriteHttp(event);
+      return event;
+   }
+}
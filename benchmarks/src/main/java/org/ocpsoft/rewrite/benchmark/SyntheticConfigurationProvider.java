@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.benchmark;
+
+import javax.servlet.ServletContext;
+
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.ConfigurationBuilder;
+import org.ocpsoft.rewrite.servlet.config.Forward;
+import org.ocpsoft.rewrite.servlet.config.HttpConfigurationProvider;
+import org.ocpsoft.rewrite.servlet.config.Path;
+import org.ocpsoft.rewrite.servlet.config.rule.Join;
+
+/**
+ * Builds a synthetic {@link Configuration} of {@link Join} or {@link Path} rules. The number and type of rules are read
+ * from the {@link #RULES} and {@link #TYPE} init parameters of the {@link ServletContext}.
+ * <p>
+ * Rule <code>i</code> matches <code>/section{i}/{id}</code>, and maps it to <code>/section{i}.jsp</code>. Rules are
+ * mutually exclusive, and are marked as order-independent.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class SyntheticConfigurationProvider extends HttpConfigurationProvider
+{
+   public static final String RULES = "org.ocpsoft.rewrite.benchmark.RULES";
+   public static final String TYPE = "org.ocpsoft.rewrite.benchmark.TYPE";
+
+   /**
+    * The kind of {@link org.ocpsoft.rewrite.config.Rule} created by this provider.
+    */
+   public enum RuleType
+   {
+      JOIN, PATH
+   }
+
+   @Override
+   public Configuration getConfiguration(final ServletContext context)
+   {
+      String rules = context.getInitParameter(RULES);
+      if (rules == null)
+         return null;
+
+      int count = Integer.parseInt(rules);
+      RuleType type = RuleType.valueOf(context.getInitParameter(TYPE));
+
+      ConfigurationBuilder builder = ConfigurationBuilder.begin();
+      for (int i = 0; i < count; i++)
+      {
+         switch (type)
+         {
+         case JOIN:
+            builder.addRule(Join.path("/section" + i + "/{id}").to("/section" + i + ".jsp"))
+                     .withOrderIndependent();
+            break;
+         case PATH:
+            builder.addRule()
+                     .when(Path.matches("/section" + i + "/{id}"))
+                     .perform(Forward.to("/section" + i + ".jsp?id={id}"))
+                     .withOrderIndependent();
+            break;
+         }
+      }
+      return builder;
+   }
+
+   @Override
+   public int priority()
+   {
+      return 0;
+   }
+}
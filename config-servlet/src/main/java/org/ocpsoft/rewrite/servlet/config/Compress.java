@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.servlet.config.response.CompressionResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.spi.CompressionCodec;
+
+/**
+ * An {@link org.ocpsoft.rewrite.config.Operation} that compresses the {@link HttpServletResponse} content with the
+ * best {@link CompressionCodec} accepted by the client in its <code>Accept-Encoding</code> header. The content is
+ * compressed while it is written, without buffering the response.
+ * <p>
+ * By default, only responses of at least {@link #DEFAULT_MINIMUM_SIZE} bytes with one of the
+ * {@link #DEFAULT_CONTENT_TYPES} are compressed, at the default level of the codec. Responses that already have a
+ * <code>Content-Encoding</code> are never compressed again.
+ *
+ * @see Response#compress()
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class Compress extends HttpOperation
+{
+   /**
+    * Responses smaller than this number of bytes are not compressed by default.
+    */
+   public static final int DEFAULT_MINIMUM_SIZE = 1024;
+
+   /**
+    * The textual content types compressed by default. Binary formats such as images and archives are usually
+    * compressed already.
+    */
+   public static final List<String> DEFAULT_CONTENT_TYPES = Collections.unmodifiableList(Arrays.asList("text/*",
+            "application/javascript", "application/x-javascript", "application/json", "application/xml",
+            "application/xhtml+xml", "application/rss+xml", "application/atom+xml", "image/svg+xml"));
+
+   private int level = -1;
+   private int minimumSize = DEFAULT_MINIMUM_SIZE;
+   private List<String> contentTypes = DEFAULT_CONTENT_TYPES;
+   private List<String> encodings;
+
+   private volatile List<CompressionCodec> codecs;
+
+   Compress()
+   {}
+
+   /**
+    * Compress at the given level, from <code>1</code> (fastest) to <code>9</code> (smallest), or <code>-1</code> for
+    * the default level of the codec.
+    */
+   public Compress level(int level)
+   {
+      if (level < -1 || level > 9)
+         throw new IllegalArgumentException("Compression level must be between -1 and 9, but was [" + level + "]");
+      this.level = level;
+      return this;
+   }
+
+   /**
+    * Only compress responses of at least the given number of bytes.
+    */
+   public Compress minimumSize(int bytes)
+   {
+      if (bytes < 0)
+         throw new IllegalArgumentException("Minimum size must not be negative, but was [" + bytes + "]");
+      this.minimumSize = bytes;
+      return this;
+   }
+
+   /**
+    * Only compress responses with one of the given content types, ignoring parameters such as the charset. A type may
+    * end with a wildcard subtype, such as <code>text/*</code>.
+    */
+   public Compress contentTypes(String... contentTypes)
+   {
+      List<String> result = new ArrayList<String>();
+      for (String contentType : contentTypes) {
+         result.add(contentType.trim().toLowerCase(Locale.ENGLISH));
+      }
+      this.contentTypes = result;
+      return this;
+   }
+
+   /**
+    * Compress responses of any content type.
+    */
+   public Compress anyContentType()
+   {
+      this.contentTypes = null;
+      return this;
+   }
+
+   /**
+    * Only use the {@link CompressionCodec} instances for the given content codings, preferring them in the given order
+    * when the client accepts several equally.
+    */
+   public Compress encodings(String... encodings)
+   {
+      List<String> result = new ArrayList<String>();
+      for (String encoding : encodings) {
+         result.add(encoding.trim().toLowerCase(Locale.ENGLISH));
+      }
+      this.encodings = result;
+      this.codecs = null;
+      return this;
+   }
+
+   @Override
+   public void performHttp(HttpServletRewrite event, EvaluationContext context)
+   {
+      event.getResponse().addHeader("Vary", "Accept-Encoding");
+
+      CompressionCodec codec = negotiate(event.getRequest().getHeader("Accept-Encoding"));
+      if (codec != null)
+         Response.withOutputStreamWrappedBy(
+                  new CompressionResponseStreamWrapper(codec, level, minimumSize, contentTypes)).perform(event,
+                  context);
+   }
+
+   /**
+    * Return the {@link CompressionCodec} with the highest quality in the given <code>Accept-Encoding</code> header, or
+    * <code>null</code> if none is acceptable.
+    */
+   CompressionCodec negotiate(String acceptEncoding)
+   {
+      if (acceptEncoding == null)
+         return null;
+
+      Map<String, Float> qualities = parseAcceptEncoding(acceptEncoding);
+
+      CompressionCodec result = null;
+      float best = 0;
+      for (CompressionCodec codec : getCodecs())
+      {
+         Float quality = qualities.get(codec.getEncoding());
+         if (quality == null)
+            quality = qualities.get("*");
+         if (quality != null && quality > best)
+         {
+            result = codec;
+            best = quality;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Parse the given <code>Accept-Encoding</code> header into the quality of each content coding, keyed by its lower
+    * case name. <code>x-gzip</code> is treated as <code>gzip</code>.
+    */
+   static Map<String, Float> parseAcceptEncoding(String acceptEncoding)
+   {
+      Map<String, Float> qualities = new HashMap<String, Float>();
+      for (String coding : acceptEncoding.split(","))
+      {
+         String name = coding;
+         float quality = 1;
+
+         int parameters = coding.indexOf(';');
+         if (parameters != -1)
+         {
+            name = coding.substring(0, parameters);
+            String parameter = coding.substring(parameters + 1).trim();
+            if (parameter.startsWith("q="))
+            {
+               try {
+                  quality = Float.parseFloat(parameter.substring(2).trim());
+               }
+               catch (NumberFormatException e) {
+                  quality = 0;
+               }
+            }
+         }
+
+         name = name.trim().toLowerCase(Locale.ENGLISH);
+         if ("x-gzip".equals(name))
+            name = "gzip";
+         if (!name.isEmpty())
+            qualities.put(name, quality);
+      }
+      return qualities;
+   }
+
+   private List<CompressionCodec> getCodecs()
+   {
+      List<CompressionCodec> result = codecs;
+      if (result == null)
+      {
+         List<CompressionCodec> available = Iterators.asList(ServiceLoader.loadTypesafe(CompressionCodec.class)
+                  .iterator());
+         Collections.sort(available, new WeightedComparator());
+
+         if (encodings == null)
+            result = available;
+         else
+         {
+            result = new ArrayList<CompressionCodec>();
+            for (String encoding : encodings) {
+               for (CompressionCodec codec : available) {
+                  if (encoding.equals(codec.getEncoding()))
+                  {
+                     result.add(codec);
+                     break;
+                  }
+               }
+            }
+         }
+         codecs = result;
+      }
+      return result;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "Response.compress().level(" + level + ").minimumSize(" + minimumSize + ")"
+               + (contentTypes == null ? ".anyContentType()" : ".contentTypes(" + contentTypes + ")")
+               + (encodings == null ? "" : ".encodings(" + encodings + ")");
+   }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Sends a {@link File} as the response, the way a container's default servlet does: with <code>ETag</code> and
+ * <code>Last-Modified</code> headers, <code>304 Not Modified</code> responses to conditional requests, and
+ * <code>206 Partial Content</code> responses to requests for a single byte range. The caller must make sure that
+ * nothing was written and no status was set before.
+ * <p>
+ * <code>Content-Length</code> is only set for partial content. A complete file may be followed by content that later
+ * operations append, which a fixed length would cut off; the container still sets the length itself if the response
+ * fits into its buffer.
+ * <p>
+ * If the response {@link OutputStream} is also a {@link WritableByteChannel}, the file is sent with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the operating system copy it without
+ * passing it through the heap.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class FileTransfer
+{
+   private static final int BUFFER_SIZE = 8192;
+
+   private FileTransfer()
+   {}
+
+   /**
+    * Send the given {@link File} with all validators, answering conditional and range requests.
+    */
+   public static void send(HttpServletRequest request, HttpServletResponse response, File file) throws IOException
+   {
+      FileInputStream input = new FileInputStream(file);
+      try {
+         FileChannel channel = input.getChannel();
+         long length = channel.size();
+         long lastModified = file.lastModified() / 1000 * 1000;
+         String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+         response.setHeader("ETag", etag);
+         response.setDateHeader("Last-Modified", lastModified);
+         response.setHeader("Accept-Ranges", "bytes");
+
+         if (isNotModified(request, etag, lastModified))
+         {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+         }
+
+         long start = 0;
+         long end = length - 1;
+
+         long[] range = getRange(request, etag, lastModified, length);
+         if (range != null)
+         {
+            if (range.length == 0)
+            {
+               response.setHeader("Content-Range", "bytes */" + length);
+               response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+               return;
+            }
+            start = range[0];
+            end = range[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+         }
+
+         long count = end - start + 1;
+         if (range != null)
+         {
+            if (count <= Integer.MAX_VALUE)
+               response.setContentLength((int) count);
+            else
+               response.setHeader("Content-Length", String.valueOf(count));
+         }
+
+         if (!"HEAD".equalsIgnoreCase(request.getMethod()))
+            transfer(channel, start, count, response.getOutputStream());
+      }
+      finally {
+         input.close();
+      }
+   }
+
+   /**
+    * Write the given region of the {@link FileChannel} to the given {@link OutputStream}.
+    */
+   static void transfer(FileChannel channel, long position, long count, OutputStream output) throws IOException
+   {
+      if (output instanceof WritableByteChannel)
+      {
+         WritableByteChannel target = (WritableByteChannel) output;
+         while (count > 0)
+         {
+            long transferred = channel.transferTo(position, count, target);
+            if (transferred <= 0 && position >= channel.size())
+               throw new IOException("File was truncated while it was being sent");
+            position += transferred;
+            count -= transferred;
+         }
+      }
+      else
+      {
+         byte[] bytes = new byte[(int) Math.min(BUFFER_SIZE, Math.max(count, 1))];
+         ByteBuffer buffer = ByteBuffer.wrap(bytes);
+         while (count > 0)
+         {
+            buffer.clear();
+            if (count < bytes.length)
+               buffer.limit((int) count);
+
+            int read = channel.read(buffer, position);
+            if (read < 0)
+               throw new IOException("File was truncated while it was being sent");
+            output.write(bytes, 0, read);
+            position += read;
+            count -= read;
+         }
+      }
+   }
+
+   private static boolean isNotModified(HttpServletRequest request, String etag, long lastModified)
+   {
+      if (!isSafe(request))
+         return false;
+
+      String ifNoneMatch = request.getHeader("If-None-Match");
+      if (ifNoneMatch != null)
+         return matches(ifNoneMatch, etag);
+
+      long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+      return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+   }
+
+   /**
+    * Return the requested <code>{start, end}</code> range, an empty array if the range cannot be satisfied, or
+    * <code>null</code> if the whole file should be sent. Requests for several ranges are answered with the whole file.
+    */
+   private static long[] getRange(HttpServletRequest request, String etag, long lastModified, long length)
+   {
+      String range = request.getHeader("Range");
+      if (range == null || !isSafe(request) || !range.startsWith("bytes=") || range.indexOf(',') != -1)
+         return null;
+
+      String ifRange = request.getHeader("If-Range");
+      if (ifRange != null)
+      {
+         ifRange = ifRange.trim();
+         if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+         {
+            if (!ifRange.equals(etag))
+               return null;
+         }
+         else if (getDateHeader(request, "If-Range") != lastModified)
+            return null;
+      }
+
+      String spec = range.substring("bytes=".length()).trim();
+      int dash = spec.indexOf('-');
+      if (dash == -1)
+         return null;
+
+      try {
+         long start;
+         long end;
+         if (dash == 0)
+         {
+            long suffix = Long.parseLong(spec.substring(1).trim());
+            if (suffix <= 0)
+               return new long[0];
+            start = Math.max(0, length - suffix);
+            end = length - 1;
+         }
+         else
+         {
+            start = Long.parseLong(spec.substring(0, dash).trim());
+            String last = spec.substring(dash + 1).trim();
+            end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (end < start)
+               return last.isEmpty() || Long.parseLong(last) >= start ? new long[0] : null;
+         }
+
+         if (start >= length)
+            return new long[0];
+         return new long[] { start, end };
+      }
+      catch (NumberFormatException e) {
+         return null;
+      }
+   }
+
+   private static boolean matches(String header, String etag)
+   {
+      for (String candidate : header.split(","))
+      {
+         candidate = candidate.trim();
+         if (candidate.startsWith("W/"))
+            candidate = candidate.substring(2);
+         if ("*".equals(candidate) || etag.equals(candidate))
+            return true;
+      }
+      return false;
+   }
+
+   private static long getDateHeader(HttpServletRequest request, String name)
+   {
+      try {
+         return request.getDateHeader(name);
+      }
+      catch (IllegalArgumentException e) {
+         return -1;
+      }
+   }
+
+   private static boolean isSafe(HttpServletRequest request)
+   {
+      String method = request.getMethod();
+      return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+   }
+}
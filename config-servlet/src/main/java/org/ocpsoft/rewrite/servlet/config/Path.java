@@ -15,6 +15,7 @@
  */
 package org.ocpsoft.rewrite.servlet.config;
 
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -23,6 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.ocpsoft.common.util.Assert;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
+import org.ocpsoft.rewrite.config.IndexableCondition;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.param.ConfigurableParameter;
 import org.ocpsoft.rewrite.param.Parameter;
@@ -36,15 +38,15 @@ import org.ocpsoft.rewrite.servlet.config.bind.RequestBinding;
 import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 import org.ocpsoft.rewrite.servlet.spi.RequestParameterProvider;
+import org.ocpsoft.rewrite.servlet.util.AddressCache;
 import org.ocpsoft.urlbuilder.Address;
-import org.ocpsoft.urlbuilder.AddressBuilder;
 
 /**
  * A {@link Condition} that inspects the value of {@link HttpServletRewrite#getRequestPath()}
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class Path extends HttpCondition implements Parameterized
+public abstract class Path extends HttpCondition implements Parameterized, IndexableCondition
 {
    private final ParameterizedPatternParser expression;
    private boolean withRequestBinding = false;
@@ -126,13 +128,10 @@ public abstract class Path extends HttpCondition implements Parameterized
          if (url == null) // e.g an external url like http://ocpsoft.org (without trailing slash) or an anchor link have
                           // a null path
             return false;
+         url = AddressCache.stripContextPath(url, event.getContextPath());
       }
       else
-         url = AddressBuilder.begin().pathDecoded(event.getInboundAddress().getPath()).buildLiteral().toString();
-
-      String contextPath = event.getContextPath();
-      if (!contextPath.equals("/") && url.startsWith(contextPath))
-         url = url.substring(contextPath.length());
+         url = AddressCache.getContextRelativePath(event);
 
       return expression.parse(url).submit(event, context);
    }
@@ -145,6 +144,12 @@ public abstract class Path extends HttpCondition implements Parameterized
       return expression;
    }
 
+   @Override
+   public Set<ParameterizedPatternParser> getIndexPatterns()
+   {
+      return Collections.singleton(expression);
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.net.MalformedURLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.config.Condition;
+import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
+import org.ocpsoft.rewrite.config.Operation;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.param.ParameterStore;
+import org.ocpsoft.rewrite.param.Parameterized;
+import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.util.ParseTools.CaptureType;
+import org.ocpsoft.rewrite.util.Transpositions;
+import org.ocpsoft.urlbuilder.Address;
+
+/**
+ * A {@link Condition} that determines whether a GZip compressed copy of a resource exists next to it (for example
+ * <code>/css/site.css.gz</code> next to <code>/css/site.css</code>), and the client accepts GZip content. Combine it
+ * with {@link #forwardTo(String)} to serve static resources that were compressed at build time, instead of compressing
+ * them on every request with {@link Response#gzipCompression()} or {@link Response#compress()}:
+ * <p>
+ * <code>
+ * .addRule()<br>
+ * .when(Path.matches("/css/{name}.css").and(Precompressed.exists("/css/{name}.css")))<br>
+ * .perform(Precompressed.forwardTo("/css/{name}.css"))
+ * </code>
+ * <p>
+ * Like {@link Resource#exists(String)}, existence is determined by {@link ServletContext#getResource(String)}. Because
+ * the resources of a deployed application do not change, the result is remembered for the most recently checked
+ * {@link #CACHE_SIZE} resources.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public abstract class Precompressed extends HttpCondition implements Parameterized
+{
+   /**
+    * The number of resources for which the existence of a compressed copy is remembered by each {@link Condition}.
+    */
+   public static final int CACHE_SIZE = 1024;
+
+   /**
+    * The suffix of compressed copies.
+    */
+   public static final String SUFFIX = ".gz";
+
+   private static final Logger log = Logger.getLogger(Precompressed.class);
+
+   private final ParameterizedPatternBuilder resource;
+
+   private final Map<String, Boolean> existing = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+      private static final long serialVersionUID = 3924591218711562094L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest)
+      {
+         return size() > CACHE_SIZE;
+      }
+   };
+
+   private Precompressed(final String resource)
+   {
+      Assert.notNull(resource, "Resource must not be null.");
+      this.resource = new RegexParameterizedPatternBuilder(CaptureType.BRACE, "[^/]+", resource);
+   }
+
+   /**
+    * Create a {@link Condition} that returns <code>true</code> if the client accepts GZip content and a compressed copy
+    * of the given resource, with the suffix {@link #SUFFIX}, exists in the {@link ServletContext#getResource(String)}
+    * of the current application.
+    * <p>
+    * The given resource path may be parameterized:
+    * <p>
+    * <code>
+    *    /css/{name}.css <br>
+    *    /js/{name}.js <br>
+    *    ... 
+    * </code>
+    * <p>
+    * 
+    * @param resource {@link ParameterizedPattern} specifying the {@link Address} of the uncompressed resource.
+    * 
+    * @see {@link ConfigurationRuleParameterBuilder#where(String)}
+    */
+   public static Precompressed exists(final String resource)
+   {
+      return new Precompressed(resource) {
+         @Override
+         public String toString()
+         {
+            return "Precompressed.exists(\"" + resource + "\")";
+         }
+      };
+   }
+
+   /**
+    * Create an {@link Operation} that forwards the current request to the compressed copy of the given resource, with
+    * the suffix {@link #SUFFIX}. The response is sent with the content type of the uncompressed resource, and with
+    * <code>Content-Encoding: gzip</code> and <code>Vary: Accept-Encoding</code> headers. Use it together with
+    * {@link #exists(String)}.
+    * <p>
+    * The given resource path may be parameterized like the location of {@link Forward#to(String)}.
+    * 
+    * @param resource {@link ParameterizedPattern} specifying the {@link Address} of the uncompressed resource.
+    * 
+    * @see {@link ConfigurationRuleParameterBuilder#where(String)}
+    */
+   public static Operation forwardTo(final String resource)
+   {
+      return new PrecompressedForward(resource);
+   }
+
+   @Override
+   public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
+   {
+      if (!acceptsGzip(event) || !resource.isParameterComplete(event, context))
+         return false;
+
+      String file = resource.build(event, context, Transpositions.encodePath()) + SUFFIX;
+
+      Boolean result;
+      synchronized (existing) {
+         result = existing.get(file);
+      }
+
+      if (result == null)
+      {
+         try
+         {
+            result = event.getServletContext().getResource(file) != null;
+         }
+         catch (MalformedURLException e)
+         {
+            log.debug("Invalid file format [{}]", file);
+            result = false;
+         }
+
+         synchronized (existing) {
+            existing.put(file, result);
+         }
+      }
+      return result;
+   }
+
+   private static boolean acceptsGzip(final HttpServletRewrite event)
+   {
+      String acceptEncoding = event.getRequest().getHeader("Accept-Encoding");
+      if (acceptEncoding == null)
+         return false;
+
+      Map<String, Float> qualities = Compress.parseAcceptEncoding(acceptEncoding);
+      Float quality = qualities.get("gzip");
+      if (quality == null)
+         quality = qualities.get("*");
+      return quality != null && quality > 0;
+   }
+
+   /**
+    * Get the {@link ParameterizedPatternBuilder} of the uncompressed resource of this {@link Precompressed}.
+    */
+   public ParameterizedPatternBuilder getExpression()
+   {
+      return resource;
+   }
+
+   @Override
+   public Set<String> getRequiredParameterNames()
+   {
+      return resource.getRequiredParameterNames();
+   }
+
+   @Override
+   public void setParameterStore(ParameterStore store)
+   {
+      resource.setParameterStore(store);
+   }
+
+   private static class PrecompressedForward extends HttpOperation implements Parameterized
+   {
+      private final ParameterizedPatternBuilder resource;
+
+      public PrecompressedForward(final String resource)
+      {
+         Assert.notNull(resource, "Resource must not be null.");
+         this.resource = new RegexParameterizedPatternBuilder(CaptureType.BRACE, "[^/]+", resource);
+      }
+
+      @Override
+      public void performHttp(final HttpServletRewrite event, final EvaluationContext context)
+      {
+         if (event instanceof HttpInboundServletRewrite)
+         {
+            HttpInboundServletRewrite rewrite = (HttpInboundServletRewrite) event;
+            String target = resource.build(event, context, Transpositions.identity());
+
+            rewrite.setResponse(new PrecompressedResponse(rewrite.getResponse(), event.getServletContext()
+                     .getMimeType(target)));
+            rewrite.forward(target + SUFFIX);
+         }
+      }
+
+      @Override
+      public Set<String> getRequiredParameterNames()
+      {
+         return resource.getRequiredParameterNames();
+      }
+
+      @Override
+      public void setParameterStore(ParameterStore store)
+      {
+         resource.setParameterStore(store);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "Precompressed.forwardTo(\"" + resource.getPattern() + "\")";
+      }
+   }
+
+   /**
+    * Keeps the content type and encoding of the uncompressed resource, which the servlet serving the compressed copy
+    * would otherwise replace with those of a GZip archive.
+    */
+   private static class PrecompressedResponse extends HttpServletResponseWrapper
+   {
+      private final boolean typed;
+
+      public PrecompressedResponse(HttpServletResponse response, String contentType)
+      {
+         super(response);
+         response.setHeader("Content-Encoding", "gzip");
+         response.addHeader("Vary", "Accept-Encoding");
+
+         typed = contentType != null;
+         if (typed)
+            response.setContentType(contentType);
+      }
+
+      @Override
+      public void setContentType(String type)
+      {
+         if (!typed)
+            super.setContentType(type);
+      }
+
+      @Override
+      public void setHeader(String name, String value)
+      {
+         if (!isFixed(name))
+            super.setHeader(name, value);
+      }
+
+      @Override
+      public void addHeader(String name, String value)
+      {
+         if (!isFixed(name))
+            super.addHeader(name, value);
+      }
+
+      private boolean isFixed(String name)
+      {
+         return "Content-Encoding".equalsIgnoreCase(name) || (typed && "Content-Type".equalsIgnoreCase(name));
+      }
+   }
+}
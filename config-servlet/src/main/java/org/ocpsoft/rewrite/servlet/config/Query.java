@@ -33,6 +33,7 @@ import org.ocpsoft.rewrite.param.ParameterizedPatternResult;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
 import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.util.AddressCache;
 import org.ocpsoft.rewrite.servlet.util.QueryStringBuilder;
 import org.ocpsoft.urlbuilder.Address;
 
@@ -143,8 +144,7 @@ public abstract class Query extends HttpCondition implements Parameterized
          @Override
          public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
          {
-            QueryStringBuilder queryString = QueryStringBuilder.createFromEncoded(event.getAddress().getQuery())
-                     .decode();
+            QueryStringBuilder queryString = AddressCache.getDecodedQuery(event);
 
             for (String name : queryString.getParameterNames()) {
                String[] parameterValues = queryString.getParameterValues(name);
@@ -210,8 +210,7 @@ public abstract class Query extends HttpCondition implements Parameterized
          @Override
          public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
          {
-            QueryStringBuilder queryString = QueryStringBuilder.createFromEncoded(event.getAddress().getQuery())
-                     .decode();
+            QueryStringBuilder queryString = AddressCache.getDecodedQuery(event);
 
             for (String name : queryString.getParameterNames()) {
 
@@ -261,6 +261,17 @@ public abstract class Response extends HttpOperation
       };
    }
 
+   /**
+    * Compress the {@link ServletOutputStream} contents written to the client with the best content coding accepted by
+    * the client, skipping small responses and content types that do not compress well.
+    * 
+    * @see Compress
+    */
+   public static Compress compress()
+   {
+      return new Compress();
+   }
+
    /**
     * Create an {@link Operation} that writes the given bytes to the current {@link HttpServletResponse} upon execution.
     */
@@ -23,6 +23,7 @@ import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
 import org.ocpsoft.rewrite.param.ParameterizedPatternBuilder;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 import org.ocpsoft.rewrite.util.Transpositions;
@@ -50,6 +51,12 @@ public abstract class Stream extends HttpOperation implements Parameterized
    /**
     * Create an {@link Operation} that streams the given {@link File} to the
     * {@link HttpServletResponse#getOutputStream()}.
+    * <p>
+    * If the file is the first thing written to a response with status <code>200</code>, and the response content is
+    * neither intercepted nor its stream wrapped, the file is sent like a container's default servlet would: with
+    * <code>ETag</code> and <code>Last-Modified</code> headers, <code>304 Not Modified</code> responses to conditional
+    * requests, support for single byte ranges, and without copying the file through the heap where the container
+    * allows it. Otherwise, the file is copied to the response as it is.
     * 
     * <p>
     * The given {@link File} path may be parameterized:
@@ -75,6 +82,15 @@ public abstract class Stream extends HttpOperation implements Parameterized
             InputStream stream = null;
             try {
                File file = new File(target.build(event, context, Transpositions.encodePath()));
+
+               RewriteWrappedResponse response = RewriteWrappedResponse.getCurrentInstance(event.getRequest());
+               if (isWholeResponse(response))
+               {
+                  log.debug("Sending file [" + file + "] as response.");
+                  FileTransfer.send(event.getRequest(), event.getResponse(), file);
+                  return;
+               }
+
                stream = new BufferedInputStream(new FileInputStream(file));
                log.debug("Streaming from file [" + file + "] to response.");
                Response.write(stream).perform(event, context);
@@ -102,6 +118,17 @@ public abstract class Stream extends HttpOperation implements Parameterized
       };
    }
 
+   /*
+    * Conditional and range requests may only be answered if the file is all the client receives, so anything written,
+    * intercepted, wrapped or a status set before (such as an error page) causes the file to be copied as it is.
+    */
+   private static boolean isWholeResponse(RewriteWrappedResponse response)
+   {
+      return response != null && response.getResponseStatus() == HttpServletResponse.SC_OK
+               && !response.isResponseContentWritten()
+               && !(response.isResponseContentIntercepted() || response.isResponseStreamWrapped());
+   }
+
    /**
     * Create an {@link Operation} that duplicates content written to {@link HttpServletResponse#getOutputStream()} and
     * writes it to the given {@link File}.
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.spi.CompressionCodec;
+
+/**
+ * A {@link ResponseStreamWrapper} that compresses the response output with a {@link CompressionCodec}, unless the
+ * response is too small or of a content type that should not be compressed.
+ * <p>
+ * Output is held back until it exceeds the minimum size. Only then is it decided, based on the content type and
+ * <code>Content-Encoding</code> of the response at that time, whether to compress it. Smaller responses are written
+ * unchanged when the wrapper is finished.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CompressionResponseStreamWrapper implements EncodingResponseStreamWrapper
+{
+   private static final AtomicInteger instances = new AtomicInteger();
+
+   private final String streamKey = CompressionResponseStreamWrapper.class.getName() + "_STREAM_"
+            + instances.incrementAndGet();
+
+   private final CompressionCodec codec;
+   private final int level;
+   private final int minimumSize;
+   private final Collection<String> contentTypes;
+
+   /**
+    * Create a wrapper compressing output of at least the given number of bytes, at the given level, if its content
+    * type is one of the given types. Types may end with a wildcard subtype (<code>text/*</code>); <code>null</code>
+    * allows all content types.
+    */
+   public CompressionResponseStreamWrapper(CompressionCodec codec, int level, int minimumSize,
+            Collection<String> contentTypes)
+   {
+      this.codec = codec;
+      this.level = level;
+      this.minimumSize = minimumSize;
+      this.contentTypes = contentTypes;
+   }
+
+   @Override
+   public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
+   {
+      ThresholdOutputStream stream = new ThresholdOutputStream(rewrite.getResponse(), outputStream);
+      rewrite.getRequest().setAttribute(streamKey, stream);
+      return stream;
+   }
+
+   @Override
+   public void finish(HttpServletRewrite rewrite)
+   {
+      ThresholdOutputStream stream = (ThresholdOutputStream) rewrite.getRequest().getAttribute(streamKey);
+      if (stream != null)
+      {
+         try {
+            rewrite.getRequest().removeAttribute(streamKey);
+            stream.close();
+         }
+         catch (IOException e) {
+            throw new RewriteException("Could not finish " + codec.getEncoding() + " encoding", e);
+         }
+      }
+   }
+
+   /**
+    * Return <code>true</code> if the given content type (which may include parameters) is allowed to be compressed.
+    */
+   boolean isCompressible(String contentType)
+   {
+      if (contentTypes == null)
+         return true;
+      if (contentType == null)
+         return false;
+
+      String type = contentType;
+      int parameters = type.indexOf(';');
+      if (parameters != -1)
+         type = type.substring(0, parameters);
+      type = type.trim().toLowerCase(Locale.ENGLISH);
+
+      for (String allowed : contentTypes)
+      {
+         if (allowed.endsWith("/*") ? type.startsWith(allowed.substring(0, allowed.length() - 1)) : type
+                  .equals(allowed))
+            return true;
+      }
+      return false;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "CompressionResponseStreamWrapper [encoding=" + codec.getEncoding() + ", level=" + level
+               + ", minimumSize=" + minimumSize + ", contentTypes=" + contentTypes + "]";
+   }
+
+   private class ThresholdOutputStream extends OutputStream
+   {
+      private final HttpServletResponse response;
+      private final OutputStream output;
+
+      private byte[] pending;
+      private int count;
+      private OutputStream target;
+      private boolean closed;
+
+      public ThresholdOutputStream(HttpServletResponse response, OutputStream output)
+      {
+         this.response = response;
+         this.output = output;
+         this.pending = new byte[Math.min(Math.max(minimumSize, 0), 8192)];
+      }
+
+      @Override
+      public void write(int b) throws IOException
+      {
+         if (target == null)
+         {
+            if (count < minimumSize)
+            {
+               ensureCapacity(count + 1);
+               pending[count++] = (byte) b;
+               return;
+            }
+            decide(true);
+         }
+         target.write(b);
+      }
+
+      @Override
+      public void write(byte[] bytes, int off, int len) throws IOException
+      {
+         if (target == null)
+         {
+            if (count + len <= minimumSize)
+            {
+               ensureCapacity(count + len);
+               System.arraycopy(bytes, off, pending, count, len);
+               count += len;
+               return;
+            }
+            decide(true);
+         }
+         target.write(bytes, off, len);
+      }
+
+      private void ensureCapacity(int capacity)
+      {
+         if (capacity > pending.length)
+         {
+            byte[] grown = new byte[Math.min(Math.max(pending.length * 2, capacity), minimumSize)];
+            System.arraycopy(pending, 0, grown, 0, count);
+            pending = grown;
+         }
+      }
+
+      private void decide(boolean largeEnough) throws IOException
+      {
+         if (largeEnough && !response.isCommitted() && !response.containsHeader("Content-Encoding")
+                  && isCompressible(response.getContentType()))
+         {
+            response.setHeader("Content-Encoding", codec.getEncoding());
+            target = codec.compress(output, level);
+         }
+         else
+            target = output;
+
+         target.write(pending, 0, count);
+         pending = null;
+      }
+
+      /*
+       * Flushing before the decision is made is ignored, or print writers flushing every line would prevent any
+       * compression.
+       */
+      @Override
+      public void flush() throws IOException
+      {
+         if (target != null)
+            target.flush();
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         if (!closed)
+         {
+            closed = true;
+            if (target == null)
+               decide(false);
+            if (target != output)
+               target.close();
+            output.flush();
+         }
+      }
+   }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.ocpsoft.rewrite.servlet.spi.CompressionCodec;
+
+/**
+ * A {@link CompressionCodec} producing the <code>deflate</code> content coding (zlib format).
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class DeflateCodec implements CompressionCodec
+{
+   @Override
+   public int priority()
+   {
+      return 10;
+   }
+
+   @Override
+   public String getEncoding()
+   {
+      return "deflate";
+   }
+
+   @Override
+   public OutputStream compress(OutputStream output, int level) throws IOException
+   {
+      return new PooledDeflaterOutputStream(output, level, false);
+   }
+}
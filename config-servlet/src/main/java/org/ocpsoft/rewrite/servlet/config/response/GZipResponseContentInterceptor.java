@@ -3,7 +3,8 @@ package org.ocpsoft.rewrite.servlet.config.response;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.ocpsoft.common.util.Streams;
 import org.ocpsoft.rewrite.exception.RewriteException;
@@ -25,14 +26,21 @@ public class GZipResponseContentInterceptor implements ResponseContentIntercepto
        */
       chain.proceed();
 
-      byte[] contents = buffer.getContents();
       ByteArrayOutputStream result = new ByteArrayOutputStream();
       try {
-         GZIPOutputStream gzip = new GZIPOutputStream(result);
-         Streams.copy(new ByteArrayInputStream(contents), gzip);
+         OutputStream gzip = new GZipCodec().compress(result, -1);
+         InputStream input = buffer instanceof StreamableResponseContent
+                  ? ((StreamableResponseContent) buffer).getInputStream()
+                  : new ByteArrayInputStream(buffer.getContents());
+         try {
+            Streams.copy(input, gzip);
+         }
+         finally {
+            input.close();
+         }
          gzip.close();
 
-         contents = result.toByteArray();
+         byte[] contents = result.toByteArray();
          buffer.setContents(contents);
 
          event.getResponse().setContentLength(contents.length);
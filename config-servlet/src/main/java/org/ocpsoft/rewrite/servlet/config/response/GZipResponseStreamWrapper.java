@@ -17,7 +17,6 @@ package org.ocpsoft.rewrite.servlet.config.response;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
 
 import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
@@ -28,7 +27,7 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class GZipResponseStreamWrapper implements ResponseStreamWrapper
+public class GZipResponseStreamWrapper implements EncodingResponseStreamWrapper
 {
    public final static String STREAM_KEY = GZipResponseStreamWrapper.class.getName() + "_STREAM";
 
@@ -38,7 +37,7 @@ public class GZipResponseStreamWrapper implements ResponseStreamWrapper
       rewrite.getResponse().setHeader("Content-Encoding", "gzip");
 
       try {
-         GZIPOutputStream stream = new GZIPOutputStream(outputStream);
+         OutputStream stream = new GZipCodec().compress(outputStream, -1);
          rewrite.getRequest().setAttribute(STREAM_KEY, stream);
          return stream;
       }
@@ -51,11 +50,13 @@ public class GZipResponseStreamWrapper implements ResponseStreamWrapper
    public void finish(HttpServletRewrite rewrite)
    {
       try {
-         GZIPOutputStream stream = (GZIPOutputStream) rewrite.getRequest().getAttribute(STREAM_KEY);
+         OutputStream stream = (OutputStream) rewrite.getRequest().getAttribute(STREAM_KEY);
          if (stream != null)
          {
-            stream.flush();
-            stream.finish();
+            /*
+             * Completes the GZip output without closing the response stream.
+             */
+            stream.close();
          }
       }
       catch (IOException e) {
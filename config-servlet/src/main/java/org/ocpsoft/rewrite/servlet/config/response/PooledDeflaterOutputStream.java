@@ -0,0 +1,152 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A {@link DeflaterOutputStream} writing <code>deflate</code> (zlib) or <code>gzip</code> data, with a {@link Deflater}
+ * borrowed from a pool shared by all responses. Creating a {@link Deflater} allocates native memory of a few hundred
+ * kilobytes, which is wasted on responses of a few kilobytes. Closing the stream completes the compressed data and
+ * returns the {@link Deflater} to the pool, but does not close the underlying stream.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class PooledDeflaterOutputStream extends DeflaterOutputStream
+{
+   private static final int MAX_IDLE = 16;
+
+   private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+   /*
+    * One pool per compression level, from -1 to 9, for raw and for zlib data.
+    */
+   private static final List<BlockingQueue<Deflater>> pools = new ArrayList<BlockingQueue<Deflater>>();
+   static {
+      for (int i = 0; i < 22; i++) {
+         pools.add(new ArrayBlockingQueue<Deflater>(MAX_IDLE));
+      }
+   }
+
+   private final int level;
+   private final boolean gzip;
+   private final CRC32 crc;
+   private final byte[] single = new byte[1];
+   private boolean closed;
+
+   public PooledDeflaterOutputStream(OutputStream output, int level, boolean gzip) throws IOException
+   {
+      super(output, borrow(level, gzip), 8192);
+      this.level = level;
+      this.gzip = gzip;
+      if (gzip)
+      {
+         crc = new CRC32();
+         output.write(GZIP_HEADER);
+      }
+      else
+         crc = null;
+   }
+
+   @Override
+   public void write(int b) throws IOException
+   {
+      single[0] = (byte) b;
+      write(single, 0, 1);
+   }
+
+   @Override
+   public void write(byte[] bytes, int off, int len) throws IOException
+   {
+      super.write(bytes, off, len);
+      if (crc != null)
+         crc.update(bytes, off, len);
+   }
+
+   @Override
+   public void finish() throws IOException
+   {
+      if (!def.finished())
+      {
+         super.finish();
+         if (gzip)
+         {
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+         }
+      }
+   }
+
+   private void writeInt(int value) throws IOException
+   {
+      out.write(value & 0xff);
+      out.write((value >> 8) & 0xff);
+      out.write((value >> 16) & 0xff);
+      out.write((value >> 24) & 0xff);
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      if (!closed)
+      {
+         closed = true;
+         try {
+            finish();
+            out.flush();
+         }
+         finally {
+            release(def, level, gzip);
+         }
+      }
+   }
+
+   private static BlockingQueue<Deflater> pool(int level, boolean gzip)
+   {
+      if (level < -1 || level > 9)
+         throw new IllegalArgumentException("Compression level must be between -1 and 9, but was [" + level + "]");
+      return pools.get((level + 1) * 2 + (gzip ? 1 : 0));
+   }
+
+   private static Deflater borrow(int level, boolean gzip)
+   {
+      Deflater result = pool(level, gzip).poll();
+      return result == null ? new Deflater(level, gzip) : result;
+   }
+
+   private static void release(Deflater deflater, int level, boolean gzip)
+   {
+      deflater.reset();
+      if (!pool(level, gzip).offer(deflater))
+         deflater.end();
+   }
+
+   /**
+    * Return the number of idle {@link Deflater} instances held for the given level and format.
+    */
+   static int getIdleCount(int level, boolean gzip)
+   {
+      return pool(level, gzip).size();
+   }
+}
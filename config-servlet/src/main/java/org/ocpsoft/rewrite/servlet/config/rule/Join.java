@@ -28,6 +28,7 @@ import org.ocpsoft.rewrite.bind.Binding;
 import org.ocpsoft.rewrite.config.ConditionBuilder;
 import org.ocpsoft.rewrite.config.ConditionVisit;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
+import org.ocpsoft.rewrite.config.IndexableCondition;
 import org.ocpsoft.rewrite.config.ParameterizedCallback;
 import org.ocpsoft.rewrite.config.ParameterizedConditionVisitor;
 import org.ocpsoft.rewrite.config.Rule;
@@ -38,6 +39,7 @@ import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
 import org.ocpsoft.rewrite.servlet.config.DispatchType;
 import org.ocpsoft.rewrite.servlet.config.Forward;
 import org.ocpsoft.rewrite.servlet.config.Path;
@@ -60,7 +62,7 @@ import org.ocpsoft.urlbuilder.AddressBuilderBase;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class Join implements Rule, JoinPath, Parameterized
+public class Join implements Rule, JoinPath, Parameterized, IndexableCondition
 {
    private static final String JOIN_DISABLED_KEY = Join.class.getName() + "_DISABLED";
 
@@ -352,6 +354,21 @@ public class Join implements Rule, JoinPath, Parameterized
       return result;
    }
 
+   @Override
+   public Set<ParameterizedPatternParser> getIndexPatterns()
+   {
+      if (!inboundCorrection)
+         return requestPath.getIndexPatterns();
+
+      if (resourcePath == null)
+         return null;
+
+      Set<ParameterizedPatternParser> result = new LinkedHashSet<ParameterizedPatternParser>();
+      result.addAll(requestPath.getIndexPatterns());
+      result.addAll(resourcePath.getIndexPatterns());
+      return result;
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
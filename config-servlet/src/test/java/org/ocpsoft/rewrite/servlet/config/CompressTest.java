@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.spi.CompressionCodec;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CompressTest
+{
+   @Test
+   public void testParseAcceptEncoding()
+   {
+      Map<String, Float> qualities = Compress.parseAcceptEncoding("GZip;q=0.8, deflate, br;q=0, *;q=0.1");
+      Assert.assertEquals(4, qualities.size());
+      Assert.assertEquals(0.8f, qualities.get("gzip"), 0);
+      Assert.assertEquals(1f, qualities.get("deflate"), 0);
+      Assert.assertEquals(0f, qualities.get("br"), 0);
+      Assert.assertEquals(0.1f, qualities.get("*"), 0);
+   }
+
+   @Test
+   public void testParseAcceptEncodingXGZip()
+   {
+      Map<String, Float> qualities = Compress.parseAcceptEncoding("x-gzip ; q=0.5");
+      Assert.assertEquals(0.5f, qualities.get("gzip"), 0);
+      Assert.assertNull(qualities.get("x-gzip"));
+   }
+
+   @Test
+   public void testParseAcceptEncodingInvalidQuality()
+   {
+      Map<String, Float> qualities = Compress.parseAcceptEncoding("gzip;q=high, , deflate;level=1");
+      Assert.assertEquals(2, qualities.size());
+      Assert.assertEquals(0f, qualities.get("gzip"), 0);
+      Assert.assertEquals(1f, qualities.get("deflate"), 0);
+   }
+
+   @Test
+   public void testNegotiatePrefersGZip()
+   {
+      Assert.assertEquals("gzip", encoding(new Compress().negotiate("deflate, gzip")));
+      Assert.assertEquals("gzip", encoding(new Compress().negotiate("x-gzip")));
+      Assert.assertEquals("deflate", encoding(new Compress().negotiate("gzip;q=0.5, deflate")));
+   }
+
+   @Test
+   public void testNegotiateZeroQualityIsNotAcceptable()
+   {
+      Assert.assertEquals("deflate", encoding(new Compress().negotiate("gzip;q=0, deflate")));
+      Assert.assertNull(new Compress().negotiate("gzip;q=0, deflate;q=0"));
+   }
+
+   @Test
+   public void testNegotiateWildcard()
+   {
+      Assert.assertEquals("gzip", encoding(new Compress().negotiate("*")));
+      Assert.assertEquals("deflate", encoding(new Compress().negotiate("*;q=0.5, gzip;q=0")));
+      Assert.assertNull(new Compress().negotiate("*;q=0"));
+   }
+
+   @Test
+   public void testNegotiateNothingAcceptable()
+   {
+      Assert.assertNull(new Compress().negotiate(null));
+      Assert.assertNull(new Compress().negotiate(""));
+      Assert.assertNull(new Compress().negotiate("identity"));
+   }
+
+   @Test
+   public void testNegotiateRestrictedEncodings()
+   {
+      Assert.assertEquals("deflate", encoding(new Compress().encodings("deflate").negotiate("gzip, deflate")));
+      Assert.assertNull(new Compress().encodings("deflate").negotiate("gzip"));
+      Assert.assertEquals("deflate", encoding(new Compress().encodings("Deflate", "gzip").negotiate("gzip, deflate")));
+   }
+
+   private static String encoding(CompressionCodec codec)
+   {
+      return codec == null ? null : codec.getEncoding();
+   }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.config.Compress;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CompressionResponseStreamWrapperTest
+{
+   private final Map<String, Object> attributes = new HashMap<String, Object>();
+   private final Map<String, String> headers = new HashMap<String, String>();
+   private String contentType;
+   private HttpServletRewrite rewrite;
+   private ByteArrayOutputStream output;
+
+   @Before
+   public void before()
+   {
+      final HttpServletRequest request = proxy(HttpServletRequest.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getAttribute".equals(method.getName()))
+               return attributes.get(args[0]);
+            if ("setAttribute".equals(method.getName()))
+               attributes.put((String) args[0], args[1]);
+            if ("removeAttribute".equals(method.getName()))
+               attributes.remove(args[0]);
+            return null;
+         }
+      });
+      final HttpServletResponse response = proxy(HttpServletResponse.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getContentType".equals(method.getName()))
+               return contentType;
+            if ("isCommitted".equals(method.getName()))
+               return false;
+            if ("containsHeader".equals(method.getName()))
+               return headers.containsKey(args[0]);
+            if ("setHeader".equals(method.getName()))
+               headers.put((String) args[0], (String) args[1]);
+            return null;
+         }
+      });
+      rewrite = proxy(HttpServletRewrite.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getRequest".equals(method.getName()))
+               return request;
+            if ("getResponse".equals(method.getName()))
+               return response;
+            return null;
+         }
+      });
+      output = new ByteArrayOutputStream();
+   }
+
+   @Test
+   public void testSmallResponseIsNotCompressed() throws IOException
+   {
+      contentType = "text/html; charset=UTF-8";
+      byte[] content = content(99);
+      write(wrapper(100), content, false);
+
+      Assert.assertNull(headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, output.toByteArray());
+   }
+
+   @Test
+   public void testLargeResponseIsCompressed() throws IOException
+   {
+      contentType = "text/html; charset=UTF-8";
+      byte[] content = content(5000);
+      write(wrapper(100), content, false);
+
+      Assert.assertEquals("gzip", headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, gunzip(output.toByteArray()));
+   }
+
+   @Test
+   public void testSingleByteWritesAcrossThreshold() throws IOException
+   {
+      contentType = "application/json";
+      byte[] content = content(300);
+      write(wrapper(100), content, true);
+
+      Assert.assertEquals("gzip", headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, gunzip(output.toByteArray()));
+   }
+
+   @Test
+   public void testSingleByteWritesBelowThreshold() throws IOException
+   {
+      contentType = "application/json";
+      byte[] content = content(100);
+      write(wrapper(100), content, true);
+
+      Assert.assertNull(headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, output.toByteArray());
+   }
+
+   @Test
+   public void testContentTypeNotInListIsNotCompressed() throws IOException
+   {
+      contentType = "image/png";
+      byte[] content = content(5000);
+      write(wrapper(100), content, false);
+
+      Assert.assertNull(headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, output.toByteArray());
+   }
+
+   @Test
+   public void testEncodedResponseIsNotCompressedAgain() throws IOException
+   {
+      contentType = "text/plain";
+      headers.put("Content-Encoding", "br");
+      byte[] content = content(5000);
+      write(wrapper(100), content, false);
+
+      Assert.assertEquals("br", headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, output.toByteArray());
+   }
+
+   @Test
+   public void testZeroMinimumSizeCompressesEverything() throws IOException
+   {
+      contentType = "text/plain";
+      byte[] content = content(10);
+      write(wrapper(0), content, true);
+
+      Assert.assertEquals("gzip", headers.get("Content-Encoding"));
+      Assert.assertArrayEquals(content, gunzip(output.toByteArray()));
+   }
+
+   @Test
+   public void testIsCompressible()
+   {
+      CompressionResponseStreamWrapper wrapper = wrapper(0);
+      Assert.assertTrue(wrapper.isCompressible("text/css"));
+      Assert.assertTrue(wrapper.isCompressible("TEXT/HTML;charset=UTF-8"));
+      Assert.assertTrue(wrapper.isCompressible("application/json ; charset=UTF-8"));
+      Assert.assertFalse(wrapper.isCompressible("application/jsonp"));
+      Assert.assertFalse(wrapper.isCompressible("image/jpeg"));
+      Assert.assertFalse(wrapper.isCompressible(null));
+
+      CompressionResponseStreamWrapper any = new CompressionResponseStreamWrapper(new GZipCodec(), -1, 0, null);
+      Assert.assertTrue(any.isCompressible(null));
+      Assert.assertTrue(any.isCompressible("image/jpeg"));
+   }
+
+   private CompressionResponseStreamWrapper wrapper(int minimumSize)
+   {
+      return new CompressionResponseStreamWrapper(new GZipCodec(), -1, minimumSize, Compress.DEFAULT_CONTENT_TYPES);
+   }
+
+   private void write(CompressionResponseStreamWrapper wrapper, byte[] content, boolean bytewise) throws IOException
+   {
+      OutputStream stream = wrapper.wrap(rewrite, output);
+      if (bytewise)
+      {
+         for (byte b : content) {
+            stream.write(b);
+         }
+      }
+      else
+      {
+         int half = content.length / 2;
+         stream.write(content, 0, half);
+         stream.flush();
+         stream.write(content, half, content.length - half);
+      }
+      wrapper.finish(rewrite);
+      Assert.assertTrue(attributes.isEmpty());
+   }
+
+   @SuppressWarnings("unchecked")
+   private static <T> T proxy(Class<T> type, InvocationHandler handler)
+   {
+      return (T) Proxy.newProxyInstance(CompressionResponseStreamWrapperTest.class.getClassLoader(),
+               new Class<?>[] { type }, handler);
+   }
+
+   private static byte[] content(int length)
+   {
+      byte[] result = new byte[length];
+      Arrays.fill(result, (byte) 'a');
+      for (int i = 0; i < length; i += 7) {
+         result[i] = (byte) ('0' + i % 10);
+      }
+      return result;
+   }
+
+   private static byte[] gunzip(byte[] bytes) throws IOException
+   {
+      InputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes));
+      try {
+         ByteArrayOutputStream result = new ByteArrayOutputStream();
+         byte[] buffer = new byte[1000];
+         int read;
+         while ((read = input.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+         }
+         return result.toByteArray();
+      }
+      finally {
+         input.close();
+      }
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.spi.CompressionCodec;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class PooledDeflaterOutputStreamTest
+{
+   @Test
+   public void testGZipRoundTripWithReusedDeflater() throws IOException
+   {
+      for (int level : new int[] { -1, 1, 9 })
+      {
+         compress(new GZipCodec(), level, content(1000, 0));
+         int idle = PooledDeflaterOutputStream.getIdleCount(level, true);
+         Assert.assertTrue(idle > 0);
+
+         for (int round = 1; round < 4; round++)
+         {
+            byte[] content = content(5000 * round, round);
+            Assert.assertArrayEquals(content, read(new GZIPInputStream(compressed(new GZipCodec(), level, content))));
+            Assert.assertEquals(idle, PooledDeflaterOutputStream.getIdleCount(level, true));
+         }
+      }
+   }
+
+   @Test
+   public void testDeflateRoundTripWithReusedDeflater() throws IOException
+   {
+      compress(new DeflateCodec(), 5, content(1000, 0));
+      int idle = PooledDeflaterOutputStream.getIdleCount(5, false);
+      Assert.assertTrue(idle > 0);
+
+      for (int round = 1; round < 4; round++)
+      {
+         byte[] content = content(5000 * round, round);
+         Assert.assertArrayEquals(content, read(new InflaterInputStream(compressed(new DeflateCodec(), 5, content))));
+         Assert.assertEquals(idle, PooledDeflaterOutputStream.getIdleCount(5, false));
+      }
+   }
+
+   @Test
+   public void testGZipTrailerOfIncompressibleContent() throws IOException
+   {
+      /*
+       * GZIPInputStream verifies the CRC and size in the trailer when it reaches the end of the data.
+       */
+      byte[] content = new byte[200000];
+      long seed = 42;
+      for (int i = 0; i < content.length; i++) {
+         seed = seed * 6364136223846793005L + 1442695040888963407L;
+         content[i] = (byte) (seed >>> 56);
+      }
+      Assert.assertArrayEquals(content, read(new GZIPInputStream(compressed(new GZipCodec(), -1, content))));
+   }
+
+   @Test
+   public void testGZipEmptyContent() throws IOException
+   {
+      byte[] content = new byte[0];
+      Assert.assertArrayEquals(content, read(new GZIPInputStream(compressed(new GZipCodec(), -1, content))));
+   }
+
+   @Test
+   public void testConcurrentStreamsUseSeparateDeflaters() throws IOException
+   {
+      byte[] first = content(3000, 1);
+      byte[] second = content(4000, 2);
+
+      ByteArrayOutputStream firstOutput = new ByteArrayOutputStream();
+      ByteArrayOutputStream secondOutput = new ByteArrayOutputStream();
+      OutputStream firstStream = new GZipCodec().compress(firstOutput, -1);
+      OutputStream secondStream = new GZipCodec().compress(secondOutput, -1);
+      firstStream.write(first, 0, 1000);
+      secondStream.write(second, 0, 2000);
+      firstStream.write(first, 1000, 2000);
+      secondStream.write(second, 2000, 2000);
+      secondStream.close();
+      firstStream.close();
+
+      Assert.assertArrayEquals(first, read(new GZIPInputStream(new ByteArrayInputStream(firstOutput.toByteArray()))));
+      Assert.assertArrayEquals(second,
+               read(new GZIPInputStream(new ByteArrayInputStream(secondOutput.toByteArray()))));
+   }
+
+   @Test
+   public void testCloseDoesNotCloseUnderlyingStream() throws IOException
+   {
+      final boolean[] closed = new boolean[1];
+      ByteArrayOutputStream output = new ByteArrayOutputStream() {
+         @Override
+         public void close() throws IOException
+         {
+            closed[0] = true;
+         }
+      };
+
+      OutputStream stream = new GZipCodec().compress(output, -1);
+      stream.write(content(100, 0));
+      stream.close();
+      stream.close();
+      Assert.assertFalse(closed[0]);
+   }
+
+   private static ByteArrayInputStream compressed(CompressionCodec codec, int level, byte[] content)
+            throws IOException
+   {
+      return new ByteArrayInputStream(compress(codec, level, content));
+   }
+
+   /*
+    * Writes single bytes as well as arrays, so that both paths are covered.
+    */
+   private static byte[] compress(CompressionCodec codec, int level, byte[] content) throws IOException
+   {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      OutputStream stream = codec.compress(output, level);
+      int half = content.length / 2;
+      for (int i = 0; i < Math.min(half, 100); i++) {
+         stream.write(content[i]);
+      }
+      if (half > 100)
+         stream.write(content, 100, half - 100);
+      stream.write(content, half, content.length - half);
+      stream.close();
+      return output.toByteArray();
+   }
+
+   private static byte[] content(int length, int seed)
+   {
+      StringBuilder result = new StringBuilder();
+      for (int i = 0; result.length() < length; i++) {
+         result.append("<p class=\"row-").append(i % 17 + seed).append("\">Row ").append(i).append("</p>\n");
+      }
+      return result.substring(0, length).getBytes();
+   }
+
+   private static byte[] read(InputStream input) throws IOException
+   {
+      try {
+         ByteArrayOutputStream result = new ByteArrayOutputStream();
+         byte[] buffer = new byte[1000];
+         int read;
+         while ((read = input.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+         }
+         return result.toByteArray();
+      }
+      finally {
+         input.close();
+      }
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.servlet.spi.AsyncRequestProvider;
+
+/**
+ * Implementation of {@link AsyncRequestProvider} for Servlet 3.0, which runs the callback from
+ * {@link AsyncListener#onComplete(AsyncEvent)}. The callback only sees the output of the application if the
+ * asynchronous processing was started with <code>ServletRequest.startAsync(ServletRequest, ServletResponse)</code>,
+ * passing on the request and response given to the application by the <code>RewriteFilter</code>.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class Servlet3AsyncRequestProvider implements AsyncRequestProvider
+{
+   private static final Logger log = Logger.getLogger(Servlet3AsyncRequestProvider.class);
+
+   @Override
+   public int priority()
+   {
+      return 10;
+   }
+
+   @Override
+   public boolean runOnCompletion(ServletRequest request, ServletContext context, Runnable callback)
+   {
+      if (context.getMajorVersion() >= 3 && request.isAsyncStarted())
+      {
+         request.getAsyncContext().addListener(new CompletionListener(callback));
+         return true;
+      }
+      return false;
+   }
+
+   private static class CompletionListener implements AsyncListener
+   {
+      private final Runnable callback;
+
+      public CompletionListener(Runnable callback)
+      {
+         this.callback = callback;
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) throws IOException
+      {
+         try {
+            callback.run();
+         }
+         catch (RuntimeException e) {
+            log.error("Failed to finish response of asynchronous request", e);
+         }
+      }
+
+      @Override
+      public void onStartAsync(AsyncEvent event) throws IOException
+      {
+         /*
+          * Listeners are removed when asynchronous processing is started again, so register again to be notified of
+          * the final completion.
+          */
+         event.getAsyncContext().addListener(this);
+      }
+
+      @Override
+      public void onTimeout(AsyncEvent event) throws IOException
+      {}
+
+      @Override
+      public void onError(AsyncEvent event) throws IOException
+      {}
+   }
+}
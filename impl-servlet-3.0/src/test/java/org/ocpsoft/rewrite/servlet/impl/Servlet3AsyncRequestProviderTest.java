@@ -0,0 +1,141 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.ocpsoft.rewrite.servlet.spi.AsyncRequestProvider;
+
+public class Servlet3AsyncRequestProviderTest
+{
+
+   @Test
+   public void testShouldRunCallbackWhenAsyncRequestCompletes() throws Exception
+   {
+
+      // GIVEN a Servlet 3.0 container
+      ServletContext servletContext = mock(ServletContext.class);
+      when(servletContext.getMajorVersion()).thenReturn(3);
+
+      // AND a request in asynchronous mode
+      AsyncContext asyncContext = mock(AsyncContext.class);
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.isAsyncStarted()).thenReturn(true);
+      when(request.getAsyncContext()).thenReturn(asyncContext);
+
+      // WHEN the provider is asked to run a callback on completion
+      Runnable callback = mock(Runnable.class);
+      AsyncRequestProvider provider = new Servlet3AsyncRequestProvider();
+      boolean deferred = provider.runOnCompletion(request, servletContext, callback);
+
+      // THEN it should register a listener instead of running the callback
+      assertTrue(deferred);
+      ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+      verify(asyncContext).addListener(listener.capture());
+      verify(callback, never()).run();
+
+      // AND run the callback once the request completes
+      listener.getValue().onComplete(new AsyncEvent(asyncContext));
+      verify(callback).run();
+
+   }
+
+   @Test
+   public void testShouldNotDeferSynchronousRequest()
+   {
+
+      // GIVEN a Servlet 3.0 container
+      ServletContext servletContext = mock(ServletContext.class);
+      when(servletContext.getMajorVersion()).thenReturn(3);
+
+      // AND a request that is not in asynchronous mode
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.isAsyncStarted()).thenReturn(false);
+
+      // WHEN the provider is asked to run a callback on completion
+      Runnable callback = mock(Runnable.class);
+      AsyncRequestProvider provider = new Servlet3AsyncRequestProvider();
+      boolean deferred = provider.runOnCompletion(request, servletContext, callback);
+
+      // THEN it should leave running the callback to the caller
+      assertFalse(deferred);
+      verify(callback, never()).run();
+      verify(request, never()).getAsyncContext();
+
+   }
+
+   @Test
+   public void testShouldNotDeferForServlet25()
+   {
+
+      // GIVEN a Servlet 2.5 container
+      ServletContext servletContext = mock(ServletContext.class);
+      when(servletContext.getMajorVersion()).thenReturn(2);
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.isAsyncStarted()).thenThrow(new IllegalStateException("Call not allowed"));
+
+      // WHEN the provider is asked to run a callback on completion
+      AsyncRequestProvider provider = new Servlet3AsyncRequestProvider();
+      boolean deferred = provider.runOnCompletion(request, servletContext, mock(Runnable.class));
+
+      // THEN it should leave running the callback to the caller
+      assertFalse(deferred);
+
+   }
+
+   @Test
+   public void testShouldRegisterAgainWhenAsyncIsRestarted() throws Exception
+   {
+
+      // GIVEN a Servlet 3.0 container
+      ServletContext servletContext = mock(ServletContext.class);
+      when(servletContext.getMajorVersion()).thenReturn(3);
+
+      // AND a request in asynchronous mode
+      AsyncContext asyncContext = mock(AsyncContext.class);
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.isAsyncStarted()).thenReturn(true);
+      when(request.getAsyncContext()).thenReturn(asyncContext);
+
+      AsyncRequestProvider provider = new Servlet3AsyncRequestProvider();
+      provider.runOnCompletion(request, servletContext, mock(Runnable.class));
+      ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+      verify(asyncContext).addListener(listener.capture());
+
+      // WHEN asynchronous processing is started again
+      AsyncContext restarted = mock(AsyncContext.class);
+      listener.getValue().onStartAsync(new AsyncEvent(restarted));
+
+      // THEN the listener should register with the new context
+      verify(restarted).addListener(any(AsyncListener.class));
+
+   }
+
+}
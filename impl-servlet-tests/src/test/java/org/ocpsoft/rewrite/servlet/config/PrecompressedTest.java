@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ocpsoft.rewrite.config.ConfigurationProvider;
+import org.ocpsoft.rewrite.test.HttpAction;
+import org.ocpsoft.rewrite.test.RewriteTest;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+@RunWith(Arquillian.class)
+public class PrecompressedTest extends RewriteTest
+{
+   @Deployment(testable = false)
+   public static WebArchive getDeployment() throws IOException
+   {
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+      gzip.write("body { color: red; }".getBytes("UTF-8"));
+      gzip.close();
+
+      WebArchive deployment = RewriteTest.getDeployment()
+               .addClass(PrecompressedTestProvider.class)
+               .addAsWebResource(new StringAsset("body { color: red; }"), "site.css")
+               .addAsWebResource(new ByteArrayAsset(compressed.toByteArray()), "site.css.gz")
+               .addAsWebResource(new StringAsset("body { color: blue; }"), "plain.css")
+               .addAsServiceProvider(ConfigurationProvider.class, PrecompressedTestProvider.class);
+      return deployment;
+   }
+
+   @Test
+   public void testServesCompressedCopy() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/site.css",
+               new BasicHeader("Accept-Encoding", "gzip, deflate"));
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertEquals("gzip", action.getResponseHeaderValues("Content-Encoding").get(0));
+      Assert.assertTrue(action.getResponseHeaderValues("Content-Type").get(0).startsWith("text/css"));
+      Assert.assertTrue(action.getResponseHeaderValues("Vary").contains("Accept-Encoding"));
+   }
+
+   @Test
+   public void testServesUncompressedWithoutAcceptEncoding() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/site.css");
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertTrue(action.getResponseHeaderValues("Content-Encoding").isEmpty());
+      Assert.assertEquals("body { color: red; }", action.getResponseContent());
+   }
+
+   @Test
+   public void testServesUncompressedIfGzipRefused() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/site.css",
+               new BasicHeader("Accept-Encoding", "deflate, gzip;q=0"));
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertTrue(action.getResponseHeaderValues("Content-Encoding").isEmpty());
+   }
+
+   @Test
+   public void testServesUncompressedWithoutCompressedCopy() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/plain.css",
+               new BasicHeader("Accept-Encoding", "gzip"));
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertTrue(action.getResponseHeaderValues("Content-Encoding").isEmpty());
+      Assert.assertEquals("body { color: blue; }", action.getResponseContent());
+   }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ocpsoft.rewrite.config.ConfigurationProvider;
+import org.ocpsoft.rewrite.test.HttpAction;
+import org.ocpsoft.rewrite.test.RewriteTest;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+@RunWith(Arquillian.class)
+public class StreamFromFileTest extends RewriteTest
+{
+   @Deployment(testable = false)
+   public static WebArchive getDeployment()
+   {
+      WebArchive deployment = RewriteTest.getDeployment()
+               .addClass(StreamFromFileTestProvider.class)
+               .addAsServiceProvider(ConfigurationProvider.class, StreamFromFileTestProvider.class);
+      return deployment;
+   }
+
+   @Test
+   public void testStreamWholeFile() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/file");
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertEquals("0123456789", action.getResponseContent());
+      Assert.assertEquals("bytes", action.getResponseHeaderValues("Accept-Ranges").get(0));
+      Assert.assertEquals(1, action.getResponseHeaderValues("ETag").size());
+   }
+
+   @Test
+   public void testStreamRange() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/file", new BasicHeader("Range", "bytes=2-4"));
+      Assert.assertEquals(206, action.getStatusCode());
+      Assert.assertEquals("bytes 2-4/10", action.getResponseHeaderValues("Content-Range").get(0));
+      Assert.assertEquals("234", action.getResponseContent());
+   }
+
+   @Test
+   public void testStreamUnsatisfiableRange() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/file", new BasicHeader("Range", "bytes=20-"));
+      Assert.assertEquals(416, action.getStatusCode());
+   }
+
+   @Test
+   public void testStreamNotModified() throws Exception
+   {
+      String etag = get("/file").getResponseHeaderValues("ETag").get(0);
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/file", new BasicHeader("If-None-Match", etag));
+      Assert.assertEquals(304, action.getStatusCode());
+   }
+
+   @Test
+   public void testErrorPageIgnoresConditionalRequest() throws Exception
+   {
+      String etag = get("/file").getResponseHeaderValues("ETag").get(0);
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/error", new BasicHeader("If-None-Match", etag));
+      Assert.assertEquals(404, action.getStatusCode());
+      Assert.assertEquals("0123456789", action.getResponseContent());
+      Assert.assertTrue(action.getResponseHeaderValues("ETag").isEmpty());
+   }
+
+   @Test
+   public void testErrorPageIgnoresRange() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/error", new BasicHeader("Range", "bytes=2-4"));
+      Assert.assertEquals(404, action.getStatusCode());
+      Assert.assertEquals("0123456789", action.getResponseContent());
+      Assert.assertTrue(action.getResponseHeaderValues("Content-Range").isEmpty());
+   }
+
+   @Test
+   public void testPrependedContentIgnoresRange() throws Exception
+   {
+      HttpAction<HttpGet> action = get(new DefaultHttpClient(), "/prepended", new BasicHeader("Range", "bytes=2-4"));
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertEquals("[0123456789", action.getResponseContent());
+   }
+
+   @Test
+   public void testAppendedContentIsNotCutOff() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/appended");
+      Assert.assertEquals(200, action.getStatusCode());
+      Assert.assertEquals("0123456789]", action.getResponseContent());
+   }
+}
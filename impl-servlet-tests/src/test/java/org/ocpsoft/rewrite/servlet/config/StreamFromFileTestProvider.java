@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.ServletContext;
+
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.ConfigurationBuilder;
+import org.ocpsoft.rewrite.config.Direction;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class StreamFromFileTestProvider extends HttpConfigurationProvider
+{
+   @Override
+   public int priority()
+   {
+      return 0;
+   }
+
+   @Override
+   public Configuration getConfiguration(final ServletContext context)
+   {
+      File file;
+      try {
+         file = File.createTempFile("rewrite-stream", ".txt");
+         file.deleteOnExit();
+         OutputStream output = new FileOutputStream(file);
+         try {
+            output.write("0123456789".getBytes("UTF-8"));
+         }
+         finally {
+            output.close();
+         }
+      }
+      catch (IOException e) {
+         throw new IllegalStateException(e);
+      }
+
+      return ConfigurationBuilder.begin()
+               .addRule()
+               .when(Direction.isInbound().and(Path.matches("/file")))
+               .perform(Stream.from(file).and(Response.complete()))
+
+               .addRule()
+               .when(Direction.isInbound().and(Path.matches("/error")))
+               .perform(Response.setStatus(404).and(Stream.from(file)).and(Response.complete()))
+
+               .addRule()
+               .when(Direction.isInbound().and(Path.matches("/prepended")))
+               .perform(Response.write("[").and(Stream.from(file)).and(Response.complete()))
+
+               .addRule()
+               .when(Direction.isInbound().and(Path.matches("/appended")))
+               .perform(Stream.from(file).and(Response.write("]")).and(Response.complete()));
+   }
+
+}
@@ -16,6 +16,7 @@
 package org.ocpsoft.rewrite.servlet.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -25,38 +26,134 @@ import org.ocpsoft.common.services.NonEnriching;
 import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.config.AdaptiveRuleOrder;
+import org.ocpsoft.rewrite.config.CompiledConfiguration;
 import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.ConfigurationMatcher;
 import org.ocpsoft.rewrite.config.ConfigurationLoader;
+import org.ocpsoft.rewrite.config.ConfigurationProvider;
 import org.ocpsoft.rewrite.config.Operation;
 import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.config.RuleIndex;
+import org.ocpsoft.rewrite.config.RuleMetadata;
 import org.ocpsoft.rewrite.context.RewriteState;
 import org.ocpsoft.rewrite.event.InboundRewrite;
 import org.ocpsoft.rewrite.event.OutboundRewrite;
 import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.metrics.CacheStatistics;
+import org.ocpsoft.rewrite.metrics.RuleMetrics;
+import org.ocpsoft.rewrite.param.DefaultParameterStore;
 import org.ocpsoft.rewrite.param.DefaultParameterValueStore;
 import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.ParameterValueStore;
 import org.ocpsoft.rewrite.servlet.event.BaseRewrite.ServletRewriteFlow;
 import org.ocpsoft.rewrite.servlet.http.HttpRewriteProvider;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.util.AddressCache;
 import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+import org.ocpsoft.rewrite.spi.RuleMetricsExporter;
 import org.ocpsoft.rewrite.util.ParameterUtils;
 import org.ocpsoft.rewrite.util.ServiceLogger;
 
 /**
- * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * Default {@link HttpRewriteProvider}, evaluating all {@link Rule} instances of the current {@link Configuration}.
+ * <p>
+ * To evaluate only the inbound {@link Rule} instances whose path conditions could match the current request (see
+ * {@link RuleIndex}), add the following servlet context init parameter to <code>web.xml</code>. Note that skipped
+ * rules will not be reported in {@link HttpServletRewrite#getEvaluatedRules()}:
  * 
- */
-/**
- * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.RULE_INDEXING&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * To additionally filter candidate rules by every literal segment of their path patterns in a single pass over the
+ * request path (see {@link ConfigurationMatcher}), add the following servlet context init parameter. This implies
+ * <code>RULE_INDEXING</code>:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.MULTI_PATTERN_MATCHING&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * To invoke {@link ConfigurationProvider} instances concurrently when building the {@link Configuration} (see
+ * {@link ConfigurationLoader#setParallelism(int)}), set the following servlet context init parameter to
+ * <code>true</code> (one thread per available processor) or to a maximum number of threads:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PARALLEL_LOADING&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * To record per-{@link Rule} evaluation counts, match ratios, and latencies (see {@link RuleMetrics}), along with the
+ * version and build duration of the {@link Configuration}, add the following servlet context init parameter. Recorded values are published by each registered
+ * {@link RuleMetricsExporter}, including JMX by default (see {@link JmxRuleMetricsExporter}). When disabled, no values
+ * are recorded and no timestamps are taken:
  * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.RULE_METRICS&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * To evaluate frequently matched inbound {@link Rule} instances first (see {@link AdaptiveRuleOrder}), set the
+ * following servlet context init parameter to <code>true</code> (reordering at most every 10 seconds) or to an interval
+ * in milliseconds. Only {@link Rule} instances marked with {@link RuleMetadata#ORDER_INDEPENDENT} are reordered:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.ADAPTIVE_ORDERING&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * To cache the results of outbound rewriting (see {@link OutboundRewriteCache}), set the following servlet context
+ * init parameter to <code>true</code> (caching 1024 addresses) or to a maximum number of cached addresses. Results are
+ * only cached if every {@link Rule} that may match outbound events is marked with
+ * {@link RuleMetadata#OUTBOUND_CACHEABLE}:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.OUTBOUND_CACHE&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements NonEnriching
 {
+   private static final String RULE_INDEXING = "org.ocpsoft.rewrite.config.RULE_INDEXING";
+   private static final String MULTI_PATTERN_MATCHING = "org.ocpsoft.rewrite.config.MULTI_PATTERN_MATCHING";
+   private static final String PARALLEL_LOADING = "org.ocpsoft.rewrite.config.PARALLEL_LOADING";
+   private static final String RULE_METRICS = "org.ocpsoft.rewrite.config.RULE_METRICS";
+   private static final String ADAPTIVE_ORDERING = "org.ocpsoft.rewrite.config.ADAPTIVE_ORDERING";
+   private static final String OUTBOUND_CACHE = "org.ocpsoft.rewrite.config.OUTBOUND_CACHE";
+   private static final long DEFAULT_ORDERING_INTERVAL = 10000;
+   private static final int DEFAULT_OUTBOUND_CACHE_SIZE = 1024;
+
    private static Logger log = Logger.getLogger(DefaultHttpRewriteProvider.class);
    private volatile ConfigurationLoader loader;
    private volatile List<RuleCacheProvider> ruleCacheProviders;
+   private volatile boolean indexing;
+   private volatile boolean matching;
+   private volatile RuleIndex index;
+   private volatile RuleMetrics metrics;
+   private volatile List<RuleMetricsExporter> exporters;
+   private volatile Configuration measured;
+   private volatile long orderingInterval;
+   private volatile AdaptiveRuleOrder ordering;
+   private volatile Configuration ordered;
+   private volatile OutboundRewriteCache outboundCache;
 
    @Override
    @SuppressWarnings("unchecked")
@@ -66,7 +163,7 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          synchronized (this)
          {
             if (loader == null)
-               loader = ConfigurationLoader.create(context);
+               loader = createLoader(context);
          }
 
       if (ruleCacheProviders == null)
@@ -78,26 +175,180 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
             ServiceLogger.logLoadedServices(log, RuleCacheProvider.class, ruleCacheProviders);
          }
 
+      if (metrics == null && isEnabled(context, RULE_METRICS))
+         synchronized (this)
+         {
+            if (metrics == null)
+               startMetrics(context);
+         }
+
+      if (outboundCache == null)
+      {
+         int size = getOutboundCacheSize(context);
+         if (size > 0)
+            outboundCache = new OutboundRewriteCache(size);
+      }
+
+      orderingInterval = getOrderingInterval(context);
+      matching = isEnabled(context, MULTI_PATTERN_MATCHING);
+      indexing = matching || isEnabled(context, RULE_INDEXING);
+
       loader.loadConfiguration(context);
 
    }
 
+   private static ConfigurationLoader createLoader(final ServletContext context)
+   {
+      ConfigurationLoader result = ConfigurationLoader.create(context);
+
+      String parallel = context.getInitParameter(PARALLEL_LOADING);
+      if (parallel != null)
+      {
+         parallel = parallel.trim();
+         if ("true".equalsIgnoreCase(parallel))
+            result.setParallelism(Runtime.getRuntime().availableProcessors());
+         else if (!"false".equalsIgnoreCase(parallel))
+         {
+            try {
+               result.setParallelism(Integer.parseInt(parallel));
+            }
+            catch (NumberFormatException e) {
+               throw new IllegalArgumentException("Init parameter [" + PARALLEL_LOADING
+                        + "] must be true, false, or a number of threads, but was [" + parallel + "]", e);
+            }
+         }
+      }
+      return result;
+   }
+
+   private static long getOrderingInterval(final ServletContext context)
+   {
+      String value = context.getInitParameter(ADAPTIVE_ORDERING);
+      if (value == null || "false".equalsIgnoreCase(value.trim()))
+         return 0;
+      if ("true".equalsIgnoreCase(value.trim()))
+         return DEFAULT_ORDERING_INTERVAL;
+
+      try {
+         long result = Long.parseLong(value.trim());
+         if (result > 0)
+            return result;
+      }
+      catch (NumberFormatException e) {
+         // fall through
+      }
+      throw new IllegalArgumentException("Init parameter [" + ADAPTIVE_ORDERING
+               + "] must be true, false, or a positive interval in milliseconds, but was [" + value + "]");
+   }
+
+   private static int getOutboundCacheSize(final ServletContext context)
+   {
+      String value = context.getInitParameter(OUTBOUND_CACHE);
+      if (value == null || "false".equalsIgnoreCase(value.trim()))
+         return 0;
+      if ("true".equalsIgnoreCase(value.trim()))
+         return DEFAULT_OUTBOUND_CACHE_SIZE;
+
+      try {
+         int result = Integer.parseInt(value.trim());
+         if (result >= 0)
+            return result;
+      }
+      catch (NumberFormatException e) {
+         // fall through
+      }
+      throw new IllegalArgumentException("Init parameter [" + OUTBOUND_CACHE
+               + "] must be true, false, or a number of cached addresses, but was [" + value + "]");
+   }
+
+   @SuppressWarnings("unchecked")
+   private void startMetrics(final ServletContext context)
+   {
+      String contextPath = context.getContextPath();
+      RuleMetrics result = new RuleMetrics(contextPath == null || contextPath.isEmpty() ? "/" : contextPath);
+      result.setConfigurationLoader(loader);
+      for (RuleCacheProvider provider : ruleCacheProviders)
+      {
+         if (provider instanceof CacheStatistics)
+         {
+            result.setRuleCache((CacheStatistics) provider);
+            break;
+         }
+      }
+
+      exporters = Iterators.asList(ServiceLoader.load(RuleMetricsExporter.class));
+      ServiceLogger.logLoadedServices(log, RuleMetricsExporter.class, exporters);
+      for (RuleMetricsExporter exporter : exporters)
+      {
+         exporter.start(result);
+      }
+      metrics = result;
+   }
+
+   /**
+    * Return the {@link AdaptiveRuleOrder} of the given {@link Configuration}, or <code>null</code> if
+    * {@link #ADAPTIVE_ORDERING} is not enabled or the {@link Configuration} has no order-independent {@link Rule}
+    * instances.
+    */
+   private AdaptiveRuleOrder getOrdering(final Configuration configuration)
+   {
+      if (orderingInterval <= 0 || !(configuration instanceof CompiledConfiguration))
+         return null;
+
+      if (ordered != configuration)
+         synchronized (this)
+         {
+            if (ordered != configuration)
+            {
+               ordering = AdaptiveRuleOrder.create((CompiledConfiguration) configuration, orderingInterval);
+               ordered = configuration;
+            }
+         }
+
+      AdaptiveRuleOrder result = ordering;
+      return result != null && result.getSource() == configuration ? result : null;
+   }
+
+   /**
+    * Return the {@link RuleMetrics} recording evaluations of the given {@link Configuration}, or <code>null</code> if
+    * {@link #RULE_METRICS} is not enabled.
+    */
+   private RuleMetrics getMetrics(final Configuration configuration)
+   {
+      RuleMetrics result = metrics;
+      if (result != null && measured != configuration)
+      {
+         result.update(configuration.getRules());
+         measured = configuration;
+      }
+      return result;
+   }
+
+   private static boolean isEnabled(final ServletContext context, final String parameter)
+   {
+      String value = context.getInitParameter(parameter);
+      return value != null && "true".equalsIgnoreCase(value.trim());
+   }
+
    @Override
    public void rewriteHttp(final HttpServletRewrite event)
    {
+      /*
+       * Never reused: operations deferred past this rewrite (such as PhaseOperation) keep a reference to the context.
+       */
+      final EvaluationContextImpl context = new EvaluationContextImpl();
       if (event instanceof InboundRewrite)
-         rewriteInbound(event);
+         rewriteInbound(event, context);
 
       else if (event instanceof OutboundRewrite)
-         rewriteOutbound(event);
+         rewriteOutbound(event, context);
 
       else
          throw new RewriteException("Unknown Rewrite event type [" + event.getClass().getName()
                   + "] - was neither an inbound nor outbound Rewrite.");
-
    }
 
-   private void rewriteInbound(final HttpServletRewrite event)
+   private void rewriteInbound(final HttpServletRewrite event, final EvaluationContextImpl context)
    {
       ServletContext servletContext = event.getServletContext();
       if (loader == null)
@@ -105,144 +356,116 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          synchronized (servletContext)
          {
             if (loader == null)
-               loader = ConfigurationLoader.create(servletContext);
+               loader = createLoader(servletContext);
          }
       }
 
       Configuration compiledConfiguration = loader.loadConfiguration(servletContext);
-      List<Rule> rules = compiledConfiguration.getRules();
-
-      final EvaluationContextImpl context = new EvaluationContextImpl();
+      AdaptiveRuleOrder ordering = getOrdering(compiledConfiguration);
+      List<Rule> rules = getInboundRules(event,
+               ordering == null ? compiledConfiguration : ordering.getConfiguration());
 
-      Object cacheKey = null;
+      /*
+       * A cached rule list replaces the full rule list for this event; rules it contains are still evaluated.
+       */
+      context.put(Configuration.class, compiledConfiguration);
+      Object[] cacheKeys = new Object[ruleCacheProviders.size()];
+      boolean cached = false;
       for (int i = 0; i < ruleCacheProviders.size(); i++)
       {
          RuleCacheProvider provider = ruleCacheProviders.get(i);
 
-         cacheKey = provider.createKey(event, context);
-         final List<Rule> list = provider.get(cacheKey);
-         if (list != null && !list.isEmpty())
+         cacheKeys[i] = provider.createKey(event, context);
+         final List<Rule> list = provider.get(cacheKeys[i]);
+         if (list != null)
          {
             if (log.isDebugEnabled())
                log.debug("Using cached ruleset for event [" + event + "] from provider [" + provider + "].");
-            for (int j = 0; j < list.size(); j++)
-            {
-               Rule rule = list.get(j);
-               try {
-                  event.getEvaluatedRules().add(rule);
-
-                  context.clear();
-                  DefaultParameterValueStore values = new DefaultParameterValueStore();
-                  context.put(ParameterValueStore.class, values);
-                  context.setState(RewriteState.EVALUATING);
-
-                  if (rule.evaluate(event, context))
-                  {
-                     if (handleBindings(event, context, values))
-                     {
-                        context.setState(RewriteState.PERFORMING);
-                        if (log.isDebugEnabled())
-                           log.debug("Rule [" + rule + "] matched and will be performed.");
-
-                        List<Operation> preOperations = context.getPreOperations();
-                        for (int k = 0; k < preOperations.size(); k++)
-                        {
-                           preOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        rule.perform(event, context);
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        List<Operation> postOperations = context.getPostOperations();
-                        for (int k = 0; k < postOperations.size(); k++)
-                        {
-                           postOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-                     }
-                  }
-                  else
-                  {
-                     event.getEvaluatedRules().remove(rule);
-                     break;
-                  }
-               }
-               catch (Exception e) {
-                  throw new RewriteException("Error during [" + event + "] while executing rule [" + rule + "]", e);
-               }
-            }
+            rules = list;
+            cached = true;
+            break;
          }
       }
 
       /*
        * Highly optimized loop - for performance reasons. Think before you change this!
        */
-      List<Rule> cacheable = new ArrayList<Rule>();
+      List<Rule> evaluated = event.getEvaluatedRules();
+      List<Rule> cacheable = null;
+      RuleMetrics metrics = getMetrics(compiledConfiguration);
       for (int i = 0; i < rules.size(); i++)
       {
          Rule rule = rules.get(i);
          try {
-            event.getEvaluatedRules().add(rule);
+            evaluated.add(rule);
 
             context.clear();
-            DefaultParameterValueStore values = new DefaultParameterValueStore();
+            DefaultParameterValueStore values = context.resetParameterValueStore(rule);
             context.put(ParameterValueStore.class, values);
 
             context.setState(RewriteState.EVALUATING);
+            long started = metrics == null ? 0 : System.nanoTime();
             if (rule.evaluate(event, context))
             {
-               if (handleBindings(event, context, values))
+               boolean bound = handleBindings(event, context, values);
+               if (metrics != null)
+               {
+                  long now = System.nanoTime();
+                  metrics.evaluated(rule, now - started, bound);
+                  started = now;
+               }
+
+               if (bound)
                {
                   context.setState(RewriteState.PERFORMING);
                   if (log.isDebugEnabled())
                      log.debug("Rule [" + rule + "] matched and will be performed.");
+                  if (ordering != null)
+                     ordering.matched(rule);
+                  if (cacheable == null)
+                     cacheable = new ArrayList<Rule>();
                   cacheable.add(rule);
-                  List<Operation> preOperations = context.getPreOperations();
-                  for (int k = 0; k < preOperations.size(); k++)
-                  {
-                     preOperations.get(k).perform(event, context);
-                  }
+                  try {
+                     List<Operation> preOperations = context.getPreOperations();
+                     for (int k = 0; k < preOperations.size(); k++)
+                     {
+                        preOperations.get(k).perform(event, context);
+                     }
 
-                  if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                  {
-                     break;
-                  }
+                     if (event.getFlow().is(ServletRewriteFlow.HANDLED))
+                     {
+                        break;
+                     }
 
-                  rule.perform(event, context);
+                     rule.perform(event, context);
 
-                  if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                  {
-                     break;
-                  }
+                     if (event.getFlow().is(ServletRewriteFlow.HANDLED))
+                     {
+                        break;
+                     }
 
-                  List<Operation> postOperations = context.getPostOperations();
-                  for (int k = 0; k < postOperations.size(); k++)
-                  {
-                     postOperations.get(k).perform(event, context);
-                  }
+                     List<Operation> postOperations = context.getPostOperations();
+                     for (int k = 0; k < postOperations.size(); k++)
+                     {
+                        postOperations.get(k).perform(event, context);
+                     }
 
-                  if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                  {
-                     break;
+                     if (event.getFlow().is(ServletRewriteFlow.HANDLED))
+                     {
+                        break;
+                     }
+                  }
+                  finally {
+                     if (metrics != null)
+                        metrics.performed(rule, System.nanoTime() - started);
                   }
                }
             }
             else
             {
-               event.getEvaluatedRules().remove(rule);
+               if (metrics != null)
+                  metrics.evaluated(rule, System.nanoTime() - started, false);
+               removeLast(evaluated, rule);
             }
          }
          catch (Exception e) {
@@ -250,16 +473,51 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          }
       }
 
-      if (!cacheable.isEmpty())
+      if (!cached)
       {
          for (int i = 0; i < ruleCacheProviders.size(); i++)
          {
-            ruleCacheProviders.get(i).put(cacheKey, cacheable);
+            ruleCacheProviders.get(i).put(cacheKeys[i],
+                     cacheable == null ? Collections.<Rule> emptyList() : cacheable);
          }
       }
    }
 
-   private void rewriteOutbound(HttpServletRewrite event)
+   /**
+    * Return the {@link Rule} instances to be evaluated for the given inbound event. If {@link #RULE_INDEXING} or
+    * {@link #MULTI_PATTERN_MATCHING} is enabled, only {@link Rule} instances that may match the current request path
+    * are returned.
+    */
+   private List<Rule> getInboundRules(final HttpServletRewrite event, final Configuration configuration)
+   {
+      if (!indexing)
+         return configuration.getRules();
+
+      /*
+       * Built once per configuration; concurrent requests wait for the build instead of each building their own.
+       */
+      RuleIndex index = this.index;
+      if (index == null || index.getConfiguration() != configuration)
+         synchronized (this)
+         {
+            index = this.index;
+            if (index == null || index.getConfiguration() != configuration)
+            {
+               index = matching ? ConfigurationMatcher.build(configuration) : RuleIndex.build(configuration);
+               this.index = index;
+            }
+         }
+
+      if (event.getInboundAddress().getPath() == null)
+         return index.getCandidates(null);
+
+      /*
+       * Must match the request path as it is evaluated by path conditions, which share this decode.
+       */
+      return index.getCandidates(AddressCache.getContextRelativePath(event));
+   }
+
+   private void rewriteOutbound(final HttpServletRewrite event, final EvaluationContextImpl context)
    {
       ServletContext servletContext = event.getServletContext();
       if (loader == null)
@@ -267,143 +525,127 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          synchronized (servletContext)
          {
             if (loader == null)
-               loader = ConfigurationLoader.create(servletContext);
+               loader = createLoader(servletContext);
          }
       }
 
       Configuration compiledConfiguration = loader.loadConfiguration(servletContext);
       List<Rule> rules = compiledConfiguration.getRules();
 
-      final EvaluationContextImpl context = new EvaluationContextImpl();
+      OutboundRewriteCache outboundCache = this.outboundCache;
+      String outboundKey = null;
+      if (outboundCache != null && event instanceof HttpOutboundServletRewrite
+               && outboundCache.isCacheable(compiledConfiguration))
+      {
+         HttpOutboundServletRewrite outbound = (HttpOutboundServletRewrite) event;
+         outboundKey = OutboundRewriteCache.key(event.getContextPath(), outbound.getOutboundAddress());
+         OutboundRewriteCache.Result result = outboundCache.get(compiledConfiguration, outboundKey);
+         if (result != null)
+         {
+            outbound.setOutboundAddress(result.getAddress());
+            outbound.setFlow(result.getFlow());
+            return;
+         }
+      }
 
-      Object cacheKey = null;
+      /*
+       * A cached rule list replaces the full rule list for this event; rules it contains are still evaluated.
+       */
+      context.put(Configuration.class, compiledConfiguration);
+      Object[] cacheKeys = new Object[ruleCacheProviders.size()];
+      boolean cached = false;
       for (int i = ruleCacheProviders.size() - 1; i >= 0; i--)
       {
          RuleCacheProvider provider = ruleCacheProviders.get(i);
 
-         cacheKey = provider.createKey(event, context);
-         final List<Rule> list = provider.get(cacheKey);
-         if (list != null && !list.isEmpty())
+         cacheKeys[i] = provider.createKey(event, context);
+         final List<Rule> list = provider.get(cacheKeys[i]);
+         if (list != null)
          {
             if (log.isDebugEnabled())
                log.debug("Using cached ruleset for event [" + event + "] from provider [" + provider + "].");
-            for (int j = list.size() - 1; j >= 0; j--)
-            {
-               Rule rule = list.get(j);
-               try {
-                  event.getEvaluatedRules().add(rule);
-
-                  context.clear();
-                  DefaultParameterValueStore values = new DefaultParameterValueStore();
-                  context.put(ParameterValueStore.class, values);
-                  context.setState(RewriteState.EVALUATING);
-
-                  if (rule.evaluate(event, context))
-                  {
-                     if (handleBindings(event, context, values))
-                     {
-                        context.setState(RewriteState.PERFORMING);
-                        if (log.isDebugEnabled())
-                           log.debug("Rule [" + rule + "] matched and will be performed.");
-
-                        List<Operation> preOperations = context.getPreOperations();
-                        for (int k = 0; k < preOperations.size(); k++)
-                        {
-                           preOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        rule.perform(event, context);
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        List<Operation> postOperations = context.getPostOperations();
-                        for (int k = 0; k < postOperations.size(); k++)
-                        {
-                           postOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-                     }
-                  }
-                  else
-                  {
-                     event.getEvaluatedRules().remove(rule);
-                     break;
-                  }
-               }
-               catch (Exception e) {
-                  throw new RewriteException("Error during [" + event + "] while executing rule [" + rule + "]", e);
-               }
-            }
+            rules = list;
+            cached = true;
+            break;
          }
       }
 
       /*
        * Highly optimized loop - for performance reasons. Think before you change this!
        */
-      List<Rule> cacheable = new ArrayList<Rule>();
+      List<Rule> evaluated = event.getEvaluatedRules();
+      List<Rule> cacheable = null;
+      RuleMetrics metrics = getMetrics(compiledConfiguration);
       for (int i = rules.size() - 1; i >= 0; i--)
       {
          Rule rule = rules.get(i);
          try {
-            event.getEvaluatedRules().add(rule);
+            evaluated.add(rule);
 
             context.clear();
-            DefaultParameterValueStore values = new DefaultParameterValueStore();
+            DefaultParameterValueStore values = context.resetParameterValueStore(rule);
             context.put(ParameterValueStore.class, values);
 
             context.setState(RewriteState.EVALUATING);
+            long started = metrics == null ? 0 : System.nanoTime();
             if (rule.evaluate(event, context))
             {
-               if (handleBindings(event, context, values))
+               boolean bound = handleBindings(event, context, values);
+               if (metrics != null)
+               {
+                  long now = System.nanoTime();
+                  metrics.evaluated(rule, now - started, bound);
+                  started = now;
+               }
+
+               if (bound)
                {
                   context.setState(RewriteState.PERFORMING);
                   if (log.isDebugEnabled())
                      log.debug("Rule [" + rule + "] matched and will be performed.");
-                  cacheable.add(rule);
-                  List<Operation> preOperations = context.getPreOperations();
-                  for (int k = 0; k < preOperations.size(); k++)
-                  {
-                     preOperations.get(k).perform(event, context);
-                  }
+                  if (cacheable == null)
+                     cacheable = new ArrayList<Rule>();
+                  cacheable.add(0, rule);
+                  try {
+                     List<Operation> preOperations = context.getPreOperations();
+                     for (int k = 0; k < preOperations.size(); k++)
+                     {
+                        preOperations.get(k).perform(event, context);
+                     }
 
-                  if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                  {
-                     break;
-                  }
+                     if (event.getFlow().is(ServletRewriteFlow.HANDLED))
+                     {
+                        break;
+                     }
 
-                  rule.perform(event, context);
+                     rule.perform(event, context);
 
-                  if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                  {
-                     break;
-                  }
+                     if (event.getFlow().is(ServletRewriteFlow.HANDLED))
+                     {
+                        break;
+                     }
 
-                  List<Operation> postOperations = context.getPostOperations();
-                  for (int k = 0; k < postOperations.size(); k++)
-                  {
-                     postOperations.get(k).perform(event, context);
-                  }
+                     List<Operation> postOperations = context.getPostOperations();
+                     for (int k = 0; k < postOperations.size(); k++)
+                     {
+                        postOperations.get(k).perform(event, context);
+                     }
 
-                  if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                  {
-                     break;
+                     if (event.getFlow().is(ServletRewriteFlow.HANDLED))
+                     {
+                        break;
+                     }
+                  }
+                  finally {
+                     if (metrics != null)
+                        metrics.performed(rule, System.nanoTime() - started);
                   }
                }
             }
             else {
-               event.getEvaluatedRules().remove(rule);
+               if (metrics != null)
+                  metrics.evaluated(rule, System.nanoTime() - started, false);
+               removeLast(evaluated, rule);
             }
          }
          catch (Exception e) {
@@ -411,13 +653,31 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          }
       }
 
-      if (!cacheable.isEmpty())
+      if (!cached)
       {
          for (int i = ruleCacheProviders.size() - 1; i >= 0; i--)
          {
-            ruleCacheProviders.get(i).put(cacheKey, cacheable);
+            ruleCacheProviders.get(i).put(cacheKeys[i],
+                     cacheable == null ? Collections.<Rule> emptyList() : cacheable);
          }
       }
+
+      if (outboundKey != null)
+      {
+         outboundCache.put(compiledConfiguration, outboundKey,
+                  ((HttpOutboundServletRewrite) event).getOutboundAddress(), event.getFlow());
+      }
+   }
+
+   /**
+    * Remove the given {@link Rule} from the given list of evaluated rules. Searches from the end, where the rule was
+    * most recently added.
+    */
+   private static void removeLast(final List<Rule> evaluated, final Rule rule)
+   {
+      int index = evaluated.lastIndexOf(rule);
+      if (index >= 0)
+         evaluated.remove(index);
    }
 
    private boolean handleBindings(final HttpServletRewrite event, final EvaluationContextImpl context,
@@ -426,6 +686,21 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
       boolean result = true;
       ParameterStore store = (ParameterStore) context.get(ParameterStore.class);
 
+      if (store instanceof DefaultParameterStore)
+      {
+         DefaultParameterStore slots = (DefaultParameterStore) store;
+         for (int i = 0; i < slots.size(); i++)
+         {
+            Parameter<?> parameter = slots.getParameter(i);
+            if (!ParameterUtils.enqueueSubmission(event, context, parameter, values.retrieve(parameter)))
+            {
+               result = false;
+               break;
+            }
+         }
+         return result;
+      }
+
       for (Entry<String, Parameter<?>> entry : store)
       {
          Parameter<?> parameter = entry.getValue();
@@ -442,7 +717,17 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
 
    @Override
    public void shutdown(ServletContext context)
-   {}
+   {
+      RuleMetrics metrics = this.metrics;
+      if (metrics != null)
+      {
+         this.metrics = null;
+         for (RuleMetricsExporter exporter : exporters)
+         {
+            exporter.stop(metrics);
+         }
+      }
+   }
 
    @Override
    public int priority()
@@ -15,11 +15,18 @@
  */
 package org.ocpsoft.rewrite.servlet.impl;
 
+import java.util.Collections;
+import java.util.List;
+
 import javax.servlet.ServletRequest;
 
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.rewrite.event.Rewrite;
 import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.spi.AsyncRequestProvider;
 import org.ocpsoft.rewrite.servlet.spi.RewriteLifecycleListener;
 
 /**
@@ -28,6 +35,9 @@ import org.ocpsoft.rewrite.servlet.spi.RewriteLifecycleListener;
 public class DefaultRewriteLifecycleListener implements RewriteLifecycleListener<HttpServletRewrite>
 {
    private static final String REQUEST_NESTING_KEY = DefaultRewriteLifecycleListener.class + "_request_nesting";
+   private static final String COMPLETION_DEFERRED_KEY = DefaultRewriteLifecycleListener.class + "_completion_deferred";
+
+   private volatile List<AsyncRequestProvider> asyncProviders;
 
    @Override
    public boolean handles(Rewrite payload)
@@ -53,9 +63,46 @@ public class DefaultRewriteLifecycleListener implements RewriteLifecycleListener
       decrementRequestNesting(event);
       if (getRequestNesting(event.getRequest()) == 0)
       {
-         RewriteWrappedResponse.getCurrentInstance(event.getRequest()).flushBufferedContent();
-         RewriteWrappedResponse.getCurrentInstance(event.getRequest()).finishStreamWrappers();
+         ServletRequest request = event.getRequest();
+
+         /*
+          * Already waiting for an asynchronous request to complete after an earlier pass through the filter.
+          */
+         if (request.getAttribute(COMPLETION_DEFERRED_KEY) != null)
+            return;
+
+         final RewriteWrappedResponse response = RewriteWrappedResponse.getCurrentInstance(request);
+         Runnable finish = new Runnable() {
+            @Override
+            public void run()
+            {
+               response.flushBufferedContent();
+               response.finishStreamWrappers();
+            }
+         };
+
+         for (AsyncRequestProvider provider : getAsyncProviders())
+         {
+            if (provider.runOnCompletion(request, event.getServletContext(), finish))
+            {
+               request.setAttribute(COMPLETION_DEFERRED_KEY, Boolean.TRUE);
+               return;
+            }
+         }
+         finish.run();
+      }
+   }
+
+   private List<AsyncRequestProvider> getAsyncProviders()
+   {
+      List<AsyncRequestProvider> result = asyncProviders;
+      if (result == null)
+      {
+         result = Iterators.asList(ServiceLoader.loadTypesafe(AsyncRequestProvider.class).iterator());
+         Collections.sort(result, new WeightedComparator());
+         asyncProviders = result;
       }
+      return result;
    }
 
    private void decrementRequestNesting(HttpServletRewrite event)
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
+import org.ocpsoft.rewrite.config.Condition;
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.Direction;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.config.RuleMetadata;
+import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.InboundRewrite;
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.metrics.CacheStatistics;
+import org.ocpsoft.rewrite.metrics.RuleMetrics;
+import org.ocpsoft.rewrite.servlet.DispatcherType;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.spi.DispatcherTypeProvider;
+import org.ocpsoft.rewrite.servlet.util.AddressCache;
+import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+import org.ocpsoft.rewrite.util.ClockCache;
+
+/**
+ * Default implementation of {@link RuleCacheProvider}, remembering which {@link Rule} instances were performed for a
+ * given request path, and evaluating only those instances for subsequent requests with the same path. Paths for which
+ * no {@link Rule} matched are cached as well, and skip evaluation entirely. Cached entries are held in a bounded
+ * {@link ClockCache}, and are discarded whenever the {@link Configuration} is rebuilt. Hits, misses and evictions are
+ * reported by {@link RuleMetrics}, if enabled.
+ * <p>
+ * Keys consist of the direction of the {@link Rewrite}, its {@link DispatcherType}, the context path, and the
+ * context-relative path of the event's address, as it is matched by path conditions (decoded for inbound events). The
+ * query string is not part of the key. The request method and host may optionally be included in the key.
+ * <p>
+ * A cached list omits every {@link Rule} that did not match when the entry was created, so a {@link Configuration} is
+ * only cached if every {@link Rule} in it is declared with {@link RuleMetadata#RULE_CACHEABLE}. For outbound events,
+ * {@link Rule} instances that require an inbound event (see {@link Direction#requiresInbound(Condition)}) need not be
+ * declared. Otherwise, all {@link Rule} instances are evaluated as if no cache were configured.
+ * <p>
+ * This cache is disabled by default. To enable it, add the following servlet context init parameter to
+ * <code>web.xml</code>, specifying the maximum number of cached entries:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.RULE_CACHE_SIZE&lt;/param-name&gt;
+ *   &lt;param-value&gt;10000&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * <p>
+ * To include the request method or host in the cache key, set <code>org.ocpsoft.rewrite.config.RULE_CACHE_KEY_METHOD
+ * </code> or <code>org.ocpsoft.rewrite.config.RULE_CACHE_KEY_HOST</code> to <code>true</code>.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class DefaultRuleCacheProvider implements RuleCacheProvider, CacheStatistics
+{
+   private static final String CACHE_SIZE = "org.ocpsoft.rewrite.config.RULE_CACHE_SIZE";
+   private static final String CACHE_KEY_METHOD = "org.ocpsoft.rewrite.config.RULE_CACHE_KEY_METHOD";
+   private static final String CACHE_KEY_HOST = "org.ocpsoft.rewrite.config.RULE_CACHE_KEY_HOST";
+
+   private volatile boolean initialized;
+   private volatile ClockCache<Key, List<Rule>> cache;
+   private volatile Configuration configuration;
+   private volatile boolean inboundCacheable;
+   private volatile boolean outboundCacheable;
+   private boolean keyMethod;
+   private boolean keyHost;
+   private List<DispatcherTypeProvider> dispatcherProviders;
+
+   @Override
+   public List<Rule> get(final Object key)
+   {
+      ClockCache<Key, List<Rule>> cache = this.cache;
+      if (key instanceof Key && cache != null)
+         return cache.get((Key) key);
+      return null;
+   }
+
+   @Override
+   public void put(final Object key, final List<Rule> rules)
+   {
+      ClockCache<Key, List<Rule>> cache = this.cache;
+      if (key instanceof Key && cache != null && ((Key) key).configuration == this.configuration)
+         cache.put((Key) key, Collections.unmodifiableList(new ArrayList<Rule>(rules)));
+   }
+
+   @Override
+   public Object createKey(final Rewrite event, final EvaluationContext context)
+   {
+      if (!(event instanceof HttpServletRewrite))
+         return null;
+
+      HttpServletRewrite rewrite = (HttpServletRewrite) event;
+      if (!initialized)
+         initialize(rewrite.getServletContext());
+
+      ClockCache<Key, List<Rule>> cache = this.cache;
+      if (cache == null)
+         return null;
+
+      Configuration configuration = (Configuration) context.get(Configuration.class);
+      if (configuration == null)
+         return null;
+
+      if (configuration != this.configuration)
+      {
+         synchronized (this) {
+            if (configuration != this.configuration)
+            {
+               cache.clear();
+               inboundCacheable = isCacheable(configuration.getRules(), false);
+               outboundCacheable = isCacheable(configuration.getRules(), true);
+               this.configuration = configuration;
+            }
+         }
+      }
+
+      boolean inbound = event instanceof InboundRewrite;
+      if (!(inbound ? inboundCacheable : outboundCacheable))
+         return null;
+
+      String path = getPath(rewrite, inbound);
+      if (path == null)
+         return null;
+
+      return new Key(configuration,
+               inbound,
+               getDispatcherType(rewrite),
+               rewrite.getContextPath(),
+               path,
+               keyMethod ? rewrite.getRequest().getMethod() : null,
+               keyHost ? rewrite.getRequest().getServerName() : null);
+   }
+
+   /**
+    * Return <code>true</code> if every given {@link Rule} is declared with {@link RuleMetadata#RULE_CACHEABLE}, or, for
+    * outbound events, requires an inbound event.
+    */
+   private static boolean isCacheable(final List<Rule> rules, final boolean outbound)
+   {
+      for (Rule rule : rules) {
+         if (rule instanceof Context && Boolean.TRUE.equals(((Context) rule).get(RuleMetadata.RULE_CACHEABLE)))
+            continue;
+         if (outbound && rule instanceof Condition && Direction.requiresInbound((Condition) rule))
+            continue;
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Return the context-relative path of the given event as it is matched by path conditions, or <code>null</code> if
+    * its address has no path.
+    */
+   private static String getPath(final HttpServletRewrite rewrite, final boolean inbound)
+   {
+      if (inbound)
+         return AddressCache.getContextRelativePath(rewrite);
+
+      if (!(rewrite instanceof HttpOutboundServletRewrite))
+         return null;
+
+      String path = ((HttpOutboundServletRewrite) rewrite).getOutboundAddress().getPath();
+      if (path == null)
+         return null;
+
+      return AddressCache.stripContextPath(path, rewrite.getContextPath());
+   }
+
+   /**
+    * Get the number of cache lookups that returned a cached {@link Rule} list.
+    */
+   @Override
+   public long getHitCount()
+   {
+      ClockCache<Key, List<Rule>> cache = this.cache;
+      return cache == null ? 0 : cache.getHitCount();
+   }
+
+   /**
+    * Get the number of cache lookups that did not return a cached {@link Rule} list.
+    */
+   @Override
+   public long getMissCount()
+   {
+      ClockCache<Key, List<Rule>> cache = this.cache;
+      return cache == null ? 0 : cache.getMissCount();
+   }
+
+   /**
+    * Get the number of cached {@link Rule} lists that were evicted to make room for new entries.
+    */
+   @Override
+   public long getEvictionCount()
+   {
+      ClockCache<Key, List<Rule>> cache = this.cache;
+      return cache == null ? 0 : cache.getEvictionCount();
+   }
+
+   @SuppressWarnings("unchecked")
+   private synchronized void initialize(final ServletContext context)
+   {
+      if (initialized)
+         return;
+
+      String size = context.getInitParameter(CACHE_SIZE);
+      int capacity = 0;
+      if (size != null)
+      {
+         try {
+            capacity = Integer.parseInt(size.trim());
+         }
+         catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Init parameter [" + CACHE_SIZE + "] must be an integer, but was ["
+                     + size + "]", e);
+         }
+      }
+
+      keyMethod = isEnabled(context, CACHE_KEY_METHOD);
+      keyHost = isEnabled(context, CACHE_KEY_HOST);
+      dispatcherProviders = Iterators.asList(ServiceLoader.loadTypesafe(DispatcherTypeProvider.class).iterator());
+      Collections.sort(dispatcherProviders, new WeightedComparator());
+
+      if (capacity > 0)
+         cache = new ClockCache<Key, List<Rule>>(capacity);
+      initialized = true;
+   }
+
+   private static boolean isEnabled(final ServletContext context, final String name)
+   {
+      String value = context.getInitParameter(name);
+      return value != null && "true".equalsIgnoreCase(value.trim());
+   }
+
+   private DispatcherType getDispatcherType(final HttpServletRewrite event)
+   {
+      for (DispatcherTypeProvider provider : dispatcherProviders) {
+         DispatcherType dispatcherType = provider.getDispatcherType(event.getRequest(), event.getServletContext());
+         if (dispatcherType != null) {
+            return dispatcherType;
+         }
+      }
+      return null;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "DefaultRuleCacheProvider [cache=" + cache + "]";
+   }
+
+   private static class Key
+   {
+      private final Configuration configuration;
+      private final boolean inbound;
+      private final DispatcherType dispatcherType;
+      private final String contextPath;
+      private final String path;
+      private final String method;
+      private final String host;
+      private final int hashCode;
+
+      public Key(Configuration configuration, boolean inbound, DispatcherType dispatcherType, String contextPath,
+               String path, String method, String host)
+      {
+         this.configuration = configuration;
+         this.inbound = inbound;
+         this.dispatcherType = dispatcherType;
+         this.contextPath = contextPath;
+         this.path = path;
+         this.method = method;
+         this.host = host;
+
+         int result = System.identityHashCode(configuration);
+         result = 31 * result + (inbound ? 1231 : 1237);
+         result = 31 * result + (dispatcherType == null ? 0 : dispatcherType.hashCode());
+         result = 31 * result + (contextPath == null ? 0 : contextPath.hashCode());
+         result = 31 * result + (path == null ? 0 : path.hashCode());
+         result = 31 * result + (method == null ? 0 : method.hashCode());
+         result = 31 * result + (host == null ? 0 : host.hashCode());
+         this.hashCode = result;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hashCode;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof Key))
+            return false;
+         Key other = (Key) obj;
+         return configuration == other.configuration
+                  && inbound == other.inbound
+                  && dispatcherType == other.dispatcherType
+                  && equals(contextPath, other.contextPath)
+                  && equals(path, other.path)
+                  && equals(method, other.method)
+                  && equals(host, other.host);
+      }
+
+      private static boolean equals(String left, String right)
+      {
+         return left == null ? right == null : left.equals(right);
+      }
+   }
+}
@@ -20,11 +20,14 @@ import java.util.Collections;
 import java.util.List;
 
 import org.ocpsoft.rewrite.config.Operation;
+import org.ocpsoft.rewrite.config.Rule;
 import org.ocpsoft.rewrite.context.ContextBase;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.context.RewriteState;
 import org.ocpsoft.rewrite.param.DefaultParameterStore;
+import org.ocpsoft.rewrite.param.DefaultParameterValueStore;
 import org.ocpsoft.rewrite.param.ParameterStore;
+import org.ocpsoft.rewrite.param.ParameterizedRule;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
@@ -34,6 +37,9 @@ public class EvaluationContextImpl extends ContextBase implements EvaluationCont
 {
    private final List<Operation> preOperations = new ArrayList<Operation>();
    private final List<Operation> postOperations = new ArrayList<Operation>();
+   private final List<Operation> preOperationsView = Collections.unmodifiableList(preOperations);
+   private final List<Operation> postOperationsView = Collections.unmodifiableList(postOperations);
+   private final DefaultParameterValueStore values = new DefaultParameterValueStore();
    private RewriteState state;
 
    public EvaluationContextImpl()
@@ -58,7 +64,7 @@ public class EvaluationContextImpl extends ContextBase implements EvaluationCont
     */
    public List<Operation> getPreOperations()
    {
-      return Collections.unmodifiableList(preOperations);
+      return preOperationsView;
    }
 
    /**
@@ -66,7 +72,7 @@ public class EvaluationContextImpl extends ContextBase implements EvaluationCont
     */
    public List<Operation> getPostOperations()
    {
-      return Collections.unmodifiableList(postOperations);
+      return postOperationsView;
    }
 
    @Override
@@ -81,12 +87,23 @@ public class EvaluationContextImpl extends ContextBase implements EvaluationCont
    @Override
    public void clear()
    {
-      this.postOperations.clear();
+      this.preOperations.clear();
       this.postOperations.clear();
       state = null;
       super.clear();
    }
 
+   /**
+    * Clear and return the {@link DefaultParameterValueStore} owned by this context, prepared for the parameters of the
+    * given {@link Rule}. The returned instance is reused for each evaluated {@link Rule}, and must be stored in this
+    * context by the caller.
+    */
+   DefaultParameterValueStore resetParameterValueStore(Rule rule)
+   {
+      values.clear(rule instanceof ParameterizedRule ? ((ParameterizedRule) rule).getParameterStore() : null);
+      return values;
+   }
+
    @Override
    public RewriteState getState()
    {
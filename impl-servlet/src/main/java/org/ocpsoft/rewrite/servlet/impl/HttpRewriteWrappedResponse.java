@@ -15,13 +15,11 @@
  */
 package org.ocpsoft.rewrite.servlet.impl;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,16 +31,16 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.ocpsoft.common.util.Streams;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.logging.Logger.Level;
 import org.ocpsoft.rewrite.AbstractRewrite;
 import org.ocpsoft.rewrite.event.Rewrite;
 import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.servlet.RewriteFilter;
 import org.ocpsoft.rewrite.servlet.RewriteLifecycleContext;
 import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
-import org.ocpsoft.rewrite.servlet.config.response.ResponseContent;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptor;
+import org.ocpsoft.rewrite.servlet.config.response.EncodingResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.event.BaseRewrite.ServletRewriteFlow;
 import org.ocpsoft.rewrite.servlet.event.OutboundServletRewrite;
@@ -54,10 +52,30 @@ import org.ocpsoft.urlbuilder.Address;
 import org.ocpsoft.urlbuilder.AddressBuilder;
 
 /**
+ * The {@link RewriteWrappedResponse} of HTTP requests processed by the {@link RewriteFilter}.
+ * <p>
+ * Content intercepted by a {@link ResponseContentInterceptor} is buffered in pooled segments (see
+ * {@link SegmentedResponseBuffer}). Responses larger than 4MB are moved to a temporary file in the servlet context
+ * temporary directory. To change this limit, set the following servlet context init parameter to a number of bytes,
+ * or to <code>-1</code> to always buffer in memory:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.RESPONSE_BUFFER_MEMORY_LIMIT&lt;/param-name&gt;
+ *   &lt;param-value&gt;4194304&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
 {
+   private static final String BUFFER_MEMORY_LIMIT = "org.ocpsoft.rewrite.config.RESPONSE_BUFFER_MEMORY_LIMIT";
+   private static final long DEFAULT_BUFFER_MEMORY_LIMIT = 4 * 1024 * 1024;
+   private static final String BUFFER_MEMORY_LIMIT_KEY = HttpRewriteWrappedResponse.class.getName()
+            + "_BUFFER_MEMORY_LIMIT";
+   private static final String TEMP_DIR = "javax.servlet.context.tempdir";
+
    private final HttpServletRequest request;
 
    private final ServletContext servletContext;
@@ -79,10 +97,11 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    /*
     * Buffering Facilities
     */
-   private final ByteArrayOutputStream bufferedResponseContent = new ByteArrayOutputStream();
+   private SegmentedResponseBuffer bufferedResponseContent;
 
    private List<ResponseContentInterceptor> responseContentInterceptors = new ArrayList<ResponseContentInterceptor>();
    private List<ResponseStreamWrapper> responseStreamWrappers = new ArrayList<ResponseStreamWrapper>();
+   private int encodingStreamWrappers = 0;
 
    private boolean contentWritten = false;
 
@@ -121,7 +140,21 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
          throw new IllegalStateException(
                   "Cannot add output stream wrappers to response once request processing has been passed to the application.");
       }
-      this.responseStreamWrappers.add(wrapper);
+
+      /*
+       * The first wrapper wraps the response stream itself, so encoding wrappers go first; every other wrapper then
+       * writes unencoded output into them.
+       */
+      if (wrapper instanceof EncodingResponseStreamWrapper)
+         this.responseStreamWrappers.add(encodingStreamWrappers++, wrapper);
+      else
+         this.responseStreamWrappers.add(wrapper);
+   }
+
+   @Override
+   public boolean isResponseContentWritten()
+   {
+      return areStreamsLocked() || super.isResponseContentWritten();
    }
 
    private boolean areStreamsLocked()
@@ -134,6 +167,42 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
       this.contentWritten = true;
    }
 
+   private SegmentedResponseBuffer getBufferedResponseContent()
+   {
+      if (bufferedResponseContent == null)
+      {
+         Object directory = servletContext.getAttribute(TEMP_DIR);
+         bufferedResponseContent = new SegmentedResponseBuffer(getBufferMemoryLimit(),
+                  directory instanceof File ? (File) directory : null);
+      }
+      return bufferedResponseContent;
+   }
+
+   /*
+    * The parsed init parameter is kept in a servlet context attribute, so that it is read once per context.
+    */
+   private long getBufferMemoryLimit()
+   {
+      Object cached = servletContext.getAttribute(BUFFER_MEMORY_LIMIT_KEY);
+      if (cached instanceof Long)
+         return (Long) cached;
+
+      long result = DEFAULT_BUFFER_MEMORY_LIMIT;
+      String value = servletContext.getInitParameter(BUFFER_MEMORY_LIMIT);
+      if (value != null)
+      {
+         try {
+            result = Long.parseLong(value.trim());
+         }
+         catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Init parameter [" + BUFFER_MEMORY_LIMIT
+                     + "] must be a number of bytes, but was [" + value + "]", e);
+         }
+      }
+      servletContext.setAttribute(BUFFER_MEMORY_LIMIT_KEY, result);
+      return result;
+   }
+
    /**
     * Cause any buffered {@link ServletResponse} content to be processed and flushed to the client.
     */
@@ -142,11 +211,13 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    {
       if (isResponseContentIntercepted())
       {
+         SegmentedResponseBuffer content = getBufferedResponseContent();
          try {
-            bufferedResponseContent.close();
+            if (printWriter != null)
+               printWriter.flush();
+            content.flush();
 
-            ResponseContent buffer = new ResponseContentImpl(bufferedResponseContent.toByteArray(),
-                     Charset.forName(getCharacterEncoding()));
+            ResponseContentImpl buffer = new ResponseContentImpl(content, Charset.forName(getCharacterEncoding()));
             new ResponseContentInterceptorChainImpl(responseContentInterceptors).begin(new HttpBufferRewriteImpl(
                      request, this, servletContext), buffer);
 
@@ -157,7 +228,7 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
                      .getOutputStream();
 
             if (outputStream != null)
-               Streams.copy(new ByteArrayInputStream(buffer.getContents()), outputStream);
+               buffer.writeTo(outputStream);
 
             if (printWriter != null) {
                printWriter.close();
@@ -167,6 +238,9 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
             throw new RewriteException("Error occurred when flushing response content buffered by "
                      + responseContentInterceptors, e);
          }
+         finally {
+            content.release();
+         }
       }
    }
 
@@ -175,9 +249,16 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    {
       if (isResponseStreamWrapped())
       {
+         if (printWriter != null && !isResponseContentIntercepted())
+            printWriter.flush();
+
+         /*
+          * Each wrapper wraps the stream of the previous one, so finish from the outermost wrapper inwards; otherwise
+          * output still pending in outer wrappers would be written into already finished streams.
+          */
          HttpServletRewrite event = new HttpBufferRewriteImpl(request, this, servletContext);
-         for (ResponseStreamWrapper wrapper : responseStreamWrappers) {
-            wrapper.finish(event);
+         for (int i = responseStreamWrappers.size() - 1; i >= 0; i--) {
+            responseStreamWrappers.get(i).finish(event);
          }
       }
    }
@@ -188,10 +269,10 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
       if (isResponseContentIntercepted())
       {
          try {
-            return bufferedResponseContent.toString(getCharacterEncoding());
+            return getBufferedResponseContent().toString(Charset.forName(getCharacterEncoding()));
          }
-         catch (UnsupportedEncodingException e) {
-            throw new RewriteException("Response accepted invalid character encoding " + getCharacterEncoding(), e);
+         catch (IOException e) {
+            throw new RewriteException("Could not read buffered response content", e);
          }
       }
       else
@@ -205,7 +286,7 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
       {
          if (isResponseContentIntercepted())
          {
-            printWriter = new PrintWriter(new OutputStreamWriter(bufferedResponseContent,
+            printWriter = new PrintWriter(new OutputStreamWriter(getBufferedResponseContent(),
                      Charset.forName(getCharacterEncoding())), true);
          }
          else if (isResponseStreamWrapped())
@@ -236,7 +317,7 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
       {
          if (isResponseContentIntercepted())
          {
-            outputStream = new RewriteServletOutputStream(bufferedResponseContent);
+            outputStream = new RewriteServletOutputStream(getBufferedResponseContent());
          }
          else
          {
@@ -300,7 +381,10 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    public void flushBuffer() throws IOException
    {
       if (isResponseContentIntercepted())
-         bufferedResponseContent.flush();
+      {
+         if (bufferedResponseContent != null)
+            bufferedResponseContent.flush();
+      }
       else
       {
          lockStreams();
@@ -498,14 +582,16 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    @Override
    public void reset()
    {
-      bufferedResponseContent.reset();
+      if (bufferedResponseContent != null)
+         bufferedResponseContent.release();
       super.reset();
    }
 
    @Override
    public void resetBuffer()
    {
-      bufferedResponseContent.reset();
+      if (bufferedResponseContent != null)
+         bufferedResponseContent.release();
       super.resetBuffer();
    }
 
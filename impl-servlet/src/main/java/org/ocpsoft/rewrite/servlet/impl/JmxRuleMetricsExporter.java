@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.metrics.RuleMetrics;
+import org.ocpsoft.rewrite.metrics.RuleStatistics;
+import org.ocpsoft.rewrite.spi.RuleMetricsExporter;
+
+/**
+ * Registers a {@link RuleMetricsMXBean} for each started {@link RuleMetrics} with the platform {@link MBeanServer},
+ * named <code>org.ocpsoft.rewrite:type=RuleMetrics,name="&lt;name&gt;"</code>.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class JmxRuleMetricsExporter implements RuleMetricsExporter
+{
+   private static final Logger log = Logger.getLogger(JmxRuleMetricsExporter.class);
+
+   @Override
+   public void start(final RuleMetrics metrics)
+   {
+      try {
+         ManagementFactory.getPlatformMBeanServer().registerMBean(new RuleMetricsBean(metrics), getName(metrics));
+      }
+      catch (InstanceAlreadyExistsException e) {
+         log.warn("Rule metrics [" + metrics.getName() + "] are already registered - not exporting to JMX.");
+      }
+      catch (JMException e) {
+         log.warn("Could not export rule metrics [" + metrics.getName() + "] to JMX.", e);
+      }
+   }
+
+   @Override
+   public void stop(final RuleMetrics metrics)
+   {
+      try {
+         MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+         ObjectName name = getName(metrics);
+         if (server.isRegistered(name))
+            server.unregisterMBean(name);
+      }
+      catch (JMException e) {
+         log.warn("Could not unregister rule metrics [" + metrics.getName() + "] from JMX.", e);
+      }
+   }
+
+   private static ObjectName getName(final RuleMetrics metrics) throws JMException
+   {
+      return new ObjectName("org.ocpsoft.rewrite:type=RuleMetrics,name=" + ObjectName.quote(metrics.getName()));
+   }
+
+   @Override
+   public int priority()
+   {
+      return 0;
+   }
+
+   private static class RuleMetricsBean implements RuleMetricsMXBean
+   {
+      private final RuleMetrics metrics;
+
+      public RuleMetricsBean(final RuleMetrics metrics)
+      {
+         this.metrics = metrics;
+      }
+
+      @Override
+      public String getName()
+      {
+         return metrics.getName();
+      }
+
+      @Override
+      public List<Rule> getRules()
+      {
+         List<Rule> result = new ArrayList<Rule>();
+         for (RuleStatistics statistics : metrics.getStatistics())
+         {
+            result.add(new Rule(statistics));
+         }
+         return result;
+      }
+
+      @Override
+      public long getConfigurationVersion()
+      {
+         return metrics.getConfigurationVersion();
+      }
+
+      @Override
+      public long getLastBuildDuration()
+      {
+         return metrics.getLastBuildDuration();
+      }
+
+      @Override
+      public boolean isRebuilding()
+      {
+         return metrics.isRebuilding();
+      }
+
+      @Override
+      public long getRuleCacheHits()
+      {
+         return metrics.getRuleCacheHits();
+      }
+
+      @Override
+      public long getRuleCacheMisses()
+      {
+         return metrics.getRuleCacheMisses();
+      }
+
+      @Override
+      public long getRuleCacheEvictions()
+      {
+         return metrics.getRuleCacheEvictions();
+      }
+
+      @Override
+      public void reset()
+      {
+         metrics.reset();
+      }
+   }
+}
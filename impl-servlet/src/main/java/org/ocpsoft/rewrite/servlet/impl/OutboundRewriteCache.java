@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.util.List;
+
+import org.ocpsoft.rewrite.config.CompiledConfiguration;
+import org.ocpsoft.rewrite.config.Condition;
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.Direction;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.config.RuleMetadata;
+import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.event.Flow;
+import org.ocpsoft.rewrite.util.ClockCache;
+import org.ocpsoft.urlbuilder.Address;
+
+/**
+ * Bounded cache of outbound rewriting results, keyed by context path and outbound address, so that an application
+ * rendering the same links over and over does not evaluate every {@link Rule} for each of them. Results are held in a
+ * {@link ClockCache}, so lookups from concurrent requests do not block each other.
+ * <p>
+ * Results are only cached for a {@link Configuration} in which every {@link Rule} either requires an inbound event
+ * (see {@link Direction#requiresInbound(Condition)}), or was declared with {@link RuleMetadata#OUTBOUND_CACHEABLE}.
+ * A single {@link Rule} that may read request state disables the cache for that {@link Configuration}. All results
+ * are discarded when a new {@link Configuration} (see {@link CompiledConfiguration#getVersion()}) is loaded.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class OutboundRewriteCache
+{
+   private final ClockCache<String, Result> results;
+
+   private volatile Configuration configuration;
+   private volatile boolean cacheable;
+
+   public OutboundRewriteCache(final int size)
+   {
+      this.results = new ClockCache<String, Result>(size);
+   }
+
+   /**
+    * Return <code>true</code> if results of outbound rewriting with the given {@link Configuration} may be cached.
+    * Discards all results of previous {@link Configuration} instances.
+    */
+   public boolean isCacheable(final Configuration configuration)
+   {
+      if (this.configuration != configuration)
+      {
+         synchronized (this) {
+            if (this.configuration != configuration)
+            {
+               results.clear();
+               cacheable = isCacheable(configuration.getRules());
+               this.configuration = configuration;
+            }
+         }
+      }
+      return cacheable;
+   }
+
+   private static boolean isCacheable(final List<Rule> rules)
+   {
+      for (Rule rule : rules) {
+         if (rule instanceof Context && Boolean.TRUE.equals(((Context) rule).get(RuleMetadata.OUTBOUND_CACHEABLE)))
+            continue;
+         if (rule instanceof Condition && Direction.requiresInbound((Condition) rule))
+            continue;
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Create the key of the given outbound address.
+    */
+   public static String key(final String contextPath, final Address address)
+   {
+      return contextPath + " " + address.toString();
+   }
+
+   /**
+    * Return the cached result for the given key, or <code>null</code> if there is none for the given
+    * {@link Configuration}.
+    */
+   public Result get(final Configuration configuration, final String key)
+   {
+      Result result = results.get(key);
+      return result != null && result.configuration == configuration ? result : null;
+   }
+
+   /**
+    * Cache the result of rewriting with the given {@link Configuration}.
+    */
+   public void put(final Configuration configuration, final String key, final Address address, final Flow flow)
+   {
+      if (this.configuration == configuration)
+         results.put(key, new Result(configuration, address, flow));
+   }
+
+   @Override
+   public String toString()
+   {
+      return "OutboundRewriteCache [results=" + results + ", cacheable=" + cacheable + "]";
+   }
+
+   /**
+    * The outbound address and {@link Flow} resulting from outbound rewriting.
+    */
+   public static class Result
+   {
+      private final Configuration configuration;
+      private final Address address;
+      private final Flow flow;
+
+      public Result(final Configuration configuration, final Address address, final Flow flow)
+      {
+         this.configuration = configuration;
+         this.address = address;
+         this.flow = flow;
+      }
+
+      public Address getAddress()
+      {
+         return address;
+      }
+
+      public Flow getFlow()
+      {
+         return flow;
+      }
+   }
+}
@@ -15,16 +15,22 @@
  */
 package org.ocpsoft.rewrite.servlet.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 
-import org.ocpsoft.rewrite.servlet.config.response.ResponseContent;
+import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.servlet.config.response.StreamableResponseContent;
 
 /**
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class ResponseContentImpl implements ResponseContent
+public class ResponseContentImpl implements StreamableResponseContent
 {
 
+   private SegmentedResponseBuffer buffer;
    private byte[] contents;
    private Charset charset;
 
@@ -34,9 +40,28 @@ public class ResponseContentImpl implements ResponseContent
       this.charset = charset;
    }
 
+   /**
+    * Create a view of the given buffer. The buffer is only copied if {@link #getContents()} is called.
+    */
+   ResponseContentImpl(SegmentedResponseBuffer buffer, Charset charset)
+   {
+      this.buffer = buffer;
+      this.charset = charset;
+   }
+
    @Override
    public byte[] getContents()
    {
+      if (contents == null)
+      {
+         try {
+            contents = buffer.toByteArray();
+            buffer = null;
+         }
+         catch (IOException e) {
+            throw new RewriteException("Could not read buffered response content", e);
+         }
+      }
       return contents;
    }
 
@@ -44,6 +69,32 @@ public class ResponseContentImpl implements ResponseContent
    public void setContents(byte[] contents)
    {
       this.contents = contents;
+      this.buffer = null;
+   }
+
+   @Override
+   public InputStream getInputStream()
+   {
+      if (contents != null)
+         return new ByteArrayInputStream(contents);
+
+      try {
+         return buffer.getInputStream();
+      }
+      catch (IOException e) {
+         throw new RewriteException("Could not read buffered response content", e);
+      }
+   }
+
+   /**
+    * Write the contents of this buffer to the given {@link OutputStream}, without copying them.
+    */
+   void writeTo(OutputStream output) throws IOException
+   {
+      if (contents != null)
+         output.write(contents);
+      else
+         buffer.writeTo(output);
    }
 
    @Override
@@ -61,7 +112,7 @@ public class ResponseContentImpl implements ResponseContent
    @Override
    public String toString()
    {
-      return "ResponseBufferImpl [contents=" + new String(contents, charset) + ", charset=" + charset + "]";
+      return "ResponseBufferImpl [contents=" + new String(getContents(), charset) + ", charset=" + charset + "]";
    }
 
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.util.List;
+
+import org.ocpsoft.rewrite.metrics.LatencyHistogram;
+import org.ocpsoft.rewrite.metrics.RuleMetrics;
+import org.ocpsoft.rewrite.metrics.RuleStatistics;
+
+/**
+ * Management interface of {@link RuleMetrics}, registered by {@link JmxRuleMetricsExporter}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface RuleMetricsMXBean
+{
+   /**
+    * Return the name of the measured application.
+    */
+   String getName();
+
+   /**
+    * Return the statistics of all measured rules, ordered by their position in the configuration.
+    */
+   List<Rule> getRules();
+
+   /**
+    * Return the version of the most recently built configuration.
+    */
+   long getConfigurationVersion();
+
+   /**
+    * Return the time taken to build the most recent configuration, in milliseconds.
+    */
+   long getLastBuildDuration();
+
+   /**
+    * Return <code>true</code> if a replacement for an expired configuration is currently being built.
+    */
+   boolean isRebuilding();
+
+   /**
+    * Return the number of events for which a cached rule list was found.
+    */
+   long getRuleCacheHits();
+
+   /**
+    * Return the number of events for which no cached rule list was found.
+    */
+   long getRuleCacheMisses();
+
+   /**
+    * Return the number of cached rule lists evicted to make room for new entries.
+    */
+   long getRuleCacheEvictions();
+
+   /**
+    * Discard all recorded values.
+    */
+   void reset();
+
+   /**
+    * A point-in-time view of {@link RuleStatistics}. All latencies are in nanoseconds.
+    */
+   public static class Rule
+   {
+      private final RuleStatistics statistics;
+
+      public Rule(final RuleStatistics statistics)
+      {
+         this.statistics = statistics;
+      }
+
+      public String getName()
+      {
+         return statistics.getName();
+      }
+
+      public int getPosition()
+      {
+         return statistics.getPosition();
+      }
+
+      public long getEvaluations()
+      {
+         return statistics.getEvaluations();
+      }
+
+      public long getMatches()
+      {
+         return statistics.getMatches();
+      }
+
+      public double getMatchRatio()
+      {
+         return statistics.getMatchRatio();
+      }
+
+      public long getPerforms()
+      {
+         return statistics.getPerforms();
+      }
+
+      public double getEvaluationMean()
+      {
+         return statistics.getEvaluationLatency().getMean();
+      }
+
+      public long getEvaluation50thPercentile()
+      {
+         return statistics.getEvaluationLatency().getValueAtPercentile(50);
+      }
+
+      public long getEvaluation99thPercentile()
+      {
+         return statistics.getEvaluationLatency().getValueAtPercentile(99);
+      }
+
+      public long getEvaluationMax()
+      {
+         return statistics.getEvaluationLatency().getMax();
+      }
+
+      public double getPerformMean()
+      {
+         LatencyHistogram latency = statistics.getPerformLatency();
+         return latency == null ? 0 : latency.getMean();
+      }
+
+      public long getPerform99thPercentile()
+      {
+         LatencyHistogram latency = statistics.getPerformLatency();
+         return latency == null ? 0 : latency.getValueAtPercentile(99);
+      }
+
+      public long getPerformMax()
+      {
+         LatencyHistogram latency = statistics.getPerformLatency();
+         return latency == null ? 0 : latency.getMax();
+      }
+   }
+}
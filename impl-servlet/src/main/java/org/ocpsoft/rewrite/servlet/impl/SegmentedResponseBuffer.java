@@ -0,0 +1,310 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Buffers response content in a list of fixed-size segments, borrowed from a pool shared by all responses, instead of
+ * one growing array. Once the content exceeds a memory limit, it is moved to a temporary file and all further content
+ * is appended there.
+ * <p>
+ * Content can be written to another stream or read back without copying it into a single array. Segments are returned
+ * to the pool, and the temporary file is deleted, by {@link #release()}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class SegmentedResponseBuffer extends OutputStream
+{
+   static final int SEGMENT_SIZE = 8192;
+
+   /*
+    * At most 2MB of segments are kept for reuse.
+    */
+   private static final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<byte[]>(256);
+
+   private final long memoryLimit;
+   private final File directory;
+
+   private final List<byte[]> segments = new ArrayList<byte[]>();
+   private byte[] current;
+   private int position = SEGMENT_SIZE;
+   private long size;
+
+   private File file;
+   private OutputStream fileStream;
+
+   /**
+    * Create a buffer holding at most the given number of bytes in memory, or any number if negative. Larger content
+    * is moved to a temporary file in the given directory, or in the default temporary directory if <code>null</code>.
+    */
+   public SegmentedResponseBuffer(final long memoryLimit, final File directory)
+   {
+      this.memoryLimit = memoryLimit;
+      this.directory = directory;
+   }
+
+   @Override
+   public void write(final int b) throws IOException
+   {
+      if (file == null && memoryLimit >= 0 && size + 1 > memoryLimit)
+         spill();
+
+      size++;
+      if (file != null)
+      {
+         fileStream.write(b);
+         return;
+      }
+
+      if (position == SEGMENT_SIZE)
+         nextSegment();
+      current[position++] = (byte) b;
+   }
+
+   @Override
+   public void write(final byte[] bytes, int off, int len) throws IOException
+   {
+      if (file == null && memoryLimit >= 0 && size + len > memoryLimit)
+         spill();
+
+      size += len;
+      if (file != null)
+      {
+         fileStream.write(bytes, off, len);
+         return;
+      }
+
+      while (len > 0)
+      {
+         if (position == SEGMENT_SIZE)
+            nextSegment();
+
+         int count = Math.min(len, SEGMENT_SIZE - position);
+         System.arraycopy(bytes, off, current, position, count);
+         position += count;
+         off += count;
+         len -= count;
+      }
+   }
+
+   private void nextSegment()
+   {
+      current = borrow();
+      segments.add(current);
+      position = 0;
+   }
+
+   private void spill() throws IOException
+   {
+      file = File.createTempFile("rewrite-response", ".tmp", directory);
+      fileStream = new BufferedOutputStream(new FileOutputStream(file), SEGMENT_SIZE);
+      writeSegmentsTo(fileStream);
+      releaseSegments();
+   }
+
+   /**
+    * Return the number of bytes written to this buffer.
+    */
+   public long size()
+   {
+      return size;
+   }
+
+   /**
+    * Return <code>true</code> if the content has been moved to a temporary file.
+    */
+   public boolean isSpilled()
+   {
+      return file != null;
+   }
+
+   /**
+    * Write the buffered content to the given {@link OutputStream}.
+    */
+   public void writeTo(final OutputStream output) throws IOException
+   {
+      if (file == null)
+         writeSegmentsTo(output);
+      else
+      {
+         fileStream.flush();
+         byte[] buffer = borrow();
+         InputStream input = new FileInputStream(file);
+         try {
+            int read;
+            while ((read = input.read(buffer)) != -1)
+            {
+               output.write(buffer, 0, read);
+            }
+         }
+         finally {
+            input.close();
+            giveBack(buffer);
+         }
+      }
+   }
+
+   private void writeSegmentsTo(final OutputStream output) throws IOException
+   {
+      for (int i = 0; i < segments.size(); i++)
+      {
+         output.write(segments.get(i), 0, i == segments.size() - 1 ? position : SEGMENT_SIZE);
+      }
+   }
+
+   /**
+    * Return an {@link InputStream} reading the buffered content. The stream is only valid until the buffer is modified
+    * or released.
+    */
+   public InputStream getInputStream() throws IOException
+   {
+      if (file != null)
+      {
+         fileStream.flush();
+         return new FileInputStream(file);
+      }
+
+      List<InputStream> streams = new ArrayList<InputStream>(segments.size());
+      for (int i = 0; i < segments.size(); i++)
+      {
+         streams.add(new ByteArrayInputStream(segments.get(i), 0, i == segments.size() - 1 ? position
+                  : SEGMENT_SIZE));
+      }
+      return new SequenceInputStream(Collections.enumeration(streams));
+   }
+
+   /**
+    * Return a copy of the buffered content.
+    */
+   public byte[] toByteArray() throws IOException
+   {
+      if (size > Integer.MAX_VALUE - 8)
+         throw new IOException("Buffered content of [" + size + "] bytes is too large for a single array");
+
+      byte[] result = new byte[(int) size];
+      if (file == null)
+      {
+         int offset = 0;
+         for (int i = 0; i < segments.size(); i++)
+         {
+            int length = i == segments.size() - 1 ? position : SEGMENT_SIZE;
+            System.arraycopy(segments.get(i), 0, result, offset, length);
+            offset += length;
+         }
+      }
+      else
+      {
+         fileStream.flush();
+         DataInputStream input = new DataInputStream(new FileInputStream(file));
+         try {
+            input.readFully(result);
+         }
+         finally {
+            input.close();
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Decode the buffered content with the given {@link Charset}.
+    */
+   public String toString(final Charset charset) throws IOException
+   {
+      return new String(toByteArray(), charset);
+   }
+
+   @Override
+   public void flush() throws IOException
+   {
+      if (fileStream != null)
+         fileStream.flush();
+   }
+
+   /**
+    * Discard the buffered content, returning all segments to the pool and deleting the temporary file, if any. The
+    * buffer may be reused afterwards.
+    */
+   public void release()
+   {
+      releaseSegments();
+      if (file != null)
+      {
+         try {
+            fileStream.close();
+         }
+         catch (IOException e) {
+            // the file is deleted regardless
+         }
+         file.delete();
+         file = null;
+         fileStream = null;
+      }
+      size = 0;
+   }
+
+   private void releaseSegments()
+   {
+      for (byte[] segment : segments)
+      {
+         giveBack(segment);
+      }
+      segments.clear();
+      current = null;
+      position = SEGMENT_SIZE;
+   }
+
+   private static byte[] borrow()
+   {
+      byte[] result = pool.poll();
+      return result == null ? new byte[SEGMENT_SIZE] : result;
+   }
+
+   private static void giveBack(final byte[] segment)
+   {
+      pool.offer(segment);
+   }
+
+   /**
+    * Return the number of segments currently held for reuse.
+    */
+   static int getPooledSegmentCount()
+   {
+      return pool.size();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "SegmentedResponseBuffer [size=" + size + ", segments=" + segments.size() + ", file=" + file + "]";
+   }
+}
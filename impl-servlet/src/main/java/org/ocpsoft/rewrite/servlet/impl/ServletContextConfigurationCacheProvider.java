@@ -36,6 +36,9 @@ import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
  * &lt;/context-param&gt;
  * </pre>
  * 
+ * Reloaded configurations are built in the background by {@link org.ocpsoft.rewrite.config.ConfigurationLoader}, and
+ * the previously loaded {@link Configuration} is used until the new one is ready.
+ * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  * 
  */
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.ConfigurationBuilder;
+import org.ocpsoft.rewrite.config.Direction;
+import org.ocpsoft.rewrite.config.NoOp;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.config.True;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class DefaultRuleCacheProviderTest
+{
+   private final Map<String, String> parameters = new HashMap<String, String>();
+   private DefaultRuleCacheProvider provider;
+   private Configuration cacheable;
+
+   @Before
+   public void before()
+   {
+      parameters.put("org.ocpsoft.rewrite.config.RULE_CACHE_SIZE", "2");
+      provider = new DefaultRuleCacheProvider();
+      cacheable = ConfigurationBuilder.begin()
+               .addRule().when(new True()).perform(new NoOp()).withRuleCacheable()
+               .addRule().when(Direction.isInbound()).perform(new NoOp()).withRuleCacheable();
+   }
+
+   @Test
+   public void testKeyFields()
+   {
+      Object key = provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable));
+      Assert.assertNotNull(key);
+      Assert.assertEquals(key, provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable)));
+      Assert.assertEquals(key, provider.createKey(inbound("/ctx", "/ctx/a?q=1", "GET", "one"), context(cacheable)));
+      Assert.assertEquals(key, provider.createKey(inbound("/ctx", "/ctx/a", "POST", "two"), context(cacheable)));
+
+      Assert.assertFalse(key.equals(provider.createKey(inbound("/ctx", "/ctx/b", "GET", "one"), context(cacheable))));
+      Assert.assertFalse(key.equals(provider.createKey(inbound("/other", "/other/a", "GET", "one"),
+               context(cacheable))));
+      Assert.assertFalse(key.equals(provider.createKey(outbound("/ctx", "/ctx/a"), context(cacheable))));
+   }
+
+   @Test
+   public void testMethodAndHostOptions()
+   {
+      parameters.put("org.ocpsoft.rewrite.config.RULE_CACHE_KEY_METHOD", "true");
+      parameters.put("org.ocpsoft.rewrite.config.RULE_CACHE_KEY_HOST", " TRUE ");
+
+      Object key = provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable));
+      Assert.assertEquals(key, provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable)));
+      Assert.assertFalse(key.equals(provider.createKey(inbound("/ctx", "/ctx/a", "POST", "one"), context(cacheable))));
+      Assert.assertFalse(key.equals(provider.createKey(inbound("/ctx", "/ctx/a", "GET", "two"), context(cacheable))));
+   }
+
+   @Test
+   public void testDisabledWithoutSize()
+   {
+      parameters.clear();
+      Assert.assertNull(provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable)));
+   }
+
+   @Test
+   public void testOnlyCacheableConfigurationsAreCached()
+   {
+      Configuration mixed = ConfigurationBuilder.begin()
+               .addRule().when(new True()).perform(new NoOp()).withRuleCacheable()
+               .addRule().when(new True()).perform(new NoOp());
+      Assert.assertNull(provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(mixed)));
+      Assert.assertNull(provider.createKey(outbound("/ctx", "/ctx/a"), context(mixed)));
+
+      // rules that require an inbound event need not be declared for outbound events
+      Configuration inbound = ConfigurationBuilder.begin()
+               .addRule().when(new True()).perform(new NoOp()).withRuleCacheable()
+               .addRule().when(Direction.isInbound()).perform(new NoOp());
+      Assert.assertNull(provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(inbound)));
+      Assert.assertNotNull(provider.createKey(outbound("/ctx", "/ctx/a"), context(inbound)));
+   }
+
+   @Test
+   public void testEmptyResultsAreCached()
+   {
+      Object key = provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable));
+      Assert.assertNull(provider.get(key));
+      provider.put(key, Collections.<Rule> emptyList());
+      Assert.assertEquals(Collections.<Rule> emptyList(), provider.get(key));
+
+      Assert.assertEquals(1, provider.getHitCount());
+      Assert.assertEquals(1, provider.getMissCount());
+   }
+
+   @Test
+   public void testNewConfigurationClearsCache()
+   {
+      Object key = provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(cacheable));
+      provider.put(key, cacheable.getRules());
+      Assert.assertEquals(cacheable.getRules(), provider.get(key));
+
+      Configuration rebuilt = ConfigurationBuilder.begin()
+               .addRule().when(new True()).perform(new NoOp()).withRuleCacheable();
+      Object rebuiltKey = provider.createKey(inbound("/ctx", "/ctx/a", "GET", "one"), context(rebuilt));
+      Assert.assertFalse(key.equals(rebuiltKey));
+      Assert.assertNull(provider.get(key));
+      Assert.assertNull(provider.get(rebuiltKey));
+
+      // results of events evaluated against the previous configuration are not stored
+      provider.put(key, cacheable.getRules());
+      Assert.assertNull(provider.get(key));
+      provider.put(rebuiltKey, rebuilt.getRules());
+      Assert.assertEquals(rebuilt.getRules(), provider.get(rebuiltKey));
+   }
+
+   @Test
+   public void testEvictionCount()
+   {
+      for (String path : new String[] { "/ctx/a", "/ctx/b", "/ctx/c" }) {
+         provider.put(provider.createKey(inbound("/ctx", path, "GET", "one"), context(cacheable)),
+                  Collections.<Rule> emptyList());
+      }
+      Assert.assertEquals(1, provider.getEvictionCount());
+   }
+
+   private EvaluationContext context(final Configuration configuration)
+   {
+      EvaluationContextImpl context = new EvaluationContextImpl();
+      context.put(Configuration.class, configuration);
+      return context;
+   }
+
+   private HttpServletRewrite inbound(final String contextPath, final String url, final String method,
+            final String host)
+   {
+      return event(HttpInboundServletRewrite.class, contextPath, url, method, host);
+   }
+
+   private HttpServletRewrite outbound(final String contextPath, final String url)
+   {
+      return event(HttpOutboundServletRewrite.class, contextPath, url, "GET", "one");
+   }
+
+   private HttpServletRewrite event(final Class<? extends HttpServletRewrite> type, final String contextPath,
+            final String url, final String method, final String host)
+   {
+      final ServletContext servletContext = proxy(ServletContext.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method m, Object[] args)
+         {
+            if ("getInitParameter".equals(m.getName()))
+               return parameters.get(args[0]);
+            return null;
+         }
+      });
+      final HttpServletRequest request = proxy(HttpServletRequest.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method m, Object[] args)
+         {
+            if ("getMethod".equals(m.getName()))
+               return method;
+            if ("getServerName".equals(m.getName()))
+               return host;
+            return null;
+         }
+      });
+      return proxy(type, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method m, Object[] args)
+         {
+            String name = m.getName();
+            if ("getServletContext".equals(name))
+               return servletContext;
+            if ("getRequest".equals(name))
+               return request;
+            if ("getContextPath".equals(name))
+               return contextPath;
+            if ("getInboundAddress".equals(name) || "getOutboundAddress".equals(name) || "getAddress".equals(name))
+               return AddressBuilder.create(url);
+            if ("toString".equals(name))
+               return url;
+            return null;
+         }
+      });
+   }
+
+   private static <T> T proxy(final Class<T> type, final InvocationHandler handler)
+   {
+      return type.cast(Proxy.newProxyInstance(DefaultRuleCacheProviderTest.class.getClassLoader(),
+               new Class<?>[] { type }, handler));
+   }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.config.response.EncodingResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class HttpRewriteWrappedResponseTest
+{
+   private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+   private HttpRewriteWrappedResponse response;
+
+   @Before
+   public void before()
+   {
+      final Map<String, Object> attributes = new HashMap<String, Object>();
+      HttpServletRequest request = proxy(HttpServletRequest.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getAttribute".equals(method.getName()))
+               return attributes.get(args[0]);
+            if ("setAttribute".equals(method.getName()))
+               return attributes.put((String) args[0], args[1]);
+            return null;
+         }
+      });
+      final ServletOutputStream stream = new ServletOutputStream() {
+         @Override
+         public void write(int b)
+         {
+            output.write(b);
+         }
+      };
+      HttpServletResponse servletResponse = proxy(HttpServletResponse.class, new InvocationHandler() {
+         @Override
+         public Object invoke(Object proxy, Method method, Object[] args)
+         {
+            if ("getOutputStream".equals(method.getName()))
+               return stream;
+            return null;
+         }
+      });
+      response = new HttpRewriteWrappedResponse(request, servletResponse, proxy(ServletContext.class, null));
+   }
+
+   @Test
+   public void testWrappersAreAppliedInRegistrationOrder() throws IOException
+   {
+      // each wrapper writes into the one registered before it
+      response.addStreamWrapper(new UppercaseWrapper());
+      response.addStreamWrapper(new HexWrapper());
+      Assert.assertEquals("616263", write("abc"));
+   }
+
+   @Test
+   public void testEncodingWrappersAreAppliedLast() throws IOException
+   {
+      response.addStreamWrapper(new UppercaseWrapper());
+      response.addStreamWrapper(new HexEncodingWrapper());
+      response.addStreamWrapper(new SuffixWrapper());
+      Assert.assertEquals("4142432E", write("abc"));
+   }
+
+   private String write(String content) throws IOException
+   {
+      response.getOutputStream().write(content.getBytes("UTF-8"));
+      response.finishStreamWrappers();
+      return output.toString("UTF-8");
+   }
+
+   private static <T> T proxy(final Class<T> type, final InvocationHandler handler)
+   {
+      return type.cast(Proxy.newProxyInstance(HttpRewriteWrappedResponseTest.class.getClassLoader(),
+               new Class<?>[] { type }, handler == null ? new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args)
+                  {
+                     return null;
+                  }
+               } : handler));
+   }
+
+   private static class UppercaseWrapper implements ResponseStreamWrapper
+   {
+      @Override
+      public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
+      {
+         return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException
+            {
+               out.write(Character.toUpperCase((char) b));
+            }
+         };
+      }
+
+      @Override
+      public void finish(HttpServletRewrite rewrite)
+      {}
+   }
+
+   private static class SuffixWrapper implements ResponseStreamWrapper
+   {
+      private OutputStream stream;
+
+      @Override
+      public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
+      {
+         stream = outputStream;
+         return outputStream;
+      }
+
+      @Override
+      public void finish(HttpServletRewrite rewrite)
+      {
+         try {
+            stream.write('.');
+         }
+         catch (IOException e) {
+            throw new IllegalStateException(e);
+         }
+      }
+   }
+
+   private static class HexWrapper implements ResponseStreamWrapper
+   {
+      @Override
+      public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
+      {
+         return new FilterOutputStream(outputStream) {
+            @Override
+            public void write(int b) throws IOException
+            {
+               out.write(String.format("%02X", b & 0xFF).getBytes("UTF-8"));
+            }
+         };
+      }
+
+      @Override
+      public void finish(HttpServletRewrite rewrite)
+      {}
+   }
+
+   private static class HexEncodingWrapper extends HexWrapper implements EncodingResponseStreamWrapper
+   {
+   }
+}
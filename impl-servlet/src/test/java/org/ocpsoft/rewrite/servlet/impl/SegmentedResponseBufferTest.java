@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class SegmentedResponseBufferTest
+{
+   private static final int SEGMENT_SIZE = SegmentedResponseBuffer.SEGMENT_SIZE;
+
+   private SegmentedResponseBuffer buffer;
+
+   @After
+   public void after()
+   {
+      if (buffer != null)
+         buffer.release();
+   }
+
+   @Test
+   public void testWriteArraysAcrossSegmentBoundaries() throws IOException
+   {
+      buffer = new SegmentedResponseBuffer(-1, null);
+      byte[] content = content(SEGMENT_SIZE * 2 + 100);
+
+      buffer.write(content, 0, SEGMENT_SIZE - 10);
+      buffer.write(content, SEGMENT_SIZE - 10, SEGMENT_SIZE + 20);
+      buffer.write(content, SEGMENT_SIZE * 2 + 10, 90);
+
+      Assert.assertEquals(content.length, buffer.size());
+      Assert.assertFalse(buffer.isSpilled());
+      Assert.assertArrayEquals(content, buffer.toByteArray());
+      Assert.assertArrayEquals(content, read(buffer.getInputStream()));
+   }
+
+   @Test
+   public void testWriteBytesAcrossSegmentBoundaries() throws IOException
+   {
+      buffer = new SegmentedResponseBuffer(-1, null);
+      byte[] content = content(SEGMENT_SIZE + 3);
+      for (byte b : content) {
+         buffer.write(b);
+      }
+
+      Assert.assertEquals(content.length, buffer.size());
+      Assert.assertArrayEquals(content, buffer.toByteArray());
+   }
+
+   @Test
+   public void testSpillAtMemoryLimit() throws IOException
+   {
+      buffer = new SegmentedResponseBuffer(SEGMENT_SIZE + 1, null);
+      byte[] content = content(SEGMENT_SIZE * 3);
+
+      buffer.write(content, 0, SEGMENT_SIZE);
+      buffer.write(content[SEGMENT_SIZE]);
+      Assert.assertFalse(buffer.isSpilled());
+
+      buffer.write(content[SEGMENT_SIZE + 1]);
+      Assert.assertTrue(buffer.isSpilled());
+
+      buffer.write(content, SEGMENT_SIZE + 2, content.length - SEGMENT_SIZE - 2);
+      Assert.assertEquals(content.length, buffer.size());
+      Assert.assertArrayEquals(content, buffer.toByteArray());
+   }
+
+   @Test
+   public void testReadAndWriteToAfterSpill() throws IOException
+   {
+      buffer = new SegmentedResponseBuffer(100, null);
+      byte[] content = content(SEGMENT_SIZE + 500);
+      buffer.write(content, 0, 50);
+      buffer.write(content, 50, content.length - 50);
+      Assert.assertTrue(buffer.isSpilled());
+
+      Assert.assertArrayEquals(content, read(buffer.getInputStream()));
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      buffer.writeTo(output);
+      Assert.assertArrayEquals(content, output.toByteArray());
+   }
+
+   @Test
+   public void testReleaseReturnsSegmentsToPool() throws IOException
+   {
+      buffer = new SegmentedResponseBuffer(-1, null);
+      buffer.write(content(SEGMENT_SIZE * 2 + 1));
+
+      int pooled = SegmentedResponseBuffer.getPooledSegmentCount();
+      buffer.release();
+      Assert.assertEquals(pooled + 3, SegmentedResponseBuffer.getPooledSegmentCount());
+      Assert.assertEquals(0, buffer.size());
+
+      buffer.write(content(10));
+      Assert.assertEquals(pooled + 2, SegmentedResponseBuffer.getPooledSegmentCount());
+      Assert.assertArrayEquals(content(10), buffer.toByteArray());
+   }
+
+   @Test
+   public void testSpillReturnsSegmentsToPool() throws IOException
+   {
+      buffer = new SegmentedResponseBuffer(SEGMENT_SIZE * 2, null);
+      buffer.write(content(SEGMENT_SIZE * 2));
+
+      int pooled = SegmentedResponseBuffer.getPooledSegmentCount();
+      buffer.write(1);
+      Assert.assertTrue(buffer.isSpilled());
+      Assert.assertEquals(pooled + 2, SegmentedResponseBuffer.getPooledSegmentCount());
+   }
+
+   private static byte[] content(int length)
+   {
+      byte[] result = new byte[length];
+      for (int i = 0; i < length; i++) {
+         result[i] = (byte) (i * 31 + i / 7);
+      }
+      return result;
+   }
+
+   private static byte[] read(InputStream input) throws IOException
+   {
+      try {
+         ByteArrayOutputStream result = new ByteArrayOutputStream();
+         byte[] buffer = new byte[1000];
+         int read;
+         while ((read = input.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+         }
+         return result.toByteArray();
+      }
+      finally {
+         input.close();
+      }
+   }
+}
@@ -75,6 +75,19 @@ public class PhaseOperationTest extends RewriteTest
       Assert.assertEquals("lincoln", action.getResponseHeaderValues("Value").get(0));
    }
 
+   @Test
+   public void testDeferredOperationKeepsEvaluationContext() throws Exception
+   {
+      for (String value : new String[] { "first", "second", "third" })
+      {
+         HttpAction<HttpGet> action = get("/deferred_context/" + value);
+         String content = action.getResponseContent();
+         Assert.assertTrue(content == null || content.isEmpty());
+         Assert.assertEquals(206, action.getResponse().getStatusLine().getStatusCode());
+         Assert.assertEquals(value, action.getResponseHeaderValues("Value").get(0));
+      }
+   }
+
    @Test
    public void testPhaseBindingDefersValidationAndConversion() throws Exception
    {
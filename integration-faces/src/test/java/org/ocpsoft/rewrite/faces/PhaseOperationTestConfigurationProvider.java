@@ -12,6 +12,8 @@ import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.event.Rewrite;
 import org.ocpsoft.rewrite.faces.config.PhaseBinding;
 import org.ocpsoft.rewrite.faces.config.PhaseOperation;
+import org.ocpsoft.rewrite.param.ParameterStore;
+import org.ocpsoft.rewrite.param.ParameterValueStore;
 import org.ocpsoft.rewrite.param.Validator;
 import org.ocpsoft.rewrite.servlet.config.DispatchType;
 import org.ocpsoft.rewrite.servlet.config.Forward;
@@ -107,6 +109,25 @@ public class PhaseOperationTestConfigurationProvider extends HttpConfigurationPr
                         }).before(PhaseId.RENDER_RESPONSE)))
                .where("value").bindsTo(PhaseBinding.to(RequestBinding.parameter("v")).after(PhaseId.RESTORE_VIEW))
 
+               /*
+                * Read the parameter values of the rule from its context after the rewrite has finished.
+                */
+               .addRule()
+               .when(Path.matches("/deferred_context/{value}").and(DispatchType.isRequest()))
+               .perform(Forward.to("/empty.xhtml").and(PhaseOperation.enqueue(new HttpOperation() {
+                  @Override
+                  public void performHttp(HttpServletRewrite event, EvaluationContext context)
+                  {
+                     ParameterStore parameters = (ParameterStore) context.get(ParameterStore.class);
+                     ParameterValueStore values = (ParameterValueStore) context.get(ParameterValueStore.class);
+                     if (parameters != null && values != null && parameters.contains("value"))
+                        Response.addHeader("Value", values.retrieve(parameters.get("value")))
+                                 .and(SendStatus.code(206)).perform(event, context);
+                     else
+                        SendStatus.code(506).perform(event, context);
+                  }
+               }).before(PhaseId.RENDER_RESPONSE)))
+
                /*
                 * Defer validation with binding.
                 */
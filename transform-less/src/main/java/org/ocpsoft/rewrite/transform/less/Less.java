@@ -18,24 +18,35 @@ package org.ocpsoft.rewrite.transform.less;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.ocpsoft.common.util.Streams;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.transform.PrecompilableTransformer;
 import org.ocpsoft.rewrite.transform.StringTransformer;
 import org.ocpsoft.rewrite.transform.Transformer;
 
 /**
  * A {@link Transformer} that compiles LESS files into CSS. This implementation is based on Mozilla Rhino and LESS
  * 1.3.0.
+ * <p>
+ * The LESS compiler script is compiled once per instance. Scopes in which it has been evaluated are pooled and reused,
+ * so a request only has to call the compiler. Scopes are never shared by concurrent requests.
  * 
  * @author Christian Kaltepoth
  */
-public class Less extends StringTransformer
+public class Less extends StringTransformer implements PrecompilableTransformer
 {
 
-   private final String baseScript;
+   private final Script baseScript;
+
+   private final Queue<Scriptable> scopes = new ConcurrentLinkedQueue<Scriptable>();
 
    /**
     * Create a {@link Transformer} that compiles LESS files into CSS.
@@ -52,29 +63,35 @@ public class Less extends StringTransformer
       scriptBuilder.append(getClasspathResourceAsString("org/ocpsoft/rewrite/transform/js/" + "env.rhino.1.2.js"));
       scriptBuilder.append(getClasspathResourceAsString("org/ocpsoft/rewrite/transform/js/" + "less-1.3.0.min.js"));
       scriptBuilder.append(getClasspathResourceAsString("org/ocpsoft/rewrite/transform/js/" + "api.js"));
-      baseScript = scriptBuilder.toString();
+
+      Context context = enter();
+      try {
+         baseScript = context.compileString(scriptBuilder.toString(), this.getClass().getSimpleName(), 1, null);
+      }
+      finally {
+         Context.exit();
+      }
    }
 
    @Override
    public String transform(HttpServletRewrite event, String less)
    {
 
-      Context context = Context.enter();
+      Context context = enter();
 
       try {
 
-         context.setOptimizationLevel(-1);
-         context.setLanguageVersion(Context.VERSION_1_6);
-
-         Scriptable scope = context.initStandardObjects();
+         Scriptable scope = scopes.poll();
+         if (scope == null) {
+            scope = context.initStandardObjects();
+            baseScript.exec(context, scope);
+         }
 
-         String script = new StringBuilder(baseScript)
-                  .append("lessToCss('")
-                  .append(escape(less))
-                  .append("');")
-                  .toString();
+         Function lessToCss = (Function) ScriptableObject.getProperty(scope, "lessToCss");
+         Object result = lessToCss.call(context, scope, scope, new Object[] { less });
 
-         Object result = context.evaluateString(scope, script, this.getClass().getSimpleName(), 1, null);
+         // a scope is only reused if the compiler completed normally
+         scopes.offer(scope);
 
          if (result != null) {
             return result.toString();
@@ -88,6 +105,14 @@ public class Less extends StringTransformer
 
    }
 
+   private static Context enter()
+   {
+      Context context = Context.enter();
+      context.setOptimizationLevel(-1);
+      context.setLanguageVersion(Context.VERSION_1_6);
+      return context;
+   }
+
    private static String getClasspathResourceAsString(String resource)
    {
       InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource);
@@ -99,9 +124,4 @@ public class Less extends StringTransformer
       return new String(output.toByteArray(), Charset.forName("UTF-8"));
    }
 
-   private String escape(String s)
-   {
-      return s.replace("\r", "").replace("\n", "\\n");
-   }
-
 }
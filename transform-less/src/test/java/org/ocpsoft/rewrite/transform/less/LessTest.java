@@ -47,6 +47,22 @@ public class LessTest
       assertSameCSS(".bordered{ border: 1px solid red; }\n.navigation{ border: 1px solid red; }\n", output);
    }
 
+   @Test
+   public void testCompilerIsReusable()
+   {
+      Less compiler = Less.compiler();
+      assertSameCSS(".a { width: 2; }", compiler.transform(null, ".a { width: 1 + 1 }"));
+      assertSameCSS(".b { width: 3; }", compiler.transform(null, ".b { width: 1 + 2 }"));
+   }
+
+   @Test
+   public void testQuotesInInput()
+   {
+      String input = ".quoted { font-family: 'Open Sans', \"Arial\"; }";
+      String output = Less.compiler().transform(null, input);
+      assertSameCSS(".quoted { font-family: 'Open Sans', \"Arial\"; }", output);
+   }
+
    private static void assertSameCSS(String expected, String actual)
    {
       assertEquals(normalize(expected), normalize(actual));
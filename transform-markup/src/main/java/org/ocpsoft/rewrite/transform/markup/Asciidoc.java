@@ -107,6 +107,13 @@ public class Asciidoc extends JRubyTransformer<Asciidoc>
 
    }
 
+   @Override
+   public String getConfigurationKey()
+   {
+      return super.getConfigurationKey() + ", fullDocument=" + fullDocument + ", "
+               + documentBuilder.getConfigurationKey();
+   }
+
    @Override
    public Asciidoc self()
    {
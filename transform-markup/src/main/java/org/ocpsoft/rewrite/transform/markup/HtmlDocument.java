@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform.markup;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.transform.ConfigurableTransformer;
+import org.ocpsoft.rewrite.transform.PrecompilableTransformer;
+import org.ocpsoft.rewrite.transform.StreamingTransformer;
+import org.ocpsoft.rewrite.transform.StringTransformer;
+import org.ocpsoft.rewrite.transform.Transform;
+import org.ocpsoft.rewrite.transform.Transformer;
+
+/**
+ * A {@link StreamingTransformer} that wraps an HTML fragment, such as the output of {@link Markdown#partialDocument()},
+ * into a full HTML document. The fragment is passed through as it is written, so when this is the last stage of a
+ * {@link Transform}, the response is not buffered for it:
+ * 
+ * <pre>
+ * Transform.with(Markdown.partialDocument()).then(HtmlDocument.create().withTitle(&quot;Readme&quot;))
+ * </pre>
+ * 
+ * Like {@link StringTransformer} implementations, this assumes UTF8 encoding.
+ * 
+ * @author Christian Kaltepoth
+ */
+public class HtmlDocument extends StreamingTransformer implements ConfigurableTransformer, PrecompilableTransformer
+{
+
+   private static final Charset UTF8 = Charset.forName("UTF8");
+
+   private final HtmlDocumentBuilder documentBuilder = new HtmlDocumentBuilder();
+
+   /**
+    * Create a {@link Transformer} instance that wraps HTML fragments into a full HTML document.
+    */
+   public static HtmlDocument create()
+   {
+      return new HtmlDocument();
+   }
+
+   /**
+    * Creates a {@link HtmlDocument} instance.
+    */
+   protected HtmlDocument()
+   {}
+
+   /**
+    * Sets the title of the rendered HTML document.
+    */
+   public HtmlDocument withTitle(String title)
+   {
+      this.documentBuilder.withTitle(title);
+      return this;
+   }
+
+   /**
+    * Adds a CSS stylesheet to the rendered HTML document.
+    */
+   public HtmlDocument addStylesheet(String url)
+   {
+      this.documentBuilder.addStylesheet(url);
+      return this;
+   }
+
+   @Override
+   public OutputStream wrap(HttpServletRewrite event, OutputStream output)
+   {
+      return new FilterOutputStream(output) {
+
+         private boolean started;
+         private boolean empty = true;
+         private boolean closed;
+
+         @Override
+         public void write(int b) throws IOException
+         {
+            start();
+            empty = false;
+            out.write(b);
+         }
+
+         @Override
+         public void write(byte[] b, int off, int len) throws IOException
+         {
+            start();
+            if (len > 0)
+               empty = false;
+            out.write(b, off, len);
+         }
+
+         @Override
+         public void close() throws IOException
+         {
+            if (closed)
+               return;
+            closed = true;
+
+            start();
+            if (!empty)
+               out.write('\n');
+            out.write(documentBuilder.footer().getBytes(UTF8));
+            out.close();
+         }
+
+         private void start() throws IOException
+         {
+            if (!started) {
+               started = true;
+               out.write(documentBuilder.header().getBytes(UTF8));
+            }
+         }
+      };
+   }
+
+   @Override
+   public String getConfigurationKey()
+   {
+      return documentBuilder.getConfigurationKey();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "HtmlDocument [" + getConfigurationKey() + "]";
+   }
+
+}
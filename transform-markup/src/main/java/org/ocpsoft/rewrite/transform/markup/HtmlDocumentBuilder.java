@@ -37,7 +37,27 @@ class HtmlDocumentBuilder
       return this;
    }
 
+   /**
+    * Return a key describing everything this builder adds to a document.
+    */
+   public String getConfigurationKey()
+   {
+      return "title=" + title + ", stylesheets=" + stylesheets + ", headerInjections=" + headerInjections;
+   }
+
    public String build(String body)
+   {
+      StringBuilder result = new StringBuilder(header());
+      if (!Strings.isNullOrEmpty(body)) {
+         result.append(body).append("\n");
+      }
+      return result.append(footer()).toString();
+   }
+
+   /**
+    * Return everything a document built by {@link #build(String)} contains before the body content.
+    */
+   public String header()
    {
 
       StringBuilder result = new StringBuilder();
@@ -61,14 +81,16 @@ class HtmlDocumentBuilder
       result.append("</head>\n");
 
       result.append("<body>\n");
-      if (!Strings.isNullOrEmpty(body)) {
-         result.append(body).append("\n");
-      }
-      result.append("</body>\n");
-
-      result.append("</html>\n");
       return result.toString();
 
    }
 
+   /**
+    * Return everything a document built by {@link #build(String)} contains after the body content.
+    */
+   public String footer()
+   {
+      return "</body>\n</html>\n";
+   }
+
 }
@@ -107,6 +107,13 @@ public class Markdown extends JRubyTransformer<Markdown>
 
    }
 
+   @Override
+   public String getConfigurationKey()
+   {
+      return super.getConfigurationKey() + ", fullDocument=" + fullDocument + ", "
+               + documentBuilder.getConfigurationKey();
+   }
+
    @Override
    public Markdown self()
    {
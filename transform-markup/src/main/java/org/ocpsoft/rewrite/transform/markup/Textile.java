@@ -104,6 +104,13 @@ public class Textile extends JRubyTransformer<Textile>
 
    }
 
+   @Override
+   public String getConfigurationKey()
+   {
+      return super.getConfigurationKey() + ", fullDocument=" + fullDocument + ", "
+               + documentBuilder.getConfigurationKey();
+   }
+
    @Override
    public Textile self()
    {
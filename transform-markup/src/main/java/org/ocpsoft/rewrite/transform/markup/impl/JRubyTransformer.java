@@ -1,8 +1,8 @@
 package org.ocpsoft.rewrite.transform.markup.impl;
 
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletContext;
 
@@ -12,6 +12,8 @@ import org.jruby.embed.LocalContextScope;
 import org.jruby.embed.LocalVariableBehavior;
 import org.jruby.embed.ScriptingContainer;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.transform.ConfigurableTransformer;
+import org.ocpsoft.rewrite.transform.PrecompilableTransformer;
 import org.ocpsoft.rewrite.transform.StringTransformer;
 import org.ocpsoft.rewrite.transform.Transformer;
 
@@ -21,6 +23,7 @@ import org.ocpsoft.rewrite.transform.Transformer;
  * @author Christian Kaltepoth
  */
 public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends StringTransformer
+         implements ConfigurableTransformer, PrecompilableTransformer
 {
    static final String CONTAINER_STORE_KEY = JRubyTransformer.class.getName() + "_CONTAINER_INSTANCE";
 
@@ -50,7 +53,18 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
    @Override
    public final String transform(HttpServletRewrite event, String input)
    {
-      ScriptingContainer container = getContainer(event.getServletContext());
+      ScriptingContainerPool pool = getPool(event.getServletContext());
+
+      ScriptingContainer container;
+      try {
+         container = pool.borrow();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted while waiting for a JRuby container", e);
+      }
+
+      boolean healthy = false;
       try {
 
          Object result = null;
@@ -59,63 +73,130 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
 
          // execute the script returned by the implementation
          result = runScript(container);
+         healthy = true;
 
          // the result must be a string
          return result != null ? result.toString() : null;
       }
+      catch (RuntimeException e) {
+         // scripts failing on their input, for example on malformed markup, leave the runtime usable
+         healthy = !isCausedByError(e);
+         throw e;
+      }
       finally {
-         if (container != null)
+         try {
             container.clear();
+         }
+         finally {
+            pool.release(container, healthy);
+         }
       }
 
    }
 
-   private ScriptingContainer getContainer(ServletContext context)
+   /**
+    * Return <code>true</code> if the given exception was caused by an {@link Error}, such as a
+    * {@link StackOverflowError} or {@link OutOfMemoryError} wrapped by JRuby, after which the runtime may be broken.
+    */
+   static boolean isCausedByError(Throwable exception)
    {
-      @SuppressWarnings("unchecked")
-      Map<Class<T>, ScriptingContainer> storage = (Map<Class<T>, ScriptingContainer>) context
-               .getAttribute(CONTAINER_STORE_KEY);
-      if (storage == null)
-      {
-         storage = new ConcurrentHashMap<Class<T>, ScriptingContainer>();
-         context.setAttribute(CONTAINER_STORE_KEY, storage);
+      for (Throwable cause = exception.getCause(); cause != null && cause != exception; cause = cause.getCause()) {
+         if (cause instanceof Error)
+            return true;
       }
+      return false;
+   }
 
-      ScriptingContainer cachedContainer = storage.get(getTransformerType());
-      if (cachedContainer == null)
-      {
-         cachedContainer = new ScriptingContainer(LocalContextScope.CONCURRENT, LocalVariableBehavior.TRANSIENT);
-         cachedContainer.setRunRubyInProcess(false);
+   private ScriptingContainerPool getPool(ServletContext context)
+   {
+      ConcurrentMap<Class<?>, ScriptingContainerPool> storage = getStorage(context);
 
-         storage.put(getTransformerType(), cachedContainer);
+      ScriptingContainerPool pool = storage.get(getTransformerType());
+      if (pool == null)
+      {
+         pool = new ScriptingContainerPool(this, context);
+         ScriptingContainerPool existing = storage.putIfAbsent(getTransformerType(), pool);
+         if (existing != null)
+            pool = existing;
+      }
+      return pool;
+   }
 
-         // the user may have set a custom CompileMode
-         if (compileMode != null) {
-            cachedContainer.setCompileMode(compileMode);
+   @SuppressWarnings("unchecked")
+   static ConcurrentMap<Class<?>, ScriptingContainerPool> getStorage(ServletContext context)
+   {
+      synchronized (context) {
+         ConcurrentMap<Class<?>, ScriptingContainerPool> storage =
+                  (ConcurrentMap<Class<?>, ScriptingContainerPool>) context.getAttribute(CONTAINER_STORE_KEY);
+         if (storage == null)
+         {
+            storage = new ConcurrentHashMap<Class<?>, ScriptingContainerPool>();
+            context.setAttribute(CONTAINER_STORE_KEY, storage);
          }
+         return storage;
+      }
+   }
 
-         // the user may have set a customn CompatVersion
-         if (compatVersion != null) {
-            cachedContainer.setCompatVersion(compatVersion);
-         }
+   /**
+    * Create a new {@link ScriptingContainer} set up for this transformer. Every container is only used by one
+    * transformation at a time.
+    */
+   ScriptingContainer createContainer()
+   {
+      ScriptingContainer container = new ScriptingContainer(LocalContextScope.SINGLETHREAD,
+               LocalVariableBehavior.TRANSIENT);
+      container.setRunRubyInProcess(false);
 
-         // scripts typically need to set the load path for 3rd party gems
-         List<String> loadPaths = getLoadPaths();
-         if (loadPaths != null && !loadPaths.isEmpty()) {
-            cachedContainer.getLoadPaths().addAll(loadPaths);
-         }
+      // the user may have set a custom CompileMode
+      if (compileMode != null) {
+         container.setCompileMode(compileMode);
+      }
+
+      // the user may have set a customn CompatVersion
+      if (compatVersion != null) {
+         container.setCompatVersion(compatVersion);
+      }
 
-         // perform custom initialization of the container
-         prepareContainer(cachedContainer);
+      // scripts typically need to set the load path for 3rd party gems
+      List<String> loadPaths = getLoadPaths();
+      if (loadPaths != null && !loadPaths.isEmpty()) {
+         container.getLoadPaths().addAll(loadPaths);
       }
 
-      return cachedContainer;
+      // perform custom initialization of the container
+      prepareContainer(container);
+
+      return container;
+   }
+
+   /**
+    * Run the script once on empty input, so that the runtime is started and all required gems are loaded.
+    */
+   void warmUp(ScriptingContainer container)
+   {
+      try {
+         container.put("input", "");
+         runScript(container);
+      }
+      finally {
+         container.clear();
+      }
    }
 
    abstract protected Class<T> getTransformerType();
 
    abstract protected void prepareContainer(ScriptingContainer container);
 
+   /**
+    * Includes the {@link CompatVersion}, which selects the Ruby language version the script runs with. Subclasses with
+    * options of their own must add them.
+    */
+   @Override
+   public String getConfigurationKey()
+   {
+      return "compatVersion=" + compatVersion;
+   }
+
    /**
     * Allows to customize the {@link CompileMode} used by the JRuby runtime.
     */
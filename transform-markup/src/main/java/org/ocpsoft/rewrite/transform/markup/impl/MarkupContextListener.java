@@ -5,7 +5,6 @@ import java.util.Map;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 
-import org.jruby.embed.ScriptingContainer;
 import org.ocpsoft.rewrite.servlet.spi.ContextListener;
 
 public class MarkupContextListener implements ContextListener
@@ -19,20 +18,22 @@ public class MarkupContextListener implements ContextListener
 
    @Override
    public void contextInitialized(ServletContextEvent event)
-   {}
+   {
+      JRubyTransformer.getStorage(event.getServletContext());
+   }
 
    @Override
    @SuppressWarnings("unchecked")
    public void contextDestroyed(ServletContextEvent event)
    {
       ServletContext context = event.getServletContext();
-      Map<Class<?>, ScriptingContainer> storage = (Map<Class<?>, ScriptingContainer>) context
+      Map<Class<?>, ScriptingContainerPool> storage = (Map<Class<?>, ScriptingContainerPool>) context
                .getAttribute(JRubyTransformer.CONTAINER_STORE_KEY);
       if (storage != null)
       {
-         for (ScriptingContainer scriptingContainer : storage.values()) {
-            if (scriptingContainer != null)
-               scriptingContainer.terminate();
+         for (ScriptingContainerPool pool : storage.values()) {
+            if (pool != null)
+               pool.terminate();
          }
       }
    }
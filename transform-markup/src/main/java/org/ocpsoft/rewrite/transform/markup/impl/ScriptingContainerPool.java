@@ -0,0 +1,259 @@
+package org.ocpsoft.rewrite.transform.markup.impl;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+
+import org.jruby.embed.ScriptingContainer;
+import org.ocpsoft.logging.Logger;
+
+/**
+ * A bounded pool of {@link ScriptingContainer} instances for one {@link JRubyTransformer} type. A container is only
+ * used by one transformation at a time. Containers are created on demand up to the pool size; once the first one
+ * exists, the remaining ones are created and warmed up in the background, so that the script and its gems are already
+ * loaded when they are needed.
+ * <p>
+ * A container is discarded and later replaced if a transformation fails, or after it has been used for the configured
+ * number of transformations. The pool is configured with the following context parameters:
+ *
+ * <pre>
+ * &lt;context-param&gt;
+ *    &lt;param-name&gt;org.ocpsoft.rewrite.config.JRUBY_POOL_SIZE&lt;/param-name&gt;
+ *    &lt;param-value&gt;2&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *    &lt;param-name&gt;org.ocpsoft.rewrite.config.JRUBY_MAX_USES&lt;/param-name&gt;
+ *    &lt;param-value&gt;10000&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ *
+ * The pool size defaults to 2 containers per transformer type. By default, containers are never recycled.
+ *
+ * @author Christian Kaltepoth
+ */
+public class ScriptingContainerPool
+{
+   public static final String POOL_SIZE = "org.ocpsoft.rewrite.config.JRUBY_POOL_SIZE";
+   public static final String MAX_USES = "org.ocpsoft.rewrite.config.JRUBY_MAX_USES";
+
+   private static final int DEFAULT_POOL_SIZE = 2;
+
+   private static final Logger log = Logger.getLogger(ScriptingContainerPool.class);
+
+   private final JRubyTransformer<?> factory;
+   private final int size;
+   private final int maxUses;
+
+   private final BlockingQueue<Pooled> idle = new LinkedBlockingQueue<Pooled>();
+   private int created;
+   private boolean warmingUp;
+   private volatile boolean terminated;
+
+   /**
+    * Create a pool of containers set up by the given {@link JRubyTransformer}, configured by the parameters of the
+    * given {@link ServletContext}.
+    */
+   public ScriptingContainerPool(JRubyTransformer<?> factory, ServletContext context)
+   {
+      this(factory, parameter(context, POOL_SIZE, DEFAULT_POOL_SIZE), parameter(context, MAX_USES, 0));
+   }
+
+   /**
+    * Create a pool of at most the given number of containers set up by the given {@link JRubyTransformer}. Each
+    * container is used for at most the given number of transformations, or for any number if <code>0</code>.
+    */
+   public ScriptingContainerPool(JRubyTransformer<?> factory, int size, int maxUses)
+   {
+      if (size < 1)
+         throw new IllegalArgumentException("Pool size must be at least 1, but was [" + size + "]");
+      this.factory = factory;
+      this.size = size;
+      this.maxUses = maxUses;
+   }
+
+   private static int parameter(ServletContext context, String name, int defaultValue)
+   {
+      String value = context.getInitParameter(name);
+      if (value == null || value.trim().isEmpty())
+         return defaultValue;
+
+      try {
+         return Integer.parseInt(value.trim());
+      }
+      catch (NumberFormatException e) {
+         throw new IllegalArgumentException("Context parameter [" + name + "] must be a number, but was [" + value
+                  + "]", e);
+      }
+   }
+
+   /**
+    * Take a container from the pool, creating one if none is idle and the pool is not full, or waiting for one to be
+    * returned otherwise. Every container must be given back with {@link #release(ScriptingContainer, boolean)}.
+    */
+   public ScriptingContainer borrow() throws InterruptedException
+   {
+      while (true)
+      {
+         if (terminated)
+            throw new IllegalStateException("Pool of " + factory.getTransformerType().getName()
+                     + " containers has been terminated");
+
+         Pooled pooled = idle.poll();
+         if (pooled != null)
+            return pooled.borrowed();
+
+         if (reserve())
+         {
+            try {
+               pooled = new Pooled(factory.createContainer());
+            }
+            catch (RuntimeException e) {
+               unreserve();
+               throw e;
+            }
+            warmUp();
+            return pooled.borrowed();
+         }
+
+         // containers given back as unhealthy free a slot without becoming idle, so check again now and then
+         pooled = idle.poll(100, TimeUnit.MILLISECONDS);
+         if (pooled != null)
+            return pooled.borrowed();
+      }
+   }
+
+   /**
+    * Give back a container taken by {@link #borrow()}. A container that is not healthy, or that has reached the maximum
+    * number of uses, is terminated.
+    */
+   public void release(ScriptingContainer container, boolean healthy)
+   {
+      Pooled pooled = Pooled.of(container);
+      if (terminated || !healthy || (maxUses > 0 && pooled.uses >= maxUses))
+      {
+         discard(pooled);
+      }
+      else
+      {
+         idle.offer(pooled);
+         if (terminated && idle.remove(pooled))
+            discard(pooled);
+      }
+   }
+
+   /**
+    * Terminate all idle containers. Containers that are in use are terminated when they are given back.
+    */
+   public void terminate()
+   {
+      terminated = true;
+      Pooled pooled;
+      while ((pooled = idle.poll()) != null)
+      {
+         discard(pooled);
+      }
+   }
+
+   private void discard(Pooled pooled)
+   {
+      unreserve();
+      try {
+         pooled.container.terminate();
+      }
+      catch (RuntimeException e) {
+         log.warn("Failed to terminate JRuby container", e);
+      }
+   }
+
+   private synchronized boolean reserve()
+   {
+      if (created < size)
+      {
+         created++;
+         return true;
+      }
+      return false;
+   }
+
+   private synchronized void unreserve()
+   {
+      created--;
+   }
+
+   /*
+    * Fill the remaining slots of the pool in the background.
+    */
+   private synchronized void warmUp()
+   {
+      if (warmingUp || created >= size)
+         return;
+
+      warmingUp = true;
+      Thread thread = new Thread(new Runnable() {
+         @Override
+         public void run()
+         {
+            try {
+               while (!terminated && reserve())
+               {
+                  try {
+                     Pooled pooled = new Pooled(factory.createContainer());
+                     factory.warmUp(pooled.container);
+                     release(pooled.container, true);
+                  }
+                  catch (RuntimeException e) {
+                     unreserve();
+                     log.warn("Failed to warm up JRuby container for " + factory.getTransformerType().getName(), e);
+                     return;
+                  }
+               }
+            }
+            finally {
+               synchronized (ScriptingContainerPool.this) {
+                  warmingUp = false;
+               }
+            }
+         }
+      }, "rewrite-jruby-warmup-" + factory.getTransformerType().getSimpleName());
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ScriptingContainerPool [type=" + factory.getTransformerType().getName() + ", size=" + size
+               + ", maxUses=" + maxUses + ", idle=" + idle.size() + "]";
+   }
+
+   /**
+    * Counts the uses of a container. Stored as an attribute of the container itself, so that only the container needs
+    * to be passed around.
+    */
+   private static class Pooled
+   {
+      private static final String KEY = Pooled.class.getName();
+
+      private final ScriptingContainer container;
+      private int uses;
+
+      public Pooled(ScriptingContainer container)
+      {
+         this.container = container;
+         container.setAttribute(KEY, this);
+      }
+
+      public static Pooled of(ScriptingContainer container)
+      {
+         return (Pooled) container.getAttribute(KEY);
+      }
+
+      public ScriptingContainer borrowed()
+      {
+         uses++;
+         return container;
+      }
+   }
+}
@@ -0,0 +1,57 @@
+package org.ocpsoft.rewrite.transform.markup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HtmlDocumentTest
+{
+
+   @Test
+   public void shouldWrapContentLikeHtmlDocumentBuilder() throws IOException
+   {
+      HtmlDocument document = HtmlDocument.create().withTitle("foo").addStylesheet("styles.css");
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      document.transform(null, new ByteArrayInputStream("content".getBytes("UTF-8")), output);
+
+      String expected = new HtmlDocumentBuilder().withTitle("foo").addStylesheet("styles.css").build("content");
+      Assert.assertEquals(expected, output.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldWrapEmptyContent() throws IOException
+   {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      HtmlDocument.create().transform(null, new ByteArrayInputStream(new byte[0]), output);
+      Assert.assertEquals(new HtmlDocumentBuilder().build(null), output.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldPassContentThroughAsItIsWritten() throws IOException
+   {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      OutputStream stream = HtmlDocument.create().wrap(null, output);
+      stream.write("<p>a</p>".getBytes("UTF-8"));
+      stream.flush();
+      Assert.assertEquals(new HtmlDocumentBuilder().header() + "<p>a</p>", output.toString("UTF-8"));
+
+      stream.write('b');
+      stream.close();
+      stream.close();
+      Assert.assertEquals(new HtmlDocumentBuilder().build("<p>a</p>b"), output.toString("UTF-8"));
+   }
+
+   @Test
+   public void shouldIncludeOptionsInConfigurationKey()
+   {
+      Assert.assertEquals(HtmlDocument.create().withTitle("foo").getConfigurationKey(),
+               HtmlDocument.create().withTitle("foo").getConfigurationKey());
+      Assert.assertFalse(HtmlDocument.create().withTitle("foo").getConfigurationKey()
+               .equals(HtmlDocument.create().withTitle("bar").getConfigurationKey()));
+   }
+
+}
@@ -0,0 +1,160 @@
+package org.ocpsoft.rewrite.transform.markup.impl;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+
+import org.jruby.embed.ScriptingContainer;
+import org.junit.After;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+public class JRubyTransformerTest
+{
+   private final Map<String, Object> attributes = new HashMap<String, Object>();
+
+   private final ServletContext context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args)
+               {
+                  if ("getInitParameter".equals(method.getName()))
+                     return ScriptingContainerPool.POOL_SIZE.equals(args[0]) ? "1" : null;
+                  if ("getAttribute".equals(method.getName()))
+                     return attributes.get(args[0]);
+                  if ("setAttribute".equals(method.getName()))
+                     return attributes.put((String) args[0], args[1]);
+                  return null;
+               }
+            });
+
+   private final HttpServletRewrite event = (HttpServletRewrite) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { HttpServletRewrite.class }, new InvocationHandler() {
+               @Override
+               public Object invoke(Object proxy, Method method, Object[] args)
+               {
+                  if ("getServletContext".equals(method.getName()))
+                     return context;
+                  return null;
+               }
+            });
+
+   private final FailingTransformer transformer = new FailingTransformer();
+
+   @After
+   public void after()
+   {
+      ScriptingContainerPool pool = JRubyTransformer.getStorage(context).get(FailingTransformer.class);
+      if (pool != null)
+         pool.terminate();
+   }
+
+   @Test
+   public void testContainerIsKeptAfterScriptFailure()
+   {
+      transformer.transform(event, "ok");
+      ScriptingContainer first = transformer.used;
+
+      transformer.failure = new IllegalArgumentException("malformed input");
+      transform();
+      assertSame(first, transformer.used);
+
+      transformer.failure = null;
+      transformer.transform(event, "ok");
+      assertSame(first, transformer.used);
+   }
+
+   @Test
+   public void testContainerIsDiscardedAfterWrappedError()
+   {
+      transformer.transform(event, "ok");
+      ScriptingContainer first = transformer.used;
+
+      transformer.failure = new IllegalStateException(new StackOverflowError());
+      transform();
+
+      transformer.failure = null;
+      transformer.transform(event, "ok");
+      assertNotSame(first, transformer.used);
+   }
+
+   @Test
+   public void testContainerIsDiscardedAfterError()
+   {
+      transformer.transform(event, "ok");
+      ScriptingContainer first = transformer.used;
+
+      transformer.error = new StackOverflowError();
+      try {
+         transformer.transform(event, "ok");
+         fail();
+      }
+      catch (StackOverflowError e) {
+         // expected
+      }
+
+      transformer.error = null;
+      transformer.transform(event, "ok");
+      assertNotSame(first, transformer.used);
+   }
+
+   private void transform()
+   {
+      try {
+         transformer.transform(event, "ok");
+         fail();
+      }
+      catch (RuntimeException e) {
+         assertSame(transformer.failure, e);
+      }
+   }
+
+   private static class FailingTransformer extends JRubyTransformer<FailingTransformer>
+   {
+      private volatile RuntimeException failure;
+      private volatile Error error;
+      private volatile ScriptingContainer used;
+
+      @Override
+      public List<String> getLoadPaths()
+      {
+         return null;
+      }
+
+      @Override
+      public Object runScript(ScriptingContainer container)
+      {
+         used = container;
+         if (failure != null)
+            throw failure;
+         if (error != null)
+            throw error;
+         return "done";
+      }
+
+      @Override
+      public FailingTransformer self()
+      {
+         return this;
+      }
+
+      @Override
+      protected Class<FailingTransformer> getTransformerType()
+      {
+         return FailingTransformer.class;
+      }
+
+      @Override
+      protected void prepareContainer(ScriptingContainer container)
+      {}
+   }
+}
@@ -0,0 +1,82 @@
+package org.ocpsoft.rewrite.transform.markup.impl;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.jruby.embed.ScriptingContainer;
+import org.junit.After;
+import org.junit.Test;
+
+public class ScriptingContainerPoolTest
+{
+   private final ScriptingContainerPool pool = new ScriptingContainerPool(new NoopTransformer(), 1, 2);
+
+   @After
+   public void after()
+   {
+      pool.terminate();
+   }
+
+   @Test
+   public void testContainerIsReused() throws Exception
+   {
+      ScriptingContainer first = pool.borrow();
+      pool.release(first, true);
+      assertSame(first, pool.borrow());
+   }
+
+   @Test
+   public void testUnhealthyContainerIsReplaced() throws Exception
+   {
+      ScriptingContainer first = pool.borrow();
+      pool.release(first, false);
+      ScriptingContainer second = pool.borrow();
+      assertNotSame(first, second);
+      pool.release(second, true);
+   }
+
+   @Test
+   public void testContainerIsRecycledAfterMaxUses() throws Exception
+   {
+      ScriptingContainer first = pool.borrow();
+      pool.release(first, true);
+      assertSame(first, pool.borrow());
+      pool.release(first, true);
+      ScriptingContainer third = pool.borrow();
+      assertNotSame(first, third);
+      pool.release(third, true);
+   }
+
+   private static class NoopTransformer extends JRubyTransformer<NoopTransformer>
+   {
+      @Override
+      public List<String> getLoadPaths()
+      {
+         return null;
+      }
+
+      @Override
+      public Object runScript(ScriptingContainer container)
+      {
+         return null;
+      }
+
+      @Override
+      public NoopTransformer self()
+      {
+         return this;
+      }
+
+      @Override
+      protected Class<NoopTransformer> getTransformerType()
+      {
+         return NoopTransformer.class;
+      }
+
+      @Override
+      protected void prepareContainer(ScriptingContainer container)
+      {}
+   }
+}
@@ -2,6 +2,8 @@ package org.ocpsoft.rewrite.transform.minify;
 
 import java.nio.charset.Charset;
 
+import org.ocpsoft.rewrite.transform.ConfigurableTransformer;
+import org.ocpsoft.rewrite.transform.PrecompilableTransformer;
 import org.ocpsoft.rewrite.transform.Transformer;
 
 /**
@@ -9,7 +11,7 @@ import org.ocpsoft.rewrite.transform.Transformer;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class Minify implements Transformer
+public abstract class Minify implements ConfigurableTransformer, PrecompilableTransformer
 {
    private Charset charset = Charset.forName("UTF-8");
 
@@ -34,6 +36,12 @@ public abstract class Minify implements Transformer
       return new CssMinify();
    }
 
+   @Override
+   public String getConfigurationKey()
+   {
+      return "charset=" + charset.name();
+   }
+
    /**
     * Get the {@link Charset} to be used during minification.
     */
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+/**
+ * A {@link Transformer} whose output depends on the options it was configured with. A {@link TransformCache}
+ * identifies results by the class and the configuration key of each stage, so that differently configured instances of
+ * the same class never share results. {@link Transformer} implementations without options do not need to implement
+ * this interface.
+ *
+ * @author Christian Kaltepoth
+ */
+public interface ConfigurableTransformer extends Transformer
+{
+   /**
+    * Return a key describing every option of this instance that affects its output. Instances with equal keys must
+    * produce the same output for the same input. The key must not change once the instance is used, and must be the
+    * same across restarts, since results stored on disk are found by it.
+    */
+   String getConfigurationKey();
+}
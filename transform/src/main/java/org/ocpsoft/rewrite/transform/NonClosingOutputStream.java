@@ -0,0 +1,45 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Protects the end of a chain of {@link StreamingTransformer} stages from being closed; closing only flushes.
+ *
+ * @author Christian Kaltepoth
+ */
+class NonClosingOutputStream extends FilterOutputStream
+{
+   public NonClosingOutputStream(OutputStream out)
+   {
+      super(out);
+   }
+
+   @Override
+   public void write(byte[] b, int off, int len) throws IOException
+   {
+      out.write(b, off, len);
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      out.flush();
+   }
+}
@@ -21,22 +21,29 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.ocpsoft.common.util.Streams;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContent;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptor;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptorChain;
-import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.config.response.StreamableResponseContent;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 
 /**
  * This pipeline is responsible to apply the registered {@link Transformer} implementations to the intercepted response
  * in the expected order.
  * <p>
- * TODO An alternate implementation should probably be provided that uses a {@link ResponseStreamWrapper}.
- * {@link Transformer} implementations would then need to select between stream wrapping or content interception.
+ * Adjacent {@link StreamingTransformer} stages are chained directly onto the output of the preceding stage, so the
+ * document is only buffered in front of stages that need all of it.
+ * <p>
+ * If a {@link TransformCache} is set, results are looked up by the fingerprint of the response content, and the
+ * pipeline is only applied on a miss. The requested address is not part of the key, so clients cannot add entries by
+ * varying it, and resources transformed ahead of time by {@link #precompile(HttpServletRewrite, InputStream)} are
+ * found for any request with the same content.
  * 
+ * @see PipelineStreamWrapper
  * @author Christian Kaltepoth
  */
 class PipelineContentInterceptor implements ResponseContentInterceptor
@@ -44,18 +51,51 @@ class PipelineContentInterceptor implements ResponseContentInterceptor
 
    private List<Transformer> pipeline = new ArrayList<Transformer>();
 
+   private TransformCache cache;
+   private volatile String pipelineKey;
+
    public void add(Transformer transformer)
    {
       pipeline.add(transformer);
+      pipelineKey = null;
+   }
+
+   public void setCache(TransformCache cache)
+   {
+      this.cache = cache;
+   }
+
+   public boolean isEmpty()
+   {
+      return pipeline.isEmpty();
    }
 
    @Override
    public void intercept(HttpServletRewrite event, ResponseContent buffer, ResponseContentInterceptorChain chain)
    {
       try {
-         ByteArrayOutputStream output = new ByteArrayOutputStream();
-         transform(event, new ByteArrayInputStream(buffer.getContents()), output);
-         buffer.setContents(output.toByteArray());
+         if (cache == null) {
+            buffer.setContents(transform(event, buffer));
+         }
+         else {
+            String namespace = pipelineKey();
+            byte[] fingerprint;
+            InputStream input = open(buffer);
+            try {
+               fingerprint = TransformCache.fingerprint(input);
+            }
+            finally {
+               input.close();
+            }
+
+            byte[] result = cache.get(namespace, fingerprint);
+            if (result == null) {
+               result = transform(event, buffer);
+               cache.put(namespace, fingerprint, result);
+            }
+            // later interceptors may modify the contents, so never hand out the cached array
+            buffer.setContents(result.clone());
+         }
          chain.proceed();
       }
       catch (IOException e) {
@@ -63,49 +103,144 @@ class PipelineContentInterceptor implements ResponseContentInterceptor
       }
    }
 
-   public void transform(HttpServletRewrite event, InputStream input, OutputStream output) throws IOException
+   private byte[] transform(HttpServletRewrite event, ResponseContent buffer) throws IOException
    {
+      PipelineBuffer output = new PipelineBuffer(8192);
+      InputStream input = open(buffer);
+      try {
+         transform(event, input, output);
+      }
+      finally {
+         input.close();
+      }
+      return output.toByteArray();
+   }
 
-      // just do a copy if no transformers have been added
-      if (pipeline.isEmpty()) {
-         Streams.copy(input, output);
+   /*
+    * Large responses may be buffered in a file, which the returned stream keeps open until it is closed.
+    */
+   private static InputStream open(ResponseContent buffer)
+   {
+      if (buffer instanceof StreamableResponseContent)
+         return ((StreamableResponseContent) buffer).getInputStream();
+      return new ByteArrayInputStream(buffer.getContents());
+   }
+
+   /*
+    * Uses the class names and configuration keys of the stages, so that keys stay the same across restarts for the disk
+    * tier. Computed on first use, after the configuration of the stages is complete.
+    */
+   String pipelineKey()
+   {
+      String result = pipelineKey;
+      if (result == null) {
+         StringBuilder key = new StringBuilder();
+         for (Transformer transformer : pipeline) {
+            key.append(transformer.getClass().getName());
+            if (transformer instanceof ConfigurableTransformer)
+               key.append('(').append(((ConfigurableTransformer) transformer).getConfigurationKey()).append(')');
+            key.append(' ');
+         }
+         result = key.toString();
+         pipelineKey = result;
       }
+      return result;
+   }
 
-      // delegate if there is only one transformer
-      else if (pipeline.size() == 1) {
-         pipeline.get(0).transform(event, input, output);
+   /**
+    * Return the first stage of this pipeline that is not a {@link PrecompilableTransformer}, or <code>null</code> if
+    * every stage may be applied outside of any request.
+    */
+   Transformer getNonPrecompilableStage()
+   {
+      for (Transformer transformer : pipeline) {
+         if (!(transformer instanceof PrecompilableTransformer))
+            return transformer;
       }
+      return null;
+   }
 
-      // multiple transformers
-      else {
+   /**
+    * Record that resources with the given extensions are precompiled into the cache by this pipeline. Returns
+    * <code>false</code> if an equal pipeline already precompiled them into the same cache.
+    */
+   public boolean markPrecompiled(String... extensions)
+   {
+      if (cache == null)
+         throw new IllegalStateException("Precompiling requires a " + TransformCache.class.getSimpleName());
 
-         // prepar for the first transformation step
-         InputStream in = input;
-         OutputStream out = new ByteArrayOutputStream();
+      return cache.markPrecompiled(pipelineKey(), Arrays.toString(extensions));
+   }
 
-         for (int i = 0; i < pipeline.size(); i++) {
+   /**
+    * Apply the pipeline to the given content of a resource outside of any request, and store the result in the cache,
+    * where it is found for any request whose response has the same content. Every stage must be a
+    * {@link PrecompilableTransformer}.
+    */
+   public void precompile(HttpServletRewrite event, InputStream content) throws IOException
+   {
+      if (cache == null)
+         throw new IllegalStateException("Precompiling requires a " + TransformCache.class.getSimpleName());
 
-            // run transformation
-            pipeline.get(i).transform(event, in, out);
+      Transformer stage = getNonPrecompilableStage();
+      if (stage != null)
+         throw new IllegalStateException("Cannot precompile with [" + stage + "], which is not a "
+                  + PrecompilableTransformer.class.getSimpleName());
 
-            // if it isn't the last transformation step -> prepare next one
-            if (i < pipeline.size() - 1) {
+      PipelineBuffer input = new PipelineBuffer(8192);
+      Streams.copy(content, input);
+      byte[] fingerprint = TransformCache.fingerprint(input.toInputStream());
 
-               // prepare input for next iteration
-               ByteArrayOutputStream lastOutput = (ByteArrayOutputStream) out;
-               in = new ByteArrayInputStream(lastOutput.toByteArray());
+      String namespace = pipelineKey();
+      if (cache.get(namespace, fingerprint) == null) {
+         PipelineBuffer output = new PipelineBuffer(8192);
+         transform(event, input.toInputStream(), output);
+         cache.put(namespace, fingerprint, output.toByteArray());
+      }
+   }
 
-               // if the next transform step is the last one, write directly to the output
-               if (i == pipeline.size() - 2) {
-                  out = output;
-               }
+   public void transform(HttpServletRewrite event, InputStream input, OutputStream output) throws IOException
+   {
+      InputStream in = input;
 
-               // other steps write into the last byte array again
-               else {
-                  lastOutput.reset();
-               }
-            }
+      // the stage that needs the full input; null if the input is just copied into the following streaming stages
+      Transformer stage = null;
+      int next = 0;
+      if (!pipeline.isEmpty() && !(pipeline.get(0) instanceof StreamingTransformer)) {
+         stage = pipeline.get(0);
+         next = 1;
+      }
+
+      while (true) {
+
+         // chain all streaming stages up to the next stage that needs the full input
+         List<StreamingTransformer> streaming = new ArrayList<StreamingTransformer>();
+         while (next < pipeline.size() && pipeline.get(next) instanceof StreamingTransformer) {
+            streaming.add((StreamingTransformer) pipeline.get(next++));
+         }
+
+         // the last step writes directly to the output, all others into a buffer for the next stage
+         PipelineBuffer buffer = next < pipeline.size() ? new PipelineBuffer(8192) : null;
+         OutputStream target = buffer == null ? output : buffer;
+         OutputStream out = PipelineStreamWrapper.wrap(event, streaming, target);
+
+         if (stage == null) {
+            Streams.copy(in, out);
+         }
+         else {
+            stage.transform(event, in, out);
+         }
+
+         if (out != target) {
+            out.close();
          }
+
+         if (buffer == null) {
+            break;
+         }
+
+         in = buffer.toInputStream();
+         stage = pipeline.get(next++);
       }
    }
 
@@ -114,4 +249,20 @@ class PipelineContentInterceptor implements ResponseContentInterceptor
    {
       return "" + pipeline;
    }
+
+   /**
+    * Buffer between two stages, read back without copying.
+    */
+   private static class PipelineBuffer extends ByteArrayOutputStream
+   {
+      public PipelineBuffer(int size)
+      {
+         super(size);
+      }
+
+      public InputStream toInputStream()
+      {
+         return new ByteArrayInputStream(buf, 0, count);
+      }
+   }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * Applies a chain of {@link StreamingTransformer} stages to the response {@link OutputStream} while it is written,
+ * without buffering the response.
+ *
+ * @author Christian Kaltepoth
+ */
+class PipelineStreamWrapper implements ResponseStreamWrapper
+{
+   private static final AtomicInteger instances = new AtomicInteger();
+
+   private final String streamKey = PipelineStreamWrapper.class.getName() + "_STREAM_" + instances.incrementAndGet();
+
+   private final List<StreamingTransformer> pipeline = new ArrayList<StreamingTransformer>();
+
+   public void add(StreamingTransformer transformer)
+   {
+      pipeline.add(transformer);
+   }
+
+   public boolean isEmpty()
+   {
+      return pipeline.isEmpty();
+   }
+
+   @Override
+   public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
+   {
+      try {
+         OutputStream stream = wrap(rewrite, pipeline, outputStream);
+         rewrite.getRequest().setAttribute(streamKey, stream);
+         return stream;
+      }
+      catch (IOException e) {
+         throw new RewriteException("Could not wrap OutputStream", e);
+      }
+   }
+
+   @Override
+   public void finish(HttpServletRewrite rewrite)
+   {
+      OutputStream stream = (OutputStream) rewrite.getRequest().getAttribute(streamKey);
+      if (stream != null)
+      {
+         try {
+            rewrite.getRequest().removeAttribute(streamKey);
+            stream.close();
+         }
+         catch (IOException e) {
+            throw new RewriteException("Could not finish transformation pipeline " + pipeline, e);
+         }
+      }
+   }
+
+   /**
+    * Chain the given stages in front of the given {@link OutputStream}, so that data written to the result passes
+    * through each stage in order. Closing the result completes all stages, but only flushes the given stream.
+    */
+   static OutputStream wrap(HttpServletRewrite event, List<StreamingTransformer> stages, OutputStream output)
+            throws IOException
+   {
+      if (stages.isEmpty())
+         return output;
+
+      OutputStream result = new NonClosingOutputStream(output);
+      for (int i = stages.size() - 1; i >= 0; i--) {
+         result = stages.get(i).wrap(event, result);
+      }
+      return result;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "" + pipeline;
+   }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import javax.servlet.ServletContext;
+
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * A {@link Transformer} that may be applied outside of any request, when resources are precompiled by
+ * {@link Transform#precompile(ServletContext, String...)}. Implementations may only use the {@link ServletContext},
+ * the context path and the address of the {@link HttpServletRewrite} passed to them; there is no request, response,
+ * rewrite context or flow. Pipelines with a stage that does not implement this interface are not precompiled.
+ *
+ * @author Christian Kaltepoth
+ */
+public interface PrecompilableTransformer extends Transformer
+{
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.event.Flow;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+/**
+ * The {@link HttpServletRewrite} passed to {@link PrecompilableTransformer} implementations while a resource is
+ * precompiled outside of any request. Only the {@link ServletContext} and the {@link Address} of the resource are available; there is no
+ * request or response.
+ *
+ * @see Transform#precompile(ServletContext, String...)
+ * @author Christian Kaltepoth
+ */
+class PrecompileRewrite implements HttpServletRewrite
+{
+   private final ServletContext servletContext;
+   private final Address address;
+
+   public PrecompileRewrite(ServletContext servletContext, String resource)
+   {
+      this.servletContext = servletContext;
+      this.address = AddressBuilder.begin().path(servletContext.getContextPath() + resource).buildLiteral();
+   }
+
+   @Override
+   public ServletContext getServletContext()
+   {
+      return servletContext;
+   }
+
+   @Override
+   public String getContextPath()
+   {
+      return servletContext.getContextPath();
+   }
+
+   @Override
+   public Address getInboundAddress()
+   {
+      return address;
+   }
+
+   @Override
+   public Address getAddress()
+   {
+      return address;
+   }
+
+   @Override
+   public HttpServletRequest getRequest()
+   {
+      return null;
+   }
+
+   @Override
+   public HttpServletResponse getResponse()
+   {
+      return null;
+   }
+
+   @Override
+   public Context getRewriteContext()
+   {
+      return null;
+   }
+
+   @Override
+   public Flow getFlow()
+   {
+      return null;
+   }
+
+   @Override
+   public List<Rule> getEvaluatedRules()
+   {
+      return Collections.emptyList();
+   }
+
+   @Override
+   public void abort()
+   {
+      throw new UnsupportedOperationException("Not available while precompiling " + address);
+   }
+
+   @Override
+   public void proceed()
+   {
+      throw new UnsupportedOperationException("Not available while precompiling " + address);
+   }
+
+   @Override
+   public void handled()
+   {
+      throw new UnsupportedOperationException("Not available while precompiling " + address);
+   }
+
+   @Override
+   public void setFlow(Flow flow)
+   {
+      throw new UnsupportedOperationException("Not available while precompiling " + address);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "PrecompileRewrite [" + address + "]";
+   }
+}
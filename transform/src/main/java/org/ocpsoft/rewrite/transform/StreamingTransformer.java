@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.ocpsoft.common.util.Streams;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * Base class for {@link Transformer} implementations that transform data as it is written, without needing the
+ * complete input. Data is pushed through {@link #wrap(HttpServletRewrite, OutputStream)} in chunks; a stage that
+ * cannot keep up simply blocks the writer, so no stage buffers more than it chooses to.
+ * <p>
+ * {@link Transform} applies streaming stages that follow the last non-streaming stage of its pipeline as a
+ * {@link ResponseStreamWrapper}, so the response is never buffered for them. All other {@link Transformer}
+ * implementations (such as {@link StringTransformer}) are treated as needing the full document, and cause the response
+ * to be buffered.
+ *
+ * @author Christian Kaltepoth
+ */
+public abstract class StreamingTransformer implements Transformer
+{
+   /**
+    * Return an {@link OutputStream} that transforms all data written to it and writes the result to the given
+    * {@link OutputStream}. Closing the returned stream signals the end of the input: any remaining output must then be
+    * written, and the given stream closed.
+    */
+   public abstract OutputStream wrap(HttpServletRewrite event, OutputStream output) throws IOException;
+
+   @Override
+   public void transform(HttpServletRewrite event, InputStream input, OutputStream output) throws IOException
+   {
+      OutputStream stream = wrap(event, new NonClosingOutputStream(output));
+      Streams.copy(input, stream);
+      stream.close();
+   }
+}
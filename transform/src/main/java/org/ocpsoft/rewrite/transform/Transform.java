@@ -15,23 +15,50 @@
  */
 package org.ocpsoft.rewrite.transform;
 
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletResponse;
 
+import org.ocpsoft.logging.Logger;
+
 import org.ocpsoft.rewrite.config.Operation;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
 import org.ocpsoft.rewrite.servlet.config.HttpOperation;
+import org.ocpsoft.rewrite.servlet.config.response.EncodingResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 
 /**
  * An {@link Operation} that applies one or more {@link Transformer} implementations to the {@link HttpServletResponse}.
+ * <p>
+ * The response is buffered for all stages up to the last {@link Transformer} that is not a
+ * {@link StreamingTransformer}. Any {@link StreamingTransformer} stages after that are applied while the response is
+ * written, as a {@link ResponseStreamWrapper}; like other stream wrappers, they are applied to the output of stream
+ * wrappers added later, and to the input of stream wrappers added earlier. Compressing wrappers
+ * ({@link EncodingResponseStreamWrapper}) are always applied last, so these stages never see compressed output.
+ * <p>
+ * A {@link #cached()} transform buffers the response for all stages, and stores the result in a
+ * {@link TransformCache}, so that unchanged resources are not transformed again. Static resources can be
+ * {@link #precompile(ServletContext, String...) precompiled} into the cache in the background, so that even the first
+ * request for them is served without running the pipeline.
  * 
  * @author Christian Kaltepoth
  */
 public class Transform extends HttpOperation
 {
+   private static final Logger log = Logger.getLogger(Transform.class);
+
+   private List<Transformer> transformers = new ArrayList<Transformer>();
    private PipelineContentInterceptor pipeline = new PipelineContentInterceptor();
+   private PipelineStreamWrapper streams = new PipelineStreamWrapper();
+   private TransformCache cache;
 
    private Transform()
    {
@@ -52,22 +79,163 @@ public class Transform extends HttpOperation
     */
    public Transform then(Transformer transformer)
    {
-      pipeline.add(transformer);
+      transformers.add(transformer);
+      build();
+      return this;
+   }
+
+   /**
+    * Cache the results of this transformation in memory, holding at most {@link TransformCache#DEFAULT_MEMORY_LIMIT}
+    * bytes. The transformer pipeline is then only applied to content that it has not transformed before.
+    * <p>
+    * Results are found by content alone, so the {@link Transformer} stages of a cached transformation must produce the
+    * same output for the same content, whichever resource is requested.
+    */
+   public Transform cached()
+   {
+      return cached(TransformCache.inMemory());
+   }
+
+   /**
+    * Cache the results of this transformation in the given {@link TransformCache}. The transformer pipeline is then
+    * only applied to content that it has not transformed before.
+    * 
+    * @see #cached()
+    */
+   public Transform cached(TransformCache cache)
+   {
+      this.cache = cache;
+      build();
+      return this;
+   }
+
+   /**
+    * Apply this transformation to all resources of the given {@link ServletContext} whose names end with one of the
+    * given extensions (for example <code>".less"</code>), in the background, and store the results in the cache
+    * of this transformation. A request whose response has the same content as a precompiled resource is then served
+    * from the cache, even if the resource is requested by a different path. If no cache was set by
+    * {@link #cached(TransformCache)}, a default cache is used.
+    * <p>
+    * This should be called after all {@link Transformer} stages were added, typically while building the
+    * configuration. Only pipelines whose stages are all {@link PrecompilableTransformer} implementations are
+    * precompiled, since the event passed to them only provides the {@link ServletContext} and the path of the resource;
+    * otherwise a warning is logged and nothing is precompiled. Resources below <code>/WEB-INF/</code> and
+    * <code>/META-INF/</code> are skipped.
+    * <p>
+    * Resources are precompiled by a single thread per {@link ServletContext}, which is stopped when the context is
+    * destroyed. If an equal pipeline already precompiled resources with the same extensions into the same cache, for
+    * example before the configuration was reloaded, they are not precompiled again.
+    */
+   public Transform precompile(final ServletContext context, final String... extensions)
+   {
+      if (cache == null)
+         cached();
+
+      final PipelineContentInterceptor target = pipeline;
+      Transformer stage = target.getNonPrecompilableStage();
+      if (stage != null) {
+         log.warn("Not precompiling " + Arrays.toString(extensions) + " with " + this + ", because [" + stage
+                  + "] is not a " + PrecompilableTransformer.class.getSimpleName());
+         return this;
+      }
+
+      if (!target.markPrecompiled(extensions)) {
+         log.debug("Resources " + Arrays.toString(extensions) + " were already precompiled with " + this);
+         return this;
+      }
+
+      TransformContextListener.getExecutor(context).execute(new Runnable() {
+         @Override
+         public void run()
+         {
+            List<String> resources = new ArrayList<String>();
+            collectResources(context, "/", extensions, resources);
+
+            int count = 0;
+            for (String resource : resources) {
+               if (Thread.currentThread().isInterrupted())
+                  return;
+               try {
+                  InputStream content = context.getResourceAsStream(resource);
+                  if (content != null) {
+                     try {
+                        target.precompile(new PrecompileRewrite(context, resource), content);
+                        count++;
+                     }
+                     finally {
+                        content.close();
+                     }
+                  }
+               }
+               catch (Exception e) {
+                  log.warn("Failed to precompile [" + resource + "] with " + Transform.this, e);
+               }
+            }
+            log.info("Precompiled [" + count + "] resources with " + Transform.this);
+         }
+      });
       return this;
    }
 
+   private static void collectResources(ServletContext context, String directory, String[] extensions,
+            List<String> result)
+   {
+      Set<String> paths = context.getResourcePaths(directory);
+      if (paths == null)
+         return;
+
+      for (String path : paths) {
+         if (path.startsWith("/WEB-INF/") || path.startsWith("/META-INF/"))
+            continue;
+
+         if (path.endsWith("/"))
+            collectResources(context, path, extensions, result);
+         else {
+            for (String extension : extensions) {
+               if (path.endsWith(extension)) {
+                  result.add(path);
+                  break;
+               }
+            }
+         }
+      }
+   }
+
+   private void build()
+   {
+      // a cached result covers the whole pipeline, so nothing can be streamed
+      int streaming = transformers.size();
+      while (cache == null && streaming > 0 && transformers.get(streaming - 1) instanceof StreamingTransformer) {
+         streaming--;
+      }
+
+      pipeline = new PipelineContentInterceptor();
+      pipeline.setCache(cache);
+      streams = new PipelineStreamWrapper();
+      for (int i = 0; i < transformers.size(); i++) {
+         if (i < streaming)
+            pipeline.add(transformers.get(i));
+         else
+            streams.add((StreamingTransformer) transformers.get(i));
+      }
+   }
+
    @Override
    public void performHttp(HttpServletRewrite event, EvaluationContext context)
    {
       if (event instanceof HttpInboundServletRewrite) {
-         RewriteWrappedResponse.getCurrentInstance(event.getRequest()).addContentInterceptor(pipeline);
+         RewriteWrappedResponse response = RewriteWrappedResponse.getCurrentInstance(event.getRequest());
+         if (!pipeline.isEmpty())
+            response.addContentInterceptor(pipeline);
+         if (!streams.isEmpty())
+            response.addStreamWrapper(streams);
       }
    }
 
    @Override
    public String toString()
    {
-      return "Transform.with(" + pipeline + ")";
+      return "Transform.with(" + transformers + ")" + (cache == null ? "" : ".cached(" + cache + ")");
    }
 
 }
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ocpsoft.logging.Logger;
+
+/**
+ * Holds the results of a {@link Transform} pipeline, so that content that was transformed before is served without
+ * invoking any {@link Transformer}. Results are identified by a fingerprint of the content they were created from, not
+ * by the requested address, so the number of stored results is bounded by the number of distinct contents, and a
+ * result is shared by all resources with the same content.
+ * <p>
+ * Results are kept in memory up to a fixed number of bytes, evicting the least recently used results first. If a disk
+ * directory is configured, all results are also written there, and results that were evicted from memory (or were
+ * created before a restart) are read back from disk. The disk tier is limited to a fixed number of bytes as well, and
+ * deletes the least recently used files first.
+ * <p>
+ * Results are kept in a namespace made of the class and the {@link ConfigurableTransformer#getConfigurationKey()
+ * configuration key} of each transformer in the pipeline, so a cache may be shared by several {@link Transform}
+ * operations. On disk, every namespace is kept in a directory of its own.
+ *
+ * @see Transform#cached(TransformCache)
+ * @author Christian Kaltepoth
+ */
+public class TransformCache
+{
+   /**
+    * The default number of bytes held in memory: 16MB.
+    */
+   public static final long DEFAULT_MEMORY_LIMIT = 16 * 1024 * 1024;
+
+   /**
+    * The default number of bytes stored in the disk tier: 256MB.
+    */
+   public static final long DEFAULT_DISK_LIMIT = 256 * 1024 * 1024;
+
+   private static final Logger log = Logger.getLogger(TransformCache.class);
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+   private static final String SUFFIX = ".cache";
+   private static final String TEMP_PREFIX = "transform";
+
+   private final long memoryLimit;
+   private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+   private final Set<String> precompiled = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+   private long memorySize;
+
+   private File directory;
+   private long diskLimit;
+   private final LinkedHashMap<File, Long> files = new LinkedHashMap<File, Long>(16, 0.75f, true);
+   private long diskSize;
+
+   private TransformCache(long memoryLimit)
+   {
+      this.memoryLimit = memoryLimit;
+   }
+
+   /**
+    * Create a {@link TransformCache} holding at most {@link #DEFAULT_MEMORY_LIMIT} bytes of results in memory.
+    */
+   public static TransformCache inMemory()
+   {
+      return inMemory(DEFAULT_MEMORY_LIMIT);
+   }
+
+   /**
+    * Create a {@link TransformCache} holding at most the given number of bytes of results in memory.
+    */
+   public static TransformCache inMemory(long memoryLimit)
+   {
+      if (memoryLimit < 0)
+         throw new IllegalArgumentException("Memory limit must not be negative, but was [" + memoryLimit + "]");
+      return new TransformCache(memoryLimit);
+   }
+
+   /**
+    * Also store up to {@link #DEFAULT_DISK_LIMIT} bytes of results in the given directory.
+    * 
+    * @see #withDiskTier(File, long)
+    */
+   public TransformCache withDiskTier(File directory)
+   {
+      return withDiskTier(directory, DEFAULT_DISK_LIMIT);
+   }
+
+   /**
+    * Also store up to the given number of bytes of results in the given directory, which is created if it does not
+    * exist. Results stored there survive eviction from memory and restarts; one file is kept per distinct content, in
+    * a subdirectory per pipeline. Results already stored in the directory count towards the limit, oldest first.
+    */
+   public TransformCache withDiskTier(File directory, long diskLimit)
+   {
+      if (diskLimit < 0)
+         throw new IllegalArgumentException("Disk limit must not be negative, but was [" + diskLimit + "]");
+      if (!directory.isDirectory() && !directory.mkdirs())
+         throw new IllegalArgumentException("Could not create cache directory [" + directory + "]");
+
+      List<File> existing = new ArrayList<File>();
+      File[] namespaces = directory.listFiles();
+      for (int i = 0; namespaces != null && i < namespaces.length; i++) {
+         File[] contents = namespaces[i].listFiles();
+         for (int j = 0; contents != null && j < contents.length; j++) {
+            String name = contents[j].getName();
+            if (name.endsWith(SUFFIX))
+               existing.add(contents[j]);
+            else if (name.startsWith(TEMP_PREFIX) && name.endsWith(".tmp"))
+               contents[j].delete(); // left behind by an interrupted write
+         }
+      }
+      Collections.sort(existing, new Comparator<File>() {
+         @Override
+         public int compare(File left, File right)
+         {
+            long difference = left.lastModified() - right.lastModified();
+            return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+         }
+      });
+
+      synchronized (files) {
+         this.directory = directory;
+         this.diskLimit = diskLimit;
+         files.clear();
+         diskSize = 0;
+         for (File file : existing) {
+            files.put(file, file.length());
+            diskSize += file.length();
+         }
+         evictFiles();
+      }
+      return this;
+   }
+
+   /**
+    * Compute the fingerprint of the given content.
+    */
+   static byte[] fingerprint(InputStream content) throws IOException
+   {
+      MessageDigest digest = digest();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = content.read(buffer)) != -1) {
+         digest.update(buffer, 0, read);
+      }
+      return digest.digest();
+   }
+
+   /**
+    * Return the result stored in the given namespace for content with the given fingerprint, or <code>null</code> if
+    * there is none.
+    */
+   byte[] get(String namespace, byte[] fingerprint)
+   {
+      String key = hex(fingerprint);
+      String entryKey = entryKey(namespace, key);
+      Entry entry;
+      synchronized (this) {
+         entry = entries.get(entryKey);
+      }
+      if (entry != null && Arrays.equals(entry.fingerprint, fingerprint))
+         return entry.result;
+
+      if (directory != null) {
+         entry = read(namespace, key);
+         if (entry != null && Arrays.equals(entry.fingerprint, fingerprint)) {
+            store(entryKey, entry);
+            return entry.result;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Store the result created from content with the given fingerprint in the given namespace.
+    */
+   void put(String namespace, byte[] fingerprint, byte[] result)
+   {
+      String key = hex(fingerprint);
+      Entry entry = new Entry(fingerprint, result);
+      store(entryKey(namespace, key), entry);
+      if (directory != null)
+         write(namespace, key, entry);
+   }
+
+   /**
+    * Record that the resources identified by the given key were precompiled into the given namespace. Returns
+    * <code>false</code> if they already were.
+    */
+   boolean markPrecompiled(String namespace, String key)
+   {
+      return precompiled.add(entryKey(namespace, key));
+   }
+
+   /*
+    * Prefixed with the length of the namespace, so that no namespace and key combine to the same entry as another.
+    */
+   private static String entryKey(String namespace, String key)
+   {
+      return namespace.length() + ":" + namespace + key;
+   }
+
+   private synchronized void store(String key, Entry entry)
+   {
+      Entry previous = entries.remove(key);
+      if (previous != null)
+         memorySize -= previous.result.length;
+
+      if (entry.result.length > memoryLimit)
+         return;
+
+      entries.put(key, entry);
+      memorySize += entry.result.length;
+
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (memorySize > memoryLimit && iterator.hasNext()) {
+         memorySize -= iterator.next().result.length;
+         iterator.remove();
+      }
+   }
+
+   /**
+    * Remove all results from memory and disk.
+    */
+   public void clear()
+   {
+      synchronized (this) {
+         entries.clear();
+         memorySize = 0;
+      }
+      precompiled.clear();
+      if (directory != null) {
+         synchronized (files) {
+            files.clear();
+            diskSize = 0;
+         }
+         File[] namespaces = directory.listFiles();
+         if (namespaces != null) {
+            for (File namespace : namespaces) {
+               File[] contents = namespace.listFiles();
+               if (contents != null) {
+                  for (File file : contents) {
+                     if (file.getName().endsWith(SUFFIX))
+                        file.delete();
+                  }
+                  namespace.delete();
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Return the number of bytes of results currently held in memory.
+    */
+   public synchronized long getMemorySize()
+   {
+      return memorySize;
+   }
+
+   /**
+    * Return the number of bytes of results currently stored in the disk tier.
+    */
+   public long getDiskSize()
+   {
+      synchronized (files) {
+         return diskSize;
+      }
+   }
+
+   private Entry read(String namespace, String key)
+   {
+      File file = file(namespace, key);
+      synchronized (files) {
+         if (files.get(file) == null)
+            return null;
+      }
+
+      try {
+         DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+         try {
+            if (!namespace.equals(input.readUTF()))
+               return null;
+            byte[] fingerprint = new byte[input.readInt()];
+            input.readFully(fingerprint);
+            byte[] result = new byte[input.readInt()];
+            input.readFully(result);
+            return new Entry(fingerprint, result);
+         }
+         finally {
+            input.close();
+         }
+      }
+      catch (FileNotFoundException e) {
+         // evicted concurrently
+         return null;
+      }
+      catch (IOException e) {
+         log.warn("Could not read cached transformation result [" + file + "]", e);
+         return null;
+      }
+   }
+
+   private void write(String namespace, String key, Entry entry)
+   {
+      File file = file(namespace, key);
+      try {
+         File parent = file.getParentFile();
+         if (!parent.isDirectory() && !parent.mkdirs())
+            throw new IOException("Could not create cache directory [" + parent + "]");
+
+         File temp = File.createTempFile(TEMP_PREFIX, ".tmp", parent);
+         DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+         try {
+            output.writeUTF(namespace);
+            output.writeInt(entry.fingerprint.length);
+            output.write(entry.fingerprint);
+            output.writeInt(entry.result.length);
+            output.write(entry.result);
+         }
+         finally {
+            output.close();
+         }
+
+         synchronized (files) {
+            if (!temp.renameTo(file)) {
+               file.delete();
+               if (!temp.renameTo(file)) {
+                  temp.delete();
+                  log.warn("Could not store cached transformation result [" + file + "]");
+                  return;
+               }
+            }
+
+            Long previous = files.put(file, file.length());
+            if (previous != null)
+               diskSize -= previous;
+            diskSize += file.length();
+            evictFiles();
+         }
+      }
+      catch (IOException e) {
+         log.warn("Could not write cached transformation result [" + file + "]", e);
+      }
+   }
+
+   /*
+    * Must hold the lock on files.
+    */
+   private void evictFiles()
+   {
+      Iterator<Map.Entry<File, Long>> iterator = files.entrySet().iterator();
+      while (diskSize > diskLimit && iterator.hasNext()) {
+         Map.Entry<File, Long> file = iterator.next();
+         file.getKey().delete();
+         diskSize -= file.getValue();
+         iterator.remove();
+      }
+   }
+
+   private File file(String namespace, String key)
+   {
+      File parent = new File(directory, hex(digest().digest(namespace.getBytes(UTF8))));
+      return new File(parent, key + SUFFIX);
+   }
+
+   /**
+    * Return the given fingerprint as a string of hexadecimal digits.
+    */
+   static String hex(byte[] fingerprint)
+   {
+      StringBuilder result = new StringBuilder(fingerprint.length * 2);
+      for (byte b : fingerprint) {
+         result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return result.toString();
+   }
+
+   private static MessageDigest digest()
+   {
+      try {
+         return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException("SHA-1 is not supported by this JVM", e);
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "TransformCache [memoryLimit=" + memoryLimit + ", directory=" + directory + ", diskLimit=" + diskLimit
+               + "]";
+   }
+
+   private static class Entry
+   {
+      private final byte[] fingerprint;
+      private final byte[] result;
+
+      public Entry(byte[] fingerprint, byte[] result)
+      {
+         this.fingerprint = fingerprint;
+         this.result = result;
+      }
+   }
+}
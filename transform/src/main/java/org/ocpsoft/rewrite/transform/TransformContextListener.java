@@ -0,0 +1,86 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+
+import org.ocpsoft.rewrite.servlet.spi.ContextListener;
+
+/**
+ * Owns the single background thread that {@link Transform#precompile(ServletContext, String...)} runs on, and stops
+ * it when the {@link ServletContext} is destroyed.
+ *
+ * @author Christian Kaltepoth
+ */
+public class TransformContextListener implements ContextListener
+{
+   static final String EXECUTOR_KEY = TransformContextListener.class.getName() + "_EXECUTOR";
+
+   @Override
+   public int priority()
+   {
+      return 0;
+   }
+
+   @Override
+   public void contextInitialized(ServletContextEvent event)
+   {
+      getExecutor(event.getServletContext());
+   }
+
+   @Override
+   public void contextDestroyed(ServletContextEvent event)
+   {
+      ServletContext context = event.getServletContext();
+      ExecutorService executor;
+      synchronized (context) {
+         executor = (ExecutorService) context.getAttribute(EXECUTOR_KEY);
+         context.removeAttribute(EXECUTOR_KEY);
+      }
+      if (executor != null)
+         executor.shutdownNow();
+   }
+
+   /**
+    * Return the executor that precompiles resources of the given {@link ServletContext}, creating it if necessary.
+    * Tasks run one after another, so that precompiling does not compete with requests for more than one CPU.
+    */
+   static ExecutorService getExecutor(ServletContext context)
+   {
+      synchronized (context) {
+         ExecutorService executor = (ExecutorService) context.getAttribute(EXECUTOR_KEY);
+         if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+               @Override
+               public Thread newThread(Runnable runnable)
+               {
+                  Thread thread = new Thread(runnable, "rewrite-transform-precompile");
+                  thread.setDaemon(true);
+                  return thread;
+               }
+            });
+            context.setAttribute(EXECUTOR_KEY, executor);
+         }
+         return executor;
+      }
+   }
+
+}
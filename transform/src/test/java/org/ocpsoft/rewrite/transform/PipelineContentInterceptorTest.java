@@ -0,0 +1,286 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+
+import javax.servlet.ServletContext;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseContent;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptorChain;
+import org.ocpsoft.rewrite.servlet.config.response.StreamableResponseContent;
+
+/**
+ * @author Christian Kaltepoth
+ */
+public class PipelineContentInterceptorTest
+{
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private ServletContext context;
+   private CountingTransformer counting;
+   private PipelineContentInterceptor pipeline;
+   private TransformCache cache;
+
+   @Before
+   public void before()
+   {
+      context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+               new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args)
+                  {
+                     if ("getContextPath".equals(method.getName()))
+                        return "/ctx";
+                     return null;
+                  }
+               });
+      cache = TransformCache.inMemory();
+      pipeline = new PipelineContentInterceptor();
+      counting = new CountingTransformer();
+      pipeline.add(counting);
+      pipeline.setCache(cache);
+   }
+
+   @Test
+   public void testPrecompiledResultIsFoundByContent() throws IOException
+   {
+      Assert.assertTrue(pipeline.markPrecompiled(".less"));
+      pipeline.precompile(new PrecompileRewrite(context, "/styles/site.less"), stream("body {}"));
+
+      // requested by a different path, but with the same content
+      Assert.assertEquals("body {} (1)", intercept("/styles/site.css", "body {}"));
+      Assert.assertEquals("body {} (1)", intercept("/styles/site.css", "body {}"));
+      Assert.assertEquals("body {} (1)", intercept("/other.css", "body {}"));
+   }
+
+   @Test
+   public void testChangedContentIsTransformedAgain() throws IOException
+   {
+      pipeline.markPrecompiled(".less");
+      pipeline.precompile(new PrecompileRewrite(context, "/styles/site.less"), stream("body {}"));
+
+      Assert.assertEquals("p {} (2)", intercept("/styles/site.css", "p {}"));
+      Assert.assertEquals("p {} (2)", intercept("/styles/site.css", "p {}"));
+   }
+
+   @Test
+   public void testResultsAreFoundByContentNotAddress() throws IOException
+   {
+      Assert.assertEquals("body {} (1)", intercept("/a.css", "body {}"));
+      long size = cache.getMemorySize();
+
+      Assert.assertEquals("body {} (1)", intercept("/b.css", "body {}"));
+      for (int i = 0; i < 100; i++) {
+         Assert.assertEquals("body {} (1)", intercept("/a.css?" + i, "body {}"));
+      }
+      Assert.assertEquals(size, cache.getMemorySize());
+   }
+
+   @Test
+   public void testEqualPipelineIsOnlyPrecompiledOnce()
+   {
+      Assert.assertTrue(pipeline.markPrecompiled(".less", ".sass"));
+
+      PipelineContentInterceptor rebuilt = new PipelineContentInterceptor();
+      rebuilt.add(new CountingTransformer());
+      rebuilt.setCache(cache);
+      Assert.assertFalse(rebuilt.markPrecompiled(".less", ".sass"));
+      Assert.assertTrue(rebuilt.markPrecompiled(".less"));
+
+      PipelineContentInterceptor other = new PipelineContentInterceptor();
+      other.add(new UppercaseTransformer());
+      other.setCache(cache);
+      Assert.assertTrue(other.markPrecompiled(".less", ".sass"));
+
+      cache.clear();
+      Assert.assertTrue(pipeline.markPrecompiled(".less", ".sass"));
+   }
+
+   @Test
+   public void testDifferentlyConfiguredStagesDoNotShareResults()
+   {
+      PipelineContentInterceptor first = pipeline(cache, new SuffixTransformer("!"));
+      PipelineContentInterceptor second = pipeline(cache, new SuffixTransformer("?"));
+      Assert.assertFalse(first.pipelineKey().equals(second.pipelineKey()));
+      Assert.assertEquals(first.pipelineKey(), pipeline(cache, new SuffixTransformer("!")).pipelineKey());
+
+      Assert.assertEquals("a!", intercept(first, "/a.txt", "a"));
+      Assert.assertEquals("a?", intercept(second, "/a.txt", "a"));
+      Assert.assertEquals("a!", intercept(first, "/a.txt", "a"));
+   }
+
+   @Test
+   public void testDiskTierIsNamespacedByPipeline() throws IOException
+   {
+      File directory = File.createTempFile("transform", "");
+      directory.delete();
+      try {
+         TransformCache disk = TransformCache.inMemory(0).withDiskTier(directory);
+         Assert.assertEquals("a!", intercept(pipeline(disk, new SuffixTransformer("!")), "/a.txt", "a"));
+         Assert.assertEquals("a?", intercept(pipeline(disk, new SuffixTransformer("?")), "/a.txt", "a"));
+         Assert.assertEquals(2, directory.listFiles().length);
+
+         // read back after a restart
+         TransformCache restarted = TransformCache.inMemory(0).withDiskTier(directory);
+         Assert.assertEquals(disk.getDiskSize(), restarted.getDiskSize());
+         String namespace = pipeline(restarted, new SuffixTransformer("?")).pipelineKey();
+         byte[] result = restarted.get(namespace, TransformCache.fingerprint(stream("a")));
+         Assert.assertEquals("a?", new String(result, UTF8));
+
+         restarted.clear();
+         Assert.assertEquals(0, directory.listFiles().length);
+         Assert.assertEquals(0, restarted.getDiskSize());
+      }
+      finally {
+         delete(directory);
+      }
+   }
+
+   @Test
+   public void testDiskTierEvictsLeastRecentlyUsedFiles() throws IOException
+   {
+      File directory = File.createTempFile("transform", "");
+      directory.delete();
+      try {
+         PipelineContentInterceptor first = pipeline(TransformCache.inMemory(0).withDiskTier(directory), null);
+         Assert.assertEquals("a (1)", intercept(first, "/a.txt", "a"));
+         long entry = directory.listFiles()[0].listFiles()[0].length();
+
+         TransformCache disk = TransformCache.inMemory(0).withDiskTier(directory, entry * 3);
+         PipelineContentInterceptor pipeline = pipeline(disk, null);
+         Assert.assertEquals("b (2)", intercept(pipeline, "/b.txt", "b"));
+         Assert.assertEquals("c (3)", intercept(pipeline, "/c.txt", "c"));
+         Assert.assertEquals(entry * 3, disk.getDiskSize());
+
+         // a is read back, so b is the least recently used result
+         Assert.assertEquals("a (1)", intercept(pipeline, "/a.txt", "a"));
+         Assert.assertEquals("d (4)", intercept(pipeline, "/d.txt", "d"));
+         Assert.assertEquals(entry * 3, disk.getDiskSize());
+         Assert.assertEquals(3, directory.listFiles()[0].listFiles().length);
+
+         Assert.assertEquals("a (1)", intercept(pipeline, "/a.txt", "a"));
+         Assert.assertEquals("c (3)", intercept(pipeline, "/c.txt", "c"));
+         Assert.assertEquals("b (5)", intercept(pipeline, "/b.txt", "b"));
+
+         // a smaller limit applies to results stored before
+         TransformCache smaller = TransformCache.inMemory(0).withDiskTier(directory, entry);
+         Assert.assertEquals(entry, smaller.getDiskSize());
+         Assert.assertEquals(1, directory.listFiles()[0].listFiles().length);
+      }
+      finally {
+         delete(directory);
+      }
+   }
+
+   private static void delete(File directory)
+   {
+      File[] namespaces = directory.listFiles();
+      for (int i = 0; namespaces != null && i < namespaces.length; i++) {
+         File[] files = namespaces[i].listFiles();
+         for (int j = 0; files != null && j < files.length; j++) {
+            files[j].delete();
+         }
+         namespaces[i].delete();
+      }
+      directory.delete();
+   }
+
+   /*
+    * Shares the CountingTransformer of the default pipeline if no transformer is given.
+    */
+   private PipelineContentInterceptor pipeline(TransformCache cache, Transformer transformer)
+   {
+      PipelineContentInterceptor result = new PipelineContentInterceptor();
+      result.add(transformer == null ? counting : transformer);
+      result.setCache(cache);
+      return result;
+   }
+
+   private String intercept(String path, String content)
+   {
+      return intercept(pipeline, path, content);
+   }
+
+   private String intercept(PipelineContentInterceptor pipeline, String path, String content)
+   {
+      final byte[][] contents = { content.getBytes(UTF8) };
+      final int[] open = new int[1];
+      ResponseContent buffer = new StreamableResponseContent() {
+         @Override
+         public byte[] getContents()
+         {
+            return contents[0];
+         }
+
+         @Override
+         public InputStream getInputStream()
+         {
+            open[0]++;
+            return new ByteArrayInputStream(contents[0]) {
+               @Override
+               public void close()
+               {
+                  open[0]--;
+               }
+            };
+         }
+
+         @Override
+         public void setContents(byte[] value)
+         {
+            contents[0] = value;
+         }
+
+         @Override
+         public Charset getCharset()
+         {
+            return UTF8;
+         }
+
+         @Override
+         public void setCharset(Charset charset)
+         {}
+      };
+
+      final boolean[] proceeded = new boolean[1];
+      pipeline.intercept(new PrecompileRewrite(context, path), buffer, new ResponseContentInterceptorChain() {
+         @Override
+         public void proceed()
+         {
+            proceeded[0] = true;
+         }
+      });
+      Assert.assertTrue(proceeded[0]);
+      Assert.assertEquals(0, open[0]);
+      return new String(contents[0], UTF8);
+   }
+
+   private static InputStream stream(String content)
+   {
+      return new ByteArrayInputStream(content.getBytes(UTF8));
+   }
+}
@@ -43,7 +43,8 @@ public class TransformPipelineTest extends RewriteTest
    {
       WebArchive archive = RewriteTest.getDeployment()
                .addAsWebResource(new StringAsset("this is foo"), "test.txt")
-               .addClasses(TransformPipelineTestProvider.class, FooBarTransformer.class, UppercaseTransformer.class)
+               .addClasses(TransformPipelineTestProvider.class, FooBarTransformer.class, UppercaseTransformer.class,
+                        UppercaseStreamingTransformer.class, CountingTransformer.class)
                .addAsServiceProvider(ConfigurationProvider.class, TransformPipelineTestProvider.class);
       return archive;
    }
@@ -64,4 +65,40 @@ public class TransformPipelineTest extends RewriteTest
       assertEquals("THIS IS BAR", action.getResponseContent());
    }
 
+   @Test
+   public void testPipelineWithStreamingTransformer() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/test.stream");
+      assertEquals(200, action.getResponse().getStatusLine().getStatusCode());
+      assertEquals("THIS IS FOO", action.getResponseContent());
+   }
+
+   @Test
+   public void testStreamingTransformerAfterBufferingTransformer() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/test.buffered-streaming");
+      assertEquals(200, action.getResponse().getStatusLine().getStatusCode());
+      assertEquals("THIS IS BAR", action.getResponseContent());
+   }
+
+   @Test
+   public void testStreamingTransformerBeforeBufferingTransformer() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/test.streaming-buffered");
+      assertEquals(200, action.getResponse().getStatusLine().getStatusCode());
+      assertEquals("THIS IS FOO", action.getResponseContent());
+   }
+
+   @Test
+   public void testCachedPipelineOnlyTransformsOnce() throws Exception
+   {
+      HttpAction<HttpGet> first = get("/test.cached");
+      assertEquals(200, first.getResponse().getStatusLine().getStatusCode());
+      assertEquals("this is bar (1)", first.getResponseContent());
+
+      HttpAction<HttpGet> second = get("/test.cached");
+      assertEquals(200, second.getResponse().getStatusLine().getStatusCode());
+      assertEquals("this is bar (1)", second.getResponseContent());
+   }
+
 }
@@ -56,6 +56,29 @@ public class TransformPipelineTestProvider extends HttpConfigurationProvider
                .perform(Forward.to("/{basename}.txt").and(
                         Transform.with(new FooBarTransformer()).then(new UppercaseTransformer())))
 
+               // one streaming transformer
+               .addRule()
+               .when(Path.matches("/{basename}.stream"))
+               .perform(Forward.to("/{basename}.txt").and(Transform.with(new UppercaseStreamingTransformer())))
+
+               // streaming transformer after a buffering transformer
+               .addRule()
+               .when(Path.matches("/{basename}.buffered-streaming"))
+               .perform(Forward.to("/{basename}.txt").and(
+                        Transform.with(new FooBarTransformer()).then(new UppercaseStreamingTransformer())))
+
+               // streaming transformer before a buffering transformer
+               .addRule()
+               .when(Path.matches("/{basename}.streaming-buffered"))
+               .perform(Forward.to("/{basename}.txt").and(
+                        Transform.with(new UppercaseStreamingTransformer()).then(new FooBarTransformer())))
+
+               // cached transformation
+               .addRule()
+               .when(Path.matches("/{basename}.cached"))
+               .perform(Forward.to("/{basename}.txt").and(
+                        Transform.with(new FooBarTransformer()).then(new CountingTransformer()).cached()))
+
       ;
    }
 
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Christian Kaltepoth
+ */
+public class TransformPrecompileTest
+{
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private final Map<String, Object> attributes = new HashMap<String, Object>();
+   private final List<String> opened = new ArrayList<String>();
+   private ServletContext context;
+
+   @Before
+   public void before()
+   {
+      final Map<String, String> resources = new HashMap<String, String>();
+      resources.put("/styles/site.less", "body {}");
+      resources.put("/styles/site.css", "p {}");
+      resources.put("/WEB-INF/secret.less", "secret {}");
+
+      context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+               new Class<?>[] { ServletContext.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args)
+                  {
+                     String name = method.getName();
+                     if ("getContextPath".equals(name))
+                        return "/ctx";
+                     if ("getAttribute".equals(name))
+                        return attributes.get(args[0]);
+                     if ("setAttribute".equals(name))
+                        return attributes.put((String) args[0], args[1]);
+                     if ("removeAttribute".equals(name))
+                        return attributes.remove(args[0]);
+                     if ("getResourcePaths".equals(name)) {
+                        if ("/".equals(args[0]))
+                           return new LinkedHashSet<String>(Arrays.asList("/styles/", "/WEB-INF/"));
+                        if ("/styles/".equals(args[0]))
+                           return new LinkedHashSet<String>(Arrays.asList("/styles/site.less", "/styles/site.css"));
+                        return null;
+                     }
+                     if ("getResourceAsStream".equals(name)) {
+                        String content = resources.get(args[0]);
+                        if (content == null)
+                           return null;
+                        synchronized (opened) {
+                           opened.add((String) args[0]);
+                        }
+                        return new ByteArrayInputStream(content.getBytes(UTF8));
+                     }
+                     return null;
+                  }
+               });
+   }
+
+   @After
+   public void after()
+   {
+      new TransformContextListener().contextDestroyed(new ServletContextEvent(context));
+   }
+
+   @Test
+   public void testPrecompileStoresResultsByContent() throws Exception
+   {
+      CountingTransformer counting = new CountingTransformer();
+      TransformCache cache = TransformCache.inMemory();
+      Transform.with(counting).cached(cache).precompile(context, ".less");
+      await();
+
+      Assert.assertEquals(Arrays.asList("/styles/site.less"), opened);
+      PipelineContentInterceptor pipeline = new PipelineContentInterceptor();
+      pipeline.add(counting);
+      pipeline.setCache(cache);
+      byte[] result = cache.get(pipeline.pipelineKey(), fingerprint("body {}"));
+      Assert.assertEquals("body {} (1)", new String(result, UTF8));
+      Assert.assertNull(cache.get(pipeline.pipelineKey(), fingerprint("p {}")));
+   }
+
+   @Test
+   public void testEqualPipelineIsNotPrecompiledAgain() throws Exception
+   {
+      TransformCache cache = TransformCache.inMemory();
+      Transform.with(new CountingTransformer()).cached(cache).precompile(context, ".less");
+      Transform.with(new CountingTransformer()).cached(cache).precompile(context, ".less");
+      await();
+
+      Assert.assertEquals(Arrays.asList("/styles/site.less"), opened);
+   }
+
+   @Test
+   public void testPipelineWithRequestDependentStageIsNotPrecompiled() throws Exception
+   {
+      TransformCache cache = TransformCache.inMemory();
+      Transform.with(new CountingTransformer()).then(new UppercaseTransformer()).cached(cache)
+               .precompile(context, ".less");
+
+      Assert.assertNull(attributes.get(TransformContextListener.EXECUTOR_KEY));
+      Assert.assertTrue(opened.isEmpty());
+      Assert.assertEquals(0, cache.getMemorySize());
+   }
+
+   private void await() throws InterruptedException
+   {
+      ExecutorService executor = TransformContextListener.getExecutor(context);
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+   }
+
+   private static byte[] fingerprint(String content) throws Exception
+   {
+      return TransformCache.fingerprint(new ByteArrayInputStream(content.getBytes(UTF8)));
+   }
+}